@@ -16,8 +16,30 @@ dependencies {
     implementation("org.fusesource.jansi:jansi:2.4.1")
 }
 
+// benchmarks are plain main classes, run them with ./gradlew bench -Pbenchmark=<class name>
+val bench by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+    runtimeClasspath += sourceSets.main.get().output + sourceSets.main.get().runtimeClasspath
+}
+
+// the lexer uses the incubating Vector API when it is present and falls back to scalar code otherwise
+val vectorModule = "--add-modules=jdk.incubator.vector"
+
+tasks.withType<JavaCompile>().configureEach {
+    options.compilerArgs.add(vectorModule)
+}
+
 tasks.test {
     useJUnitPlatform()
+    jvmArgs(vectorModule)
+}
+
+tasks.register<JavaExec>("bench") {
+    group = "verification"
+    description = "Runs a benchmark from src/bench, selected with -Pbenchmark=<class name>"
+    classpath = bench.runtimeClasspath
+    mainClass = "mainau.bench." + (project.findProperty("benchmark") ?: "LexerBenchmark")
+    jvmArgs(vectorModule)
 }
 
 tasks.run.configure {
@@ -26,4 +48,5 @@ tasks.run.configure {
 
 application {
     mainClass = "mainau.repl.runtime.Main"
+    applicationDefaultJvmArgs = listOf(vectorModule)
 }
\ No newline at end of file
@@ -0,0 +1,160 @@
+package mainau.bench;
+
+import mainau.compiler.analysis.lexical.Operator;
+import mainau.compiler.analysis.lexical.SourceFile;
+import mainau.compiler.analysis.lexical.SymbolTable;
+import mainau.compiler.ast.AST;
+import mainau.compiler.ast.Node;
+import mainau.compiler.logging.MessageType;
+import mainau.compiler.logging.Output;
+import mainau.compiler.visitor.ASTVisitor;
+import mainau.repl.runtime.ProcessTask;
+import mainau.repl.runtime.Session;
+
+import static mainau.compiler.ast.AST.*;
+
+/**
+ * Evaluates the same arithmetic program with a tree-walking loop three times: an {@link ASTVisitor}
+ * over the parser's classes, the same visitor over {@link Node} records through their bridge,
+ * and an exhaustive {@code switch} over the records.
+ */
+public class DispatchBenchmark {
+    private static final int STATEMENTS = 4000;
+    private static final int WARMUP = 200, ITERATIONS = 500;
+
+    public static void main(String[] args) {
+        final StringBuilder source = new StringBuilder("x0 = 1.5;\nx1 = 2.25;\n");
+        for (int i = 2; i < STATEMENTS; i++)
+            source.append("x").append(i).append(" = x").append(i - 1).append(" * 0.5 + x").append(i - 2)
+                    .append(" - ").append(i % 10).append(" / 4;\n");
+
+        final AST.Program[] parsed = new AST.Program[1];
+        Output.capture(MessageType.ERROR, () -> {
+            final ProcessTask task = new ProcessTask(new SourceFile(source.toString(), "dispatch"), new Session());
+            task.start();
+            parsed[0] = task.getProgram();
+        });
+        final AST.Program classes = parsed[0];
+        final Node.Program records = Node.of(classes);
+        final float[] slots = new float[SymbolTable.size()];
+
+        final double visitor = measure(() -> VisitorEvaluator.run(classes, slots), slots);
+        final double bridge = measure(() -> VisitorEvaluator.run(records, slots), slots);
+        final double switched = measure(() -> SwitchEvaluator.run(records, slots), slots);
+        System.out.printf("visitor on classes: %8.1f ns/node%n", visitor);
+        System.out.printf("visitor on records: %8.1f ns/node%n", bridge);
+        System.out.printf("switch on records:  %8.1f ns/node   speed-up over classes: %.2fx%n", switched, visitor / switched);
+    }
+
+    private static double measure(Runnable evaluation, float[] slots) {
+        for (int i = 0; i < WARMUP; i++)
+            evaluation.run();
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+            evaluation.run();
+        final long elapsed = System.nanoTime() - start;
+        if (Float.isNaN(slots[SymbolTable.intern("x" + (STATEMENTS - 1))]))
+            throw new IllegalStateException("evaluation went wrong");
+        // an assignment, its target, its binary operations and their operands
+        return (double) elapsed / ITERATIONS / (STATEMENTS * 11L);
+    }
+
+    private static final class VisitorEvaluator implements ASTVisitor<Float, float[]> {
+        private static final VisitorEvaluator INSTANCE = new VisitorEvaluator();
+
+        static void run(AST.Program program, float[] slots) {
+            program.accept(INSTANCE, slots);
+        }
+
+        @Override
+        public Float visitProgram(Program program, float[] slots) {
+            for (AST.Statement statement : program.body())
+                statement.accept(this, slots);
+            return null;
+        }
+
+        @Override
+        public Float visitAssignmentExpression(AssignmentExpression expression, float[] slots) {
+            if (expression.operator() != Operator.ASSIGN)
+                throw unsupported(expression);
+            final float value = expression.value().accept(this, slots);
+            slots[((IdentifierLiteralExpression) expression.variable()).symbolId()] = value;
+            return value;
+        }
+
+        @Override
+        public Float visitBinaryExpression(BinaryExpression expression, float[] slots) {
+            final float left = expression.left().accept(this, slots), right = expression.right().accept(this, slots);
+            return switch (expression.operator()) {
+                case ADD -> left + right;
+                case SUBTRACT -> left - right;
+                case MULTIPLY -> left * right;
+                case DIVIDE -> left / right;
+                default -> throw new UnsupportedOperationException(expression.operator().text());
+            };
+        }
+
+        @Override
+        public Float visitIdentifierLiteralExpression(IdentifierLiteralExpression expression, float[] slots) {
+            return slots[expression.symbolId()];
+        }
+
+        @Override
+        public Float visitNumericLiteralExpression(NumericLiteralExpression expression, float[] slots) {
+            return expression.value();
+        }
+
+        @Override public Float visitStatement(Statement statement, float[] slots) { throw unsupported(statement); }
+        @Override public Float visitObtainStatement(ObtainStatement statement, float[] slots) { throw unsupported(statement); }
+        @Override public Float visitFunctionDeclarationStatement(FunctionDeclarationStatement statement, float[] slots) { throw unsupported(statement); }
+        @Override public Float visitExpression(Expression expression, float[] slots) { throw unsupported(expression); }
+        @Override public Float visitVariableDeclarationStatement(VariableDeclarationStatement statement, float[] slots) { throw unsupported(statement); }
+        @Override public Float visitMemberExpression(MemberExpression expression, float[] slots) { throw unsupported(expression); }
+        @Override public Float visitFunctionInvocationExpression(FunctionInvocationExpression expression, float[] slots) { throw unsupported(expression); }
+        @Override public Float visitLiteralExpression(LiteralExpression expression, float[] slots) { throw unsupported(expression); }
+        @Override public Float visitStringLiteralExpression(StringLiteralExpression expression, float[] slots) { throw unsupported(expression); }
+        @Override public Float visitCharacterLiteralExpression(CharacterLiteralExpression expression, float[] slots) { throw unsupported(expression); }
+        @Override public Float visitNullLiteralExpression(NullLiteralExpression expression, float[] slots) { throw unsupported(expression); }
+    }
+
+    private static final class SwitchEvaluator {
+        static void run(Node.Program program, float[] slots) {
+            for (Node statement : program.body())
+                execute(statement, slots);
+        }
+
+        private static void execute(Node statement, float[] slots) {
+            if (!(statement instanceof Node.Expression expression))
+                throw unsupported(statement);
+            evaluate(expression, slots);
+        }
+
+        private static float evaluate(Node.Expression expression, float[] slots) {
+            return switch (expression) {
+                case Node.Binary(var left, var right, var operator) -> switch (operator) {
+                    case ADD -> evaluate(left, slots) + evaluate(right, slots);
+                    case SUBTRACT -> evaluate(left, slots) - evaluate(right, slots);
+                    case MULTIPLY -> evaluate(left, slots) * evaluate(right, slots);
+                    case DIVIDE -> evaluate(left, slots) / evaluate(right, slots);
+                    default -> throw new UnsupportedOperationException(operator.text());
+                };
+                case Node.Assignment(Node.Identifier(int symbolId), var value, var operator) when operator == Operator.ASSIGN ->
+                        slots[symbolId] = evaluate(value, slots);
+                case Node.Identifier(int symbolId) -> slots[symbolId];
+                case Node.NumberLiteral(float value) -> value;
+                case Node.Assignment assignment -> throw unsupported(assignment);
+                case Node.Member member -> throw unsupported(member);
+                case Node.Invocation invocation -> throw unsupported(invocation);
+                case Node.Parameter parameter -> throw unsupported(parameter);
+                case Node.StringLiteral string -> throw unsupported(string);
+                case Node.CharacterLiteral character -> throw unsupported(character);
+                case Node.NullLiteral nullLiteral -> throw unsupported(nullLiteral);
+            };
+        }
+    }
+
+    private static UnsupportedOperationException unsupported(AST.Statement statement) {
+        return new UnsupportedOperationException("not part of the benchmark: " + statement);
+    }
+}
@@ -0,0 +1,96 @@
+package mainau.bench;
+
+import mainau.compiler.analysis.lexical.SourceFile;
+import mainau.compiler.interpretation.Globals;
+import mainau.compiler.interpretation.Interpreter;
+import mainau.compiler.logging.MessageType;
+import mainau.compiler.logging.Output;
+import mainau.jit.Jit;
+import mainau.jit.TierPolicy;
+import mainau.repl.runtime.ProcessTask;
+import mainau.repl.runtime.Session;
+import mainau.repl.runtime.ValuesImpl;
+
+import java.util.function.Supplier;
+
+/**
+ * Runs the programs of the {@link VirtualMachineBenchmark} with the tree-walking {@link Interpreter}: interpreted,
+ * with the {@link Jit} compiling every function on its first call and with the default {@link TierPolicy}, which
+ * only compiles hot functions in the background. A snippet is parsed and run once in a new session, like a REPL
+ * input, a service declares the functions once and calls them over and over.
+ */
+public class JitBenchmark {
+    // a snippet makes a few hundred calls, a service call over a hundred thousand
+    private static final int SNIPPET_LEVELS = 6, SERVICE_LEVELS = 16;
+    private static final int SNIPPET_WARMUP = 20, SERVICE_WARMUP = 300, ITERATIONS = 30;
+    private static final TierPolicy EAGER = new TierPolicy(0, 0, TierPolicy.DEFAULT.queueSize(), false, TierPolicy.DEFAULT.transitions());
+
+    public static void main(String[] args) {
+        Output.setMinimumLevel(MessageType.WARNING);
+        compare("calls", "x + 1");
+        compare("arithmetic", """
+                { int a = x * 1.5 + 2; int b = a * a - x / 3; int c = (a + b) * (a - b) / (x + 1);
+                  a * b + c - (a + 1) * (b - 1) + c / 7 * 3 - a * 0.25 + b * 0.125 }""");
+    }
+
+    private static String declarations(String leaf, int levels) {
+        final StringBuilder source = new StringBuilder("fun f0 = int (int x) -> ").append(leaf).append(leaf.startsWith("{") ? "\n" : ";\n");
+        for (int level = 1; level <= levels; level++)
+            source.append("fun f").append(level).append(" = int (int x) -> f").append(level - 1)
+                    .append("(x + 1) + f").append(level - 1).append("(x - 1);\n");
+        return source.toString();
+    }
+
+    private static void compare(String name, String leaf) {
+        final String snippet = declarations(leaf, SNIPPET_LEVELS) + "f" + SNIPPET_LEVELS + "(1);\n";
+        print(name, "snippet", () -> snippet(snippet), SNIPPET_WARMUP);
+        print(name, "service", () -> service(declarations(leaf, SERVICE_LEVELS), "f" + SERVICE_LEVELS + "(1);\n"), SERVICE_WARMUP);
+    }
+
+    // every measurement starts with new globals
+    private static void print(String name, String kind, Supplier<Supplier<ValuesImpl.RuntimeValue>> run, int warmup) {
+        Jit.setEnabled(false);
+        final double interpreted = measure(run.get(), warmup);
+        Jit.setEnabled(true);
+        Jit.setPolicy(EAGER);
+        final double eager = measure(run.get(), warmup);
+        Jit.setPolicy(TierPolicy.DEFAULT);
+        final double tiered = measure(run.get(), warmup);
+        System.out.printf("%-10s  %-7s  interpreter: %8.3f ms  eager: %8.3f ms (%.1fx)  tiered: %8.3f ms (%.1fx)%n",
+                name, kind, interpreted, eager, interpreted / eager, tiered, interpreted / tiered);
+    }
+
+    // every run parses the program anew, so no function is ever hot
+    private static Supplier<ValuesImpl.RuntimeValue> snippet(String source) {
+        return () -> {
+            final ProcessTask task = parse(source);
+            return Interpreter.evaluate(task.getProgram(), new Globals(), task);
+        };
+    }
+
+    private static Supplier<ValuesImpl.RuntimeValue> service(String declarations, String call) {
+        final Globals globals = new Globals();
+        final ProcessTask declaring = parse(declarations), calling = parse(call);
+        Interpreter.evaluate(declaring.getProgram(), globals, declaring);
+        return () -> Interpreter.evaluate(calling.getProgram(), globals, calling);
+    }
+
+    private static ProcessTask parse(String source) {
+        final ProcessTask task = new ProcessTask(new SourceFile(source, "jit"), new Session());
+        task.start();
+        return task;
+    }
+
+    private static double measure(Supplier<ValuesImpl.RuntimeValue> evaluation, int warmup) {
+        ValuesImpl.RuntimeValue result = null;
+        for (int i = 0; i < warmup; i++)
+            result = evaluation.get();
+        if (!(result instanceof ValuesImpl.NumberValue))
+            throw new IllegalStateException("evaluation went wrong: " + result);
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+            evaluation.get();
+        return (System.nanoTime() - start) / 1e6 / ITERATIONS;
+    }
+}
@@ -0,0 +1,60 @@
+package mainau.bench;
+
+import mainau.compiler.analysis.lexical.SourceFile;
+import mainau.compiler.logging.MessageType;
+import mainau.compiler.logging.Output;
+import mainau.repl.runtime.ProcessTask;
+import mainau.repl.runtime.Session;
+
+/**
+ * Measures how long a script that declares many helpers but calls only a few of them takes from its source
+ * to its result, with every function body parsed up front and with lazy bodies, which are only parsed,
+ * resolved and evaluated when called. The first run is the startup of the process, it is only measured in the
+ * mode of {@code -Dmainau.parse.lazy}, run it a second time with {@code -Dmainau.parse.lazy=true} for the other.
+ */
+public class LazyParsingBenchmark {
+    private static final int HELPERS = 2000;
+    private static final int WARMUP = 20, ITERATIONS = 30;
+
+    public static void main(String[] args) {
+        Output.setMinimumLevel(MessageType.WARNING);
+        final StringBuilder source = new StringBuilder();
+        for (int helper = 0; helper < HELPERS; helper++)
+            source.append("fun helper").append(helper).append(" = int (int x) -> {\n")
+                    .append("    int a = x * 2 + ").append(helper).append(";\n")
+                    .append("    int b = a * a - x / 3;\n")
+                    .append("    int c = (a + b) * (a - b) / (x + 1);\n")
+                    .append("    a * b + c - (a + 1) * (b - 1) + c / 7 * 3\n")
+                    .append("}\n");
+        source.append("helper0(1) + helper").append(HELPERS / 2).append("(2) + helper").append(HELPERS - 1).append("(3);\n");
+        final String text = source.toString();
+
+        final boolean lazyStartup = Boolean.getBoolean("mainau.parse.lazy");
+        System.out.printf("startup  %s: %8.2f ms%n", lazyStartup ? "lazy " : "eager", run(text, lazyStartup));
+
+        for (int i = 0; i < WARMUP; i++) {
+            run(text, false);
+            run(text, true);
+        }
+        double eager = 0, lazy = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            eager += run(text, false);
+            lazy += run(text, true);
+        }
+        System.out.printf("warm     eager: %8.2f ms  lazy: %8.2f ms  speed-up: %.2fx%n",
+                eager / ITERATIONS, lazy / ITERATIONS, eager / lazy);
+    }
+
+    /**
+     * @return the milliseconds from the source to the result
+     */
+    private static double run(String text, boolean lazyFunctionBodies) {
+        final long start = System.nanoTime();
+        final ProcessTask task = new ProcessTask(new SourceFile(text, "lazy"), true, false, lazyFunctionBodies, new Session());
+        task.start();
+        final double milliseconds = (System.nanoTime() - start) / 1e6;
+        if (task.getErrorStorage().getErrorAmount() > 0)
+            throw new IllegalStateException("the script failed: " + task.getErrorStorage().getErrors());
+        return milliseconds;
+    }
+}
@@ -0,0 +1,56 @@
+package mainau.bench;
+
+import mainau.compiler.analysis.lexical.Lexer;
+import mainau.compiler.analysis.lexical.SourceFile;
+import mainau.compiler.analysis.lexical.TokenBuffer;
+
+import java.util.function.IntFunction;
+
+/**
+ * Compares the lexer's throughput on array backed sources, which take the vectorized
+ * path when {@code jdk.incubator.vector} is present, against the same text as a String,
+ * which is always scanned one char at a time.
+ * Run it a second time with {@code -Dmainau.lexer.vector=false} for the scalar numbers on arrays.
+ */
+public class LexerBenchmark {
+    private static final int SOURCE_SIZE = 8 << 20;
+    private static final int WARMUP = 10, ITERATIONS = 20;
+
+    public static void main(String[] args) {
+        System.out.println("Vector API scanning: " + (Lexer.isVectorized() ? "enabled" : "unavailable"));
+
+        run("long identifiers", line -> "var " + "someVeryLongGeneratedIdentifierName_".repeat(3) + line
+                + " = anotherQuiteLongIdentifierReferencingSomething" + line + ";\n");
+        run("string heavy", line -> "String text" + line + " = \"" + "Lorem ipsum dolor sit amet, consectetur ".repeat(4)
+                + line + "\";\n");
+        run("mixed", line -> "fun f" + line + " = int (int a, int b) -> a * b + " + line + ";\n    x = \"s\";\n");
+    }
+
+    private static void run(String name, IntFunction<String> lineGenerator) {
+        final StringBuilder builder = new StringBuilder(SOURCE_SIZE + 256);
+        for (int line = 0; builder.length() < SOURCE_SIZE; line++)
+            builder.append(lineGenerator.apply(line));
+        final String text = builder.toString();
+
+        final double scalar = measure(new SourceFile(text, name));
+        final double array = measure(SourceFile.of(text.toCharArray(), name));
+        System.out.printf("%-18s String: %8.1f MB/s   char[]: %8.1f MB/s   speed-up: %.2fx%n",
+                name, scalar, array, array / scalar);
+    }
+
+    private static double measure(SourceFile sourceFile) {
+        long tokens = 0;
+        for (int i = 0; i < WARMUP; i++)
+            tokens += Lexer.tokenize(sourceFile).size();
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            final TokenBuffer buffer = Lexer.tokenize(sourceFile);
+            tokens += buffer.size();
+        }
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        if (tokens == 0)
+            throw new IllegalStateException("nothing was lexed");
+        return (double) sourceFile.length() * ITERATIONS / seconds / (1 << 20);
+    }
+}
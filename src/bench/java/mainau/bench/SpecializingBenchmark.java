@@ -0,0 +1,62 @@
+package mainau.bench;
+
+import mainau.compiler.analysis.lexical.SourceFile;
+import mainau.compiler.ast.ASTImpl;
+import mainau.compiler.interpretation.Globals;
+import mainau.compiler.interpretation.Interpreter;
+import mainau.compiler.interpretation.SpecializingInterpreter;
+import mainau.compiler.logging.MessageType;
+import mainau.compiler.logging.Output;
+import mainau.repl.runtime.ProcessTask;
+import mainau.repl.runtime.Session;
+import mainau.repl.runtime.ValuesImpl;
+
+import java.util.function.Function;
+
+/**
+ * Runs the programs of the {@link VirtualMachineBenchmark} with the tree-walking {@link Interpreter} and the
+ * {@link SpecializingInterpreter}, whose operator and call nodes rewrite themselves for the values they see.
+ */
+public class SpecializingBenchmark {
+    private static final int LEVELS = 16;
+    private static final int WARMUP = 20, ITERATIONS = 30;
+
+    public static void main(String[] args) {
+        Output.setMinimumLevel(MessageType.WARNING);
+        compare("calls", program("x + 1"));
+        compare("arithmetic", program("""
+                { int a = x * 1.5 + 2; int b = a * a - x / 3; int c = (a + b) * (a - b) / (x + 1);
+                  a * b + c - (a + 1) * (b - 1) + c / 7 * 3 - a * 0.25 + b * 0.125 }"""));
+    }
+
+    private static String program(String leaf) {
+        final StringBuilder source = new StringBuilder("fun f0 = int (int x) -> ").append(leaf).append(leaf.startsWith("{") ? "\n" : ";\n");
+        for (int level = 1; level <= LEVELS; level++)
+            source.append("fun f").append(level).append(" = int (int x) -> f").append(level - 1)
+                    .append("(x + 1) + f").append(level - 1).append("(x - 1);\n");
+        return source.append("f").append(LEVELS).append("(1);\n").toString();
+    }
+
+    private static void compare(String name, String source) {
+        final ProcessTask task = new ProcessTask(new SourceFile(source, "specializing"), new Session());
+        task.start();
+        final ASTImpl.Program program = task.getProgram();
+        final double tree = measure(globals -> Interpreter.evaluate(program, globals, task));
+        final double specializing = measure(globals -> SpecializingInterpreter.evaluate(program, globals, task));
+        System.out.printf("%-10s  interpreter: %8.2f ms  specializing: %8.2f ms  speed-up: %.2fx%n",
+                name, tree, specializing, tree / specializing);
+    }
+
+    private static double measure(Function<Globals, ValuesImpl.RuntimeValue> evaluation) {
+        ValuesImpl.RuntimeValue result = null;
+        for (int i = 0; i < WARMUP; i++)
+            result = evaluation.apply(new Globals());
+        if (!(result instanceof ValuesImpl.NumberValue))
+            throw new IllegalStateException("evaluation went wrong: " + result);
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+            evaluation.apply(new Globals());
+        return (System.nanoTime() - start) / 1e6 / ITERATIONS;
+    }
+}
@@ -0,0 +1,73 @@
+package mainau.bench;
+
+import mainau.compiler.analysis.lexical.SourceFile;
+import mainau.compiler.ast.ASTImpl;
+import mainau.compiler.interpretation.Globals;
+import mainau.compiler.interpretation.Interpreter;
+import mainau.compiler.logging.MessageType;
+import mainau.compiler.logging.Output;
+import mainau.repl.runtime.ProcessTask;
+import mainau.repl.runtime.Session;
+import mainau.repl.runtime.ValuesImpl;
+import mainau.vm.VirtualMachine;
+
+import java.util.function.Function;
+
+/**
+ * Runs a call-heavy and an arithmetic-heavy program with the tree-walking {@link Interpreter} and the
+ * {@link VirtualMachine}. Without branches in the language, both build a binary tree of calls: every
+ * level calls the one below twice, the leaves do the arithmetic.
+ */
+public class VirtualMachineBenchmark {
+    private static final int LEVELS = 16;
+    private static final int WARMUP = 20, ITERATIONS = 30;
+
+    public static void main(String[] args) {
+        final String calls = program("x + 1");
+        final String arithmetic = program("""
+                { int a = x * 1.5 + 2; int b = a * a - x / 3; int c = (a + b) * (a - b) / (x + 1);
+                  a * b + c - (a + 1) * (b - 1) + c / 7 * 3 - a * 0.25 + b * 0.125 }""");
+
+        compare("calls", calls);
+        compare("arithmetic", arithmetic);
+    }
+
+    private static String program(String leaf) {
+        final StringBuilder source = new StringBuilder("fun f0 = int (int x) -> ").append(leaf).append(leaf.startsWith("{") ? "\n" : ";\n");
+        for (int level = 1; level <= LEVELS; level++)
+            source.append("fun f").append(level).append(" = int (int x) -> f").append(level - 1)
+                    .append("(x + 1) + f").append(level - 1).append("(x - 1);\n");
+        return source.append("f").append(LEVELS).append("(1);\n").toString();
+    }
+
+    private static void compare(String name, String source) {
+        final ProcessTask task = parse(source);
+        final ASTImpl.Program program = task.getProgram();
+        final double tree = measure(globals -> Interpreter.evaluate(program, globals, task));
+        final double bytecode = measure(globals -> VirtualMachine.evaluate(program, globals, task));
+        System.out.printf("%-10s  interpreter: %8.2f ms  virtual machine: %8.2f ms  speed-up: %.2fx%n",
+                name, tree, bytecode, tree / bytecode);
+    }
+
+    private static double measure(Function<Globals, ValuesImpl.RuntimeValue> evaluation) {
+        ValuesImpl.RuntimeValue result = null;
+        for (int i = 0; i < WARMUP; i++)
+            result = evaluation.apply(new Globals());
+        if (!(result instanceof ValuesImpl.NumberValue))
+            throw new IllegalStateException("evaluation went wrong: " + result);
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+            evaluation.apply(new Globals());
+        return (System.nanoTime() - start) / 1e6 / ITERATIONS;
+    }
+
+    private static ProcessTask parse(String source) {
+        final ProcessTask[] parsed = new ProcessTask[1];
+        Output.capture(MessageType.ERROR, () -> {
+            parsed[0] = new ProcessTask(new SourceFile(source, "vm"), new Session());
+            parsed[0].start();
+        });
+        return parsed[0];
+    }
+}
@@ -0,0 +1,36 @@
+package mainau.compiler.analysis.lexical;
+
+/**
+ * Source text backed by a plain char array, which lets the {@link Lexer} scan runs with a {@link RunScanner}.
+ */
+final class CharArrayText implements CharSequence {
+    private final char[] chars;
+
+    CharArrayText(char[] chars) {
+        this.chars = chars;
+    }
+
+    char[] array() {
+        return chars;
+    }
+
+    @Override
+    public int length() {
+        return chars.length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return chars[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new String(chars, start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars);
+    }
+}
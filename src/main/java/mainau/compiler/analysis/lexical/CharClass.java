@@ -0,0 +1,46 @@
+package mainau.compiler.analysis.lexical;
+
+/**
+ * Precomputed character classification used by the {@link Lexer}.
+ * ASCII characters are looked up in a table, everything else goes through {@link #classifyNonAscii(char)}.
+ */
+final class CharClass {
+    static final int WHITE_SPACE = 1;
+    static final int LINE_BREAK = 1 << 1;
+    static final int DIGIT = 1 << 2;
+    static final int IDENTIFIER_START = 1 << 3;
+    static final int IDENTIFIER_PART = 1 << 4;
+    static final int NUMBER_PART = 1 << 5;
+
+    private static final byte[] ASCII = new byte[128];
+
+    static {
+        // same set as the former "\\s" and "\\R" regular expressions
+        for (char c : new char[]{' ', '\t', '\n', '\u000B', '\f', '\r'})
+            ASCII[c] |= WHITE_SPACE;
+        for (char c : new char[]{'\n', '\u000B', '\f', '\r'})
+            ASCII[c] |= LINE_BREAK;
+
+        for (char c = '0'; c <= '9'; c++)
+            ASCII[c] |= DIGIT | IDENTIFIER_PART | NUMBER_PART;
+        for (char c = 'a'; c <= 'z'; c++) {
+            ASCII[c] |= IDENTIFIER_START | IDENTIFIER_PART | NUMBER_PART;
+            ASCII[Character.toUpperCase(c)] |= IDENTIFIER_START | IDENTIFIER_PART | NUMBER_PART;
+        }
+        ASCII['_'] |= IDENTIFIER_START | IDENTIFIER_PART;
+        ASCII['.'] |= NUMBER_PART;
+    }
+
+    private CharClass() {}
+
+    static boolean is(char c, int charClass) {
+        return ((c < 128 ? ASCII[c] : classifyNonAscii(c)) & charClass) != 0;
+    }
+
+    private static int classifyNonAscii(char c) {
+        return switch (c) {
+            case '\u0085', '\u2028', '\u2029' -> WHITE_SPACE | LINE_BREAK;
+            default -> 0;
+        };
+    }
+}
@@ -0,0 +1,68 @@
+package mainau.compiler.analysis.lexical;
+
+/**
+ * Perfect hash over the keywords of {@link TokenType#getKeywords()}, used to recognize
+ * reserved words directly on the source slice of an identifier.
+ * The hash only looks at the length and the first, second and last character,
+ * the parameters are searched once when the class is initialized.
+ */
+final class Keywords {
+    private static final TokenType[] KEYWORDS = TokenType.getKeywords();
+    private static final TokenType[] TABLE;
+    private static final int MULTIPLIER, MASK;
+
+    static {
+        TokenType[] table = null;
+        int multiplier = 0, mask = 0;
+
+        search:
+        for (int size = 64; size <= 1024; size <<= 1)
+            for (multiplier = 1; multiplier < 256; multiplier++) {
+                mask = size - 1;
+                if ((table = build(multiplier, mask)) != null)
+                    break search;
+            }
+        if (table == null)
+            throw new IllegalStateException("Could not find a perfect hash for the keywords");
+        TABLE = table;
+        MULTIPLIER = multiplier;
+        MASK = mask;
+    }
+
+    private static TokenType[] build(int multiplier, int mask) {
+        final TokenType[] table = new TokenType[mask + 1];
+        for (TokenType keyword : KEYWORDS) {
+            final String text = keyword.text();
+            final int slot = hash(text, 0, text.length(), multiplier, mask);
+            if (table[slot] != null)
+                return null;
+            table[slot] = keyword;
+        }
+        return table;
+    }
+
+    private Keywords() {}
+
+    private static int hash(CharSequence source, int offset, int length, int multiplier, int mask) {
+        final int first = source.charAt(offset);
+        final int second = length > 1 ? source.charAt(offset + 1) : 0;
+        final int last = source.charAt(offset + length - 1);
+        return ((first * multiplier + second) * multiplier + last + length) & mask;
+    }
+
+    /**
+     * @return the keyword spelled by the given slice of source, or {@code null} if it is a plain identifier
+     */
+    static TokenType lookup(CharSequence source, int offset, int length) {
+        final TokenType candidate = TABLE[hash(source, offset, length, MULTIPLIER, MASK)];
+        if (candidate == null)
+            return null;
+        final String text = candidate.text();
+        if (text.length() != length)
+            return null;
+        for (int i = 0; i < length; i++)
+            if (text.charAt(i) != source.charAt(offset + i))
+                return null;
+        return candidate;
+    }
+}
@@ -3,227 +3,343 @@ package mainau.compiler.analysis.lexical;
 import mainau.compiler.logging.MessageType;
 import mainau.compiler.logging.Output;
 import java.util.Arrays;
-import java.util.List;
 
 import static mainau.compiler.analysis.lexical.TokenType.*;
 
-public class Lexer {
-    private final String source;
-    private int line = 1, lastLineIndex = 0, index = 0;
-    private Token currentToken;
-    private char charValue;
-    private String stringValue;
-
-    public static final String WHITE_SPACE_REGEX = "\\s";
-    public static final String LINE_BREAK_REGEX = "\\R";
-    private static final List<String> LOWERCASE_KEYWORDS = Arrays.stream(TokenType.getKeywords())
-            .map(TokenType::nameToLowerCase)
-            .toList();
-
-    public Lexer(String sourceCode) {
-        if (sourceCode.isEmpty())
+public class Lexer implements TokenStream {
+    private final SourceFile sourceFile;
+    private final CharSequence source;
+    // only set if runs can be scanned vectorized
+    private final char[] chars;
+    // chars known to be readable, only grows beyond the initial length for streamed sources
+    private int available;
+    // lexing stops here, for lexers that only cover a range of the source
+    private final int limit;
+    private int index = 0, tokenStart = 0, tokenEnd = 0;
+
+    /**
+     * Amount of already lexed tokens kept for {@link #peek(int)} and {@link #reset(int)}.
+     */
+    public static final int BUFFER_SIZE = 64;
+    private static final int BUFFER_MASK = BUFFER_SIZE - 1;
+
+    private static final RunScanner SCANNER = RunScanner.load();
+    // most runs are short, those are cheaper to finish one char at a time before a vectorized scan pays off
+    private static final int SCALAR_PREFIX = 8;
+
+    // tokens are addressed by their absolute number, slot = number & BUFFER_MASK
+    private final Token[] buffer = new Token[BUFFER_SIZE];
+    private int position = 0, lexedAmount = 0;
+    private int markDepth = 0, oldestMark = -1;
+
+    public Lexer(SourceFile sourceFile) {
+        this(sourceFile, 0, Integer.MAX_VALUE);
+        if (sourceFile.available(1) == 0)
             throw new IllegalArgumentException("Cannot tokenize an empty String!");
-        this.source = sourceCode;
         final String message = "Successfully initialized module";
-        if (sourceCode.split("\\R").length == 1)
-            new Output().setEraseLine(true).send(MessageType.DEBUG, message + " of " + Arrays.toString(source.toCharArray()));
-        else new Output().send(MessageType.DEBUG, message + "!");
-        updateValue();
-        currentToken = nextToken();
-        shift();
+        if (sourceFile.isSingleLine())
+            new Output().setEraseLine(true).send(MessageType.DEBUG, () -> message + " of " + Arrays.toString(source.toString().toCharArray()));
+        else Output.simplyLog(MessageType.DEBUG, message + "!");
     }
 
-    private void shift() {
-        index++;
-        updateValue();
-        /*
-        try {
-            Output.simplyLog(MessageType.DEV, "shift | old { " + (index - 1) + " - '" + getStringValue(index - 1) +
-                    "' } new { " + index + " - '" + stringValue + "' }");
-        } catch (StringIndexOutOfBoundsException e) {
-            Output.simplyLog(MessageType.ERROR, e.getMessage());
-        }
-         */
-    }
-    private void unShift() {
-        index--;
-        updateValue();
-        /*
-        try {
-            Output.simplyLog(MessageType.DEV, "unShift | old { " + (index + 1) + " - '" + getStringValue(index + 1) +
-                    "' } new { " + index + " - '" + stringValue + "' }");
-        } catch (StringIndexOutOfBoundsException e) {
-            Output.simplyLog(MessageType.ERROR, e.getMessage());
-        }
-         */
+    /**
+     * Creates a lexer only covering the given range, it must begin and end in between two tokens.
+     */
+    Lexer(SourceFile sourceFile, int start, int limit) {
+        this.sourceFile = sourceFile;
+        this.source = sourceFile.text();
+        this.chars = SCANNER != null && source instanceof CharArrayText text ? text.array() : null;
+        this.limit = limit;
+        this.available = Math.min(limit, sourceFile.length());
+        this.index = start;
     }
-    private void updateValue() {
-        charValue = getCharValue(index);
-        stringValue = getStringValue(index);
+
+    private boolean isAvailable(int index) {
+        return index < available
+                || available < limit && (available = Math.min(limit, sourceFile.available(index + 1))) > index;
     }
-    private char getCharValue(int index) {
-        return checkEOF() ? 0 : source.charAt(index);
+
+    private char charAt(int index) {
+        return isAvailable(index) ? source.charAt(index) : 0;
     }
-    private String getStringValue(int index) {
-        return checkEOF() ? null : String.valueOf(source.charAt(index));
+
+    private boolean is(int index, int charClass) {
+        return isAvailable(index) && CharClass.is(source.charAt(index), charClass);
     }
 
-    private boolean matches(String regex) {
-        return stringValue != null && stringValue.matches(regex);
+    private void skipAsLongAs(int charClass) {
+        index++;
+        skipRun(charClass);
     }
 
-    private Token.Position createPosition() {
-        return new Token.Position(index, line, index - lastLineIndex);
+    private void skipRun(int charClass) {
+        final int scalarEnd = index + SCALAR_PREFIX;
+        while (index < scalarEnd && is(index, charClass))
+            index++;
+        if (index == scalarEnd && chars != null)
+            index = SCANNER.skip(chars, index, available, charClass);
+        while (is(index, charClass))
+            index++;
     }
-    private Token.Position createPosition(int index) {
-        return new Token.Position(index, line, index - lastLineIndex);
+
+    /**
+     * @return whether runs of array backed sources are scanned with the Vector API
+     */
+    public static boolean isVectorized() {
+        return SCANNER != null;
     }
 
-    private Token createTokenAsLongAs(ZeroParamPredicate predicate, TokenType type) {
-        final StringBuilder value = new StringBuilder();
-        final int startIndex = index;
-        do {
-            value.append(charValue);
-            shift();
-            //Output.simplyLog(MessageType.DEV, "invoked shift");
-        } while (!checkEOF() && predicate.test());
-        unShift();
-        //Output.simplyLog(MessageType.DEV, "invoked unShift");
-        return new Token(value.toString(), type, createPosition(startIndex));
+    @Override
+    public int position() {
+        return position;
     }
 
+    @Override
     public Token token() {
-        return currentToken;
+        return peek(0);
     }
+    @Override
     public Token next() {
         //Output.simplyLog(MessageType.DEBUG, currentToken.toString());
-        if (currentToken.type() == EOF)
-            throw new IllegalStateException("EOF is already reached");
-        final Token previousToken = currentToken;
-        Output.simplyLog(MessageType.DEV, previousToken.toString());
-        currentToken = checkEOF() ? createEOF() : nextToken();
-        shift();
+        final Token previousToken = token();
+        if (previousToken.type() == EOF)
+            return previousToken;
+        Output.simplyLog(MessageType.DEV, previousToken::toString);
+        position++;
         return previousToken;
     }
-    public Token peakNext() {
-        return peakNext(1);
+
+    /**
+     * Looks ahead without consuming anything, {@code peek(0)} is the current {@link #token()}.
+     * Every token is lexed exactly once, no matter how often it is peeked at or reset to.
+     * @param steps how many tokens to look past the current one
+     * @return the token {@code steps} tokens ahead, or EOF
+     */
+    @Override
+    public Token peek(int steps) {
+        final int target = position + steps;
+        while (lexedAmount <= target) {
+            // the slot about to be overwritten must neither be current nor belong to a mark
+            final int protectedStart = oldestMark >= 0 ? oldestMark : position;
+            if (lexedAmount - BUFFER_SIZE >= protectedStart)
+                throw new IllegalStateException("Lookahead exceeds the token buffer of " + BUFFER_SIZE + " tokens");
+            buffer[lexedAmount & BUFFER_MASK] = nextToken();
+            lexedAmount++;
+            // tokens stay readable as long as they are buffered
+            if (lexedAmount >= BUFFER_SIZE)
+                sourceFile.release(buffer[lexedAmount & BUFFER_MASK].offset());
+        }
+        return buffer[target & BUFFER_MASK];
+    }
+
+    /**
+     * Remembers the current position for backtracking. Marks nest and have to be
+     * handed back through {@link #reset(int)} or {@link #release(int)} in reverse order.
+     * @return the mark to rewind to
+     */
+    @Override
+    public int mark() {
+        if (markDepth++ == 0)
+            oldestMark = position;
+        return position;
     }
-    public Token peakNext(int steps) {
-        for (int i = 0; i < steps; i++)
-            shift();
-        var token = checkEOF() ? createEOF() : nextToken();
-        for (int i = 0; i < steps; i++)
-            unShift();
-        return token;
+
+    /**
+     * Rewinds to the given mark and releases it.
+     */
+    @Override
+    public void reset(int mark) {
+        position = mark;
+        release(mark);
     }
 
-    private Token createEOF() {
-        return new Token("EOF", EOF, createPosition());
+    @Override
+    public void release(int mark) {
+        if (markDepth == 0 || mark < oldestMark)
+            throw new IllegalStateException("Mark " + mark + " is not active");
+        if (--markDepth == 0)
+            oldestMark = -1;
     }
+
     private boolean checkEOF() {
-        return index >= source.length();
+        return !isAvailable(index);
     }
 
     private Token nextToken() {
+        final TokenType type = scanToken();
+        if (type == null)
+            return null;
+        return new Token(type, sourceFile, tokenStart, tokenEnd - tokenStart);
+    }
 
-        if (checkEOF()) return createEOF();
+    /**
+     * Lexes the whole source at once into a compact {@link TokenBuffer}, without creating any {@link Token}s.
+     * The buffer ends with the EOF token.
+     */
+    public static TokenBuffer tokenize(SourceFile sourceFile) {
+        final TokenBuffer tokens = new TokenBuffer(sourceFile);
+        new Lexer(sourceFile).scanInto(tokens, true);
+        return tokens;
+    }
 
-        // Whitespace
-        if (matches(LINE_BREAK_REGEX)) nextLine();
-        while (matches(WHITE_SPACE_REGEX)) {
-            shift();
-            if (checkEOF()) return createEOF();
-        }
+    /**
+     * Re-lexes only the tokens damaged by an edit. Lexing restarts in front of the edit and stops
+     * as soon as a new token begins where a moved old one began, from there on the token streams are
+     * identical, since lexing only depends on the position it starts at.
+     * @param tokens the tokens of the source before the edit
+     * @param edited the source with the edit applied
+     */
+    public static RelexedTokens relex(TokenBuffer tokens, SourceFile edited, TextEdit edit) {
+        final int size = tokens.size();
+        // the token in front of the edit is included, the edit might extend or merge with it
+        int damageStart = 0;
+        while (damageStart < size - 1 && tokens.lexemeEnd(damageStart + 1) < edit.offset())
+            damageStart++;
+        final int restart = Math.min(tokens.lexemeStart(damageStart), edit.offset());
+
+        final Lexer lexer = new Lexer(edited, restart, Integer.MAX_VALUE);
+        final TokenBuffer relexed = new TokenBuffer(edited);
+        relexed.addAll(tokens, 0, damageStart, 0);
+
+        int oldIndex = damageStart;
+        TokenType type;
+        do {
+            type = lexer.scanToken();
+            if (lexer.tokenStart >= edit.insertedEnd()) {
+                final int oldOffset = lexer.tokenStart - edit.delta();
+                while (oldIndex < size && tokens.offset(oldIndex) < oldOffset)
+                    oldIndex++;
+                if (oldIndex < size && tokens.offset(oldIndex) == oldOffset && tokens.type(oldIndex) == type
+                        && tokens.lexemeStart(oldIndex) >= edit.removedEnd()) {
+                    final int newDamageEnd = relexed.size();
+                    relexed.addAll(tokens, oldIndex, size, edit.delta());
+                    return new RelexedTokens(relexed, damageStart, oldIndex, newDamageEnd);
+                }
+            }
+            relexed.add(type, lexer.tokenStart, lexer.tokenEnd - lexer.tokenStart);
+        } while (type != EOF);
+        return new RelexedTokens(relexed, damageStart, size, relexed.size());
+    }
+
+    void scanInto(TokenBuffer tokens, boolean includeEOF) {
+        TokenType type;
+        while ((type = scanToken()) != EOF)
+            tokens.add(type, tokenStart, tokenEnd - tokenStart);
+        if (includeEOF)
+            tokens.add(EOF, tokenStart, 0);
+    }
+
+    /**
+     * Scans the next token, its slice is left in {@link #tokenStart} and {@link #tokenEnd}.
+     * @return the type of the scanned token
+     */
+    private TokenType scanToken() {
+        skipWhiteSpace();
+
+        tokenStart = index;
+        if (checkEOF()) return endToken(EOF);
+
+        final char charValue = source.charAt(index);
 
         // Number
-        if (matches("[0-9]")) {
-            return createTokenAsLongAs(() -> matches("[.0-9a-zA-Z]"), NUMBER_VALUE);
+        if (CharClass.is(charValue, CharClass.DIGIT)) {
+            skipAsLongAs(CharClass.NUMBER_PART);
+            return endToken(NUMBER_VALUE);
         }
 
         // Identifier
-        if (matches("[_a-zA-Z]")) {
-            final Token token = createTokenAsLongAs(() -> matches("[_a-zA-Z0-9]"), IDENTIFIER);
+        if (CharClass.is(charValue, CharClass.IDENTIFIER_START)) {
+            skipAsLongAs(CharClass.IDENTIFIER_PART);
             // check reserved
-            if (LOWERCASE_KEYWORDS.contains(token.value()))
-                return new Token(token.value(), TokenType.fromLowerCaseName(token.value()), token.position());
-            return token;
+            final TokenType keyword = Keywords.lookup(source, tokenStart, index - tokenStart);
+            return endToken(keyword != null ? keyword : IDENTIFIER);
         }
 
         return switch (charValue) {
 
             // String and Character
-            case '"', '\'' -> new Token(getLiteralValue(charValue).toString(), STRING, createPosition());
+            case '"', '\'' -> scanLiteral(charValue);
 
-            case '+', '-', '*', '/', '%' -> {
-                final String operator = stringValue;
-                shift();
+            case '+', '-', '*', '/', '%', '^' -> {
+                final char following = charAt(index + 1);
 
-                if (charValue == '=')
-                    yield new Token(operator, BINARY_ASSIGN, createPosition());
+                if (following == '=')
+                    yield simpleTokenFromType(BINARY_ASSIGN, 2);
+                else if (charValue == '-' && following == '>')
+                    yield simpleTokenFromType(LAMBDA, 2);
+                yield simpleTokenFromType(BINARY_OPERATOR);
+            }
+            case '&', '|' -> {
+                final char following = charAt(index + 1);
 
-                else if (operator.equals("-") && charValue == '>')
-                    yield new Token("->", LAMBDA, createPosition());
+                if (following == '=')
+                    yield simpleTokenFromType(BINARY_ASSIGN, 2);
+                yield simpleTokenFromType(BINARY_OPERATOR, following == charValue ? 2 : 1);
+            }
+            case '<', '>' -> {
+                final char following = charAt(index + 1);
 
-                unShift();
-                yield simpleTokenFromType(BINARY_OPERATOR);
+                if (following == charValue && charAt(index + 2) == '=')
+                    yield simpleTokenFromType(BINARY_ASSIGN, 3);
+                yield simpleTokenFromType(BINARY_OPERATOR, following == charValue || following == '=' ? 2 : 1);
             }
+            case '=' -> charAt(index + 1) == '='
+                    ? simpleTokenFromType(BINARY_OPERATOR, 2)
+                    : simpleTokenFromType(ASSIGN);
+            case '!' -> charAt(index + 1) == '='
+                    ? simpleTokenFromType(BINARY_OPERATOR, 2)
+                    : simpleTokenFromType(INVALID);
             case '{' -> simpleTokenFromType(OPEN_BRACE);
             case '}' -> simpleTokenFromType(CLOSE_BRACE);
             case '(' -> simpleTokenFromType(OPEN_PAREN);
             case ')' -> simpleTokenFromType(CLOSE_PAREN);
             case '[' -> simpleTokenFromType(OPEN_BRACKET);
             case ']' -> simpleTokenFromType(CLOSE_BRACKET);
-            case '=' -> simpleTokenFromType(ASSIGN);
             case ';' -> simpleTokenFromType(SEMI);
             case ',' -> simpleTokenFromType(COMMA);
+            case '.' -> simpleTokenFromType(DOT);
+            case ':' -> simpleTokenFromType(COLON);
 
-            // Unicode logic
-            case '\\' -> null;
-
-            // Could not tokenize
-            default -> {
-                Output.simplyLog(MessageType.FATAL, "Could not tokenize following char: {" + charValue + "}");
-                Output.simplyLog(MessageType.FATAL,"Exiting now, Goodbye!");
-                System.exit(1);
-                yield null;
-            }
+            // Could not tokenize, unicode escapes included
+            default -> simpleTokenFromType(INVALID);
         };
     }
 
-    private Token simpleTokenFromType(TokenType type) {
-        return new Token(stringValue, type, createPosition());
+    private TokenType endToken(TokenType type) {
+        tokenEnd = index;
+        return type;
     }
 
-    private StringBuilder getLiteralValue(char literalIdentifier) {
-        final StringBuilder value = new StringBuilder();
-        boolean isEscaped = false, inLiteral = true;
-        shift();
-        if (checkEOF()) return value;
-        do {
-            isEscaped = !isEscaped && charValue == '\\';
-            if (charValue == literalIdentifier || matches(LINE_BREAK_REGEX) || checkEOF()) {
-                inLiteral = false;
-            }
-            /*
-            else if (isEscaped) {
-            }
-             */
-            else {
-                value.append(charValue);
-            }
-            shift();
-        } while (inLiteral);
-        unShift();
-        return value;
+    private TokenType simpleTokenFromType(TokenType type) {
+        return simpleTokenFromType(type, 1);
+    }
+    private TokenType simpleTokenFromType(TokenType type, int length) {
+        index += length;
+        return endToken(type);
     }
 
-    private void nextLine() {
-        line++;
-        lastLineIndex = index;
-        shift();
+    private void skipWhiteSpace() {
+        skipRun(CharClass.WHITE_SPACE);
     }
-    
-    interface ZeroParamPredicate {
-        boolean test();
+
+    private boolean isLiteralContent(char literalIdentifier) {
+        return !checkEOF() && source.charAt(index) != literalIdentifier && !is(index, CharClass.LINE_BREAK);
+    }
+
+    private TokenType scanLiteral(char literalIdentifier) {
+        // the token only covers the content between the quotes
+        tokenStart = ++index;
+        final int scalarEnd = index + SCALAR_PREFIX;
+        while (index < scalarEnd && isLiteralContent(literalIdentifier))
+            index++;
+        if (index == scalarEnd && chars != null)
+            index = SCANNER.findLiteralEnd(chars, index, available, literalIdentifier);
+        while (isLiteralContent(literalIdentifier))
+            index++;
+        tokenEnd = index;
+        // an unterminated literal ends at the line break
+        if (charAt(index) == literalIdentifier)
+            index++;
+        return STRING;
     }
 }
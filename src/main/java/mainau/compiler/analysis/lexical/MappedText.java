@@ -0,0 +1,152 @@
+package mainau.compiler.analysis.lexical;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * UTF-8 file contents as a {@link CharSequence}, backed by a memory mapping instead of the heap.
+ * A single counting pass records where every chunk of {@link #CHUNK_SIZE} chars starts,
+ * chunks are then decoded on demand into a small cache, so random access stays cheap
+ * and the heap footprint does not grow with the file.
+ */
+final class MappedText implements CharSequence {
+    private static final int CHUNK_SHIFT = 14;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final char REPLACEMENT = '\uFFFD';
+
+    private final MappedByteBuffer bytes;
+    private final int length;
+    // byte offset of every chunk, negative (-offset - 1) if the chunk starts with the low half of a surrogate pair
+    private final int[] chunkOffsets;
+
+    private final char[][] decoded = new char[2][CHUNK_SIZE];
+    private final int[] decodedChunks = {-1, -1};
+    private int lastDecoded = 0;
+
+    private MappedText(MappedText text) {
+        this.bytes = text.bytes;
+        this.length = text.length;
+        this.chunkOffsets = text.chunkOffsets;
+    }
+
+    private MappedText(MappedByteBuffer bytes) {
+        this.bytes = bytes;
+        int[] chunkOffsets = new int[16];
+        int chunkCount = 0, length = 0;
+
+        for (int offset = 0, limit = bytes.limit(); offset < limit; offset++) {
+            final int value = bytes.get(offset) & 0xFF;
+            if (isContinuation(value))
+                continue;
+            final int chars = value >= 0xF0 && value < 0xF8 ? 2 : 1;
+            if ((length & (CHUNK_SIZE - 1)) == 0 || (chars == 2 && ((length + 1) & (CHUNK_SIZE - 1)) == 0)) {
+                if (chunkCount == chunkOffsets.length)
+                    chunkOffsets = Arrays.copyOf(chunkOffsets, chunkCount * 2);
+                chunkOffsets[chunkCount++] = (length & (CHUNK_SIZE - 1)) == 0 ? offset : -offset - 1;
+            }
+            if (length + chars < 0)
+                throw new IllegalArgumentException("Source exceeds " + Integer.MAX_VALUE + " chars");
+            length += chars;
+        }
+        this.length = length;
+        this.chunkOffsets = Arrays.copyOf(chunkOffsets, chunkCount);
+    }
+
+    static MappedText map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("Cannot map " + path + ", it is larger than 2 GiB");
+            return new MappedText(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @return a view sharing the mapping, but with its own decoding cache, for use on another thread
+     */
+    MappedText view() {
+        return new MappedText(this);
+    }
+
+    private static boolean isContinuation(int value) {
+        return (value & 0xC0) == 0x80;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length)
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+        return chunk(index >>> CHUNK_SHIFT)[index & (CHUNK_SIZE - 1)];
+    }
+
+    private char[] chunk(int chunk) {
+        if (decodedChunks[lastDecoded] == chunk)
+            return decoded[lastDecoded];
+        if (decodedChunks[lastDecoded ^ 1] == chunk)
+            return decoded[lastDecoded ^= 1];
+        // replace the least recently used one
+        lastDecoded ^= 1;
+        decode(chunk, decoded[lastDecoded]);
+        decodedChunks[lastDecoded] = chunk;
+        return decoded[lastDecoded];
+    }
+
+    private void decode(int chunk, char[] target) {
+        final int start = chunkOffsets[chunk];
+        final int limit = bytes.limit();
+        int offset = start < 0 ? -start - 1 : start;
+        int count = 0;
+        boolean skipHighSurrogate = start < 0;
+
+        while (count < CHUNK_SIZE && offset < limit) {
+            final int lead = bytes.get(offset++) & 0xFF;
+            if (isContinuation(lead))
+                continue;
+
+            final int following = lead < 0x80 ? 0 : lead < 0xE0 ? 1 : lead < 0xF0 ? 2 : lead < 0xF8 ? 3 : -1;
+            int codePoint = following == 0 ? lead : lead & (0x3F >> following);
+            boolean malformed = following < 0;
+            for (int i = 0; i < following; i++) {
+                if (offset >= limit || !isContinuation(bytes.get(offset) & 0xFF)) {
+                    malformed = true;
+                    break;
+                }
+                codePoint = codePoint << 6 | bytes.get(offset++) & 0x3F;
+            }
+
+            if (following != 3) {
+                target[count++] = malformed ? REPLACEMENT : (char) codePoint;
+                continue;
+            }
+            final boolean valid = !malformed && Character.isSupplementaryCodePoint(codePoint);
+            if (!skipHighSurrogate)
+                target[count++] = valid ? Character.highSurrogate(codePoint) : REPLACEMENT;
+            skipHighSurrogate = false;
+            if (count < CHUNK_SIZE)
+                target[count++] = valid ? Character.lowSurrogate(codePoint) : REPLACEMENT;
+        }
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end)
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+        final StringBuilder builder = new StringBuilder(end - start);
+        for (int index = start; index < end; index++)
+            builder.append(charAt(index));
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(0, length).toString();
+    }
+}
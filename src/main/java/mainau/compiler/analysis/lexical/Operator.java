@@ -0,0 +1,90 @@
+package mainau.compiler.analysis.lexical;
+
+/**
+ * The infix operators, as carried by {@link TokenType#ASSIGN}, {@link TokenType#BINARY_ASSIGN}
+ * and {@link TokenType#BINARY_OPERATOR} tokens.
+ */
+public enum Operator {
+    // Logical
+    OR("||"), AND("&&"),
+
+    // Bitwise
+    BIT_OR("|"), BIT_AND("&"),
+    SHIFT_LEFT("<<"), SHIFT_RIGHT(">>"),
+
+    // Comparison
+    EQUAL("=="), NOT_EQUAL("!="),
+    LESS("<"), LESS_EQUAL("<="), GREATER(">"), GREATER_EQUAL(">="),
+
+    // Arithmetic
+    ADD("+"), SUBTRACT("-"),
+    MULTIPLY("*"), DIVIDE("/"), MODULO("%"),
+    POWER("^"),
+
+    // Assignments
+    ASSIGN("="),
+    ADD_ASSIGN(ADD),
+    SUBTRACT_ASSIGN(SUBTRACT),
+    MULTIPLY_ASSIGN(MULTIPLY),
+    DIVIDE_ASSIGN(DIVIDE),
+    MODULO_ASSIGN(MODULO),
+    POWER_ASSIGN(POWER),
+    BIT_AND_ASSIGN(BIT_AND),
+    BIT_OR_ASSIGN(BIT_OR),
+    SHIFT_LEFT_ASSIGN(SHIFT_LEFT),
+    SHIFT_RIGHT_ASSIGN(SHIFT_RIGHT);
+
+    private final String text;
+    private final Operator compounded;
+
+    Operator(String text) {
+        this.text = text;
+        this.compounded = null;
+    }
+
+    Operator(Operator compounded) {
+        this.text = compounded.text + "=";
+        this.compounded = compounded;
+    }
+
+    public String text() {
+        return text;
+    }
+
+    public boolean isAssignment() {
+        return this == ASSIGN || compounded != null;
+    }
+
+    /**
+     * @return the operator a compound assignment like {@code +=} applies, {@code null} for anything else
+     */
+    public Operator compounded() {
+        return compounded;
+    }
+
+    /**
+     * Identifies the operator token of the given length, without materializing its text.
+     * @return the operator or {@code null}, if the text is none
+     */
+    public static Operator of(CharSequence text, int offset, int length) {
+        final char first = text.charAt(offset);
+        final char second = length > 1 ? text.charAt(offset + 1) : 0;
+        final boolean assigning = second == '=';
+
+        return switch (first) {
+            case '=' -> assigning ? EQUAL : ASSIGN;
+            case '!' -> assigning ? NOT_EQUAL : null;
+            case '<' -> assigning ? LESS_EQUAL : second == '<' ? length == 3 ? SHIFT_LEFT_ASSIGN : SHIFT_LEFT : LESS;
+            case '>' -> assigning ? GREATER_EQUAL : second == '>' ? length == 3 ? SHIFT_RIGHT_ASSIGN : SHIFT_RIGHT : GREATER;
+            case '&' -> assigning ? BIT_AND_ASSIGN : second == '&' ? AND : BIT_AND;
+            case '|' -> assigning ? BIT_OR_ASSIGN : second == '|' ? OR : BIT_OR;
+            case '+' -> assigning ? ADD_ASSIGN : ADD;
+            case '-' -> assigning ? SUBTRACT_ASSIGN : SUBTRACT;
+            case '*' -> assigning ? MULTIPLY_ASSIGN : MULTIPLY;
+            case '/' -> assigning ? DIVIDE_ASSIGN : DIVIDE;
+            case '%' -> assigning ? MODULO_ASSIGN : MODULO;
+            case '^' -> assigning ? POWER_ASSIGN : POWER;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,98 @@
+package mainau.compiler.analysis.lexical;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Tokenizes large sources on a {@link ForkJoinPool}, producing the same {@link TokenBuffer}
+ * as {@link Lexer#tokenize(SourceFile)}.
+ * <p>
+ * No token spans a line break, string literals included, since they end at the line
+ * they started on. Every line break is therefore a safe place to split the source,
+ * and the chunks can be lexed independently. Tokens keep their global offsets, and
+ * lines are resolved through the shared {@link SourceFile}, so stitching the chunks
+ * together is a plain concatenation.
+ */
+public final class ParallelTokenizer {
+    /**
+     * Sources shorter than this are not worth splitting.
+     */
+    public static final int MIN_CHUNK_SIZE = 1 << 20;
+
+    private ParallelTokenizer() {}
+
+    public static TokenBuffer tokenize(SourceFile sourceFile) {
+        return tokenize(sourceFile, ForkJoinPool.commonPool());
+    }
+
+    public static TokenBuffer tokenize(SourceFile sourceFile, ForkJoinPool pool) {
+        final int length = sourceFile.length();
+        final int chunkAmount = Math.min(pool.getParallelism() * 4, length / MIN_CHUNK_SIZE);
+        if (!sourceFile.isSplittable() || chunkAmount < 2)
+            return Lexer.tokenize(sourceFile);
+
+        final int[] boundaries = findBoundaries(sourceFile, chunkAmount);
+        final List<ChunkTask> tasks = new ArrayList<>(boundaries.length - 1);
+        for (int chunk = 0; chunk < boundaries.length - 1; chunk++)
+            tasks.add(new ChunkTask(sourceFile, boundaries[chunk], boundaries[chunk + 1], chunk == boundaries.length - 2));
+
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                ForkJoinTask.invokeAll(tasks);
+            }
+        });
+
+        final TokenBuffer tokens = new TokenBuffer(sourceFile);
+        for (ChunkTask task : tasks)
+            tokens.addAll(task.tokens);
+        return tokens;
+    }
+
+    /**
+     * @return the chunk boundaries, each one directly behind a line break, starting with 0 and ending with the length
+     */
+    private static int[] findBoundaries(SourceFile sourceFile, int chunkAmount) {
+        final CharSequence text = sourceFile.text();
+        final int length = text.length();
+        final int[] boundaries = new int[chunkAmount + 1];
+        int count = 1;
+
+        for (int chunk = 1; chunk < chunkAmount; chunk++) {
+            int index = Math.max((int) ((long) length * chunk / chunkAmount), boundaries[count - 1]);
+            while (index < length && !CharClass.is(text.charAt(index), CharClass.LINE_BREAK))
+                index++;
+            if (index + 1 >= length)
+                break;
+            if (index + 1 > boundaries[count - 1])
+                boundaries[count++] = index + 1;
+        }
+        boundaries[count++] = length;
+        return Arrays.copyOf(boundaries, count);
+    }
+
+    private static final class ChunkTask extends RecursiveAction {
+        private final SourceFile sourceFile;
+        private final int start, end;
+        private final boolean isLast;
+        private TokenBuffer tokens;
+
+        private ChunkTask(SourceFile sourceFile, int start, int end, boolean isLast) {
+            this.sourceFile = sourceFile;
+            this.start = start;
+            this.end = end;
+            this.isLast = isLast;
+        }
+
+        @Override
+        protected void compute() {
+            // the buffer belongs to the shared source, the lexer reads a view that is safe on this thread
+            tokens = new TokenBuffer(sourceFile);
+            new Lexer(sourceFile.concurrentView(), start, end).scanInto(tokens, isLast);
+        }
+    }
+}
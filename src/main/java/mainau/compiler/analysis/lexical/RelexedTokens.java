@@ -0,0 +1,15 @@
+package mainau.compiler.analysis.lexical;
+
+/**
+ * Result of {@link Lexer#relex(TokenBuffer, SourceFile, TextEdit)}: the old tokens
+ * {@code [damageStart, oldDamageEnd)} were replaced by the new tokens {@code [damageStart, newDamageEnd)},
+ * all tokens before are unchanged and all tokens behind were only moved.
+ */
+public record RelexedTokens(TokenBuffer tokens, int damageStart, int oldDamageEnd, int newDamageEnd) {
+    /**
+     * @return by how many tokens the indices behind the damage move
+     */
+    public int delta() {
+        return newDamageEnd - oldDamageEnd;
+    }
+}
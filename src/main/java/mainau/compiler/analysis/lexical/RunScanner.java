@@ -0,0 +1,41 @@
+package mainau.compiler.analysis.lexical;
+
+import mainau.compiler.logging.MessageType;
+import mainau.compiler.logging.Output;
+
+/**
+ * Finds the end of character runs several chars at a time. A scanner may stop early,
+ * e.g. in front of non-ASCII chars or the last chars before {@code to}, the
+ * {@link Lexer} continues from the returned index one char at a time.
+ */
+interface RunScanner {
+    /**
+     * @return the index of the first char from {@code from} on that does not belong to the given {@link CharClass}
+     */
+    int skip(char[] chars, int from, int to, int charClass);
+
+    /**
+     * @return the index of the first quote or line break from {@code from} on
+     */
+    int findLiteralEnd(char[] chars, int from, int to, char quote);
+
+    /**
+     * Loads the vectorized scanner, if the {@code jdk.incubator.vector} module is present and
+     * {@code -Dmainau.lexer.vector=false} is not set. The implementation is loaded reflectively,
+     * so that JVMs without the module never link against it.
+     * @return the scanner, or {@code null} if the lexer has to stick to scalar scanning
+     */
+    static RunScanner load() {
+        if (!Boolean.parseBoolean(System.getProperty("mainau.lexer.vector", "true"))
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty())
+            return null;
+        try {
+            return (RunScanner) Class.forName("mainau.compiler.analysis.lexical.VectorRunScanner")
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            Output.simplyLog(MessageType.WARNING, "Vectorized lexing is unavailable: " + e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package mainau.compiler.analysis.lexical;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A module's source text together with an index of its line start offsets.
+ * The index is computed in a single pass the first time a diagnostic asks for
+ * a line or column, lexing alone never needs it.
+ * <p>
+ * Besides in-memory text, sources can be {@link #map(Path) memory-mapped} or
+ * {@link #stream(Reader, String) streamed}, which keeps the heap footprint
+ * independent of the file size.
+ */
+public final class SourceFile {
+    private final CharSequence text;
+    private final String path;
+    private int[] lineStarts;
+
+    public SourceFile(CharSequence text, String path) {
+        this.text = text;
+        this.path = path;
+    }
+
+    /**
+     * Wraps the given chars, which must not change afterwards. Array backed sources
+     * are eligible for the {@link Lexer}'s vectorized scanning.
+     */
+    public static SourceFile of(char[] chars, String path) {
+        return new SourceFile(new CharArrayText(chars), path);
+    }
+
+    /**
+     * Reads a UTF-8 file into an array backed source.
+     */
+    public static SourceFile read(Path path) throws IOException {
+        return of(Files.readString(path).toCharArray(), path.toString());
+    }
+
+    /**
+     * Maps a UTF-8 file into memory, its text is decoded chunk by chunk while it is read.
+     */
+    public static SourceFile map(Path path) throws IOException {
+        return new SourceFile(MappedText.map(path), path.toString());
+    }
+
+    /**
+     * Reads the source through a sliding window. Tokens of such a source are only readable
+     * while they are within the {@link Lexer}'s lookahead buffer, diagnostics have to resolve
+     * their position and line snippet right away.
+     */
+    public static SourceFile stream(Reader reader, String path) {
+        return new SourceFile(new StreamingText(reader), path);
+    }
+
+    /**
+     * @return a new source with the edit applied, this source stays unchanged
+     */
+    public SourceFile edit(TextEdit edit) {
+        if (edit.removedEnd() > length())
+            throw new IndexOutOfBoundsException("Edit ends at " + edit.removedEnd() + " behind the source's end " + length());
+        final String inserted = edit.insertedText();
+        final char[] chars = new char[length() + edit.delta()];
+        for (int index = 0; index < edit.offset(); index++)
+            chars[index] = text.charAt(index);
+        inserted.getChars(0, inserted.length(), chars, edit.offset());
+        for (int index = edit.removedEnd(), target = edit.insertedEnd(); index < length(); index++, target++)
+            chars[target] = text.charAt(index);
+        return of(chars, path);
+    }
+
+    private static int[] indexLineStarts(CharSequence text) {
+        int[] lineStarts = new int[16];
+        int lineCount = 1;
+        final int length = text.length();
+        for (int index = 0; index < length; index++) {
+            final char charValue = text.charAt(index);
+            if (!CharClass.is(charValue, CharClass.LINE_BREAK))
+                continue;
+            // "\r\n" only counts as a single line break
+            if (charValue == '\r' && index + 1 < length && text.charAt(index + 1) == '\n')
+                index++;
+            if (lineCount == lineStarts.length)
+                lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+            lineStarts[lineCount++] = index + 1;
+        }
+        return Arrays.copyOf(lineStarts, lineCount);
+    }
+
+    private int[] lineStarts() {
+        if (text instanceof StreamingText)
+            throw new UnsupportedOperationException("Streamed sources do not keep a line index");
+        if (lineStarts == null)
+            lineStarts = indexLineStarts(text);
+        return lineStarts;
+    }
+
+    public CharSequence text() {
+        return text;
+    }
+
+    public String path() {
+        return path;
+    }
+
+    /**
+     * @return the amount of chars known so far, for streamed sources this grows while they are read
+     */
+    public int length() {
+        return text.length();
+    }
+
+    /**
+     * Makes sure the first {@code minimum} chars are readable, as far as the source is long enough.
+     * @return the amount of chars available
+     */
+    public int available(int minimum) {
+        return text instanceof StreamingText streaming ? streaming.fill(minimum) : text.length();
+    }
+
+    /**
+     * Declares that the text before the given offset is no longer needed.
+     */
+    public void release(int offset) {
+        if (text instanceof StreamingText streaming)
+            streaming.release(offset);
+    }
+
+    /**
+     * @return whether the text can be read from several threads at once, streamed sources cannot
+     */
+    public boolean isSplittable() {
+        return !(text instanceof StreamingText);
+    }
+
+    /**
+     * @return a source over the same text that can be read on another thread than this one
+     */
+    public SourceFile concurrentView() {
+        if (text instanceof MappedText mapped)
+            return new SourceFile(mapped.view(), path);
+        if (!isSplittable())
+            throw new UnsupportedOperationException("Streamed sources can only be read sequentially");
+        return this;
+    }
+
+    public boolean isSingleLine() {
+        if (text instanceof StreamingText)
+            return false;
+        for (int index = 0; index < text.length(); index++)
+            if (CharClass.is(text.charAt(index), CharClass.LINE_BREAK))
+                return false;
+        return true;
+    }
+
+    public int lineCount() {
+        return lineStarts().length;
+    }
+
+    /**
+     * @return the one-based line the given offset lies on
+     */
+    public int lineOf(int offset) {
+        return positionOf(offset).line();
+    }
+
+    public Token.Position positionOf(int offset) {
+        if (text instanceof StreamingText streaming)
+            return streaming.positionOf(offset);
+        final int[] lineStarts = lineStarts();
+        final int found = Arrays.binarySearch(lineStarts, offset);
+        final int line = found >= 0 ? found + 1 : -found - 1;
+        return new Token.Position(offset, line, offset - lineStarts[line - 1]);
+    }
+
+    /**
+     * @param line the one-based line number
+     * @return the line's text without its line break, as a view into the source where possible
+     */
+    public CharSequence lineSnippet(int line) {
+        if (text instanceof StreamingText streaming)
+            return streaming.lineSnippet(line);
+        final int[] lineStarts = lineStarts();
+        final int start = lineStarts[line - 1];
+        int end = line < lineStarts.length ? lineStarts[line] : text.length();
+        while (end > start && CharClass.is(text.charAt(end - 1), CharClass.LINE_BREAK))
+            end--;
+        return text.subSequence(start, end);
+    }
+}
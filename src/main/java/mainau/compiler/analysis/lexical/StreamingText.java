@@ -0,0 +1,140 @@
+package mainau.compiler.analysis.lexical;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Source text read from a {@link Reader} into a bounded sliding window.
+ * Everything before the offset handed to {@link #release(int)} may be dropped, so only the
+ * distance between the oldest text still in use and the lookahead is ever kept on the heap.
+ * {@link #length()} is the amount of chars read so far, {@link #fill(int)} reads further.
+ */
+final class StreamingText implements CharSequence {
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private final Reader reader;
+    private char[] window = new char[CHUNK_SIZE];
+    private int windowStart = 0, windowLength = 0, released = 0;
+    private boolean exhausted = false;
+
+    // line bookkeeping for the dropped text, so positions inside the window stay resolvable
+    private int windowStartLine = 1, windowStartLineOffset = 0;
+
+    StreamingText(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Reads until at least {@code minimum} chars are known or the reader is exhausted.
+     * @return the amount of chars known
+     */
+    int fill(int minimum) {
+        try {
+            while (windowStart + windowLength < minimum && !exhausted) {
+                if (windowLength == window.length)
+                    makeRoom();
+                final int read = reader.read(window, windowLength, window.length - windowLength);
+                if (read < 0)
+                    exhausted = true;
+                else windowLength += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return length();
+    }
+
+    void release(int offset) {
+        released = Math.max(released, offset);
+    }
+
+    private void makeRoom() {
+        // keep one char in front of the released text, so "\r\n" is never split across the boundary
+        final int drop = Math.min(released - 1, windowStart + windowLength) - windowStart;
+        if (drop < windowLength / 2) {
+            window = Arrays.copyOf(window, window.length * 2);
+            return;
+        }
+        for (int index = windowStart; index < windowStart + drop; index++)
+            if (isLineBreak(index)) {
+                windowStartLine++;
+                windowStartLineOffset = index + 1;
+            }
+        System.arraycopy(window, drop, window, 0, windowLength - drop);
+        windowStart += drop;
+        windowLength -= drop;
+    }
+
+    private boolean isLineBreak(int index) {
+        final char charValue = window[index - windowStart];
+        if (!CharClass.is(charValue, CharClass.LINE_BREAK))
+            return false;
+        // "\r\n" only counts as a single line break
+        return charValue != '\r' || index + 1 >= windowStart + windowLength || window[index + 1 - windowStart] != '\n';
+    }
+
+    private void checkBuffered(int index) {
+        if (index < windowStart)
+            throw new IllegalStateException("Offset " + index + " is no longer buffered, the window starts at " + windowStart);
+    }
+
+    Token.Position positionOf(int offset) {
+        checkBuffered(offset);
+        fill(offset + 1);
+        int line = windowStartLine, lineOffset = windowStartLineOffset;
+        for (int index = windowStart; index < offset; index++)
+            if (isLineBreak(index)) {
+                line++;
+                lineOffset = index + 1;
+            }
+        return new Token.Position(offset, line, offset - lineOffset);
+    }
+
+    /**
+     * @return the buffered part of the given line, it is cut off at the window start if the line began before it
+     */
+    CharSequence lineSnippet(int line) {
+        if (line < windowStartLine)
+            throw new IllegalStateException("Line " + line + " is no longer buffered");
+        int currentLine = windowStartLine, index = windowStart;
+        while (currentLine < line) {
+            if (fill(index + 1) <= index)
+                throw new IndexOutOfBoundsException("line " + line + " does not exist");
+            if (isLineBreak(index))
+                currentLine++;
+            index++;
+        }
+        final int start = index;
+        while (fill(index + 1) > index && !CharClass.is(charAt(index), CharClass.LINE_BREAK))
+            index++;
+        return subSequence(start, index);
+    }
+
+    @Override
+    public int length() {
+        return windowStart + windowLength;
+    }
+
+    @Override
+    public char charAt(int index) {
+        checkBuffered(index);
+        if (index >= windowStart + windowLength && fill(index + 1) <= index)
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length());
+        return window[index - windowStart];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        checkBuffered(start);
+        if (fill(end) < end || start > end)
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length());
+        return new String(window, start - windowStart, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(windowStart, length()).toString();
+    }
+}
@@ -0,0 +1,130 @@
+package mainau.compiler.analysis.lexical;
+
+import java.util.Arrays;
+
+/**
+ * Global table interning identifier names into dense int ids, so that later
+ * passes can compare symbols by id instead of by String.
+ * Interning works directly on source slices and only allocates the name on the first occurrence.
+ * <p>
+ * Lookups of known names and {@link #name(int)} do not lock, they read the arrays published through
+ * a volatile field. Only adding a name locks. Every distinct name is kept for the life of the process,
+ * since trees and sessions refer to it by its id.
+ */
+public final class SymbolTable {
+    /**
+     * The arrays of the table, replaced when one of them grows. The ids below {@code size} are complete
+     * in both arrays, a reader that finds a larger id in a slot falls back to the locked path.
+     */
+    private static final class Table {
+        // open addressing, a slot holds id + 1 and 0 marks an empty slot
+        final int[] slots;
+        final String[] names;
+        volatile int size;
+
+        Table(int[] slots, String[] names, int size) {
+            this.slots = slots;
+            this.names = names;
+            this.size = size;
+        }
+    }
+
+    private static volatile Table table = new Table(new int[1024], new String[256], 0);
+    private static final Object LOCK = new Object();
+
+    private SymbolTable() {}
+
+    public static int intern(String name) {
+        return intern(name, 0, name.length());
+    }
+
+    public static int intern(CharSequence source, int offset, int length) {
+        final int hash = hash(source, offset, length);
+        final int id = find(table, hash, source, offset, length);
+        return id >= 0 ? id : add(hash, source, offset, length);
+    }
+
+    public static String name(int id) {
+        final Table current = table;
+        if (id >= 0 && id < current.size)
+            return current.names[id];
+        // the id may have been added after this thread last read the table
+        synchronized (LOCK) {
+            if (id < 0 || id >= table.size)
+                throw new IllegalArgumentException("Unknown symbol id: " + id);
+            return table.names[id];
+        }
+    }
+
+    public static int size() {
+        return table.size;
+    }
+
+    /**
+     * @return the id of the name or -1, if it is not in the table or was added too recently to be seen
+     */
+    private static int find(Table current, int hash, CharSequence source, int offset, int length) {
+        final int known = current.size;
+        final int[] slots = current.slots;
+        final int mask = slots.length - 1;
+        for (int slot = hash & mask, id; (id = slots[slot] - 1) >= 0; slot = (slot + 1) & mask) {
+            if (id >= known)
+                return -1;
+            if (matches(current.names[id], source, offset, length))
+                return id;
+        }
+        return -1;
+    }
+
+    private static int add(int hash, CharSequence source, int offset, int length) {
+        synchronized (LOCK) {
+            Table current = table;
+            final int mask = current.slots.length - 1;
+            int slot = hash & mask;
+            for (int id; (id = current.slots[slot] - 1) >= 0; slot = (slot + 1) & mask)
+                if (matches(current.names[id], source, offset, length))
+                    return id;
+
+            final int id = current.size;
+            if (id == current.names.length)
+                table = current = new Table(current.slots, Arrays.copyOf(current.names, id * 2), id);
+            current.names[id] = source.subSequence(offset, offset + length).toString();
+            current.slots[slot] = id + 1;
+            // publishes the name and its slot
+            current.size = id + 1;
+
+            if (current.size * 2 > current.slots.length)
+                table = rehash(current);
+            return id;
+        }
+    }
+
+    private static Table rehash(Table current) {
+        final int[] slots = new int[current.slots.length * 2];
+        final int mask = slots.length - 1;
+        for (int id = 0; id < current.size; id++) {
+            final String name = current.names[id];
+            int slot = hash(name, 0, name.length()) & mask;
+            while (slots[slot] != 0)
+                slot = (slot + 1) & mask;
+            slots[slot] = id + 1;
+        }
+        return new Table(slots, current.names, current.size);
+    }
+
+    private static int hash(CharSequence source, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++)
+            hash = 31 * hash + source.charAt(i);
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean matches(String name, CharSequence source, int offset, int length) {
+        if (name.length() != length)
+            return false;
+        for (int i = 0; i < length; i++)
+            if (name.charAt(i) != source.charAt(offset + i))
+                return false;
+        return true;
+    }
+}
@@ -0,0 +1,26 @@
+package mainau.compiler.analysis.lexical;
+
+/**
+ * Replacement of {@code removedLength} chars at {@code offset} by {@code insertedText}.
+ */
+public record TextEdit(int offset, int removedLength, String insertedText) {
+    public TextEdit {
+        if (offset < 0 || removedLength < 0)
+            throw new IllegalArgumentException("Invalid edit at " + offset + " removing " + removedLength + " chars");
+    }
+
+    public int removedEnd() {
+        return offset + removedLength;
+    }
+
+    public int insertedEnd() {
+        return offset + insertedText.length();
+    }
+
+    /**
+     * @return by how much offsets behind the edit move
+     */
+    public int delta() {
+        return insertedText.length() - removedLength;
+    }
+}
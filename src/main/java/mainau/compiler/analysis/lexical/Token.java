@@ -1,5 +1,47 @@
 package mainau.compiler.analysis.lexical;
 
-public record Token(String value, TokenType type, Position position) {
+/**
+ * A token as a slice of its source. The text is only materialized by {@link #value()},
+ * keyword and punctuation tokens never allocate it at all.
+ */
+public record Token(TokenType type, SourceFile source, int offset, int length) {
+    public String value() {
+        if (type.text() != null)
+            return type.text();
+        if (type == TokenType.BINARY_OPERATOR || type == TokenType.BINARY_ASSIGN)
+            return operator().text();
+        return source.text().subSequence(offset, offset + length).toString();
+    }
+
+    /**
+     * @return the operator of an operator or assignment token, {@code null} for anything else
+     */
+    public Operator operator() {
+        return switch (type) {
+            case ASSIGN -> Operator.ASSIGN;
+            case BINARY_OPERATOR, BINARY_ASSIGN -> Operator.of(source.text(), offset, length);
+            default -> null;
+        };
+    }
+
+    /**
+     * @return the id of this token's text in the {@link SymbolTable}
+     */
+    public int symbol() {
+        return SymbolTable.intern(source.text(), offset, length);
+    }
+
+    /**
+     * Resolves line and column through the {@link SourceFile}'s line index, which is only worth it for diagnostics.
+     */
+    public Position position() {
+        return source.positionOf(offset);
+    }
+
+    @Override
+    public String toString() {
+        return "Token[value=" + value() + ", type=" + type + ", offset=" + offset + "]";
+    }
+
     public record Position(int index, int line, int indexInLine) {}
 }
@@ -0,0 +1,179 @@
+package mainau.compiler.analysis.lexical;
+
+import java.util.Arrays;
+
+/**
+ * All tokens of a source file in parallel primitive arrays, about 9 bytes per token
+ * instead of a {@link Token} object each. Tools walk it by index, the parser reads
+ * it through a {@link #stream()}, and a buffer can be streamed as often as needed.
+ */
+public final class TokenBuffer {
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final SourceFile source;
+    private byte[] types = new byte[256];
+    private int[] offsets = new int[256];
+    private int[] lengths = new int[256];
+    private int size = 0;
+
+    public TokenBuffer(SourceFile source) {
+        this.source = source;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= types.length)
+            return;
+        capacity = Math.max(capacity, types.length * 2);
+        types = Arrays.copyOf(types, capacity);
+        offsets = Arrays.copyOf(offsets, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+    }
+
+    public void add(TokenType type, int offset, int length) {
+        ensureCapacity(size + 1);
+        types[size] = (byte) type.ordinal();
+        offsets[size] = offset;
+        lengths[size] = length;
+        size++;
+    }
+
+    /**
+     * Appends all tokens of the given buffer, which has to belong to the same source.
+     */
+    public void addAll(TokenBuffer tokens) {
+        if (tokens.source != source)
+            throw new IllegalArgumentException("Cannot join tokens of " + tokens.source.path() + " into " + source.path());
+        addAll(tokens, 0, tokens.size, 0);
+    }
+
+    /**
+     * Appends the tokens {@code [from, to)} of the given buffer, moving their offsets by {@code shift}.
+     */
+    void addAll(TokenBuffer tokens, int from, int to, int shift) {
+        final int amount = to - from;
+        ensureCapacity(size + amount);
+        System.arraycopy(tokens.types, from, types, size, amount);
+        System.arraycopy(tokens.lengths, from, lengths, size, amount);
+        for (int index = from; index < to; index++)
+            offsets[size++] = tokens.offsets[index] + shift;
+    }
+
+    public SourceFile source() {
+        return source;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public TokenType type(int index) {
+        return TYPES[types[checkIndex(index)]];
+    }
+
+    public int offset(int index) {
+        return offsets[checkIndex(index)];
+    }
+
+    public int length(int index) {
+        return lengths[checkIndex(index)];
+    }
+
+    /**
+     * @return where the token's text begins, which is in front of the opening quote for literals
+     */
+    public int lexemeStart(int index) {
+        return type(index) == TokenType.STRING ? offsets[index] - 1 : offsets[index];
+    }
+
+    /**
+     * @return where the token's text ends, which is behind a closing quote for literals
+     */
+    public int lexemeEnd(int index) {
+        return type(index) == TokenType.STRING ? offsets[index] + lengths[index] + 1 : offsets[index] + lengths[index];
+    }
+
+    /**
+     * @return a {@link Token} view of the token at the given index
+     */
+    public Token token(int index) {
+        return new Token(type(index), source, offsets[index], lengths[index]);
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        return index;
+    }
+
+    public TokenStream stream() {
+        return stream(0);
+    }
+
+    /**
+     * @return a stream starting at the token with the given index
+     */
+    public TokenStream stream(int from) {
+        return new Cursor(checkIndex(from));
+    }
+
+    private final class Cursor implements TokenStream {
+        private int position, markDepth = 0;
+        private Token current;
+
+        private Cursor(int position) {
+            this.position = position;
+        }
+
+        @Override
+        public int position() {
+            return position;
+        }
+
+        // the last token is EOF, the cursor never moves past it
+        private int clamp(int index) {
+            return Math.min(index, size - 1);
+        }
+
+        @Override
+        public Token token() {
+            if (current == null)
+                current = TokenBuffer.this.token(clamp(position));
+            return current;
+        }
+
+        @Override
+        public Token next() {
+            final Token token = token();
+            if (token.type() == TokenType.EOF)
+                return token;
+            position++;
+            current = null;
+            return token;
+        }
+
+        @Override
+        public Token peek(int steps) {
+            return steps == 0 ? token() : TokenBuffer.this.token(clamp(position + steps));
+        }
+
+        @Override
+        public int mark() {
+            markDepth++;
+            return position;
+        }
+
+        @Override
+        public void reset(int mark) {
+            release(mark);
+            position = mark;
+            current = null;
+        }
+
+        @Override
+        public void release(int mark) {
+            if (markDepth == 0 || mark > position)
+                throw new IllegalStateException("Mark " + mark + " is not active");
+            markDepth--;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package mainau.compiler.analysis.lexical;
+
+/**
+ * Sequential access to tokens as the parser consumes them, either lexed on the fly
+ * by the {@link Lexer} or read back from a {@link TokenBuffer}.
+ */
+public interface TokenStream {
+    /**
+     * @return the current token, which the next call to {@link #next()} returns
+     */
+    Token token();
+
+    /**
+     * Consumes the current token. The stream stays at {@code EOF}, consuming it only returns it again,
+     * so a parser recovering from errors needs no special case for the end.
+     * @return the consumed token
+     */
+    Token next();
+
+    /**
+     * @return the index of the current token, which is its index in the buffer for {@link TokenBuffer#stream(int)}
+     */
+    int position();
+
+    /**
+     * @return the token {@code steps} tokens past the current one, {@code peek(0)} being the current one
+     */
+    Token peek(int steps);
+
+    /**
+     * Remembers the current position, marks nest and have to be handed back in reverse order.
+     */
+    int mark();
+
+    /**
+     * Rewinds to the given mark and releases it.
+     */
+    void reset(int mark);
+
+    /**
+     * Releases the given mark without rewinding.
+     */
+    void release(int mark);
+}
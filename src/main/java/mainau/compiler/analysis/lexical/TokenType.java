@@ -33,7 +33,7 @@ public enum TokenType {
     DEFAULT(true),
 
     // Value Stuff
-    ASSIGN,
+    ASSIGN("="),
     BINARY_OPERATOR,
     BINARY_ASSIGN,
     NUMBER_VALUE,
@@ -45,28 +45,38 @@ public enum TokenType {
     TRUE(true), FALSE(true),
 
     // Syntax Symbols
-    OPEN_PAREN, CLOSE_PAREN,
-    OPEN_BRACE, CLOSE_BRACE,
-    OPEN_BRACKET, CLOSE_BRACKET,
-    SEMI, COMMA, COLON, DOT,
-    LAMBDA,
+    OPEN_PAREN("("), CLOSE_PAREN(")"),
+    OPEN_BRACE("{"), CLOSE_BRACE("}"),
+    OPEN_BRACKET("["), CLOSE_BRACKET("]"),
+    SEMI(";"), COMMA(","), COLON(":"), DOT("."),
+    LAMBDA("->"),
 
     // Repl Stuff
     PRINT(true, true),
     INPUT(true, true),
 
-    EOF;
+    // a char the lexer could not make sense of, left for the parser to report
+    INVALID,
+
+    EOF("EOF");
 
     private boolean isKeyword = false;
     private boolean isReplOnly = false;
+    private String text;
 
     TokenType(boolean isKeyword, boolean isReplOnly) {
-        this.isKeyword = isKeyword;
+        this(isKeyword);
         this.isReplOnly = isReplOnly;
     }
 
     TokenType(boolean isKeyword) {
         this.isKeyword = isKeyword;
+        if (isKeyword)
+            this.text = nameToLowerCase();
+    }
+
+    TokenType(String text) {
+        this.text = text;
     }
 
     TokenType() {
@@ -80,6 +90,13 @@ public enum TokenType {
         return isReplOnly;
     }
 
+    /**
+     * @return the fixed source text of keyword and punctuation tokens, {@code null} for anything else
+     */
+    public String text() {
+        return text;
+    }
+
     public String nameToLowerCase() {
         return name().replace("_", "-").toLowerCase();
     }
@@ -0,0 +1,63 @@
+package mainau.compiler.analysis.lexical;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link RunScanner} classifying a whole vector of chars per step, 16 or 32 of them depending on the hardware.
+ * Only ASCII chars are classified, anything else ends a run and is left to the scalar path.
+ * Only referenced reflectively through {@link RunScanner#load()}.
+ */
+final class VectorRunScanner implements RunScanner {
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    @Override
+    public int skip(char[] chars, int from, int to, int charClass) {
+        int index = from;
+        for (; index + LANES <= to; index += LANES) {
+            final ShortVector vector = ShortVector.fromCharArray(SPECIES, chars, index);
+            final VectorMask<Short> outside = classify(vector, charClass).not();
+            if (outside.anyTrue())
+                return index + outside.firstTrue();
+        }
+        return index;
+    }
+
+    private static VectorMask<Short> classify(ShortVector vector, int charClass) {
+        return switch (charClass) {
+            case CharClass.WHITE_SPACE -> vector.eq((short) ' ').or(between(vector, '\t', '\r'));
+            case CharClass.IDENTIFIER_PART -> letterOrDigit(vector).or(vector.eq((short) '_'));
+            case CharClass.NUMBER_PART -> letterOrDigit(vector).or(vector.eq((short) '.'));
+            default -> throw new IllegalArgumentException("Cannot scan runs of char class " + charClass);
+        };
+    }
+
+    private static VectorMask<Short> letterOrDigit(ShortVector vector) {
+        // setting 0x20 maps upper to lower case letters, and nothing else into 'a'-'z'
+        final ShortVector lowerCase = vector.or((short) 0x20);
+        return between(vector, '0', '9').or(between(lowerCase, 'a', 'z'));
+    }
+
+    private static VectorMask<Short> between(ShortVector vector, char from, char to) {
+        // chars above 0x7FFF are negative shorts and therefore outside any ASCII range
+        return vector.compare(VectorOperators.GE, (short) from).and(vector.compare(VectorOperators.LE, (short) to));
+    }
+
+    @Override
+    public int findLiteralEnd(char[] chars, int from, int to, char quote) {
+        int index = from;
+        for (; index + LANES <= to; index += LANES) {
+            final ShortVector vector = ShortVector.fromCharArray(SPECIES, chars, index);
+            final VectorMask<Short> end = vector.eq((short) quote)
+                    .or(between(vector, '\n', '\r'))
+                    // non-ASCII line breaks are left to the scalar path
+                    .or(vector.compare(VectorOperators.UNSIGNED_GE, (short) 0x80));
+            if (end.anyTrue())
+                return index + end.firstTrue();
+        }
+        return index;
+    }
+}
@@ -0,0 +1,131 @@
+package mainau.compiler.analysis.syntactic;
+
+import mainau.compiler.analysis.lexical.Lexer;
+import mainau.compiler.analysis.lexical.RelexedTokens;
+import mainau.compiler.analysis.lexical.SourceFile;
+import mainau.compiler.analysis.lexical.TextEdit;
+import mainau.compiler.analysis.lexical.TokenBuffer;
+import mainau.compiler.analysis.lexical.TokenStream;
+import mainau.compiler.ast.AST;
+import mainau.compiler.ast.ASTImpl;
+import mainau.compiler.logging.MessageType;
+import mainau.compiler.logging.Output;
+import mainau.repl.runtime.ProcessTask;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static mainau.compiler.analysis.lexical.TokenType.EOF;
+
+/**
+ * Keeps the tokens and the tree of a source up to date while it is edited. An edit only re-lexes
+ * the damaged tokens and only re-parses the top-level statements these belong to, all other
+ * statements of the {@link ASTImpl.Program} are reused as they are.
+ */
+public final class IncrementalParser {
+    /**
+     * The top-level statement(s) parsed from the tokens {@code [start, end)}.
+     */
+    private record Section(int start, int end, List<AST.Statement> statements) {
+        Section moved(int delta) {
+            return new Section(start + delta, end + delta, statements);
+        }
+    }
+
+    private final ProcessTask task;
+    private SourceFile source;
+    private TokenBuffer tokens;
+    private List<Section> sections;
+    private ASTImpl.Program program;
+    private int reparsedSections;
+
+    public IncrementalParser(SourceFile source, ProcessTask task) {
+        this.task = task;
+        this.source = source;
+        this.tokens = Lexer.tokenize(source);
+        this.sections = new ArrayList<>();
+        parseSections(0, List.of(), 0);
+    }
+
+    public SourceFile source() {
+        return source;
+    }
+
+    public TokenBuffer tokens() {
+        return tokens;
+    }
+
+    public ASTImpl.Program program() {
+        if (program == null)
+            program = new ASTImpl.Program(sections.stream()
+                    .flatMap(section -> section.statements().stream())
+                    .toArray(AST.Statement[]::new));
+        return program;
+    }
+
+    /**
+     * @return how many top-level statements the last parse or edit had to parse
+     */
+    public int reparsedSections() {
+        return reparsedSections;
+    }
+
+    /**
+     * Applies the edit to the source and brings tokens and tree up to date.
+     * @return the program of the edited source
+     */
+    public ASTImpl.Program edit(TextEdit edit) {
+        source = source.edit(edit);
+        final RelexedTokens relexed = Lexer.relex(tokens, source, edit);
+        tokens = relexed.tokens();
+
+        // a section ending right at the damage is re-parsed too, the edit might continue it
+        int first = 0;
+        while (first < sections.size() && sections.get(first).end() < relexed.damageStart())
+            first++;
+        int behind = first;
+        while (behind < sections.size() && sections.get(behind).start() < relexed.oldDamageEnd())
+            behind++;
+
+        final List<Section> reusable = new ArrayList<>(sections.size() - behind);
+        for (Section section : sections.subList(behind, sections.size()))
+            reusable.add(section.moved(relexed.delta()));
+        final int start = first < sections.size() ? sections.get(first).start() : tokens.size() - 1;
+
+        sections = new ArrayList<>(sections.subList(0, first));
+        parseSections(Math.min(start, relexed.damageStart()), reusable, relexed.newDamageEnd());
+        program = null;
+
+        Output.simplyLog(MessageType.DEBUG, () -> "Re-parsed " + reparsedSections + " of "
+                + sections.size() + " top-level statements after an edit at " + edit.offset());
+        return program();
+    }
+
+    /**
+     * Parses sections beginning at the given token until the parser reaches the start of a reusable
+     * section behind {@code damageEnd}, from there on the reusable sections are taken over.
+     */
+    private void parseSections(int from, List<Section> reusable, int damageEnd) {
+        final TokenStream stream = tokens.stream(from);
+        final Parser parser = new Parser(stream, task);
+        int next = 0;
+        reparsedSections = 0;
+
+        while (stream.token().type() != EOF) {
+            final int start = stream.position();
+            final List<AST.Statement> statements = parser.parseTopLevelStatement();
+            final int end = stream.position();
+            sections.add(new Section(start, end, statements));
+            reparsedSections++;
+
+            if (end < damageEnd)
+                continue;
+            while (next < reusable.size() && reusable.get(next).start() < end)
+                next++;
+            if (next < reusable.size() && reusable.get(next).start() == end) {
+                sections.addAll(reusable.subList(next, reusable.size()));
+                return;
+            }
+        }
+    }
+}
@@ -5,9 +5,13 @@ import mainau.compiler.ast.AST;
 import mainau.compiler.ast.ASTImpl;
 import mainau.compiler.error.ErrorType;
 import mainau.compiler.error.TokenError;
+import mainau.compiler.analysis.lexical.Lexer;
+import mainau.compiler.analysis.lexical.Operator;
+import mainau.compiler.analysis.lexical.SymbolTable;
 import mainau.compiler.analysis.lexical.Token;
+import mainau.compiler.analysis.lexical.TokenBuffer;
 import mainau.compiler.analysis.lexical.TokenType;
-import mainau.compiler.analysis.lexical.Lexer;
+import mainau.compiler.analysis.lexical.TokenStream;
 import mainau.compiler.logging.MessageType;
 import mainau.compiler.logging.Output;
 import mainau.repl.runtime.ProcessTask;
@@ -17,17 +21,74 @@ import java.util.*;
 import static mainau.compiler.analysis.lexical.TokenType.*;
 
 public class Parser {
-    private final Lexer lexer;
+    // how far isVariableDeclaration looks ahead, well within the lexer's buffer
+    private static final int MAX_QUALIFIED_NAME_TOKENS = Lexer.BUFFER_SIZE / 2;
+
+    private final TokenStream tokens;
     private final ProcessTask task;
-    final List<AST.Statement> statements = new ArrayList<>();
+    // set in lazy mode, block function bodies are parsed from it on first use
+    private final TokenBuffer buffer;
+    // the statements of the block being parsed, multi-declarations add all but their last one here
+    private List<AST.Statement> statements = new ArrayList<>();
+
+    private static final int FUN_SYMBOL = SymbolTable.intern(FUN.text());
+
+    private static final Set<TokenType> DECLARATION_CONTINUATIONS = EnumSet.of(ASSIGN, COMMA, SEMI);
+    private static final Set<TokenType> DECLARATION_SEPARATORS = EnumSet.of(SEMI, COMMA);
+
+    // tokens a statement may start with, where panic mode stops skipping
+    private static final Set<TokenType> STATEMENT_STARTS = EnumSet.of(
+            OBTAIN, CLASS, INTERFACE, RECORD, ANNOTATION, ENUM,
+            IF, SWITCH, FOR, WHILE, DO,
+            LONG, INT, CHAR, SHORT, BYTE, BOOLEAN, DOUBLE, FLOAT, FUN, VAR,
+            FINAL, STATIC, PUBLIC, PRIVATE, PROTECTED,
+            PRINT, INPUT
+    );
+
+    // binding power of the infix operators indexed by ordinal, all of them associate to the left except assignments and powers
+    private static final int ASSIGNMENT_PRECEDENCE = 1;
+    private static final int[] PRECEDENCE = new int[Operator.values().length];
+    private static final boolean[] RIGHT_ASSOCIATIVE = new boolean[Operator.values().length];
+
+    static {
+        for (Operator operator : Operator.values()) {
+            PRECEDENCE[operator.ordinal()] = switch (operator) {
+                case OR -> 2;
+                case AND -> 3;
+                case BIT_OR -> 4;
+                case BIT_AND -> 5;
+                case EQUAL, NOT_EQUAL -> 6;
+                case LESS, LESS_EQUAL, GREATER, GREATER_EQUAL -> 7;
+                case SHIFT_LEFT, SHIFT_RIGHT -> 8;
+                case ADD, SUBTRACT -> 9;
+                case MULTIPLY, DIVIDE, MODULO -> 10;
+                case POWER -> 11;
+                default -> ASSIGNMENT_PRECEDENCE;
+            };
+            RIGHT_ASSOCIATIVE[operator.ordinal()] = operator.isAssignment() || operator == Operator.POWER;
+        }
+    }
 
     private Token token() {
-        return lexer.token();
+        return tokens.token();
     }
 
-    public Parser(Lexer lexer, ProcessTask task) {
-        this.lexer = lexer;
+    public Parser(TokenStream tokens, ProcessTask task) {
+        this(tokens, task, null);
+    }
+
+    /**
+     * @param lazyFunctionBodies whether block function bodies are only brace-matched and parsed
+     *                           on the first call to {@link AST.FunctionDeclarationStatement#body()}
+     */
+    public Parser(TokenBuffer tokens, ProcessTask task, boolean lazyFunctionBodies) {
+        this(tokens.stream(), task, lazyFunctionBodies ? tokens : null);
+    }
+
+    private Parser(TokenStream tokens, ProcessTask task, TokenBuffer buffer) {
+        this.tokens = tokens;
         this.task = task;
+        this.buffer = buffer;
     }
 
     private void check(TokenType tokenType, Token token) {
@@ -41,51 +102,165 @@ public class Parser {
             task.insertError(error);
     }
 
+    /**
+     * Like {@link #check(TokenType, Token)}, but abandons the statement on a mismatch.
+     */
+    private Token expect(TokenType tokenType, Token token) {
+        final TokenError error = Checks.expectTokenType(tokenType, token);
+        if (error != null) throw panic(error);
+        return token;
+    }
+
+    /**
+     * Thrown after a syntax error was reported, the statement being parsed is abandoned
+     * and parsing resumes behind it, see {@link #synchronize(int)}.
+     */
+    private static final class Panic extends RuntimeException {
+        private Panic() {
+            super(null, null, false, false);
+        }
+    }
+
+    private Panic panic(TokenError error) {
+        task.insertError(error);
+        return new Panic();
+    }
+
+    /**
+     * Parses the whole module. Statements containing syntax errors are left out, the errors
+     * are reported to the task, so the result might only be a part of the module.
+     */
     public ASTImpl.Program parseModule() {
         return parseModule(EOF);
     }
     private ASTImpl.Program parseModule(TokenType terminate) {
-        do statements.add(parseStatement());
-        while (token().type() != terminate || token().type() != EOF);
+        final List<AST.Statement> enclosing = statements;
+        statements = new ArrayList<>();
+
+        while (token().type() != terminate && token().type() != EOF) {
+            final AST.Statement statement = parseStatementRecovering();
+            if (statement != null)
+                statements.add(statement);
+        }
 
-        if (terminate != EOF && token().type() == EOF)
-            check(terminate, token()); // will definitely insert Error
+        if (terminate != EOF) {
+            check(terminate, token());
+            if (token().type() == terminate)
+                tokens.next();
+        }
+        else Output.simplyLog(MessageType.DEBUG, "Successfully parsed the module");
+
+        final AST.Statement[] body = statements.toArray(new AST.Statement[0]);
+        statements = enclosing;
+        return new ASTImpl.Program(body);
+    }
+
+    /**
+     * @return the parsed statement or {@code null}, if it contained a syntax error
+     */
+    private AST.Statement parseStatementRecovering() {
+        final int start = tokens.position();
+        try {
+            return parseStatement();
+        } catch (Panic panic) {
+            synchronize(start);
+            return null;
+        }
+    }
 
-        Output.simplyLog(MessageType.DEBUG, "Successfully parsed the module");
+    /**
+     * Panic mode: skips tokens up to and including the next {@code SEMI}, or up to the next
+     * {@code CLOSE_BRACE} or token that starts a statement. At least one token is skipped,
+     * so a statement failing at its first token cannot fail over and over again.
+     */
+    private void synchronize(int start) {
+        if (tokens.position() == start && token().type() != EOF)
+            tokens.next();
+
+        TokenType type;
+        while ((type = token().type()) != EOF && type != CLOSE_BRACE && !STATEMENT_STARTS.contains(type)) {
+            tokens.next();
+            if (type == SEMI)
+                return;
+        }
+    }
 
-        return new ASTImpl.Program(statements.toArray(new AST.Statement[0]));
+    /**
+     * Parses the statement at the current token, a declaration of several variables
+     * results in one statement per variable.
+     */
+    List<AST.Statement> parseTopLevelStatement() {
+        final int first = statements.size();
+        final AST.Statement statement = parseStatementRecovering();
+        final List<AST.Statement> parsed = new ArrayList<>(statements.subList(first, statements.size()));
+        if (statement != null)
+            parsed.add(statement);
+        statements.subList(first, statements.size()).clear();
+        return parsed;
     }
 
     private AST.Statement parseStatement() {
         var attributeModifiers = parseAttributeModifiers();
 
         return switch (token().type()) {
-            case OBTAIN -> null;
-            case IDENTIFIER -> {
-                var member = parseMemberFunctionInvocationExpression();
-                if (member instanceof AST.FunctionInvocationExpression)
-                    yield member;
-                yield parseVariableDeclarationStatement(
-                        member,
-                        attributeModifiers
-                );
-            }
+            case OBTAIN -> throw panic(new TokenError(ErrorType.SYNTAX, "obtain statements are not supported yet", token()));
+            case IDENTIFIER -> isVariableDeclaration()
+                    ? parseVariableDeclarationStatement(parseMemberExpression(), attributeModifiers)
+                    : parseExpressionStatement();
             default -> {
                 if (TokenType.getKeywordTypes().contains(token().type()))
                     yield parseVariableDeclarationStatement(
-                            new ASTImpl.IdentifierLiteralExpression(lexer.next().value()),
+                            new ASTImpl.IdentifierLiteralExpression(tokens.next().symbol()),
                             attributeModifiers
                     );
-                else yield parseExpression();
+                else yield parseExpressionStatement();
             }
         };
     }
 
+    /**
+     * An expression statement ends with a {@code SEMI}, which may only be left out in front of
+     * the end of the module or block.
+     */
+    private AST.Expression parseExpressionStatement() {
+        final AST.Expression expression = parseExpression();
+        switch (token().type()) {
+            case SEMI -> tokens.next();
+            case EOF, CLOSE_BRACE -> {}
+            default -> throw panic(Checks.expectTokenType(SEMI, token()));
+        }
+        return expression;
+    }
+
+    /**
+     * A type is either a primitive type keyword or a possibly qualified name.
+     */
+    private AST.Expression parseTypeExpression() {
+        if (TokenType.getKeywordTypes().contains(token().type()))
+            return new ASTImpl.IdentifierLiteralExpression(tokens.next().symbol());
+        return parseMemberExpression();
+    }
+
+    /**
+     * A declaration starts with a possibly qualified type followed by the declared identifier,
+     * e.g. {@code java.lang.String name}, everything else starting with an identifier is an expression.
+     * Names longer than {@link #MAX_QUALIFIED_NAME_TOKENS} tokens are a syntax error.
+     */
+    private boolean isVariableDeclaration() {
+        int steps = 0;
+        while (tokens.peek(steps + 1).type() == DOT && tokens.peek(steps + 2).type() == IDENTIFIER) {
+            steps += 2;
+            if (steps + 2 >= MAX_QUALIFIED_NAME_TOKENS)
+                throw panic(new TokenError(ErrorType.SYNTAX, "qualified name is longer than " + MAX_QUALIFIED_NAME_TOKENS + " tokens", token()));
+        }
+        return tokens.peek(steps + 1).type() == IDENTIFIER;
+    }
+
     private Set<TokenType> parseAttributeModifiers() {
         final Set<TokenType> attributeModifiers = new HashSet<>();
 
         while (TokenType.getAttributeModifiers().contains(token().type())) {
-            final Token token = lexer.next();
+            final Token token = tokens.next();
             if (attributeModifiers.add(token.type()))
                 continue;
             task.insertError(new TokenError(ErrorType.INVALID_ACTION, "repeating attribute modifier", token));
@@ -100,60 +275,59 @@ public class Parser {
         List<ASTImpl.Statement> variableDeclarationStatements = new ArrayList<>();
 
         do {
-            final Token identifierToken = lexer.next();
-            check(IDENTIFIER, identifierToken);
+            final Token identifierToken = expect(IDENTIFIER, tokens.next());
 
-            var check = lexer.next();
+            final Token check = tokens.next();
             final boolean isAssigning = check.type() == ASSIGN;
 
             // is function?
             if (variableType instanceof AST.IdentifierLiteralExpression identifier
-                    && identifier.symbol().equals("fun"))
+                    && identifier.symbolId() == FUN_SYMBOL)
                 return check.type() == OPEN_BRACE
                         ? parseFunctionDeclarationStatement(identifierToken.value(), modifiers)
                         : parseSingleFunctionDeclarationStatement(identifierToken.value(), modifiers);
 
+            if (!DECLARATION_CONTINUATIONS.contains(check.type()))
+                throw panic(Checks.expectTokenType(DECLARATION_CONTINUATIONS, check));
+
             variableDeclarationStatements.add(new ASTImpl.VariableDeclarationStatement(
                     variableType,
                     identifierToken.value(),
-                    isAssigning ? parseAdditiveExpression() : null,
+                    isAssigning ? parseExpression() : null,
                     modifiers
             ));
+            Output.simplyLog(MessageType.DEV, () -> Arrays.toString(variableDeclarationStatements.toArray()));
 
-            check(Set.of(ASSIGN, COMMA, SEMI), check);
-            Output.simplyLog(MessageType.DEV, Arrays.toString(variableDeclarationStatements.toArray()));
-
-            check = isAssigning ? lexer.next() : check;
-            if (check.type() == SEMI) break;
-            else check(Set.of(SEMI, COMMA), check);
-
-            Output.simplyLog(MessageType.DEV, "should not have gotten here");
-
+            final Token separator = isAssigning ? tokens.next() : check;
+            if (separator.type() == SEMI || separator.type() == EOF) break;
+            if (separator.type() != COMMA)
+                throw panic(Checks.expectTokenType(DECLARATION_SEPARATORS, separator));
         } while (true);
-        Output.simplyLog(MessageType.DEV, "got here");
 
         return Util.returnLastAddToTarget(variableDeclarationStatements, statements);
     }
 
+    /**
+     * A group of overloads, {@code fun name { int (int a) -> a; int () -> 0; }}, the
+     * {@code OPEN_BRACE} was already consumed.
+     */
     private AST.Statement parseFunctionDeclarationStatement(
             String identifier,
             Set<TokenType> modifiers
     ) {
-        check(Set.of(ASSIGN, OPEN_BRACE), token());
-
-        if (token().type() == ASSIGN)
-            return parseSingleFunctionDeclarationStatement(identifier, modifiers);
-
         List<AST.FunctionDeclarationStatement> functions = new ArrayList<>();
 
         Set<TokenType> specificModifiers;
 
-        do {
+        while (token().type() != CLOSE_BRACE && token().type() != EOF) {
             specificModifiers = new HashSet<>(modifiers);
             specificModifiers.addAll(parseAttributeModifiers());
 
             functions.add(parseSingleFunctionDeclarationStatement(identifier, specificModifiers));
-        } while (token().type() != CLOSE_BRACE);
+        }
+        final Token closing = expect(CLOSE_BRACE, tokens.next());
+        if (functions.isEmpty())
+            throw panic(new TokenError(ErrorType.EXPECTED, "function group without functions", closing));
 
         return Util.returnLastAddToTarget(functions, statements);
     }
@@ -162,15 +336,29 @@ public class Parser {
             String identifier,
             Set<TokenType> modifiers
     ) {
-        check(TokenType.getPossibleFunctionReturnTypeTokenTypes(), lexer.peakNext());
-        var returnTypeIdentifier = parseMemberExpression();
+        check(TokenType.getPossibleFunctionReturnTypeTokenTypes(), token());
+        var returnTypeIdentifier = parseTypeExpression();
 
-        check(OPEN_PAREN, lexer.next());
+        expect(OPEN_PAREN, tokens.next());
         var arguments = parseFunctionDeclarationArguments();
 
-        check(LAMBDA, lexer.next());
+        expect(LAMBDA, tokens.next());
 
         boolean isBlock = token().type() == OPEN_BRACE;
+        if (isBlock)
+            tokens.next();
+
+        if (isBlock && buffer != null) {
+            final int bodyStart = tokens.position();
+            if (skipBlock())
+                return new ASTImpl.LazyFunctionDeclarationStatement(
+                        returnTypeIdentifier,
+                        identifier,
+                        () -> task.reportLate(() -> new Parser(buffer.stream(bodyStart), task, buffer).parseModule(CLOSE_BRACE).body()),
+                        modifiers,
+                        arguments
+                );
+        }
 
         var body = isBlock
                 ? parseModule(CLOSE_BRACE).body()
@@ -186,12 +374,46 @@ public class Parser {
         );
     }
 
+    /**
+     * Brace-matches up to and including the {@code CLOSE_BRACE} of the block whose {@code OPEN_BRACE}
+     * was just consumed.
+     * @return false, if the block is never closed, the stream is left where it was then
+     */
+    private boolean skipBlock() {
+        final int mark = tokens.mark();
+        int depth = 1;
+        while (depth > 0) {
+            switch (tokens.next().type()) {
+                case OPEN_BRACE -> depth++;
+                case CLOSE_BRACE -> depth--;
+                case EOF -> {
+                    tokens.reset(mark);
+                    return false;
+                }
+                default -> {}
+            }
+        }
+        tokens.release(mark);
+        return true;
+    }
+
+    /**
+     * Parses the bodies of the lazy functions among the given statements and the functions
+     * nested in them, which reports every syntax error left in the module.
+     */
+    public static void parseFunctionBodies(AST.Statement[] statements) {
+        for (AST.Statement statement : statements)
+            if (statement instanceof AST.FunctionDeclarationStatement function)
+                parseFunctionBodies(function.body());
+    }
+
     private Set<AST.FunctionDeclarationStatement.ParameterExpression> parseFunctionDeclarationArguments() {
-        Set<AST.FunctionDeclarationStatement.ParameterExpression> arguments = new HashSet<>();
+        // keeps the declaration order, arguments are passed by position
+        Set<AST.FunctionDeclarationStatement.ParameterExpression> arguments = new LinkedHashSet<>();
 
         if (token().type() == CLOSE_PAREN) {
-            lexer.next();
-            return Set.of();
+            tokens.next();
+            return arguments;
         }
 
         AST.Expression variableType;
@@ -199,58 +421,47 @@ public class Parser {
         boolean isFinal;
 
         do {
-            isFinal = lexer.next().type() == FINAL;
-
-            variableType = parseMemberExpression();
+            isFinal = token().type() == FINAL;
+            if (isFinal)
+                tokens.next();
 
-            check(IDENTIFIER, token());
-            symbol = lexer.next().value();
+            variableType = parseTypeExpression();
+            symbol = expect(IDENTIFIER, tokens.next()).value();
 
             arguments.add(new ASTImpl.FunctionDeclarationStatement.ParameterExpression(
                     isFinal,
                     variableType,
                     symbol
             ));
-        } while (token().type() == COMMA && lexer.next().type() != CLOSE_PAREN);
+        } while (token().type() == COMMA && tokens.next().type() != CLOSE_PAREN);
 
+        expect(CLOSE_PAREN, tokens.next());
         return arguments;
     }
 
     private AST.Expression parseExpression() {
-        return parseAssignmentExpression();
+        return parseExpression(ASSIGNMENT_PRECEDENCE);
     }
 
-    private AST.Expression parseAssignmentExpression() {
-        AST.Expression left = parseAdditiveExpression();
-        if (!Set.of(ASSIGN, BINARY_ASSIGN).contains(token().type()))
-            return left;
-
-        final var operator = lexer.next();
-
-        if (operator.type() == ASSIGN)
-            return new ASTImpl.AssignmentExpression(left, parseAdditiveExpression());
-
-        return left;
-    }
-
-    private AST.Expression parseAdditiveExpression() {
-        AST.Expression left = parseMultiplicativeExpression();
-
-        while (Set.of("+", "-").contains(token().value())) {
-            final String operator = lexer.next().value();
-            final AST.Expression right = parseMultiplicativeExpression();
-            left = new ASTImpl.BinaryExpression(left, right, operator);
-        }
-        return left;
-    }
-
-    private AST.Expression parseMultiplicativeExpression() {
+    /**
+     * Pratt parser over the operator tables, an operand is followed by operators as long as these
+     * bind at least as tight as {@code minimumPrecedence}. Their right-hand side only takes
+     * operators binding tighter, or equally tight for right associative ones.
+     */
+    private AST.Expression parseExpression(int minimumPrecedence) {
         AST.Expression left = parseMemberFunctionInvocationExpression();
 
-        while (Set.of("*", "/", "%").contains(token().value())) {
-            final String operator = lexer.next().value();
-            final AST.Expression right = parseMemberFunctionInvocationExpression();
-            left = new ASTImpl.BinaryExpression(left, right, operator);
+        Operator operator;
+        while ((operator = token().operator()) != null && PRECEDENCE[operator.ordinal()] >= minimumPrecedence) {
+            tokens.next();
+            final int precedence = PRECEDENCE[operator.ordinal()];
+            final AST.Expression right = parseExpression(
+                    RIGHT_ASSOCIATIVE[operator.ordinal()] ? precedence : precedence + 1
+            );
+
+            if (operator.isAssignment())
+                left = new ASTImpl.AssignmentExpression(left, right, operator);
+            else left = new ASTImpl.BinaryExpression(left, right, operator);
         }
         return left;
     }
@@ -267,19 +478,18 @@ public class Parser {
     private AST.Expression parseFunctionInvocationExpression(AST.Expression identifier) {
         ASTImpl.Expression expression;
 
-        lexer.next(); // get past OPEN_PAREN
+        tokens.next(); // get past OPEN_PAREN
 
         if (token().type() == CLOSE_PAREN) {
             expression = new ASTImpl.FunctionInvocationExpression(identifier);
-            lexer.next();
+            tokens.next();
         }
         else {
             List<AST.Expression> arguments = new ArrayList<>();
 
-            do {
-                arguments.add(parseAdditiveExpression());
-                check(Set.of(CLOSE_PAREN, COMMA), token());
-            } while (token().type() == COMMA && lexer.next().type() != CLOSE_PAREN);
+            do arguments.add(parseExpression());
+            while (token().type() == COMMA && tokens.next().type() != CLOSE_PAREN);
+            expect(CLOSE_PAREN, tokens.next());
 
             expression = new ASTImpl.FunctionInvocationExpression(
                     identifier,
@@ -288,7 +498,7 @@ public class Parser {
         }
 
         // allow currying
-        if (lexer.next().type() == OPEN_PAREN)
+        if (token().type() == OPEN_PAREN)
             return parseFunctionInvocationExpression(expression);
         return expression;
     }
@@ -302,17 +512,14 @@ public class Parser {
         boolean computed;
         AST.Expression child;
 
-        while (Set.of(DOT, OPEN_BRACKET).contains(token().type())) {
-            computed = lexer.next().type() == OPEN_BRACKET;
+        while (token().type() == DOT || token().type() == OPEN_BRACKET) {
+            computed = tokens.next().type() == OPEN_BRACKET;
 
             if (computed) {
-                child = parseAdditiveExpression();
-                check(CLOSE_BRACKET, lexer.next());
-            }
-            else {
-                check(IDENTIFIER, token());
-                child = new ASTImpl.IdentifierLiteralExpression(lexer.next().value());
+                child = parseExpression();
+                expect(CLOSE_BRACKET, tokens.next());
             }
+            else child = new ASTImpl.IdentifierLiteralExpression(expect(IDENTIFIER, tokens.next()).symbol());
 
             parent = new ASTImpl.MemberExpression(
                     parent,
@@ -325,27 +532,33 @@ public class Parser {
 
     private AST.Expression parseLiteralExpression() {
         return switch (token().type()) {
-            case NUMBER_VALUE -> new ASTImpl.NumericLiteralExpression(Float.parseFloat(lexer.next().value()));
-            case STRING -> new ASTImpl.StringLiteralExpression(lexer.next().value());
-            case CHARACTER -> new ASTImpl.CharacterLiteralExpression(lexer.next().value().charAt(0));
-            case IDENTIFIER -> new ASTImpl.IdentifierLiteralExpression(lexer.next().value());
+            case NUMBER_VALUE -> new ASTImpl.NumericLiteralExpression(parseNumber(tokens.next()));
+            case STRING -> new ASTImpl.StringLiteralExpression(tokens.next().value());
+            case CHARACTER -> new ASTImpl.CharacterLiteralExpression(tokens.next().value().charAt(0));
+            case IDENTIFIER -> new ASTImpl.IdentifierLiteralExpression(tokens.next().symbol());
             case OPEN_PAREN -> {
-                lexer.next();
+                tokens.next();
                 final AST.Expression expression = parseExpression();
-                check(CLOSE_PAREN, lexer.next());
+                expect(CLOSE_PAREN, tokens.next());
                 yield expression;
             }
-            case NULL -> new ASTImpl.NullLiteralExpression();
-            default -> {
-                Output.output().send(
-                        MessageType.FATAL,
-                        "Could not parse following token: " +
-                                "\n" + token() +
-                                "\nExiting now, Goodbye!"
-                );
-                System.exit(1);
-                yield null;
+            case NULL -> {
+                tokens.next();
+                yield new ASTImpl.NullLiteralExpression();
             }
+            case INVALID -> throw panic(new TokenError(ErrorType.SYNTAX, "could not tokenize following char: " + token().value(), token()));
+            default -> throw panic(new TokenError(ErrorType.SYNTAX, "unexpected symbol: " + token().type().name(), token()));
         };
     }
+
+    /**
+     * The lexer takes any run of digits, letters and dots as a number, like {@code 12abc} or {@code 1.2.3}.
+     */
+    private float parseNumber(Token token) {
+        try {
+            return Float.parseFloat(token.value());
+        } catch (NumberFormatException e) {
+            throw panic(new TokenError(ErrorType.SYNTAX, "malformed number: " + token.value(), token));
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package mainau.compiler.ast;
 
+import mainau.compiler.analysis.lexical.Operator;
 import mainau.compiler.analysis.lexical.TokenType;
 
 import java.util.Set;
@@ -43,6 +44,10 @@ public interface AST {
     interface AssignmentExpression extends Expression {
         Expression variable();
         Expression value();
+        /**
+         * @return {@link Operator#ASSIGN} or a compound assignment like {@link Operator#ADD_ASSIGN}
+         */
+        Operator operator();
     }
     interface MemberExpression extends Expression {
         Expression parent();
@@ -56,12 +61,13 @@ public interface AST {
     interface BinaryExpression extends Expression {
         AST.Expression left();
         AST.Expression right();
-        String operator();
+        Operator operator();
     }
 
     interface LiteralExpression extends Expression {}
 
     interface IdentifierLiteralExpression extends LiteralExpression {
+        int symbolId();
         String symbol();
     }
     interface NumericLiteralExpression extends LiteralExpression {
@@ -0,0 +1,702 @@
+package mainau.compiler.ast;
+
+import mainau.compiler.analysis.lexical.Operator;
+import mainau.compiler.analysis.lexical.SymbolTable;
+import mainau.compiler.analysis.lexical.TokenType;
+import mainau.compiler.visitor.ASTVisitor;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A whole tree in parallel int arrays, one row of 12 bytes per node: its kind and flags, its next
+ * sibling and a payload, which holds a symbol id, an operator, a char, the bits of a number or an
+ * index into the string table. Nodes are stored in pre-order, so passes over the whole tree walk the
+ * arrays front to back, and the first child of a node is always the row right behind it.
+ * <p>
+ * Whole-tree passes use the index based accessors. The {@link ASTVisitor} view is available through
+ * {@link #root()}: cursors implement the {@link AST} interfaces on top of a node index and are created
+ * on demand, and every child accessor returns new cursors.
+ */
+public final class ASTArena {
+    public enum Kind {
+        /** an absent optional child, like the value of {@code int a;} */
+        NONE,
+        STATEMENT, PROGRAM, OBTAIN, VARIABLE_DECLARATION, FUNCTION_DECLARATION, PARAMETER,
+        EXPRESSION, ASSIGNMENT, MEMBER, FUNCTION_INVOCATION, BINARY,
+        LITERAL, IDENTIFIER, NUMBER, STRING, CHARACTER, NULL
+    }
+
+    private static final Kind[] KINDS = Kind.values();
+    private static final Set<Kind> EXPRESSIONS = EnumSet.of(
+            Kind.EXPRESSION, Kind.ASSIGNMENT, Kind.MEMBER, Kind.FUNCTION_INVOCATION, Kind.BINARY,
+            Kind.LITERAL, Kind.IDENTIFIER, Kind.NUMBER, Kind.STRING, Kind.CHARACTER, Kind.NULL);
+    // what may stand in a body, parameters and absent children only stand in their own slots
+    private static final Set<Kind> STATEMENTS = EnumSet.complementOf(EnumSet.of(Kind.NONE, Kind.PROGRAM, Kind.PARAMETER));
+    private static final Operator[] OPERATORS = Operator.values();
+
+    // flags, modifiers take the lowest bits in the order of MODIFIERS
+    private static final TokenType[] MODIFIERS = {TokenType.FINAL, TokenType.STATIC, TokenType.PUBLIC, TokenType.PRIVATE, TokenType.PROTECTED};
+    private static final int BLOCK = 1 << 5, COMPUTED = 1 << 5;
+    // the amount of leading children of a kind, parameters of functions and targets of obtains
+    private static final int COUNT_SHIFT = 8;
+    private static final int KIND_BITS = 8;
+    // in the kind's byte, set if the next row is the first child
+    private static final int HAS_CHILDREN = 1 << 7;
+
+    private int[] headers = new int[256];
+    private int[] nextSiblings = new int[256];
+    private int[] payloads = new int[256];
+    private int size = 0;
+
+    private final List<String> strings = new ArrayList<>();
+
+    private ASTArena() {}
+
+    /**
+     * Copies the given tree into an arena, cursors of another arena work as well.
+     */
+    public static ASTArena of(AST.Program program) {
+        final ASTArena arena = new ASTArena();
+        arena.add(program);
+        arena.trim();
+        return arena;
+    }
+
+    public AST.Program root() {
+        return new ProgramCursor(this, 0);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the bytes taken by the node rows, strings not included
+     */
+    public long footprint() {
+        return 4L * (headers.length + nextSiblings.length + payloads.length);
+    }
+
+    public Kind kind(int node) {
+        return KINDS[headers[checkNode(node)] & HAS_CHILDREN - 1];
+    }
+
+    /**
+     * @return the first child or {@code -1}
+     */
+    public int firstChild(int node) {
+        return (headers[checkNode(node)] & HAS_CHILDREN) != 0 ? node + 1 : -1;
+    }
+
+    /**
+     * @return the next sibling or {@code -1}
+     */
+    public int nextSibling(int node) {
+        return nextSiblings[checkNode(node)];
+    }
+
+    public int payload(int node) {
+        return payloads[checkNode(node)];
+    }
+
+    /**
+     * @return the {@code index}th child, which has to exist
+     */
+    public int child(int node, int index) {
+        int child = firstChild(node);
+        for (int step = 0; step < index; step++)
+            child = nextSiblings[child];
+        return child;
+    }
+
+    public int childCount(int node) {
+        int count = 0;
+        for (int child = firstChild(node); child >= 0; child = nextSiblings[child])
+            count++;
+        return count;
+    }
+
+    private int flags(int node) {
+        return headers[checkNode(node)] >>> KIND_BITS;
+    }
+
+    private int count(int node) {
+        return flags(node) >>> COUNT_SHIFT;
+    }
+
+    private int checkNode(int node) {
+        if (node < 0 || node >= size)
+            throw new IndexOutOfBoundsException("Node " + node + " out of bounds for " + size + " nodes");
+        return node;
+    }
+
+    // Serialization
+
+    private static boolean hasSymbol(Kind kind) {
+        return switch (kind) {
+            case VARIABLE_DECLARATION, FUNCTION_DECLARATION, PARAMETER, IDENTIFIER -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Writes the rows followed by the symbols and strings they refer to. Symbol ids are only valid
+     * within one process, so they are written as indices into the written symbols.
+     */
+    public void write(DataOutputStream out) throws IOException {
+        final Map<Integer, Integer> symbolIndices = new HashMap<>();
+        final List<String> symbols = new ArrayList<>();
+
+        out.writeInt(size);
+        for (int node = 0; node < size; node++)
+            out.writeInt(headers[node]);
+        for (int node = 0; node < size; node++)
+            out.writeInt(nextSiblings[node]);
+        for (int node = 0; node < size; node++) {
+            int payload = payloads[node];
+            if (hasSymbol(kind(node))) {
+                final int id = payload;
+                payload = symbolIndices.computeIfAbsent(id, ignored -> {
+                    symbols.add(SymbolTable.name(id));
+                    return symbols.size() - 1;
+                });
+            }
+            out.writeInt(payload);
+        }
+
+        writeStrings(out, symbols);
+        writeStrings(out, strings);
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Reads an arena written by {@link #write(DataOutputStream)}, interning its symbols.
+     * @throws IllegalArgumentException if the data does not describe a valid tree
+     */
+    public static ASTArena read(ByteBuffer buffer) {
+        try {
+            final ASTArena arena = new ASTArena();
+            final int size = buffer.getInt();
+            if (size < 1 || (long) size * 12 > buffer.remaining())
+                throw new IllegalArgumentException("Invalid node amount " + size);
+
+            arena.size = size;
+            arena.headers = readInts(buffer, size);
+            arena.nextSiblings = readInts(buffer, size);
+            arena.payloads = readInts(buffer, size);
+
+            final List<String> symbols = readStrings(buffer);
+            arena.strings.addAll(readStrings(buffer));
+            final int[] symbolIds = new int[symbols.size()];
+            for (int index = 0; index < symbolIds.length; index++)
+                symbolIds[index] = SymbolTable.intern(symbols.get(index));
+
+            for (int node = 0; node < size; node++) {
+                final int kind = arena.headers[node] & HAS_CHILDREN - 1;
+                final int sibling = arena.nextSiblings[node];
+                if (kind >= KINDS.length
+                        || sibling != -1 && (sibling <= node || sibling >= size)
+                        || (arena.headers[node] & HAS_CHILDREN) != 0 && node + 1 >= size)
+                    throw new IllegalArgumentException("Invalid node " + node);
+
+                if (hasSymbol(KINDS[kind]))
+                    arena.payloads[node] = symbolIds[checkIndex(arena.payloads[node], symbolIds.length, node)];
+                else if (KINDS[kind] == Kind.STRING)
+                    checkIndex(arena.payloads[node], arena.strings.size(), node);
+                else if (KINDS[kind] == Kind.BINARY || KINDS[kind] == Kind.ASSIGNMENT)
+                    checkIndex(arena.payloads[node], OPERATORS.length, node);
+            }
+            if (arena.kind(0) != Kind.PROGRAM || arena.nextSiblings[0] != -1)
+                throw new IllegalArgumentException("The root is no program");
+            arena.checkTree();
+            for (int node = 0; node < size; node++)
+                arena.checkLayout(node);
+            return arena;
+        } catch (RuntimeException e) {
+            if (e instanceof IllegalArgumentException) throw e;
+            throw new IllegalArgumentException("Truncated tree", e);
+        }
+    }
+
+    /**
+     * Children and siblings only point forward, so if every node but the root is pointed to exactly
+     * once, the rows form a single tree below the root.
+     */
+    private void checkTree() {
+        final boolean[] referenced = new boolean[size];
+        for (int node = 0; node < size; node++) {
+            reference(referenced, firstChild(node));
+            reference(referenced, nextSiblings[node]);
+        }
+        for (int node = 1; node < size; node++)
+            if (!referenced[node])
+                throw new IllegalArgumentException("Node " + node + " is not part of the tree");
+    }
+
+    private static void reference(boolean[] referenced, int node) {
+        if (node < 0)
+            return;
+        if (referenced[node])
+            throw new IllegalArgumentException("Node " + node + " is pointed to twice");
+        referenced[node] = true;
+    }
+
+    /**
+     * Checks the children of the node against the layout {@link #add} gives its kind, the cursors
+     * rely on it.
+     */
+    private void checkLayout(int node) {
+        final int[] children = new int[childCount(node)];
+        for (int index = 0, child = firstChild(node); child >= 0; child = nextSiblings[child])
+            children[index++] = child;
+        final int leading = count(node);
+        final boolean valid = switch (kind(node)) {
+            case PROGRAM -> all(children, 0, children.length, STATEMENTS);
+            case OBTAIN -> children.length == leading + 1 && all(children, 0, children.length, EXPRESSIONS);
+            case VARIABLE_DECLARATION -> children.length == 2 && all(children, 0, 1, EXPRESSIONS)
+                    && (kind(children[1]) == Kind.NONE || EXPRESSIONS.contains(kind(children[1])));
+            case FUNCTION_DECLARATION -> children.length >= 1 + leading && all(children, 0, 1, EXPRESSIONS)
+                    && all(children, 1, 1 + leading, EnumSet.of(Kind.PARAMETER))
+                    && all(children, 1 + leading, children.length, STATEMENTS);
+            case PARAMETER -> children.length == 1 && all(children, 0, 1, EXPRESSIONS);
+            case ASSIGNMENT -> children.length == 2 && all(children, 0, 2, EXPRESSIONS)
+                    && OPERATORS[payloads[node]].isAssignment();
+            case BINARY -> children.length == 2 && all(children, 0, 2, EXPRESSIONS)
+                    && !OPERATORS[payloads[node]].isAssignment();
+            case MEMBER -> children.length == 2 && all(children, 0, 2, EXPRESSIONS);
+            case FUNCTION_INVOCATION -> children.length >= 1 && all(children, 0, children.length, EXPRESSIONS);
+            default -> children.length == 0;
+        };
+        if (!valid)
+            throw new IllegalArgumentException("Invalid children of node " + node + ", a " + kind(node));
+    }
+
+    private boolean all(int[] children, int from, int to, Set<Kind> kinds) {
+        for (int index = from; index < to; index++)
+            if (!kinds.contains(kind(children[index])))
+                return false;
+        return true;
+    }
+
+    private static int checkIndex(int index, int length, int node) {
+        if (index < 0 || index >= length)
+            throw new IllegalArgumentException("Invalid payload of node " + node);
+        return index;
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int amount) {
+        final int[] ints = new int[amount];
+        buffer.asIntBuffer().get(ints);
+        buffer.position(buffer.position() + 4 * amount);
+        return ints;
+    }
+
+    private static List<String> readStrings(ByteBuffer buffer) {
+        final int amount = buffer.getInt();
+        if (amount < 0 || amount > buffer.remaining() / 4)
+            throw new IllegalArgumentException("Invalid string amount " + amount);
+        final List<String> strings = new ArrayList<>(amount);
+        for (int index = 0; index < amount; index++) {
+            final int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining())
+                throw new IllegalArgumentException("Invalid string length " + length);
+            final byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            strings.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return strings;
+    }
+
+    // Building
+
+    private void trim() {
+        headers = Arrays.copyOf(headers, size);
+        nextSiblings = Arrays.copyOf(nextSiblings, size);
+        payloads = Arrays.copyOf(payloads, size);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= headers.length)
+            return;
+        capacity = Math.max(capacity, headers.length * 2);
+        headers = Arrays.copyOf(headers, capacity);
+        nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+        payloads = Arrays.copyOf(payloads, capacity);
+    }
+
+    private int node(Kind kind, int flags, int payload) {
+        ensureCapacity(size + 1);
+        headers[size] = kind.ordinal() | flags << KIND_BITS;
+        nextSiblings[size] = -1;
+        payloads[size] = payload;
+        return size++;
+    }
+
+    /**
+     * Adds the children in order below the parent, which has to be the last node added.
+     */
+    private int withChildren(int parent, AST.Statement... children) {
+        int previous = -1;
+        for (AST.Statement child : children) {
+            final int node = add(child);
+            if (previous < 0) headers[parent] |= HAS_CHILDREN;
+            else nextSiblings[previous] = node;
+            previous = node;
+        }
+        return parent;
+    }
+
+    private static int modifierFlags(Set<TokenType> modifiers) {
+        int flags = 0;
+        for (int index = 0; index < MODIFIERS.length; index++)
+            if (modifiers.contains(MODIFIERS[index]))
+                flags |= 1 << index;
+        return flags;
+    }
+
+    private static Set<TokenType> modifierSet(int flags) {
+        final Set<TokenType> modifiers = EnumSet.noneOf(TokenType.class);
+        for (int index = 0; index < MODIFIERS.length; index++)
+            if ((flags & 1 << index) != 0)
+                modifiers.add(MODIFIERS[index]);
+        return modifiers;
+    }
+
+    private static <T> T[] concat(T[] first, T[] second) {
+        final T[] joined = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, joined, first.length, second.length);
+        return joined;
+    }
+
+    private int add(AST.Statement statement) {
+        return switch (statement) {
+            case null -> node(Kind.NONE, 0, 0);
+            case AST.FunctionDeclarationStatement function -> {
+                final AST.Statement[] parameters = function.arguments().toArray(new AST.Statement[0]);
+                final int flags = modifierFlags(function.modifiers())
+                        | (function.isBlock() ? BLOCK : 0)
+                        | parameters.length << COUNT_SHIFT;
+                yield withChildren(node(Kind.FUNCTION_DECLARATION, flags, SymbolTable.intern(function.identifierSymbol())),
+                        concat(concat(new AST.Statement[]{function.returnType()}, parameters), function.body()));
+            }
+            case AST.Program program -> withChildren(node(Kind.PROGRAM, 0, 0), program.body());
+            case AST.ObtainStatement obtain -> withChildren(
+                    node(Kind.OBTAIN, (obtain.computed() ? COMPUTED : 0) | obtain.targets().length << COUNT_SHIFT, 0),
+                    concat(obtain.targets(), new AST.Statement[]{obtain.path()}));
+            case AST.VariableDeclarationStatement declaration -> withChildren(
+                    node(Kind.VARIABLE_DECLARATION, modifierFlags(declaration.modifiers()), SymbolTable.intern(declaration.identifierSymbol())),
+                    declaration.variableType(), declaration.value());
+            case AST.FunctionDeclarationStatement.ParameterExpression parameter -> withChildren(
+                    node(Kind.PARAMETER, parameter.isFinal() ? modifierFlags(Set.of(TokenType.FINAL)) : 0, SymbolTable.intern(parameter.identifierSymbol())),
+                    parameter.variableType());
+            case AST.AssignmentExpression assignment -> withChildren(node(Kind.ASSIGNMENT, 0, assignment.operator().ordinal()),
+                    assignment.variable(), assignment.value());
+            case AST.MemberExpression member -> withChildren(node(Kind.MEMBER, member.computed() ? COMPUTED : 0, 0),
+                    member.parent(), member.child());
+            case AST.FunctionInvocationExpression invocation -> withChildren(node(Kind.FUNCTION_INVOCATION, 0, 0),
+                    concat(new AST.Statement[]{invocation.identifier()}, invocation.arguments()));
+            case AST.BinaryExpression binary -> withChildren(node(Kind.BINARY, 0, binary.operator().ordinal()),
+                    binary.left(), binary.right());
+            case AST.IdentifierLiteralExpression identifier -> node(Kind.IDENTIFIER, 0, identifier.symbolId());
+            case AST.NumericLiteralExpression number -> node(Kind.NUMBER, 0, Float.floatToRawIntBits(number.value()));
+            case AST.StringLiteralExpression string -> {
+                strings.add(string.value());
+                yield node(Kind.STRING, 0, strings.size() - 1);
+            }
+            case AST.CharacterLiteralExpression character -> node(Kind.CHARACTER, 0, character.value());
+            case AST.NullLiteralExpression ignored -> node(Kind.NULL, 0, 0);
+            case AST.LiteralExpression ignored -> node(Kind.LITERAL, 0, 0);
+            case AST.Expression ignored -> node(Kind.EXPRESSION, 0, 0);
+            default -> node(Kind.STATEMENT, 0, 0);
+        };
+    }
+
+    // Cursors
+
+    private AST.Statement cursor(int node) {
+        return switch (kind(node)) {
+            case NONE -> null;
+            case STATEMENT -> new StatementCursor(this, node);
+            case PROGRAM -> new ProgramCursor(this, node);
+            case OBTAIN -> new ObtainCursor(this, node);
+            case VARIABLE_DECLARATION -> new VariableDeclarationCursor(this, node);
+            case FUNCTION_DECLARATION -> new FunctionDeclarationCursor(this, node);
+            case PARAMETER -> new ParameterCursor(this, node);
+            case EXPRESSION -> new ExpressionCursor(this, node);
+            case ASSIGNMENT -> new AssignmentCursor(this, node);
+            case MEMBER -> new MemberCursor(this, node);
+            case FUNCTION_INVOCATION -> new FunctionInvocationCursor(this, node);
+            case BINARY -> new BinaryCursor(this, node);
+            case LITERAL -> new LiteralCursor(this, node);
+            case IDENTIFIER -> new IdentifierCursor(this, node);
+            case NUMBER -> new NumericCursor(this, node);
+            case STRING -> new StringCursor(this, node);
+            case CHARACTER -> new CharacterCursor(this, node);
+            case NULL -> new NullCursor(this, node);
+        };
+    }
+
+    private AST.Expression expression(int node) {
+        return (AST.Expression) cursor(node);
+    }
+
+    /**
+     * @return cursors of the children {@code [from, to)}, {@code to} of {@code -1} meaning all remaining ones
+     */
+    private <T extends AST.Statement> T[] cursors(int node, int from, int to, T[] target) {
+        final List<AST.Statement> children = new ArrayList<>();
+        int index = 0;
+        for (int child = firstChild(node); child >= 0 && (to < 0 || index < to); child = nextSiblings[child], index++)
+            if (index >= from)
+                children.add(cursor(child));
+        return children.toArray(target);
+    }
+
+    private abstract static class Cursor implements AST.Statement {
+        final ASTArena arena;
+        final int node;
+
+        Cursor(ASTArena arena, int node) {
+            this.arena = arena;
+            this.node = node;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Cursor cursor && cursor.arena == arena && cursor.node == node;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(arena) + node;
+        }
+
+        @Override
+        public String toString() {
+            return arena.kind(node) + "@" + node;
+        }
+    }
+
+    private static final class StatementCursor extends Cursor {
+        StatementCursor(ASTArena arena, int node) { super(arena, node); }
+
+        @Override
+        public <R, P> R accept(ASTVisitor<? extends R, P> visitor, P param) {
+            return visitor.visitStatement(this, param);
+        }
+    }
+
+    private static final class ProgramCursor extends Cursor implements AST.Program {
+        ProgramCursor(ASTArena arena, int node) { super(arena, node); }
+
+        @Override public AST.Statement[] body() { return arena.cursors(node, 0, -1, new AST.Statement[0]); }
+
+        @Override
+        public <R, P> R accept(ASTVisitor<? extends R, P> visitor, P param) {
+            return visitor.visitProgram(this, param);
+        }
+    }
+
+    private static final class ObtainCursor extends Cursor implements AST.ObtainStatement {
+        ObtainCursor(ASTArena arena, int node) { super(arena, node); }
+
+        @Override public AST.Expression[] targets() { return arena.cursors(node, 0, arena.count(node), new AST.Expression[0]); }
+        @Override public AST.Expression path() { return arena.expression(arena.child(node, arena.count(node))); }
+        @Override public boolean computed() { return (arena.flags(node) & COMPUTED) != 0; }
+
+        @Override
+        public <R, P> R accept(ASTVisitor<? extends R, P> visitor, P param) {
+            return visitor.visitObtainStatement(this, param);
+        }
+    }
+
+    private static final class VariableDeclarationCursor extends Cursor implements AST.VariableDeclarationStatement {
+        VariableDeclarationCursor(ASTArena arena, int node) { super(arena, node); }
+
+        @Override public AST.Expression variableType() { return arena.expression(arena.child(node, 0)); }
+        @Override public String identifierSymbol() { return SymbolTable.name(arena.payload(node)); }
+        @Override public AST.Expression value() { return arena.expression(arena.child(node, 1)); }
+        @Override public Set<TokenType> modifiers() { return modifierSet(arena.flags(node)); }
+
+        @Override
+        public <R, P> R accept(ASTVisitor<? extends R, P> visitor, P param) {
+            return visitor.visitVariableDeclarationStatement(this, param);
+        }
+    }
+
+    private static final class FunctionDeclarationCursor extends Cursor implements AST.FunctionDeclarationStatement {
+        FunctionDeclarationCursor(ASTArena arena, int node) { super(arena, node); }
+
+        @Override public AST.Expression returnType() { return arena.expression(arena.child(node, 0)); }
+        @Override public String identifierSymbol() { return SymbolTable.name(arena.payload(node)); }
+        @Override public AST.Statement[] body() { return arena.cursors(node, 1 + arena.count(node), -1, new AST.Statement[0]); }
+        @Override public Set<TokenType> modifiers() { return modifierSet(arena.flags(node)); }
+        @Override public boolean isBlock() { return (arena.flags(node) & BLOCK) != 0; }
+
+        @Override
+        public Set<ParameterExpression> arguments() {
+            return new LinkedHashSet<>(Arrays.asList(
+                    arena.cursors(node, 1, 1 + arena.count(node), new ParameterExpression[0])));
+        }
+
+        @Override
+        public <R, P> R accept(ASTVisitor<? extends R, P> visitor, P param) {
+            return visitor.visitFunctionDeclarationStatement(this, param);
+        }
+    }
+
+    private static final class ParameterCursor extends Cursor implements AST.FunctionDeclarationStatement.ParameterExpression {
+        ParameterCursor(ASTArena arena, int node) { super(arena, node); }
+
+        @Override public AST.Expression variableType() { return arena.expression(arena.child(node, 0)); }
+        @Override public String identifierSymbol() { return SymbolTable.name(arena.payload(node)); }
+        @Override public boolean isFinal() { return (arena.flags(node) & 1) != 0; }
+
+        @Override
+        public <R, P> R accept(ASTVisitor<? extends R, P> visitor, P param) {
+            return visitor.visitExpression(this, param);
+        }
+    }
+
+    private static final class ExpressionCursor extends Cursor implements AST.Expression {
+        ExpressionCursor(ASTArena arena, int node) { super(arena, node); }
+
+        @Override
+        public <R, P> R accept(ASTVisitor<? extends R, P> visitor, P param) {
+            return visitor.visitExpression(this, param);
+        }
+    }
+
+    private static final class AssignmentCursor extends Cursor implements AST.AssignmentExpression {
+        AssignmentCursor(ASTArena arena, int node) { super(arena, node); }
+
+        @Override public AST.Expression variable() { return arena.expression(arena.child(node, 0)); }
+        @Override public AST.Expression value() { return arena.expression(arena.child(node, 1)); }
+        @Override public Operator operator() { return OPERATORS[arena.payload(node)]; }
+
+        @Override
+        public <R, P> R accept(ASTVisitor<? extends R, P> visitor, P param) {
+            return visitor.visitAssignmentExpression(this, param);
+        }
+    }
+
+    private static final class MemberCursor extends Cursor implements AST.MemberExpression {
+        MemberCursor(ASTArena arena, int node) { super(arena, node); }
+
+        @Override public AST.Expression parent() { return arena.expression(arena.child(node, 0)); }
+        @Override public AST.Expression child() { return arena.expression(arena.child(node, 1)); }
+        @Override public boolean computed() { return (arena.flags(node) & COMPUTED) != 0; }
+
+        @Override
+        public <R, P> R accept(ASTVisitor<? extends R, P> visitor, P param) {
+            return visitor.visitMemberExpression(this, param);
+        }
+    }
+
+    private static final class FunctionInvocationCursor extends Cursor implements AST.FunctionInvocationExpression {
+        FunctionInvocationCursor(ASTArena arena, int node) { super(arena, node); }
+
+        @Override public AST.Expression identifier() { return arena.expression(arena.child(node, 0)); }
+        @Override public AST.Expression[] arguments() { return arena.cursors(node, 1, -1, new AST.Expression[0]); }
+
+        @Override
+        public <R, P> R accept(ASTVisitor<? extends R, P> visitor, P param) {
+            return visitor.visitFunctionInvocationExpression(this, param);
+        }
+    }
+
+    private static final class BinaryCursor extends Cursor implements AST.BinaryExpression {
+        BinaryCursor(ASTArena arena, int node) { super(arena, node); }
+
+        @Override public AST.Expression left() { return arena.expression(arena.child(node, 0)); }
+        @Override public AST.Expression right() { return arena.expression(arena.child(node, 1)); }
+        @Override public Operator operator() { return OPERATORS[arena.payload(node)]; }
+
+        @Override
+        public <R, P> R accept(ASTVisitor<? extends R, P> visitor, P param) {
+            return visitor.visitBinaryExpression(this, param);
+        }
+    }
+
+    private static final class LiteralCursor extends Cursor implements AST.LiteralExpression {
+        LiteralCursor(ASTArena arena, int node) { super(arena, node); }
+
+        @Override
+        public <R, P> R accept(ASTVisitor<? extends R, P> visitor, P param) {
+            return visitor.visitLiteralExpression(this, param);
+        }
+    }
+
+    private static final class IdentifierCursor extends Cursor implements AST.IdentifierLiteralExpression {
+        IdentifierCursor(ASTArena arena, int node) { super(arena, node); }
+
+        @Override public int symbolId() { return arena.payload(node); }
+        @Override public String symbol() { return SymbolTable.name(arena.payload(node)); }
+
+        @Override
+        public <R, P> R accept(ASTVisitor<? extends R, P> visitor, P param) {
+            return visitor.visitIdentifierLiteralExpression(this, param);
+        }
+    }
+
+    private static final class NumericCursor extends Cursor implements AST.NumericLiteralExpression {
+        NumericCursor(ASTArena arena, int node) { super(arena, node); }
+
+        @Override public float value() { return Float.intBitsToFloat(arena.payload(node)); }
+
+        @Override
+        public <R, P> R accept(ASTVisitor<? extends R, P> visitor, P param) {
+            return visitor.visitNumericLiteralExpression(this, param);
+        }
+    }
+
+    private static final class StringCursor extends Cursor implements AST.StringLiteralExpression {
+        StringCursor(ASTArena arena, int node) { super(arena, node); }
+
+        @Override public String value() { return arena.strings.get(arena.payload(node)); }
+
+        @Override
+        public <R, P> R accept(ASTVisitor<? extends R, P> visitor, P param) {
+            return visitor.visitStringLiteralExpression(this, param);
+        }
+    }
+
+    private static final class CharacterCursor extends Cursor implements AST.CharacterLiteralExpression {
+        CharacterCursor(ASTArena arena, int node) { super(arena, node); }
+
+        @Override public char value() { return (char) arena.payload(node); }
+
+        @Override
+        public <R, P> R accept(ASTVisitor<? extends R, P> visitor, P param) {
+            return visitor.visitCharacterLiteralExpression(this, param);
+        }
+    }
+
+    private static final class NullCursor extends Cursor implements AST.NullLiteralExpression {
+        NullCursor(ASTArena arena, int node) { super(arena, node); }
+
+        @Override
+        public <R, P> R accept(ASTVisitor<? extends R, P> visitor, P param) {
+            return visitor.visitNullLiteralExpression(this, param);
+        }
+    }
+}
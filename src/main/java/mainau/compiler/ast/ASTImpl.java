@@ -1,10 +1,13 @@
 package mainau.compiler.ast;
 
+import mainau.compiler.analysis.lexical.Operator;
+import mainau.compiler.analysis.lexical.SymbolTable;
 import mainau.compiler.analysis.lexical.TokenType;
 import mainau.compiler.visitor.ASTVisitor;
 
 import java.util.Arrays;
 import java.util.Set;
+import java.util.function.Supplier;
 
 public interface ASTImpl extends AST {
     class Statement implements AST.Statement {
@@ -52,8 +55,11 @@ public interface ASTImpl extends AST {
 
     class VariableDeclarationStatement extends Statement implements AST.VariableDeclarationStatement {
         private final String identifierSymbol;
+        private final int symbolId;
         private final AST.Expression variableType, value;
         private final Set<TokenType> modifiers;
+        // the variable's slot in the frame of its scope, filled in by the Resolver
+        private int slot = -1;
 
         public VariableDeclarationStatement(
                 AST.Expression variableType,
@@ -63,12 +69,14 @@ public interface ASTImpl extends AST {
         ) {
             this.variableType = variableType;
             this.identifierSymbol = identifierSymbol;
+            this.symbolId = SymbolTable.intern(identifierSymbol);
             this.value = value;
             this.modifiers = modifiers;
         }
 
         @Override public AST.Expression variableType() { return variableType; }
         @Override public String identifierSymbol() { return identifierSymbol; }
+        public int symbolId() { return symbolId; }
         @Override public AST.Expression value() { return value; }
 
         @Override
@@ -76,6 +84,9 @@ public interface ASTImpl extends AST {
             return modifiers;
         }
 
+        public int slot() { return slot; }
+        public void resolve(int slot) { this.slot = slot; }
+
         @Override
         public String toString() {
             return "VariableDeclarationStatement(" +
@@ -93,11 +104,14 @@ public interface ASTImpl extends AST {
     }
     class FunctionDeclarationStatement extends Program implements AST.FunctionDeclarationStatement {
         final private String identifierSymbol;
+        final private int symbolId;
         final private AST.Expression returnType;
         final private AST.Statement[] body;
         final private Set<TokenType> modifiers;
         final private Set<AST.FunctionDeclarationStatement.ParameterExpression> arguments;
         final private boolean isBlock;
+        // the function's slot in the frame of its scope and the slots its own frame needs, filled in by the Resolver
+        private int slot = -1, frameSize = -1;
 
         public FunctionDeclarationStatement(
                 AST.Expression returnType,
@@ -110,6 +124,7 @@ public interface ASTImpl extends AST {
             super(body);
             this.returnType = returnType;
             this.identifierSymbol = identifierSymbol;
+            this.symbolId = SymbolTable.intern(identifierSymbol);
             this.body = body;
             this.modifiers = modifiers;
             this.arguments = arguments;
@@ -118,17 +133,25 @@ public interface ASTImpl extends AST {
 
         @Override public AST.Expression returnType() { return returnType; }
         @Override public String identifierSymbol() { return identifierSymbol; }
+        public int symbolId() { return symbolId; }
         @Override public AST.Statement[] body() { return body; }
         @Override public Set<TokenType> modifiers() { return modifiers; }
         @Override public Set<AST.FunctionDeclarationStatement.ParameterExpression> arguments() { return arguments; }
         @Override public boolean isBlock() { return isBlock; }
 
+        public int slot() { return slot; }
+        public int frameSize() { return frameSize; }
+        public void resolve(int slot, int frameSize) {
+            this.slot = slot;
+            this.frameSize = frameSize;
+        }
+
         @Override
         public String toString() {
             return "FunctionDeclarationStatement(" +
                     "identifierSymbol='" + identifierSymbol + '\'' +
                     ", returnType=" + returnType +
-                    ", body=" + Arrays.toString(body) +
+                    ", body=" + Arrays.toString(body()) +
                     ", modifiers=" + modifiers +
                     ", arguments=" + arguments +
                     ')';
@@ -143,15 +166,18 @@ public interface ASTImpl extends AST {
             private final boolean isFinal;
             private final AST.Expression variableType;
             private final String identifierSymbol;
+            private final int symbolId;
 
             public ParameterExpression(boolean isFinal, AST.Expression variableType, String identifierSymbol) {
                 this.isFinal = isFinal;
                 this.variableType = variableType;
                 this.identifierSymbol = identifierSymbol;
+                this.symbolId = SymbolTable.intern(identifierSymbol);
             }
 
             @Override public AST.Expression variableType() { return variableType; }
             @Override public String identifierSymbol() { return identifierSymbol; }
+            public int symbolId() { return symbolId; }
             @Override public boolean isFinal() { return isFinal; }
 
             @Override
@@ -164,6 +190,70 @@ public interface ASTImpl extends AST {
             }
         }
     }
+
+    /**
+     * A block function whose body is only parsed on the first call to {@link #body()},
+     * syntax errors in it are reported at that point.
+     */
+    class LazyFunctionDeclarationStatement extends FunctionDeclarationStatement {
+        private static final AST.Statement[] MALFORMED = new AST.Statement[0];
+        // returns null if the body has syntax errors
+        private Supplier<AST.Statement[]> bodyParser;
+        private volatile AST.Statement[] body;
+        // what the resolver needs for the body's first call, null once it was resolved
+        private volatile Object deferral;
+
+        public LazyFunctionDeclarationStatement(
+                AST.Expression returnType,
+                String identifierSymbol,
+                Supplier<AST.Statement[]> bodyParser,
+                Set<TokenType> modifiers,
+                Set<AST.FunctionDeclarationStatement.ParameterExpression> arguments
+        ) {
+            super(returnType, identifierSymbol, null, modifiers, arguments, true);
+            this.bodyParser = bodyParser;
+        }
+
+        public boolean isParsed() { return body != null; }
+
+        /**
+         * @return whether the body was parsed and had syntax errors, it is empty then
+         */
+        public boolean isMalformed() { return body == MALFORMED; }
+
+        /**
+         * @return what the resolver left for the first call of the body, {@code null} if nothing waits for it
+         */
+        public Object deferral() { return deferral; }
+        public void defer(Object deferral) { this.deferral = deferral; }
+
+        @Override
+        public AST.Statement[] body() {
+            AST.Statement[] parsed = body;
+            if (parsed == null) {
+                synchronized (this) {
+                    if ((parsed = body) == null) {
+                        parsed = bodyParser.get();
+                        body = parsed = parsed != null ? parsed : MALFORMED;
+                        bodyParser = null;
+                    }
+                }
+            }
+            return parsed;
+        }
+
+        // printing the tree leaves the body as it is
+        @Override
+        public String toString() {
+            return isParsed() ? super.toString() : "LazyFunctionDeclarationStatement(" +
+                    "identifierSymbol='" + identifierSymbol() + '\'' +
+                    ", returnType=" + returnType() +
+                    ", body=<unparsed>" +
+                    ", modifiers=" + modifiers() +
+                    ", arguments=" + arguments() +
+                    ')';
+        }
+    }
     
     class Expression extends Statement implements AST.Expression {
         @Override
@@ -174,20 +264,27 @@ public interface ASTImpl extends AST {
 
     class AssignmentExpression extends Expression implements AST.AssignmentExpression {
         private final AST.Expression variable, value;
+        private final Operator operator;
 
-        public AssignmentExpression(AST.Expression target, AST.Expression value) {
+        public AssignmentExpression(AST.Expression target, AST.Expression value, Operator operator) {
             this.variable = target;
             this.value = value;
+            this.operator = operator;
+        }
+        public AssignmentExpression(AST.Expression target, AST.Expression value) {
+            this(target, value, Operator.ASSIGN);
         }
 
         @Override public AST.Expression variable() { return variable; }
         @Override public AST.Expression value() { return value; }
+        @Override public Operator operator() { return operator; }
 
         @Override
         public String toString() {
             return "AssignmentExpression{" +
                     "variable=" + variable +
                     ", value=" + value +
+                    ", operator=\"" + operator.text() + '"' +
                     '}';
         }
 
@@ -198,9 +295,9 @@ public interface ASTImpl extends AST {
     }
     class BinaryExpression extends Expression implements AST.BinaryExpression {
         private final AST.Expression left, right;
-        private final String operator;
+        private final Operator operator;
 
-        public BinaryExpression(AST.Expression left, AST.Expression right, String operator) {
+        public BinaryExpression(AST.Expression left, AST.Expression right, Operator operator) {
             this.left = left;
             this.right = right;
             this.operator = operator;
@@ -208,8 +305,8 @@ public interface ASTImpl extends AST {
 
         @Override public AST.Expression left() { return left; }
         @Override public AST.Expression right() { return right; }
-        @Override public String operator() { return operator; }
-        @Override public String toString() { return "BinaryExpression(left=" + left + ",right=" + right + ",operator=\"" + operator + "\")"; }
+        @Override public Operator operator() { return operator; }
+        @Override public String toString() { return "BinaryExpression(left=" + left + ",right=" + right + ",operator=\"" + operator.text() + "\")"; }
 
         @Override
         public <R, P> R accept(ASTVisitor<? extends R, P> visitor, P param) {
@@ -222,11 +319,11 @@ public interface ASTImpl extends AST {
 
         public FunctionInvocationExpression(AST.Expression identifier, AST.Expression[] arguments) {
             this.identifier = identifier;
-            this.arguments = (Expression[]) arguments;
+            this.arguments = arguments;
         }
         public FunctionInvocationExpression(AST.Expression identifier) {
             this.identifier = identifier;
-            this.arguments = new Expression[0];
+            this.arguments = new AST.Expression[0];
         }
 
         @Override public AST.Expression identifier() { return identifier; }
@@ -282,14 +379,23 @@ public interface ASTImpl extends AST {
     }
 
     class IdentifierLiteralExpression extends LiteralExpression implements AST.IdentifierLiteralExpression {
-        private final String symbol;
+        private final int symbolId;
+        // how many frames up the variable lives and its slot there, filled in by the Resolver
+        private int depth = -1, slot = -1;
 
-        public IdentifierLiteralExpression(String symbol) {
-            this.symbol = symbol;
+        public IdentifierLiteralExpression(int symbolId) {
+            this.symbolId = symbolId;
         }
 
-        @Override public String symbol() { return symbol; }
-        @Override public String toString() { return "IdentifierLiteralExpression(symbol=" + symbol + ")"; }
+        @Override public int symbolId() { return symbolId; }
+        public int depth() { return depth; }
+        public int slot() { return slot; }
+        public void resolve(int depth, int slot) {
+            this.depth = depth;
+            this.slot = slot;
+        }
+        @Override public String symbol() { return SymbolTable.name(symbolId); }
+        @Override public String toString() { return "IdentifierLiteralExpression(symbol=" + symbol() + ")"; }
 
         @Override
         public <R, P> R accept(ASTVisitor<? extends R, P> visitor, P param) {
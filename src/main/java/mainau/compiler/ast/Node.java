@@ -0,0 +1,135 @@
+package mainau.compiler.ast;
+
+import mainau.compiler.analysis.lexical.Operator;
+import mainau.compiler.analysis.lexical.SymbolTable;
+import mainau.compiler.analysis.lexical.TokenType;
+import mainau.compiler.visitor.ASTVisitor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A closed model of the tree as records, meant to be walked with exhaustive {@code switch} pattern
+ * matching instead of {@link ASTVisitor}s. Every node still implements its {@link AST} interface
+ * and {@link #accept(ASTVisitor, Object)}, so existing visitors work on it unchanged.
+ * The array components are compared by identity, like any array in a record.
+ */
+public sealed interface Node extends AST.Statement {
+
+    /**
+     * @return the tree as records, nodes that already are records are taken as they are
+     */
+    static Program of(AST.Program program) {
+        return program instanceof Program converted ? converted : NodeConverter.convert(program);
+    }
+
+    static Node of(AST.Statement statement) {
+        return statement instanceof Node converted ? converted : NodeConverter.convert(statement);
+    }
+
+    @Override
+    default <R, P> R accept(ASTVisitor<? extends R, P> visitor, P param) {
+        return switch (this) {
+            case Program program -> visitor.visitProgram(program, param);
+            case Obtain obtain -> visitor.visitObtainStatement(obtain, param);
+            case VariableDeclaration declaration -> visitor.visitVariableDeclarationStatement(declaration, param);
+            case FunctionDeclaration declaration -> visitor.visitFunctionDeclarationStatement(declaration, param);
+            case Parameter parameter -> visitor.visitExpression(parameter, param);
+            case Assignment assignment -> visitor.visitAssignmentExpression(assignment, param);
+            case Member member -> visitor.visitMemberExpression(member, param);
+            case Invocation invocation -> visitor.visitFunctionInvocationExpression(invocation, param);
+            case Binary binary -> visitor.visitBinaryExpression(binary, param);
+            case Identifier identifier -> visitor.visitIdentifierLiteralExpression(identifier, param);
+            case NumberLiteral number -> visitor.visitNumericLiteralExpression(number, param);
+            case StringLiteral string -> visitor.visitStringLiteralExpression(string, param);
+            case CharacterLiteral character -> visitor.visitCharacterLiteralExpression(character, param);
+            case NullLiteral nullLiteral -> visitor.visitNullLiteralExpression(nullLiteral, param);
+        };
+    }
+
+    sealed interface Expression extends Node, AST.Expression {}
+
+    sealed interface Literal extends Expression, AST.LiteralExpression {}
+
+    record Program(Node[] body) implements Node, AST.Program {
+        @Override public String toString() { return "Program(body=" + Arrays.toString(body) + ")"; }
+    }
+
+    record Obtain(Expression[] targets, Expression path, boolean computed) implements Node, AST.ObtainStatement {
+        @Override
+        public String toString() {
+            return "Obtain(targets=" + Arrays.toString(targets) + ", path=" + path + ", computed=" + computed + ")";
+        }
+    }
+
+    record VariableDeclaration(
+            Expression variableType,
+            String identifierSymbol,
+            Expression value,
+            Set<TokenType> modifiers
+    ) implements Node, AST.VariableDeclarationStatement {}
+
+    record FunctionDeclaration(
+            Expression returnType,
+            String identifierSymbol,
+            Set<Parameter> parameters,
+            Node[] body,
+            Set<TokenType> modifiers,
+            boolean isBlock
+    ) implements Node, AST.FunctionDeclarationStatement {
+        public FunctionDeclaration {
+            parameters = Collections.unmodifiableSequencedSet(new LinkedHashSet<>(parameters));
+        }
+
+        /**
+         * @return the parameters in declaration order, the set cannot be modified and is the same on every call
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public Set<AST.FunctionDeclarationStatement.ParameterExpression> arguments() {
+            return (Set<AST.FunctionDeclarationStatement.ParameterExpression>) (Set<?>) parameters;
+        }
+
+        @Override
+        public String toString() {
+            return "FunctionDeclaration(identifierSymbol='" + identifierSymbol + '\'' +
+                    ", returnType=" + returnType +
+                    ", parameters=" + parameters +
+                    ", body=" + Arrays.toString(body) +
+                    ", modifiers=" + modifiers +
+                    ", isBlock=" + isBlock +
+                    ')';
+        }
+    }
+
+    record Parameter(boolean isFinal, Expression variableType, String identifierSymbol)
+            implements Expression, AST.FunctionDeclarationStatement.ParameterExpression {}
+
+    record Assignment(Expression variable, Expression value, Operator operator) implements Expression, AST.AssignmentExpression {}
+
+    record Member(Expression parent, Expression child, boolean computed) implements Expression, AST.MemberExpression {}
+
+    record Invocation(Expression identifier, Expression[] arguments) implements Expression, AST.FunctionInvocationExpression {
+        @Override
+        public String toString() {
+            return "Invocation(identifier=" + identifier + ", arguments=" + Arrays.toString(arguments) + ")";
+        }
+    }
+
+    record Binary(Expression left, Expression right, Operator operator) implements Expression, AST.BinaryExpression {}
+
+    record Identifier(int symbolId) implements Literal, AST.IdentifierLiteralExpression {
+        @Override public String symbol() { return SymbolTable.name(symbolId); }
+        @Override public String toString() { return "Identifier(symbol=" + symbol() + ")"; }
+    }
+
+    record NumberLiteral(float value) implements Literal, AST.NumericLiteralExpression {}
+
+    record StringLiteral(String value) implements Literal, AST.StringLiteralExpression {}
+
+    record CharacterLiteral(char value) implements Literal, AST.CharacterLiteralExpression {}
+
+    record NullLiteral() implements Literal, AST.NullLiteralExpression {}
+}
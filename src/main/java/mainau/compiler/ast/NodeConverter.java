@@ -0,0 +1,146 @@
+package mainau.compiler.ast;
+
+import mainau.compiler.visitor.ASTVisitor;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static mainau.compiler.ast.AST.*;
+
+/**
+ * Copies any {@link AST} tree into {@link Node} records, see {@link Node#of(AST.Statement)}.
+ * Lazily parsed function bodies are parsed on the way.
+ */
+final class NodeConverter implements ASTVisitor<Node, Void> {
+    private static final NodeConverter INSTANCE = new NodeConverter();
+
+    private NodeConverter() {}
+
+    static Node convert(AST.Statement statement) {
+        return statement == null ? null : statement.accept(INSTANCE, null);
+    }
+
+    static Node.Program convert(AST.Program program) {
+        return new Node.Program(statements(program.body()));
+    }
+
+    private static Node.Expression expression(AST.Expression expression) {
+        return (Node.Expression) convert(expression);
+    }
+
+    private static Node[] statements(AST.Statement[] statements) {
+        final Node[] converted = new Node[statements.length];
+        for (int i = 0; i < statements.length; i++)
+            converted[i] = convert(statements[i]);
+        return converted;
+    }
+
+    private static Node.Expression[] expressions(AST.Expression[] expressions) {
+        final Node.Expression[] converted = new Node.Expression[expressions.length];
+        for (int i = 0; i < expressions.length; i++)
+            converted[i] = expression(expressions[i]);
+        return converted;
+    }
+
+    @Override
+    public Node visitStatement(Statement statement, Void unused) {
+        throw new IllegalArgumentException("Statement without a record counterpart: " + statement);
+    }
+
+    @Override
+    public Node visitProgram(Program program, Void unused) {
+        return convert(program);
+    }
+
+    @Override
+    public Node visitObtainStatement(ObtainStatement statement, Void unused) {
+        return new Node.Obtain(expressions(statement.targets()), expression(statement.path()), statement.computed());
+    }
+
+    @Override
+    public Node visitVariableDeclarationStatement(VariableDeclarationStatement statement, Void unused) {
+        return new Node.VariableDeclaration(
+                expression(statement.variableType()),
+                statement.identifierSymbol(),
+                expression(statement.value()),
+                statement.modifiers()
+        );
+    }
+
+    @Override
+    public Node visitFunctionDeclarationStatement(FunctionDeclarationStatement statement, Void unused) {
+        final Set<Node.Parameter> parameters = statement.arguments().stream()
+                .map(parameter -> new Node.Parameter(
+                        parameter.isFinal(),
+                        expression(parameter.variableType()),
+                        parameter.identifierSymbol()
+                ))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        return new Node.FunctionDeclaration(
+                expression(statement.returnType()),
+                statement.identifierSymbol(),
+                parameters,
+                statements(statement.body()),
+                statement.modifiers(),
+                statement.isBlock()
+        );
+    }
+
+    @Override
+    public Node visitExpression(Expression expression, Void unused) {
+        if (expression instanceof FunctionDeclarationStatement.ParameterExpression parameter)
+            return new Node.Parameter(parameter.isFinal(), expression(parameter.variableType()), parameter.identifierSymbol());
+        throw new IllegalArgumentException("Expression without a record counterpart: " + expression);
+    }
+
+    @Override
+    public Node visitAssignmentExpression(AssignmentExpression expression, Void unused) {
+        return new Node.Assignment(expression(expression.variable()), expression(expression.value()), expression.operator());
+    }
+
+    @Override
+    public Node visitMemberExpression(MemberExpression expression, Void unused) {
+        return new Node.Member(expression(expression.parent()), expression(expression.child()), expression.computed());
+    }
+
+    @Override
+    public Node visitFunctionInvocationExpression(FunctionInvocationExpression expression, Void unused) {
+        return new Node.Invocation(expression(expression.identifier()), expressions(expression.arguments()));
+    }
+
+    @Override
+    public Node visitBinaryExpression(BinaryExpression expression, Void unused) {
+        return new Node.Binary(expression(expression.left()), expression(expression.right()), expression.operator());
+    }
+
+    @Override
+    public Node visitLiteralExpression(LiteralExpression expression, Void unused) {
+        throw new IllegalArgumentException("Literal without a record counterpart: " + expression);
+    }
+
+    @Override
+    public Node visitIdentifierLiteralExpression(IdentifierLiteralExpression expression, Void unused) {
+        return new Node.Identifier(expression.symbolId());
+    }
+
+    @Override
+    public Node visitNumericLiteralExpression(NumericLiteralExpression expression, Void unused) {
+        return new Node.NumberLiteral(expression.value());
+    }
+
+    @Override
+    public Node visitStringLiteralExpression(StringLiteralExpression expression, Void unused) {
+        return new Node.StringLiteral(expression.value());
+    }
+
+    @Override
+    public Node visitCharacterLiteralExpression(CharacterLiteralExpression expression, Void unused) {
+        return new Node.CharacterLiteral(expression.value());
+    }
+
+    @Override
+    public Node visitNullLiteralExpression(NullLiteralExpression expression, Void unused) {
+        return new Node.NullLiteral();
+    }
+}
@@ -0,0 +1,150 @@
+package mainau.compiler.cache;
+
+import mainau.compiler.ast.AST;
+import mainau.compiler.ast.ASTArena;
+import mainau.compiler.logging.MessageType;
+import mainau.compiler.logging.Output;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.zip.CRC32;
+
+/**
+ * Parsed programs on disk, keyed by the SHA-256 of their source's bytes, so an unchanged file
+ * does not have to be lexed and parsed again. An entry is the {@link ASTArena} of the program
+ * behind a header of magic number, format version, the source hash and the CRC-32 of the arena:
+ * <pre>
+ * int magic, int version, byte[32] hash, int checksum, arena
+ * </pre>
+ * Entries are mapped and copied into an arena when loaded. Entries of another version, of another
+ * hash, with another checksum or that cannot be read as a tree are deleted and count as a miss.
+ * Bump {@link #VERSION} whenever the parser or the arena layout changes the trees it stores.
+ */
+public final class ASTCache {
+    public static final int VERSION = 2;
+    private static final int MAGIC = 0x4D4E4155; // "MNAU"
+    private static final String SUFFIX = ".ast";
+    private static final int HASH_LENGTH = 32;
+
+    private final Path directory;
+
+    public ASTCache(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    /**
+     * @return the SHA-256 of the file's bytes
+     */
+    public static byte[] hash(Path source) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required on every platform", e);
+        }
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            for (long position = 0; position < size; position += Integer.MAX_VALUE)
+                digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(Integer.MAX_VALUE, size - position)));
+        }
+        return digest.digest();
+    }
+
+    private Path entry(byte[] hash) {
+        return directory.resolve(HexFormat.of().formatHex(hash) + SUFFIX);
+    }
+
+    /**
+     * @return the cached program of the source with the given hash or {@code null}
+     */
+    public AST.Program load(byte[] hash) {
+        final Path entry = entry(hash);
+        if (!Files.isRegularFile(entry))
+            return null;
+
+        try (FileChannel channel = FileChannel.open(entry, StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            final String problem = checkHeader(buffer, hash);
+            if (problem == null)
+                return ASTArena.read(buffer).root();
+            discard(entry, problem);
+        } catch (IOException | IllegalArgumentException e) {
+            discard(entry, e.getMessage());
+        }
+        return null;
+    }
+
+    private static String checkHeader(ByteBuffer buffer, byte[] hash) {
+        if (buffer.remaining() < 12 + HASH_LENGTH || buffer.getInt() != MAGIC)
+            return "no cache entry";
+        final int version = buffer.getInt();
+        if (version != VERSION)
+            return "version " + version + " instead of " + VERSION;
+        final byte[] storedHash = new byte[HASH_LENGTH];
+        buffer.get(storedHash);
+        if (!Arrays.equals(storedHash, hash))
+            return "hash mismatch";
+        final int checksum = buffer.getInt();
+        return checksum == checksum(buffer.duplicate()) ? null : "checksum mismatch";
+    }
+
+    private static int checksum(ByteBuffer arena) {
+        final CRC32 crc = new CRC32();
+        crc.update(arena);
+        return (int) crc.getValue();
+    }
+
+    private static void discard(Path entry, String reason) {
+        Output.simplyLog(MessageType.DEBUG, "Discarding cache entry " + entry + ": " + reason);
+        try {
+            Files.deleteIfExists(entry);
+        } catch (IOException ignored) {
+            // another process might hold it, it is checked again next time
+        }
+    }
+
+    /**
+     * Stores the program, replacing the entry atomically so concurrent readers never see a partial one.
+     */
+    public void store(byte[] hash, AST.Program program) throws IOException {
+        final ByteArrayOutputStream arena = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(arena)) {
+            ASTArena.of(program).write(out);
+        }
+        final byte[] bytes = arena.toByteArray();
+
+        final Path temporary = Files.createTempFile(directory, "entry", ".tmp");
+        try {
+            try (OutputStream file = Files.newOutputStream(temporary);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.write(hash);
+                out.writeInt(checksum(ByteBuffer.wrap(bytes)));
+                out.write(bytes);
+            }
+            try {
+                Files.move(temporary, entry(hash), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, entry(hash), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
@@ -1,63 +1,57 @@
 package mainau.compiler.error;
 
+import mainau.compiler.analysis.lexical.SourceFile;
 import mainau.compiler.logging.MessageType;
 import mainau.compiler.logging.Output;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.function.Consumer;
 
 public class ErrorStorage {
-    private final String[] sourceCodeLines;
-    private final String filePath;
+    private final SourceFile sourceFile;
 
     private final List<Error> errors = new ArrayList<>();
 
-    private final Consumer<TokenError> printTokenError = tokenError -> {
-        final int line = tokenError.getLineNumber();
-        final String lineSnippet = getLineSnippetByLineNumber(line);
-        tokenError.setLineSnippet(lineSnippet);
-        tokenError.setFilePath(filePath());
-        if (tokenError.type() == ErrorType.FATAL) {
-            Output.simplyLog(MessageType.FATAL, tokenError.createMessage());
-            System.exit(1);
-            return;
-        }
-        Output.simplyLog(MessageType.ERROR, tokenError.createMessage());
-    };
-    private final Consumer<Error> printGenericError = error -> {
-        if (error.type() == ErrorType.FATAL) {
-            Output.simplyLog(MessageType.FATAL, error.createMessage());
-            System.exit(1);
-            return;
-        }
-        Output.simplyLog(MessageType.ERROR, error.createMessage());
-    };
-
-    public ErrorStorage(String sourceCode, String filePath) {
-        this.sourceCodeLines = sourceCode.split("\\R");
-        this.filePath = filePath;
+    private boolean fatal = false;
+
+    private final Consumer<TokenError> printTokenError = tokenError -> Output.simplyLog(
+            tokenError.type() == ErrorType.FATAL ? MessageType.FATAL : MessageType.ERROR,
+            tokenError.createMessage()
+    );
+    private final Consumer<Error> printGenericError = error -> Output.simplyLog(
+            error.type() == ErrorType.FATAL ? MessageType.FATAL : MessageType.ERROR,
+            error.createMessage()
+    );
+
+    public ErrorStorage(SourceFile sourceFile) {
+        this.sourceFile = sourceFile;
     }
 
     public String getLineSnippetByLineNumber(int line) {
-        return sourceCodeLines[line - 1];
+        return sourceFile.lineSnippet(line).toString();
     }
     public String getLineSnippetByIndex(int index) {
-        return sourceCodeLines[index];
+        return getLineSnippetByLineNumber(index + 1);
     }
 
     private String filePath() {
-        return filePath;
+        return sourceFile.path();
     }
 
     public void addError(Error error) {
         addError(error, false);
     }
+    /**
+     * Stores the error. Nothing ends the process here, not even a fatal error,
+     * whoever started the task decides what to do with a task that failed.
+     */
     public void addError(Error error, boolean fatalize) {
-        if (error.type() == ErrorType.FATAL || fatalize) {
-            printError(error);
-            Output.simplyLog(MessageType.FATAL, "Exiting now, Goodbye!");
-            System.exit(1);
-        }
+        // resolved right away, streamed sources only keep the text around the current token
+        if (error instanceof TokenError tokenError)
+            resolveTokenError(tokenError);
+        if (error.type() == ErrorType.FATAL || fatalize)
+            fatal = true;
         errors.add(error);
     }
 
@@ -65,10 +59,32 @@ public class ErrorStorage {
         return errors.size();
     }
 
+    public boolean hasFatalError() {
+        return fatal;
+    }
+
+    public List<Error> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
     public void printAll() {
         errors.forEach(this::printError);
     }
 
+    /**
+     * Prints the errors added after the first {@code known} ones.
+     */
+    public void printSince(int known) {
+        errors.subList(known, errors.size()).forEach(this::printError);
+    }
+
+    private void resolveTokenError(TokenError tokenError) {
+        final int line = tokenError.getLineNumber();
+        // the token's source is the current one, even when the stored source was edited since
+        tokenError.setLineSnippet(tokenError.getSourceFile().lineSnippet(line).toString());
+        tokenError.setFilePath(filePath());
+    }
+
     private void printError(Error error) {
         if (error.getClass().isAssignableFrom(TokenError.class))
             printTokenError.accept((TokenError) error);
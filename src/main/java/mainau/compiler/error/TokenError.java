@@ -1,11 +1,13 @@
 package mainau.compiler.error;
 
+import mainau.compiler.analysis.lexical.SourceFile;
 import mainau.compiler.analysis.lexical.Token;
 
 public class TokenError implements Error {
     private final ErrorType type;
     private final String message;
     private final Token token;
+    private Token.Position position;
     private String lineSnippet, filePath;
 
     public TokenError(ErrorType type, String message, Token token) {
@@ -14,17 +16,27 @@ public class TokenError implements Error {
         this.token = token;
     }
 
+    private Token.Position position() {
+        if (position == null)
+            position = token.position();
+        return position;
+    }
+
     private String createPointer() {
-        Token.Position position = token.position();
-        return " ".repeat(position.indexInLine()) + "^".repeat(token.value().length());
+        Token.Position position = position();
+        return " ".repeat(position.indexInLine()) + "^".repeat(Math.max(1, token.length()));
     }
 
     public void setLineSnippet(String lineSnippet) {
         this.lineSnippet = lineSnippet;
     }
 
+    public SourceFile getSourceFile() {
+        return token.source();
+    }
+
     public int getLineNumber() {
-        return token.position().line();
+        return position().line();
     }
 
     @Override
@@ -0,0 +1,133 @@
+package mainau.compiler.instrumentation;
+
+import mainau.compiler.analysis.lexical.SourceFile;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures the phases of processing sources. Every phase is recorded as a {@link PhaseEvent} for Flight
+ * Recorder, which costs next to nothing while no recording is running, and added to counters over all
+ * sources and threads, see {@link #report()}.
+ * <pre>
+ * final Instrumentation.Measurement measurement = Instrumentation.begin(Phase.PARSE, sourceFile);
+ * ...
+ * measurement.end(tokens, nodes);
+ * </pre>
+ */
+public final class Instrumentation {
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+    private static final Counters[] COUNTERS = new Counters[Phase.values().length];
+
+    static {
+        for (Phase phase : Phase.values())
+            COUNTERS[phase.ordinal()] = new Counters();
+    }
+
+    private Instrumentation() {}
+
+    private record Counters(LongAdder runs, LongAdder nanos, LongAdder length, LongAdder tokens, LongAdder nodes, LongAdder allocated) {
+        Counters() {
+            this(new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder());
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+            return threads;
+        }
+        return null;
+    }
+
+    private static long allocatedBytes() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    /**
+     * Starts measuring a phase on the current thread, the same thread has to end it.
+     */
+    public static Measurement begin(Phase phase, SourceFile source) {
+        return new Measurement(phase, source);
+    }
+
+    public static final class Measurement {
+        private final Phase phase;
+        private final SourceFile source;
+        private final PhaseEvent event = new PhaseEvent();
+        private final long start, allocatedAtStart;
+
+        private Measurement(Phase phase, SourceFile source) {
+            this.phase = phase;
+            this.source = source;
+            this.allocatedAtStart = allocatedBytes();
+            this.event.begin();
+            this.start = System.nanoTime();
+        }
+
+        /**
+         * @param tokens the tokens the phase went through, 0 if it does not work on tokens
+         * @param nodes the AST nodes the phase went through, 0 if it does not work on the tree
+         */
+        public void end(long tokens, long nodes) {
+            final long nanos = System.nanoTime() - start;
+            event.end();
+            final long allocated = allocatedBytes() - allocatedAtStart;
+
+            final Counters counters = COUNTERS[phase.ordinal()];
+            counters.runs().increment();
+            counters.nanos().add(nanos);
+            counters.length().add(source.length());
+            counters.tokens().add(tokens);
+            counters.nodes().add(nodes);
+            counters.allocated().add(allocated);
+
+            if (event.shouldCommit()) {
+                event.phase = phase.name();
+                event.file = source.path();
+                event.length = source.length();
+                event.tokens = tokens;
+                event.nodes = nodes;
+                event.allocated = allocated;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * @return a table of the counters of every phase that ran since the start or the last {@link #reset()}
+     */
+    public static String report() {
+        final StringBuilder report = new StringBuilder(String.format("%-8s %8s %10s %12s %12s %12s %12s%n",
+                "phase", "runs", "time ms", "chars/s", "tokens/s", "nodes/s", "allocated MB"));
+        for (Phase phase : Phase.values()) {
+            final Counters counters = COUNTERS[phase.ordinal()];
+            final long runs = counters.runs().sum();
+            if (runs == 0)
+                continue;
+            final double seconds = counters.nanos().sum() / 1e9;
+            report.append(String.format("%-8s %8d %10.1f %12.0f %12.0f %12.0f %12.1f%n",
+                    phase, runs, seconds * 1e3,
+                    counters.length().sum() / seconds,
+                    counters.tokens().sum() / seconds,
+                    counters.nodes().sum() / seconds,
+                    counters.allocated().sum() / (double) (1 << 20)));
+        }
+        if (THREADS == null)
+            report.append("allocations are not measured on this VM").append(System.lineSeparator());
+        return report.toString();
+    }
+
+    public static void reset() {
+        for (Counters counters : COUNTERS) {
+            counters.runs().reset();
+            counters.nanos().reset();
+            counters.length().reset();
+            counters.tokens().reset();
+            counters.nodes().reset();
+            counters.allocated().reset();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package mainau.compiler.instrumentation;
+
+/**
+ * The steps a source goes through in {@link mainau.repl.runtime.ProcessTask}.
+ */
+public enum Phase {
+    /** tokenizing up front, a streaming lexer is pulled by the parser and its time counts as {@link #PARSE} */
+    LEX,
+    PARSE,
+    /** rendering the tree for verbose output */
+    PRINT,
+    /** resolving and running the program */
+    EVALUATE
+}
@@ -0,0 +1,38 @@
+package mainau.compiler.instrumentation;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded by Flight Recorder for every phase of every source, its duration is the one of the phase.
+ */
+@Name("mainau.Phase")
+@Label("Compiler Phase")
+@Category({"Mainau", "Compiler"})
+@Description("One phase of processing a source file")
+@StackTrace(false)
+final class PhaseEvent extends jdk.jfr.Event {
+    @Label("Phase")
+    String phase;
+
+    @Label("File")
+    String file;
+
+    @Label("Source Length")
+    @Description("Length of the source in chars")
+    long length;
+
+    @Label("Tokens")
+    long tokens;
+
+    @Label("AST Nodes")
+    long nodes;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocated;
+}
@@ -0,0 +1,410 @@
+package mainau.compiler.interpretation;
+
+import mainau.compiler.analysis.lexical.Operator;
+import mainau.repl.runtime.ValuesImpl;
+
+/**
+ * Binary operators of the {@link SpecializingInterpreter}. A new operator node is {@link Uninitialized}, its
+ * first evaluation replaces it by a node for the operands it saw: one node per operator for two numbers, one
+ * for string concatenation and a {@link Generic} one for anything else. Mainau numbers are floats, so the
+ * number nodes do float arithmetic, the bit operators and shifts on the ints the floats are cut to. A
+ * specialized node that sees other operands falls back to the generic node for good, which behaves like the
+ * {@link Interpreter}.
+ */
+final class BinaryNodes {
+    private BinaryNodes() {}
+
+    abstract static class BinaryNode extends ExecutionNode {
+        final Operator operator;
+        ExecutionNode left, right;
+
+        BinaryNode(Operator operator, ExecutionNode left, ExecutionNode right) {
+            this.operator = operator;
+            this.left = adopt(left);
+            this.right = adopt(right);
+        }
+
+        /**
+         * Applies the operator to operands already evaluated, after this node was put in place.
+         */
+        abstract ValuesImpl.RuntimeValue apply(ValuesImpl.RuntimeValue left, ValuesImpl.RuntimeValue right);
+
+        /**
+         * Called when the operands are not what this node speculated on.
+         */
+        final ValuesImpl.RuntimeValue generalize(ValuesImpl.RuntimeValue left, ValuesImpl.RuntimeValue right) {
+            if (current() instanceof BinaryNode current && current != this)
+                return current.apply(left, right);
+            return replace(new Generic(operator, this.left, this.right)).apply(left, right);
+        }
+
+        @Override
+        final void replaceChild(ExecutionNode child, ExecutionNode replacement) {
+            if (child == left)
+                left = replacement;
+            else if (child == right)
+                right = replacement;
+            else super.replaceChild(child, replacement);
+        }
+    }
+
+    static BinaryNode create(Operator operator, ExecutionNode left, ExecutionNode right) {
+        return new Uninitialized(operator, left, right);
+    }
+
+    static final class Uninitialized extends BinaryNode {
+        Uninitialized(Operator operator, ExecutionNode left, ExecutionNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue execute(Frame frame) {
+            return apply(left.execute(frame), right.execute(frame));
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue apply(ValuesImpl.RuntimeValue left, ValuesImpl.RuntimeValue right) {
+            if (current() instanceof BinaryNode current && current != this)
+                return current.apply(left, right);
+            return replace(specialize(left, right)).apply(left, right);
+        }
+
+        private BinaryNode specialize(ValuesImpl.RuntimeValue left, ValuesImpl.RuntimeValue right) {
+            if (left instanceof ValuesImpl.NumberValue && right instanceof ValuesImpl.NumberValue) {
+                final BinaryNode numbers = numbers();
+                if (numbers != null)
+                    return numbers;
+            }
+            if (operator == Operator.ADD && (left instanceof ValuesImpl.StringValue || right instanceof ValuesImpl.StringValue))
+                return new Concatenate(this.left, this.right);
+            return new Generic(operator, this.left, this.right);
+        }
+
+        private BinaryNode numbers() {
+            return switch (operator) {
+                case ADD -> new Add(left, right);
+                case SUBTRACT -> new Subtract(left, right);
+                case MULTIPLY -> new Multiply(left, right);
+                case DIVIDE -> new Divide(left, right);
+                case MODULO -> new Modulo(left, right);
+                case LESS -> new Less(left, right);
+                case LESS_EQUAL -> new LessEqual(left, right);
+                case GREATER -> new Greater(left, right);
+                case GREATER_EQUAL -> new GreaterEqual(left, right);
+                case EQUAL -> new Equal(left, right);
+                case NOT_EQUAL -> new NotEqual(left, right);
+                case BIT_AND -> new BitAnd(left, right);
+                case BIT_OR -> new BitOr(left, right);
+                case SHIFT_LEFT -> new ShiftLeft(left, right);
+                case SHIFT_RIGHT -> new ShiftRight(left, right);
+                default -> null;
+            };
+        }
+    }
+
+    static final class Generic extends BinaryNode {
+        Generic(Operator operator, ExecutionNode left, ExecutionNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue execute(Frame frame) {
+            return apply(left.execute(frame), right.execute(frame));
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue apply(ValuesImpl.RuntimeValue left, ValuesImpl.RuntimeValue right) {
+            return Interpreter.binary(operator, left, right);
+        }
+    }
+
+    static final class Concatenate extends BinaryNode {
+        Concatenate(ExecutionNode left, ExecutionNode right) {
+            super(Operator.ADD, left, right);
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue execute(Frame frame) {
+            return apply(left.execute(frame), right.execute(frame));
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue apply(ValuesImpl.RuntimeValue left, ValuesImpl.RuntimeValue right) {
+            if (left instanceof ValuesImpl.StringValue || right instanceof ValuesImpl.StringValue)
+                return new ValuesImpl.StringValue(Interpreter.display(left) + Interpreter.display(right));
+            return generalize(left, right);
+        }
+    }
+
+    // every number node implements execute itself, so each has a call site of its own for the JVM to profile
+
+    static final class Add extends BinaryNode {
+        Add(ExecutionNode left, ExecutionNode right) {
+            super(Operator.ADD, left, right);
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue execute(Frame frame) {
+            return apply(left.execute(frame), right.execute(frame));
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue apply(ValuesImpl.RuntimeValue left, ValuesImpl.RuntimeValue right) {
+            if (left instanceof ValuesImpl.NumberValue a && right instanceof ValuesImpl.NumberValue b)
+                return new ValuesImpl.NumberValue(a.value() + b.value());
+            return generalize(left, right);
+        }
+    }
+
+    static final class Subtract extends BinaryNode {
+        Subtract(ExecutionNode left, ExecutionNode right) {
+            super(Operator.SUBTRACT, left, right);
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue execute(Frame frame) {
+            return apply(left.execute(frame), right.execute(frame));
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue apply(ValuesImpl.RuntimeValue left, ValuesImpl.RuntimeValue right) {
+            if (left instanceof ValuesImpl.NumberValue a && right instanceof ValuesImpl.NumberValue b)
+                return new ValuesImpl.NumberValue(a.value() - b.value());
+            return generalize(left, right);
+        }
+    }
+
+    static final class Multiply extends BinaryNode {
+        Multiply(ExecutionNode left, ExecutionNode right) {
+            super(Operator.MULTIPLY, left, right);
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue execute(Frame frame) {
+            return apply(left.execute(frame), right.execute(frame));
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue apply(ValuesImpl.RuntimeValue left, ValuesImpl.RuntimeValue right) {
+            if (left instanceof ValuesImpl.NumberValue a && right instanceof ValuesImpl.NumberValue b)
+                return new ValuesImpl.NumberValue(a.value() * b.value());
+            return generalize(left, right);
+        }
+    }
+
+    static final class Divide extends BinaryNode {
+        Divide(ExecutionNode left, ExecutionNode right) {
+            super(Operator.DIVIDE, left, right);
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue execute(Frame frame) {
+            return apply(left.execute(frame), right.execute(frame));
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue apply(ValuesImpl.RuntimeValue left, ValuesImpl.RuntimeValue right) {
+            if (left instanceof ValuesImpl.NumberValue a && right instanceof ValuesImpl.NumberValue b)
+                return new ValuesImpl.NumberValue(a.value() / b.value());
+            return generalize(left, right);
+        }
+    }
+
+    static final class Modulo extends BinaryNode {
+        Modulo(ExecutionNode left, ExecutionNode right) {
+            super(Operator.MODULO, left, right);
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue execute(Frame frame) {
+            return apply(left.execute(frame), right.execute(frame));
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue apply(ValuesImpl.RuntimeValue left, ValuesImpl.RuntimeValue right) {
+            if (left instanceof ValuesImpl.NumberValue a && right instanceof ValuesImpl.NumberValue b)
+                return new ValuesImpl.NumberValue(a.value() % b.value());
+            return generalize(left, right);
+        }
+    }
+
+    static final class Less extends BinaryNode {
+        Less(ExecutionNode left, ExecutionNode right) {
+            super(Operator.LESS, left, right);
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue execute(Frame frame) {
+            return apply(left.execute(frame), right.execute(frame));
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue apply(ValuesImpl.RuntimeValue left, ValuesImpl.RuntimeValue right) {
+            if (left instanceof ValuesImpl.NumberValue a && right instanceof ValuesImpl.NumberValue b)
+                return new ValuesImpl.BooleanValue(a.value() < b.value());
+            return generalize(left, right);
+        }
+    }
+
+    static final class LessEqual extends BinaryNode {
+        LessEqual(ExecutionNode left, ExecutionNode right) {
+            super(Operator.LESS_EQUAL, left, right);
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue execute(Frame frame) {
+            return apply(left.execute(frame), right.execute(frame));
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue apply(ValuesImpl.RuntimeValue left, ValuesImpl.RuntimeValue right) {
+            if (left instanceof ValuesImpl.NumberValue a && right instanceof ValuesImpl.NumberValue b)
+                return new ValuesImpl.BooleanValue(a.value() <= b.value());
+            return generalize(left, right);
+        }
+    }
+
+    static final class Greater extends BinaryNode {
+        Greater(ExecutionNode left, ExecutionNode right) {
+            super(Operator.GREATER, left, right);
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue execute(Frame frame) {
+            return apply(left.execute(frame), right.execute(frame));
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue apply(ValuesImpl.RuntimeValue left, ValuesImpl.RuntimeValue right) {
+            if (left instanceof ValuesImpl.NumberValue a && right instanceof ValuesImpl.NumberValue b)
+                return new ValuesImpl.BooleanValue(a.value() > b.value());
+            return generalize(left, right);
+        }
+    }
+
+    static final class GreaterEqual extends BinaryNode {
+        GreaterEqual(ExecutionNode left, ExecutionNode right) {
+            super(Operator.GREATER_EQUAL, left, right);
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue execute(Frame frame) {
+            return apply(left.execute(frame), right.execute(frame));
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue apply(ValuesImpl.RuntimeValue left, ValuesImpl.RuntimeValue right) {
+            if (left instanceof ValuesImpl.NumberValue a && right instanceof ValuesImpl.NumberValue b)
+                return new ValuesImpl.BooleanValue(a.value() >= b.value());
+            return generalize(left, right);
+        }
+    }
+
+    static final class Equal extends BinaryNode {
+        Equal(ExecutionNode left, ExecutionNode right) {
+            super(Operator.EQUAL, left, right);
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue execute(Frame frame) {
+            return apply(left.execute(frame), right.execute(frame));
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue apply(ValuesImpl.RuntimeValue left, ValuesImpl.RuntimeValue right) {
+            if (left instanceof ValuesImpl.NumberValue a && right instanceof ValuesImpl.NumberValue b)
+                return new ValuesImpl.BooleanValue(a.value() == b.value());
+            return generalize(left, right);
+        }
+    }
+
+    static final class NotEqual extends BinaryNode {
+        NotEqual(ExecutionNode left, ExecutionNode right) {
+            super(Operator.NOT_EQUAL, left, right);
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue execute(Frame frame) {
+            return apply(left.execute(frame), right.execute(frame));
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue apply(ValuesImpl.RuntimeValue left, ValuesImpl.RuntimeValue right) {
+            if (left instanceof ValuesImpl.NumberValue a && right instanceof ValuesImpl.NumberValue b)
+                return new ValuesImpl.BooleanValue(a.value() != b.value());
+            return generalize(left, right);
+        }
+    }
+
+    static final class BitAnd extends BinaryNode {
+        BitAnd(ExecutionNode left, ExecutionNode right) {
+            super(Operator.BIT_AND, left, right);
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue execute(Frame frame) {
+            return apply(left.execute(frame), right.execute(frame));
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue apply(ValuesImpl.RuntimeValue left, ValuesImpl.RuntimeValue right) {
+            if (left instanceof ValuesImpl.NumberValue a && right instanceof ValuesImpl.NumberValue b)
+                return new ValuesImpl.NumberValue((int) a.value() & (int) b.value());
+            return generalize(left, right);
+        }
+    }
+
+    static final class BitOr extends BinaryNode {
+        BitOr(ExecutionNode left, ExecutionNode right) {
+            super(Operator.BIT_OR, left, right);
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue execute(Frame frame) {
+            return apply(left.execute(frame), right.execute(frame));
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue apply(ValuesImpl.RuntimeValue left, ValuesImpl.RuntimeValue right) {
+            if (left instanceof ValuesImpl.NumberValue a && right instanceof ValuesImpl.NumberValue b)
+                return new ValuesImpl.NumberValue((int) a.value() | (int) b.value());
+            return generalize(left, right);
+        }
+    }
+
+    static final class ShiftLeft extends BinaryNode {
+        ShiftLeft(ExecutionNode left, ExecutionNode right) {
+            super(Operator.SHIFT_LEFT, left, right);
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue execute(Frame frame) {
+            return apply(left.execute(frame), right.execute(frame));
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue apply(ValuesImpl.RuntimeValue left, ValuesImpl.RuntimeValue right) {
+            if (left instanceof ValuesImpl.NumberValue a && right instanceof ValuesImpl.NumberValue b)
+                return new ValuesImpl.NumberValue((int) a.value() << (int) b.value());
+            return generalize(left, right);
+        }
+    }
+
+    static final class ShiftRight extends BinaryNode {
+        ShiftRight(ExecutionNode left, ExecutionNode right) {
+            super(Operator.SHIFT_RIGHT, left, right);
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue execute(Frame frame) {
+            return apply(left.execute(frame), right.execute(frame));
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue apply(ValuesImpl.RuntimeValue left, ValuesImpl.RuntimeValue right) {
+            if (left instanceof ValuesImpl.NumberValue a && right instanceof ValuesImpl.NumberValue b)
+                return new ValuesImpl.NumberValue((int) a.value() >> (int) b.value());
+            return generalize(left, right);
+        }
+    }
+}
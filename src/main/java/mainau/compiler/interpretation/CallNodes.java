@@ -0,0 +1,144 @@
+package mainau.compiler.interpretation;
+
+import mainau.compiler.ast.ASTImpl;
+import mainau.compiler.error.ErrorType;
+import mainau.jit.Jit;
+import mainau.repl.runtime.ValuesImpl;
+
+/**
+ * Function calls of the {@link SpecializingInterpreter}. A new call node is {@link Uninitialized}, its first
+ * call replaces it by a {@link Cached} node remembering the overload it picked, its body and, for a global
+ * function, the function value. As long as the callee is that same value, later calls skip the lookups, another
+ * value with the same overload only needs the overload looked up. The value of a nested function is not kept,
+ * it would keep the frame of the call that declared it alive. A call of another function replaces it by a {@link Generic} node, which
+ * looks everything up on every call, like the {@link Interpreter}.
+ */
+final class CallNodes {
+    private CallNodes() {}
+
+    abstract static class CallNode extends ExecutionNode {
+        // the interpreter of the session, which keeps the nodes of the function bodies
+        final SpecializingInterpreter interpreter;
+        // the callee as written, for the error message if it is no function
+        final String description;
+        ExecutionNode callee;
+        final ExecutionNode[] arguments;
+
+        CallNode(SpecializingInterpreter interpreter, String description, ExecutionNode callee, ExecutionNode[] arguments) {
+            this.interpreter = interpreter;
+            this.description = description;
+            this.callee = adopt(callee);
+            this.arguments = adoptAll(arguments);
+        }
+
+        @Override
+        final ValuesImpl.RuntimeValue execute(Frame frame) {
+            return call(callee.execute(frame), frame);
+        }
+
+        /**
+         * Calls the callee already evaluated, after this node was put in place.
+         */
+        abstract ValuesImpl.RuntimeValue call(ValuesImpl.RuntimeValue callee, Frame frame);
+
+        final ValuesImpl.FunctionValue function(ValuesImpl.RuntimeValue callee) {
+            if (!(callee instanceof ValuesImpl.FunctionValue function))
+                throw new Interpreter.Failure(ErrorType.INVALID_ACTION, description + " is not a function");
+            return function;
+        }
+
+        final ASTImpl.FunctionDeclarationStatement overload(ValuesImpl.FunctionValue callee) {
+            final ASTImpl.FunctionDeclarationStatement function = callee.overload(arguments.length);
+            if (function == null)
+                throw new Interpreter.Failure(ErrorType.NOT_FOUND, "Function '" + callee.name() + "' takes no " + arguments.length + " arguments");
+            return function;
+        }
+
+        final ValuesImpl.RuntimeValue invoke(ValuesImpl.FunctionValue callee, ASTImpl.FunctionDeclarationStatement function,
+                                             ExecutionNode body, Frame frame) {
+            // parameters take the first slots of the function's frame
+            final Frame call = new Frame(function.frameSize(), callee.closure(), function);
+            for (int i = 0; i < arguments.length; i++)
+                call.set(i, arguments[i].execute(frame));
+            if (Jit.isEnabled()) {
+                final ValuesImpl.RuntimeValue result = Jit.invoke(interpreter.globals, callee, function, call, arguments.length, frame.function() == function);
+                if (result != null)
+                    return result;
+            }
+            return body.execute(call);
+        }
+
+        /**
+         * @return the node that replaced this one while it was called, or {@code null}
+         */
+        final CallNode replaced() {
+            return current() instanceof CallNode current && current != this ? current : null;
+        }
+
+        @Override
+        final void replaceChild(ExecutionNode child, ExecutionNode replacement) {
+            if (child == callee)
+                callee = replacement;
+            else replaceIn(arguments, child, replacement);
+        }
+    }
+
+    static CallNode create(SpecializingInterpreter interpreter, String description, ExecutionNode callee, ExecutionNode[] arguments) {
+        return new Uninitialized(interpreter, description, callee, arguments);
+    }
+
+    static final class Uninitialized extends CallNode {
+        Uninitialized(SpecializingInterpreter interpreter, String description, ExecutionNode callee, ExecutionNode[] arguments) {
+            super(interpreter, description, callee, arguments);
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue call(ValuesImpl.RuntimeValue callee, Frame frame) {
+            final CallNode replaced = replaced();
+            if (replaced != null)
+                return replaced.call(callee, frame);
+            final ValuesImpl.FunctionValue function = function(callee);
+            final ASTImpl.FunctionDeclarationStatement overload = overload(function);
+            return replace(new Cached(interpreter, description, this.callee, arguments, function, overload, interpreter.body(overload)))
+                    .call(callee, frame);
+        }
+    }
+
+    static final class Cached extends CallNode {
+        private final ValuesImpl.FunctionValue expected;
+        private final ASTImpl.FunctionDeclarationStatement function;
+        private final ExecutionNode body;
+
+        Cached(SpecializingInterpreter interpreter, String description, ExecutionNode callee, ExecutionNode[] arguments,
+               ValuesImpl.FunctionValue expected, ASTImpl.FunctionDeclarationStatement function, ExecutionNode body) {
+            super(interpreter, description, callee, arguments);
+            this.expected = expected.closure().isGlobal() ? expected : null;
+            this.function = function;
+            this.body = body;
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue call(ValuesImpl.RuntimeValue callee, Frame frame) {
+            if (callee == expected)
+                return invoke(expected, function, body, frame);
+            // the same declaration in another value, declared again in another frame or with more overloads
+            if (callee instanceof ValuesImpl.FunctionValue other && other.overload(arguments.length) == function)
+                return invoke(other, function, body, frame);
+            final CallNode replaced = replaced();
+            return (replaced != null ? replaced : replace(new Generic(interpreter, description, this.callee, arguments))).call(callee, frame);
+        }
+    }
+
+    static final class Generic extends CallNode {
+        Generic(SpecializingInterpreter interpreter, String description, ExecutionNode callee, ExecutionNode[] arguments) {
+            super(interpreter, description, callee, arguments);
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue call(ValuesImpl.RuntimeValue callee, Frame frame) {
+            final ValuesImpl.FunctionValue function = function(callee);
+            final ASTImpl.FunctionDeclarationStatement overload = overload(function);
+            return invoke(function, overload, interpreter.body(overload), frame);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package mainau.compiler.interpretation;
+
+import mainau.repl.runtime.ValuesImpl;
+
+/**
+ * A node of the tree the {@link SpecializingInterpreter} runs. Unlike the nodes of the AST, it evaluates
+ * itself, and it may {@link #replace replace} itself in its parent by a node specialized for the values it
+ * has seen. A specialized node that sees other values replaces itself by a general one again.
+ */
+abstract class ExecutionNode {
+    private ExecutionNode parent;
+    // set once this node was replaced, a recursive call may still be executing it
+    private ExecutionNode replacement;
+
+    abstract ValuesImpl.RuntimeValue execute(Frame frame);
+
+    final <T extends ExecutionNode> T adopt(T child) {
+        if (child != null)
+            ((ExecutionNode) child).parent = this;
+        return child;
+    }
+
+    final ExecutionNode[] adoptAll(ExecutionNode[] children) {
+        for (ExecutionNode child : children)
+            adopt(child);
+        return children;
+    }
+
+    /**
+     * Puts the replacement in the place of this node in its parent, this node must not be executed again.
+     * @return the replacement
+     */
+    final <T extends ExecutionNode> T replace(T replacement) {
+        parent.replaceChild(this, parent.adopt(replacement));
+        this.replacement = replacement;
+        return replacement;
+    }
+
+    /**
+     * A node still executing in an outer call may have been replaced by an inner one, it has to hand over
+     * to its replacement instead of replacing itself again.
+     * @return the node in the place of this one in the tree
+     */
+    final ExecutionNode current() {
+        ExecutionNode current = this;
+        while (current.replacement != null)
+            current = current.replacement;
+        return current;
+    }
+
+    /**
+     * Implemented by every node with children, nodes without a parent are never replaced.
+     */
+    void replaceChild(ExecutionNode child, ExecutionNode replacement) {
+        throw new IllegalStateException(getClass().getSimpleName() + " has no child " + child.getClass().getSimpleName());
+    }
+
+    static void replaceIn(ExecutionNode[] children, ExecutionNode child, ExecutionNode replacement) {
+        for (int i = 0; i < children.length; i++)
+            if (children[i] == child) {
+                children[i] = replacement;
+                return;
+            }
+        throw new IllegalStateException("No child " + child.getClass().getSimpleName());
+    }
+}
@@ -0,0 +1,70 @@
+package mainau.compiler.interpretation;
+
+import mainau.compiler.ast.ASTImpl;
+import mainau.repl.runtime.ValuesImpl;
+
+import java.util.Arrays;
+
+/**
+ * The variables of one scope at runtime, addressed by the slots the {@link Resolver} handed out.
+ * A function call gets a new frame enclosed by the one the function was declared in.
+ */
+public final class Frame {
+    private ValuesImpl.RuntimeValue[] slots;
+    private final Frame enclosing;
+    private final ASTImpl.FunctionDeclarationStatement function;
+
+    public Frame(int size, Frame enclosing) {
+        this(size, enclosing, null);
+    }
+
+    public Frame(int size, Frame enclosing, ASTImpl.FunctionDeclarationStatement function) {
+        this.slots = new ValuesImpl.RuntimeValue[size];
+        this.enclosing = enclosing;
+        this.function = function;
+    }
+
+    /**
+     * @return the frame {@code depth} scopes out, {@code this} for 0
+     */
+    public Frame at(int depth) {
+        Frame frame = this;
+        for (; depth > 0; depth--)
+            frame = frame.enclosing;
+        return frame;
+    }
+
+    /**
+     * @return whether this is the global frame of a session, the only one without an enclosing frame
+     */
+    public boolean isGlobal() {
+        return enclosing == null;
+    }
+
+    /**
+     * @return the function this frame is a call of, {@code null} for the global frame
+     */
+    public ASTImpl.FunctionDeclarationStatement function() {
+        return function;
+    }
+
+    /**
+     * @return the value of the slot, {@code null} if it was not assigned yet
+     */
+    public ValuesImpl.RuntimeValue get(int slot) {
+        return slots[slot];
+    }
+
+    public void set(int slot, ValuesImpl.RuntimeValue value) {
+        slots[slot] = value;
+    }
+
+    /**
+     * Makes room for variables declared after the frame was created, which happens to the global frame
+     * of a REPL session with every input.
+     */
+    void ensureSize(int size) {
+        if (size > slots.length)
+            slots = Arrays.copyOf(slots, Math.max(size, slots.length * 2));
+    }
+}
@@ -0,0 +1,31 @@
+package mainau.compiler.interpretation;
+
+import mainau.jit.Profiles;
+
+/**
+ * The top-level variables of a session, which stay declared from one input to the next.
+ */
+public final class Globals {
+    final Scope scope = new Scope(null);
+    final Frame frame = new Frame(16, null);
+    final Profiles profiles = new Profiles(frame);
+    // created by the first input the specializing interpreter evaluates
+    private SpecializingInterpreter specializing;
+
+    public Frame frame() {
+        return frame;
+    }
+
+    /**
+     * @return what the {@link mainau.jit.Jit} learned about the functions of the session
+     */
+    public Profiles profiles() {
+        return profiles;
+    }
+
+    SpecializingInterpreter specializing() {
+        if (specializing == null)
+            specializing = new SpecializingInterpreter(this);
+        return specializing;
+    }
+}
@@ -1,91 +1,295 @@
 package mainau.compiler.interpretation;
 
+import mainau.compiler.analysis.lexical.Operator;
 import mainau.compiler.ast.AST;
+import mainau.compiler.ast.ASTImpl;
+import mainau.compiler.error.ErrorType;
 import mainau.compiler.visitor.ASTVisitor;
+import mainau.jit.Jit;
+import mainau.repl.runtime.ProcessTask;
+import mainau.repl.runtime.RuntimeError;
+import mainau.repl.runtime.ValuesImpl;
 
-import java.util.Arrays;
+import static mainau.compiler.ast.AST.*;
 
-public class Interpreter implements ASTVisitor<Void, Void> {
-    @Override
-    public Void visitStatement(AST.Statement statement, Void unused) {
+/**
+ * Evaluates a {@link Resolver resolved} tree by walking it, every variable is read and written
+ * through the slot the resolver gave it. A statement evaluates to its value, declarations to the
+ * declared value, a program and a function body to the value of their last statement.
+ */
+public class Interpreter implements ASTVisitor<ValuesImpl.RuntimeValue, Frame> {
+    static final ValuesImpl.NullValue NULL = new ValuesImpl.NullValue();
+
+    private final Globals globals;
+
+    private Interpreter(Globals globals) {
+        this.globals = globals;
+    }
+
+    /**
+     * Thrown on a runtime error, evaluation stops at the first one.
+     */
+    static final class Failure extends RuntimeException {
+        final RuntimeError error;
+
+        Failure(ErrorType type, String message) {
+            super(null, null, false, false);
+            this.error = new RuntimeError(type, message);
+        }
+    }
+
+    /**
+     * Resolves and evaluates the program in the global frame of the session.
+     * @return the value of the last statement or {@code null}, if there was an error, which is reported to the task
+     */
+    public static ValuesImpl.RuntimeValue evaluate(ASTImpl.Program program, Globals globals, ProcessTask task) {
+        if (!Resolver.resolve(program, globals, task))
+            return null;
+        try {
+            return program.accept(new Interpreter(globals), globals.frame);
+        } catch (Failure failure) {
+            task.insertError(failure.error);
+        } catch (StackOverflowError e) {
+            task.insertError(new RuntimeError(ErrorType.FATAL, "Stack overflow, the recursion is too deep"));
+        }
         return null;
     }
 
+    private ValuesImpl.RuntimeValue evaluate(AST.Statement statement, Frame frame) {
+        return statement.accept(this, frame);
+    }
+
+    private ValuesImpl.RuntimeValue evaluateAll(AST.Statement[] statements, Frame frame) {
+        ValuesImpl.RuntimeValue last = NULL;
+        for (AST.Statement statement : statements)
+            last = evaluate(statement, frame);
+        return last;
+    }
+
     @Override
-    public Void visitProgram(AST.Program program, Void unused) {
-        Arrays
-                .stream(program.body())
-                .forEachOrdered(statement -> statement.accept(this, unused));
-        return null;
+    public ValuesImpl.RuntimeValue visitStatement(Statement statement, Frame frame) {
+        throw new Failure(ErrorType.NOT_A_STATEMENT, "Cannot evaluate " + statement);
     }
 
     @Override
-    public Void visitObtainStatement(AST.ObtainStatement statement, Void unused) {
-        return null;
+    public ValuesImpl.RuntimeValue visitProgram(Program program, Frame frame) {
+        return evaluateAll(program.body(), frame);
     }
 
     @Override
-    public Void visitVariableDeclarationStatement(AST.VariableDeclarationStatement statement, Void unused) {
-        return null;
+    public ValuesImpl.RuntimeValue visitObtainStatement(ObtainStatement statement, Frame frame) {
+        throw new Failure(ErrorType.INVALID_ACTION, "obtain statements are not supported yet");
     }
 
     @Override
-    public Void visitFunctionDeclarationStatement(AST.FunctionDeclarationStatement statement, Void unused) {
-        return null;
+    public ValuesImpl.RuntimeValue visitVariableDeclarationStatement(VariableDeclarationStatement statement, Frame frame) {
+        final ValuesImpl.RuntimeValue value = statement.value() != null ? evaluate(statement.value(), frame) : null;
+        frame.set(((ASTImpl.VariableDeclarationStatement) statement).slot(), value);
+        return value != null ? value : NULL;
     }
 
     @Override
-    public Void visitExpression(AST.Expression expression, Void unused) {
-        return null;
+    public ValuesImpl.RuntimeValue visitFunctionDeclarationStatement(FunctionDeclarationStatement statement, Frame frame) {
+        return declare((ASTImpl.FunctionDeclarationStatement) statement, frame);
+    }
+
+    /**
+     * Adds the function to the overloads of its name declared in the same frame.
+     */
+    static ValuesImpl.FunctionValue declare(ASTImpl.FunctionDeclarationStatement function, Frame frame) {
+        final ValuesImpl.FunctionValue value =
+                frame.get(function.slot()) instanceof ValuesImpl.FunctionValue overloads && overloads.closure() == frame
+                        ? overloads.with(function)
+                        : new ValuesImpl.FunctionValue(new ASTImpl.FunctionDeclarationStatement[]{function}, frame);
+        frame.set(function.slot(), value);
+        return value;
+    }
+
+    /**
+     * Resolves the body of a lazy function on its first call, see {@link Resolver#resolveBody}.
+     */
+    static void resolveBody(ASTImpl.FunctionDeclarationStatement function) {
+        if (!Resolver.resolveBody(function))
+            throw new Failure(ErrorType.INVALID_ACTION, "Function '" + function.identifierSymbol() + "' cannot be called, its body has errors");
     }
 
     @Override
-    public Void visitAssignmentExpression(AST.AssignmentExpression expression, Void unused) {
-        return null;
+    public ValuesImpl.RuntimeValue visitExpression(Expression expression, Frame frame) {
+        throw new Failure(ErrorType.NOT_A_STATEMENT, "Cannot evaluate " + expression);
     }
 
     @Override
-    public Void visitMemberExpression(AST.MemberExpression expression, Void unused) {
-        return null;
+    public ValuesImpl.RuntimeValue visitAssignmentExpression(AssignmentExpression expression, Frame frame) {
+        if (!(expression.variable() instanceof ASTImpl.IdentifierLiteralExpression identifier)) {
+            evaluate(expression.value(), frame);
+            throw new Failure(ErrorType.INVALID_ACTION, "Only variables can be assigned to yet");
+        }
+        final Operator compounded = expression.operator().compounded();
+        // a compound assignment reads the variable before it evaluates the value, like a binary expression
+        final ValuesImpl.RuntimeValue value = compounded == null
+                ? evaluate(expression.value(), frame)
+                : binary(compounded, evaluate(identifier, frame), evaluate(expression.value(), frame));
+        frame.at(identifier.depth()).set(identifier.slot(), value);
+        return value;
     }
 
     @Override
-    public Void visitFunctionInvocationExpression(AST.FunctionInvocationExpression expression, Void unused) {
-        return null;
+    public ValuesImpl.RuntimeValue visitMemberExpression(MemberExpression expression, Frame frame) {
+        throw new Failure(ErrorType.INVALID_ACTION, "Member access is not supported yet");
     }
 
     @Override
-    public Void visitBinaryExpression(AST.BinaryExpression expression, Void unused) {
-        return null;
+    public ValuesImpl.RuntimeValue visitFunctionInvocationExpression(FunctionInvocationExpression expression, Frame frame) {
+        if (!(evaluate(expression.identifier(), frame) instanceof ValuesImpl.FunctionValue callee))
+            throw new Failure(ErrorType.INVALID_ACTION, callee(expression.identifier()) + " is not a function");
+
+        final AST.Expression[] arguments = expression.arguments();
+        final ASTImpl.FunctionDeclarationStatement function = callee.overload(arguments.length);
+        if (function == null)
+            throw new Failure(ErrorType.NOT_FOUND, "Function '" + callee.name() + "' takes no " + arguments.length + " arguments");
+        resolveBody(function);
+
+        // parameters take the first slots of the function's frame
+        final Frame call = new Frame(function.frameSize(), callee.closure(), function);
+        for (int i = 0; i < arguments.length; i++)
+            call.set(i, evaluate(arguments[i], frame));
+        if (Jit.isEnabled()) {
+            // a function calling itself is the loop of this language
+            final ValuesImpl.RuntimeValue result = Jit.invoke(globals, callee, function, call, arguments.length, frame.function() == function);
+            if (result != null)
+                return result;
+        }
+        return evaluateAll(function.body(), call);
+    }
+
+    /**
+     * @return the callee of an invocation as errors name it, by its variable if it is one
+     */
+    static String callee(AST.Expression callee) {
+        return callee instanceof IdentifierLiteralExpression identifier ? "'" + identifier.symbol() + "'" : "The called value";
     }
 
     @Override
-    public Void visitLiteralExpression(AST.LiteralExpression expression, Void unused) {
-        return null;
+    public ValuesImpl.RuntimeValue visitBinaryExpression(BinaryExpression expression, Frame frame) {
+        final Operator operator = expression.operator();
+        final ValuesImpl.RuntimeValue left = evaluate(expression.left(), frame);
+        if (operator == Operator.AND || operator == Operator.OR) {
+            final boolean value = bool(left, operator);
+            if (value == (operator == Operator.OR))
+                return new ValuesImpl.BooleanValue(value);
+            return new ValuesImpl.BooleanValue(bool(evaluate(expression.right(), frame), operator));
+        }
+        return binary(operator, left, evaluate(expression.right(), frame));
+    }
+
+    /**
+     * Applies an operator other than {@code &&} and {@code ||}, which only evaluate their right operand if needed.
+     */
+    static ValuesImpl.RuntimeValue binary(Operator operator, ValuesImpl.RuntimeValue left, ValuesImpl.RuntimeValue right) {
+        return switch (operator) {
+            case ADD -> left instanceof ValuesImpl.StringValue || right instanceof ValuesImpl.StringValue
+                    ? new ValuesImpl.StringValue(display(left) + display(right))
+                    : new ValuesImpl.NumberValue(number(left, operator) + number(right, operator));
+            case SUBTRACT -> new ValuesImpl.NumberValue(number(left, operator) - number(right, operator));
+            case MULTIPLY -> new ValuesImpl.NumberValue(number(left, operator) * number(right, operator));
+            case DIVIDE -> new ValuesImpl.NumberValue(number(left, operator) / number(right, operator));
+            case MODULO -> new ValuesImpl.NumberValue(number(left, operator) % number(right, operator));
+            case POWER -> new ValuesImpl.NumberValue((float) Math.pow(number(left, operator), number(right, operator)));
+            case LESS -> new ValuesImpl.BooleanValue(number(left, operator) < number(right, operator));
+            case LESS_EQUAL -> new ValuesImpl.BooleanValue(number(left, operator) <= number(right, operator));
+            case GREATER -> new ValuesImpl.BooleanValue(number(left, operator) > number(right, operator));
+            case GREATER_EQUAL -> new ValuesImpl.BooleanValue(number(left, operator) >= number(right, operator));
+            case EQUAL -> new ValuesImpl.BooleanValue(equal(left, right));
+            case NOT_EQUAL -> new ValuesImpl.BooleanValue(!equal(left, right));
+            case BIT_AND, BIT_OR -> left instanceof ValuesImpl.BooleanValue
+                    ? new ValuesImpl.BooleanValue(operator == Operator.BIT_AND
+                            ? bool(left, operator) & bool(right, operator)
+                            : bool(left, operator) | bool(right, operator))
+                    : new ValuesImpl.NumberValue(operator == Operator.BIT_AND
+                            ? integer(left, operator) & integer(right, operator)
+                            : integer(left, operator) | integer(right, operator));
+            case SHIFT_LEFT -> new ValuesImpl.NumberValue(integer(left, operator) << integer(right, operator));
+            case SHIFT_RIGHT -> new ValuesImpl.NumberValue(integer(left, operator) >> integer(right, operator));
+            default -> throw new Failure(ErrorType.INVALID_ACTION, "Unexpected operator " + operator.text());
+        };
+    }
+
+    static float number(ValuesImpl.RuntimeValue value, Operator operator) {
+        if (value instanceof ValuesImpl.NumberValue number)
+            return number.value();
+        if (value instanceof ValuesImpl.CharacterValue character)
+            return character.value();
+        throw new Failure(ErrorType.INVALID_ACTION, "'" + operator.text() + "' expects numbers, not " + display(value));
+    }
+
+    static int integer(ValuesImpl.RuntimeValue value, Operator operator) {
+        return (int) number(value, operator);
+    }
+
+    static boolean bool(ValuesImpl.RuntimeValue value, Operator operator) {
+        if (value instanceof ValuesImpl.BooleanValue bool)
+            return bool.value();
+        throw new Failure(ErrorType.INVALID_ACTION, "'" + operator.text() + "' expects booleans, not " + display(value));
+    }
+
+    static boolean equal(ValuesImpl.RuntimeValue left, ValuesImpl.RuntimeValue right) {
+        return switch (left) {
+            case ValuesImpl.NumberValue number -> right instanceof ValuesImpl.NumberValue other && number.value() == other.value();
+            case ValuesImpl.StringValue string -> right instanceof ValuesImpl.StringValue other && string.value().equals(other.value());
+            case ValuesImpl.CharacterValue character -> right instanceof ValuesImpl.CharacterValue other && character.value() == other.value();
+            case ValuesImpl.BooleanValue bool -> right instanceof ValuesImpl.BooleanValue other && bool.value() == other.value();
+            case ValuesImpl.NullValue ignored -> right instanceof ValuesImpl.NullValue;
+            default -> left == right;
+        };
+    }
+
+    /**
+     * @return the value as it is written in a string concatenation
+     */
+    static String display(ValuesImpl.RuntimeValue value) {
+        return switch (value) {
+            case ValuesImpl.NumberValue number -> number.value() == (long) number.value()
+                    ? Long.toString((long) number.value())
+                    : Float.toString(number.value());
+            case ValuesImpl.StringValue string -> string.value();
+            case ValuesImpl.CharacterValue character -> String.valueOf(character.value());
+            case ValuesImpl.BooleanValue bool -> String.valueOf(bool.value());
+            case ValuesImpl.FunctionValue function -> "<function " + function.name() + ">";
+            case null, default -> "null";
+        };
     }
 
     @Override
-    public Void visitIdentifierLiteralExpression(AST.IdentifierLiteralExpression expression, Void unused) {
-        return null;
+    public ValuesImpl.RuntimeValue visitLiteralExpression(LiteralExpression expression, Frame frame) {
+        throw new Failure(ErrorType.NOT_A_STATEMENT, "Cannot evaluate " + expression);
     }
 
     @Override
-    public Void visitNumericLiteralExpression(AST.NumericLiteralExpression expression, Void unused) {
-        return null;
+    public ValuesImpl.RuntimeValue visitIdentifierLiteralExpression(IdentifierLiteralExpression expression, Frame frame) {
+        final ASTImpl.IdentifierLiteralExpression identifier = (ASTImpl.IdentifierLiteralExpression) expression;
+        final ValuesImpl.RuntimeValue value = frame.at(identifier.depth()).get(identifier.slot());
+        if (value == null)
+            throw new Failure(ErrorType.UNASSIGNED_VARIABLE_QUERIED, "Variable '" + expression.symbol() + "' has not been assigned yet");
+        return value;
     }
 
     @Override
-    public Void visitStringLiteralExpression(AST.StringLiteralExpression expression, Void unused) {
-        return null;
+    public ValuesImpl.RuntimeValue visitNumericLiteralExpression(NumericLiteralExpression expression, Frame frame) {
+        return new ValuesImpl.NumberValue(expression.value());
     }
 
     @Override
-    public Void visitCharacterLiteralExpression(AST.CharacterLiteralExpression expression, Void unused) {
-        return null;
+    public ValuesImpl.RuntimeValue visitStringLiteralExpression(StringLiteralExpression expression, Frame frame) {
+        return new ValuesImpl.StringValue(expression.value());
     }
 
     @Override
-    public Void visitNullLiteralExpression(AST.NullLiteralExpression expression, Void unused) {
-        return null;
+    public ValuesImpl.RuntimeValue visitCharacterLiteralExpression(CharacterLiteralExpression expression, Frame frame) {
+        return new ValuesImpl.CharacterValue(expression.value());
+    }
+
+    @Override
+    public ValuesImpl.RuntimeValue visitNullLiteralExpression(NullLiteralExpression expression, Frame frame) {
+        return NULL;
     }
 }
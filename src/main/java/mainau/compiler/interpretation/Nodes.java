@@ -0,0 +1,207 @@
+package mainau.compiler.interpretation;
+
+import mainau.compiler.analysis.lexical.Operator;
+import mainau.compiler.ast.ASTImpl;
+import mainau.compiler.error.ErrorType;
+import mainau.repl.runtime.ValuesImpl;
+
+/**
+ * The nodes of the {@link SpecializingInterpreter} that do not specialize, see {@link BinaryNodes} and
+ * {@link CallNodes} for those that do. They behave like the {@link Interpreter}.
+ */
+final class Nodes {
+    private Nodes() {}
+
+    /**
+     * A program or a function body, it evaluates to the value of its last statement.
+     */
+    static final class Block extends ExecutionNode {
+        private final ExecutionNode[] statements;
+
+        Block(ExecutionNode[] statements) {
+            this.statements = adoptAll(statements);
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue execute(Frame frame) {
+            ValuesImpl.RuntimeValue last = Interpreter.NULL;
+            for (ExecutionNode statement : statements)
+                last = statement.execute(frame);
+            return last;
+        }
+
+        @Override
+        void replaceChild(ExecutionNode child, ExecutionNode replacement) {
+            replaceIn(statements, child, replacement);
+        }
+    }
+
+    static final class Constant extends ExecutionNode {
+        private final ValuesImpl.RuntimeValue value;
+
+        Constant(ValuesImpl.RuntimeValue value) {
+            this.value = value;
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue execute(Frame frame) {
+            return value;
+        }
+    }
+
+    /**
+     * Reads a variable of an enclosing frame, see {@link ReadLocal} for one of the frame itself.
+     */
+    static final class Read extends ExecutionNode {
+        private final int depth, slot;
+        private final String name;
+
+        Read(int depth, int slot, String name) {
+            this.depth = depth;
+            this.slot = slot;
+            this.name = name;
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue execute(Frame frame) {
+            return assigned(frame.at(depth).get(slot), name);
+        }
+    }
+
+    static final class ReadLocal extends ExecutionNode {
+        private final int slot;
+        private final String name;
+
+        ReadLocal(int slot, String name) {
+            this.slot = slot;
+            this.name = name;
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue execute(Frame frame) {
+            return assigned(frame.get(slot), name);
+        }
+    }
+
+    private static ValuesImpl.RuntimeValue assigned(ValuesImpl.RuntimeValue value, String name) {
+        if (value == null)
+            throw new Interpreter.Failure(ErrorType.UNASSIGNED_VARIABLE_QUERIED, "Variable '" + name + "' has not been assigned yet");
+        return value;
+    }
+
+    static final class Assign extends ExecutionNode {
+        private final int depth, slot;
+        private ExecutionNode value;
+
+        Assign(int depth, int slot, ExecutionNode value) {
+            this.depth = depth;
+            this.slot = slot;
+            this.value = adopt(value);
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue execute(Frame frame) {
+            final ValuesImpl.RuntimeValue result = value.execute(frame);
+            frame.at(depth).set(slot, result);
+            return result;
+        }
+
+        @Override
+        void replaceChild(ExecutionNode child, ExecutionNode replacement) {
+            value = replacement;
+        }
+    }
+
+    static final class DeclareVariable extends ExecutionNode {
+        private final int slot;
+        private ExecutionNode value;
+
+        DeclareVariable(int slot, ExecutionNode value) {
+            this.slot = slot;
+            this.value = adopt(value);
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue execute(Frame frame) {
+            final ValuesImpl.RuntimeValue result = value != null ? value.execute(frame) : null;
+            frame.set(slot, result);
+            return result != null ? result : Interpreter.NULL;
+        }
+
+        @Override
+        void replaceChild(ExecutionNode child, ExecutionNode replacement) {
+            value = replacement;
+        }
+    }
+
+    static final class DeclareFunction extends ExecutionNode {
+        private final ASTImpl.FunctionDeclarationStatement function;
+
+        DeclareFunction(ASTImpl.FunctionDeclarationStatement function) {
+            this.function = function;
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue execute(Frame frame) {
+            return Interpreter.declare(function, frame);
+        }
+    }
+
+    /**
+     * {@code &&} and {@code ||}, the right operand is only evaluated if it decides the result.
+     */
+    static final class Logical extends ExecutionNode {
+        private final Operator operator;
+        private ExecutionNode left, right;
+
+        Logical(Operator operator, ExecutionNode left, ExecutionNode right) {
+            this.operator = operator;
+            this.left = adopt(left);
+            this.right = adopt(right);
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue execute(Frame frame) {
+            final boolean value = Interpreter.bool(left.execute(frame), operator);
+            if (value == (operator == Operator.OR))
+                return new ValuesImpl.BooleanValue(value);
+            return new ValuesImpl.BooleanValue(Interpreter.bool(right.execute(frame), operator));
+        }
+
+        @Override
+        void replaceChild(ExecutionNode child, ExecutionNode replacement) {
+            if (child == left)
+                left = replacement;
+            else if (child == right)
+                right = replacement;
+            else super.replaceChild(child, replacement);
+        }
+    }
+
+    /**
+     * Evaluates its operand, if it has one, and fails, like the interpreter does for what it does not support.
+     */
+    static final class Fail extends ExecutionNode {
+        private final ErrorType type;
+        private final String message;
+        private ExecutionNode operand;
+
+        Fail(ExecutionNode operand, ErrorType type, String message) {
+            this.operand = adopt(operand);
+            this.type = type;
+            this.message = message;
+        }
+
+        @Override
+        ValuesImpl.RuntimeValue execute(Frame frame) {
+            if (operand != null)
+                operand.execute(frame);
+            throw new Interpreter.Failure(type, message);
+        }
+
+        @Override
+        void replaceChild(ExecutionNode child, ExecutionNode replacement) {
+            operand = replacement;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package mainau.compiler.interpretation;
+
+import mainau.compiler.ast.AST;
+import mainau.compiler.ast.ASTImpl;
+import mainau.compiler.error.ErrorType;
+import mainau.compiler.visitor.ASTVisitor;
+import mainau.repl.runtime.ProcessTask;
+import mainau.repl.runtime.RuntimeError;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static mainau.compiler.ast.AST.*;
+
+/**
+ * Runs before the {@link Interpreter} and binds every variable to a slot: declarations get the next free
+ * slot of their scope, identifiers the number of scopes up to their declaration and its slot. The program
+ * and every function form a scope. Only trees of {@link ASTImpl} nodes can be resolved, the result is stored
+ * in them, any other node is reported as an error. Names are compared by their symbol ids. The body of a lazy function that was not parsed yet is only resolved on its first call, see
+ * {@link #resolveBody}, against the names that were declared when the function was.
+ */
+public final class Resolver implements ASTVisitor<Void, Void> {
+    /**
+     * The scope a lazy function was declared in and how many names each scope up to the globals had then,
+     * kept on the function until its first call.
+     */
+    private record Deferred(Scope scope, Map<Scope, Integer> visible, ProcessTask task) {}
+
+    private final ProcessTask task;
+    private Scope scope;
+    private boolean failed = false;
+    // set while resolving a deferred body, names declared in these scopes after the function are not visible
+    private final Map<Scope, Integer> visible = new IdentityHashMap<>();
+    // the lazy functions left for later, they are only callable if the resolver succeeds
+    private final Map<ASTImpl.LazyFunctionDeclarationStatement, Deferred> deferred = new IdentityHashMap<>();
+
+    private Resolver(Scope globals, ProcessTask task) {
+        this.scope = globals;
+        this.task = task;
+    }
+
+    /**
+     * Resolves a program against the globals of the session. The globals it declares are only kept if it succeeded.
+     * @return whether every variable could be resolved, the errors are reported to the task otherwise
+     */
+    public static boolean resolve(ASTImpl.Program program, Globals globals, ProcessTask task) {
+        final int known = globals.scope.size();
+        final Resolver resolver = new Resolver(globals.scope, task);
+        resolver.resolveAll(program.body());
+        if (resolver.failed)
+            globals.scope.truncate(known);
+        else {
+            globals.frame.ensureSize(globals.scope.size());
+            resolver.deferred.forEach(ASTImpl.LazyFunctionDeclarationStatement::defer);
+        }
+        return !resolver.failed;
+    }
+
+    /**
+     * Parses and resolves the body of a lazy function on its first call, the body of any other function
+     * was resolved with the program. The errors found are printed by the task that declared the function.
+     * @return whether the body could be resolved, it must not be evaluated otherwise
+     */
+    public static boolean resolveBody(ASTImpl.FunctionDeclarationStatement function) {
+        if (function.frameSize() >= 0)
+            return true;
+        if (!(function instanceof ASTImpl.LazyFunctionDeclarationStatement lazy))
+            return false;
+        synchronized (lazy) {
+            // resolved by another call in the meantime, or left without a body for its errors
+            if (!(lazy.deferral() instanceof Deferred deferred))
+                return lazy.frameSize() >= 0;
+
+            final Resolver resolver = new Resolver(deferred.scope, deferred.task);
+            resolver.visible.putAll(deferred.visible);
+            final boolean resolved = deferred.task.reportLate(() -> {
+                resolver.resolveFunction(lazy, lazy.slot());
+                if (lazy.isMalformed())
+                    resolver.failed = true;
+                return resolver.failed ? null : lazy;
+            }) != null;
+            if (resolved)
+                resolver.deferred.forEach(ASTImpl.LazyFunctionDeclarationStatement::defer);
+            else lazy.resolve(lazy.slot(), -1);
+            lazy.defer(null);
+            return resolved;
+        }
+    }
+
+    private void error(ErrorType type, String message) {
+        failed = true;
+        task.insertError(new RuntimeError(type, message));
+    }
+
+    private void resolveAll(AST.Statement[] statements) {
+        for (AST.Statement statement : statements)
+            resolve(statement);
+    }
+
+    private void resolve(AST.Statement statement) {
+        if (statement != null)
+            statement.accept(this, null);
+    }
+
+    /**
+     * @return the node as the given implementation or {@code null}, after reporting that it cannot be resolved
+     */
+    private <T> T implementation(Class<T> type, AST.Statement node) {
+        if (type.isInstance(node))
+            return type.cast(node);
+        error(ErrorType.INVALID_ACTION, "Only parsed trees can be evaluated, not " + node.getClass().getSimpleName());
+        return null;
+    }
+
+    @Override
+    public Void visitStatement(Statement statement, Void unused) {
+        return null;
+    }
+
+    @Override
+    public Void visitProgram(Program program, Void unused) {
+        resolveAll(program.body());
+        return null;
+    }
+
+    @Override
+    public Void visitObtainStatement(ObtainStatement statement, Void unused) {
+        error(ErrorType.INVALID_ACTION, "obtain statements are not supported yet");
+        return null;
+    }
+
+    @Override
+    public Void visitVariableDeclarationStatement(VariableDeclarationStatement statement, Void unused) {
+        final ASTImpl.VariableDeclarationStatement declaration = implementation(ASTImpl.VariableDeclarationStatement.class, statement);
+        if (declaration == null)
+            return null;
+        // the value is resolved first, it still sees the variables the new one shadows
+        resolve(statement.value());
+
+        if (scope.slot(declaration.symbolId()) >= 0) {
+            error(ErrorType.INVALID_ACTION, "Already existing variable '" + statement.identifierSymbol() + "' cannot be redefined");
+            return null;
+        }
+        declaration.resolve(scope.declare(declaration.symbolId()));
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionDeclarationStatement(FunctionDeclarationStatement statement, Void unused) {
+        final ASTImpl.FunctionDeclarationStatement function = implementation(ASTImpl.FunctionDeclarationStatement.class, statement);
+        if (function == null)
+            return null;
+        final int symbolId = function.symbolId();
+
+        // overloads share the slot of the first function of that name, it is declared before the body for recursion
+        int slot = scope.slot(symbolId);
+        if (slot < 0)
+            slot = scope.declareFunction(symbolId);
+        else if (!scope.isFunction(symbolId)) {
+            error(ErrorType.INVALID_ACTION, "Already existing variable '" + statement.identifierSymbol() + "' cannot be redefined");
+            return null;
+        }
+
+        if (function instanceof ASTImpl.LazyFunctionDeclarationStatement lazy && !lazy.isParsed()) {
+            defer(lazy, slot);
+            return null;
+        }
+        resolveFunction(function, slot);
+        return null;
+    }
+
+    /**
+     * Leaves the body for its first call, which only sees the names declared so far, like it would now.
+     */
+    private void defer(ASTImpl.LazyFunctionDeclarationStatement function, int slot) {
+        final Map<Scope, Integer> sizes = new IdentityHashMap<>(visible);
+        for (Scope current = scope; current != null; current = current.enclosing())
+            sizes.putIfAbsent(current, current.size());
+        function.resolve(slot, -1);
+        deferred.put(function, new Deferred(scope, sizes, task));
+    }
+
+    private void resolveFunction(ASTImpl.FunctionDeclarationStatement function, int slot) {
+        scope = new Scope(scope);
+        for (FunctionDeclarationStatement.ParameterExpression argument : function.arguments()) {
+            final ASTImpl.FunctionDeclarationStatement.ParameterExpression parameter =
+                    implementation(ASTImpl.FunctionDeclarationStatement.ParameterExpression.class, argument);
+            if (parameter == null)
+                continue;
+            if (scope.slot(parameter.symbolId()) >= 0)
+                error(ErrorType.INVALID_ACTION, "Parameter '" + parameter.identifierSymbol() + "' of '" + function.identifierSymbol() + "' is declared twice");
+            else scope.declare(parameter.symbolId());
+        }
+        resolveAll(function.body());
+        function.resolve(slot, scope.size());
+        scope = scope.enclosing();
+    }
+
+    @Override
+    public Void visitExpression(Expression expression, Void unused) {
+        return null;
+    }
+
+    @Override
+    public Void visitAssignmentExpression(AssignmentExpression expression, Void unused) {
+        resolve(expression.value());
+        if (expression.variable() instanceof IdentifierLiteralExpression || expression.variable() instanceof MemberExpression)
+            resolve(expression.variable());
+        else error(ErrorType.INVALID_ACTION, "Cannot assign to " + expression.variable());
+        return null;
+    }
+
+    @Override
+    public Void visitMemberExpression(MemberExpression expression, Void unused) {
+        resolve(expression.parent());
+        // a plain member name is looked up in the parent, not in a scope
+        if (expression.computed())
+            resolve(expression.child());
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionInvocationExpression(FunctionInvocationExpression expression, Void unused) {
+        resolve(expression.identifier());
+        resolveAll(expression.arguments());
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpression(BinaryExpression expression, Void unused) {
+        resolve(expression.left());
+        resolve(expression.right());
+        return null;
+    }
+
+    @Override
+    public Void visitLiteralExpression(LiteralExpression expression, Void unused) {
+        return null;
+    }
+
+    @Override
+    public Void visitIdentifierLiteralExpression(IdentifierLiteralExpression expression, Void unused) {
+        final ASTImpl.IdentifierLiteralExpression identifier = implementation(ASTImpl.IdentifierLiteralExpression.class, expression);
+        if (identifier == null)
+            return null;
+        int depth = 0;
+        for (Scope current = scope; current != null; current = current.enclosing(), depth++) {
+            final int slot = current.slot(identifier.symbolId());
+            if (slot >= 0 && slot < visible.getOrDefault(current, Integer.MAX_VALUE)) {
+                identifier.resolve(depth, slot);
+                return null;
+            }
+        }
+        error(ErrorType.NOT_FOUND, "Variable '" + expression.symbol() + "' not found");
+        return null;
+    }
+
+    @Override
+    public Void visitNumericLiteralExpression(NumericLiteralExpression expression, Void unused) {
+        return null;
+    }
+
+    @Override
+    public Void visitStringLiteralExpression(StringLiteralExpression expression, Void unused) {
+        return null;
+    }
+
+    @Override
+    public Void visitCharacterLiteralExpression(CharacterLiteralExpression expression, Void unused) {
+        return null;
+    }
+
+    @Override
+    public Void visitNullLiteralExpression(NullLiteralExpression expression, Void unused) {
+        return null;
+    }
+}
@@ -0,0 +1,58 @@
+package mainau.compiler.interpretation;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The names declared in one scope and their slots in its {@link Frame}, only used while resolving.
+ * Names are kept as their {@link mainau.compiler.analysis.lexical.SymbolTable} ids.
+ */
+final class Scope {
+    private final Map<Integer, Integer> slots = new HashMap<>();
+    private final Set<Integer> functions = new HashSet<>();
+    private final Scope enclosing;
+
+    Scope(Scope enclosing) {
+        this.enclosing = enclosing;
+    }
+
+    Scope enclosing() {
+        return enclosing;
+    }
+
+    int size() {
+        return slots.size();
+    }
+
+    /**
+     * @return the slot of the symbol or -1
+     */
+    int slot(int symbolId) {
+        return slots.getOrDefault(symbolId, -1);
+    }
+
+    boolean isFunction(int symbolId) {
+        return functions.contains(symbolId);
+    }
+
+    int declare(int symbolId) {
+        final int slot = slots.size();
+        slots.put(symbolId, slot);
+        return slot;
+    }
+
+    int declareFunction(int symbolId) {
+        functions.add(symbolId);
+        return declare(symbolId);
+    }
+
+    /**
+     * Forgets the names declared after the scope had the given size.
+     */
+    void truncate(int size) {
+        slots.values().removeIf(slot -> slot >= size);
+        functions.retainAll(slots.keySet());
+    }
+}
@@ -71,7 +71,7 @@ public class Session {
     }
 
     public Session resolveVariable(String name) {
-        Output.simplyLog(MessageType.DEV, "\nname is: " + name +
+        Output.simplyLog(MessageType.DEV, () -> "\nname is: " + name +
                 "\nvar found in first layer session: " + variableMap.containsKey(name) +
                 "\n" + variableMap);
         if (variableMap.containsKey(name))
@@ -0,0 +1,167 @@
+package mainau.compiler.interpretation;
+
+import mainau.compiler.analysis.lexical.Operator;
+import mainau.compiler.ast.AST;
+import mainau.compiler.ast.ASTImpl;
+import mainau.compiler.error.ErrorType;
+import mainau.compiler.visitor.ASTVisitor;
+import mainau.repl.runtime.ProcessTask;
+import mainau.repl.runtime.RuntimeError;
+import mainau.repl.runtime.ValuesImpl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static mainau.compiler.ast.AST.*;
+
+/**
+ * Evaluates a {@link Resolver resolved} tree like the {@link Interpreter}, but first turns it into a tree of
+ * {@link ExecutionNode}s that evaluate themselves. Operators and calls start out uninitialized and rewrite themselves
+ * on their first evaluation for the values they saw, see {@link BinaryNodes} and {@link CallNodes}. The body
+ * of a function is turned into nodes on its first call and keeps its nodes, so what they learned, across the
+ * inputs of a session. The body of a lazy function is parsed and resolved then as well. Each session has its
+ * own interpreter in its {@link Globals}, the nodes of its functions go away with it.
+ */
+public final class SpecializingInterpreter implements ASTVisitor<ExecutionNode, Void> {
+    final Globals globals;
+    private final Map<ASTImpl.FunctionDeclarationStatement, ExecutionNode> bodies = new ConcurrentHashMap<>();
+
+    SpecializingInterpreter(Globals globals) {
+        this.globals = globals;
+    }
+
+    /**
+     * Resolves and evaluates the program in the global frame of the session.
+     * @return the value of the last statement or {@code null}, if there was an error, which is reported to the task
+     */
+    public static ValuesImpl.RuntimeValue evaluate(ASTImpl.Program program, Globals globals, ProcessTask task) {
+        if (!Resolver.resolve(program, globals, task))
+            return null;
+        try {
+            return globals.specializing().block(program.body()).execute(globals.frame);
+        } catch (Interpreter.Failure failure) {
+            task.insertError(failure.error);
+        } catch (StackOverflowError e) {
+            task.insertError(new RuntimeError(ErrorType.FATAL, "Stack overflow, the recursion is too deep"));
+        }
+        return null;
+    }
+
+    ExecutionNode body(ASTImpl.FunctionDeclarationStatement function) {
+        final ExecutionNode body = bodies.get(function);
+        if (body != null)
+            return body;
+        Interpreter.resolveBody(function);
+        return bodies.computeIfAbsent(function, declared -> block(declared.body()));
+    }
+
+    private ExecutionNode block(AST.Statement[] statements) {
+        final ExecutionNode[] nodes = new ExecutionNode[statements.length];
+        for (int i = 0; i < statements.length; i++)
+            nodes[i] = node(statements[i]);
+        return new Nodes.Block(nodes);
+    }
+
+    private ExecutionNode node(AST.Statement statement) {
+        return statement.accept(this, null);
+    }
+
+    @Override
+    public ExecutionNode visitStatement(Statement statement, Void unused) {
+        return new Nodes.Fail(null, ErrorType.NOT_A_STATEMENT, "Cannot evaluate " + statement);
+    }
+
+    @Override
+    public ExecutionNode visitProgram(Program program, Void unused) {
+        return block(program.body());
+    }
+
+    @Override
+    public ExecutionNode visitObtainStatement(ObtainStatement statement, Void unused) {
+        return new Nodes.Fail(null, ErrorType.INVALID_ACTION, "obtain statements are not supported yet");
+    }
+
+    @Override
+    public ExecutionNode visitVariableDeclarationStatement(VariableDeclarationStatement statement, Void unused) {
+        return new Nodes.DeclareVariable(((ASTImpl.VariableDeclarationStatement) statement).slot(),
+                statement.value() != null ? node(statement.value()) : null);
+    }
+
+    @Override
+    public ExecutionNode visitFunctionDeclarationStatement(FunctionDeclarationStatement statement, Void unused) {
+        return new Nodes.DeclareFunction((ASTImpl.FunctionDeclarationStatement) statement);
+    }
+
+    @Override
+    public ExecutionNode visitExpression(Expression expression, Void unused) {
+        return new Nodes.Fail(null, ErrorType.NOT_A_STATEMENT, "Cannot evaluate " + expression);
+    }
+
+    @Override
+    public ExecutionNode visitAssignmentExpression(AssignmentExpression expression, Void unused) {
+        if (!(expression.variable() instanceof ASTImpl.IdentifierLiteralExpression identifier))
+            return new Nodes.Fail(node(expression.value()), ErrorType.INVALID_ACTION, "Only variables can be assigned to yet");
+        final Operator compounded = expression.operator().compounded();
+        final ExecutionNode value = compounded == null
+                ? node(expression.value())
+                : BinaryNodes.create(compounded, node(identifier), node(expression.value()));
+        return new Nodes.Assign(identifier.depth(), identifier.slot(), value);
+    }
+
+    // members have no values to specialize on yet, the interpreter does not support them either
+    @Override
+    public ExecutionNode visitMemberExpression(MemberExpression expression, Void unused) {
+        return new Nodes.Fail(null, ErrorType.INVALID_ACTION, "Member access is not supported yet");
+    }
+
+    @Override
+    public ExecutionNode visitFunctionInvocationExpression(FunctionInvocationExpression expression, Void unused) {
+        final AST.Expression[] arguments = expression.arguments();
+        final ExecutionNode[] nodes = new ExecutionNode[arguments.length];
+        for (int i = 0; i < arguments.length; i++)
+            nodes[i] = node(arguments[i]);
+        return CallNodes.create(this, Interpreter.callee(expression.identifier()), node(expression.identifier()), nodes);
+    }
+
+    @Override
+    public ExecutionNode visitBinaryExpression(BinaryExpression expression, Void unused) {
+        final Operator operator = expression.operator();
+        final ExecutionNode left = node(expression.left()), right = node(expression.right());
+        if (operator == Operator.AND || operator == Operator.OR)
+            return new Nodes.Logical(operator, left, right);
+        return BinaryNodes.create(operator, left, right);
+    }
+
+    @Override
+    public ExecutionNode visitLiteralExpression(LiteralExpression expression, Void unused) {
+        return new Nodes.Fail(null, ErrorType.NOT_A_STATEMENT, "Cannot evaluate " + expression);
+    }
+
+    @Override
+    public ExecutionNode visitIdentifierLiteralExpression(IdentifierLiteralExpression expression, Void unused) {
+        final ASTImpl.IdentifierLiteralExpression identifier = (ASTImpl.IdentifierLiteralExpression) expression;
+        return identifier.depth() == 0
+                ? new Nodes.ReadLocal(identifier.slot(), expression.symbol())
+                : new Nodes.Read(identifier.depth(), identifier.slot(), expression.symbol());
+    }
+
+    @Override
+    public ExecutionNode visitNumericLiteralExpression(NumericLiteralExpression expression, Void unused) {
+        return new Nodes.Constant(new ValuesImpl.NumberValue(expression.value()));
+    }
+
+    @Override
+    public ExecutionNode visitStringLiteralExpression(StringLiteralExpression expression, Void unused) {
+        return new Nodes.Constant(new ValuesImpl.StringValue(expression.value()));
+    }
+
+    @Override
+    public ExecutionNode visitCharacterLiteralExpression(CharacterLiteralExpression expression, Void unused) {
+        return new Nodes.Constant(new ValuesImpl.CharacterValue(expression.value()));
+    }
+
+    @Override
+    public ExecutionNode visitNullLiteralExpression(NullLiteralExpression expression, Void unused) {
+        return new Nodes.Constant(Interpreter.NULL);
+    }
+}
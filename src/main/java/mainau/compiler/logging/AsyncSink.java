@@ -0,0 +1,162 @@
+package mainau.compiler.logging;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Prints the messages of {@link Output} on one writer thread. Senders only put them into a
+ * {@link BoundedMpscQueue}, the writer renders them and prints runs of messages for the same
+ * stream with a single write. Messages are printed in the order they were queued, so the
+ * messages of one thread keep their order.
+ */
+public final class AsyncSink {
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    // a batch is written once it grows beyond this many chars
+    private static final int BATCH_SIZE = 64 << 10;
+    private static final long IDLE_PARK = TimeUnit.MILLISECONDS.toNanos(50);
+    // a sender waiting for room spins this often, then parks for twice as long each time up to the maximum
+    private static final int FULL_SPINS = 64;
+    private static final long FULL_PARK_MIN = TimeUnit.MICROSECONDS.toNanos(1), FULL_PARK_MAX = TimeUnit.MILLISECONDS.toNanos(1);
+
+    public enum Overflow {
+        /** the sender waits until there is room in the queue */
+        BLOCK,
+        /** the message is dropped, the writer reports how many were lost */
+        DROP
+    }
+
+    record Pending(Message message, String time, boolean eraseLine) {}
+
+    private final BoundedMpscQueue<Pending> queue;
+    private final Overflow overflow;
+    private final Thread writer;
+    private final AtomicLong dropped = new AtomicLong();
+    // the senders inside offer, the writer only stops once none of them is left
+    private final AtomicInteger senders = new AtomicInteger();
+
+    // the number of queued messages that are printed
+    private volatile long written = 0;
+    private volatile boolean idle = false, closed = false;
+
+    AsyncSink(int capacity, Overflow overflow) {
+        this.queue = new BoundedMpscQueue<>(capacity);
+        this.overflow = overflow;
+        this.writer = Thread.ofPlatform().daemon().name("mainau-log-writer").start(this::drain);
+    }
+
+    /**
+     * @return false if the sink is closed and the message was not taken, the caller prints it itself then
+     */
+    boolean offer(Pending pending) {
+        senders.incrementAndGet();
+        try {
+            if (closed)
+                return false;
+            long park = FULL_PARK_MIN;
+            for (int attempt = 0; !queue.offer(pending); attempt++) {
+                // fatal messages are never dropped, they are flushed right away anyway
+                final boolean drop = overflow == Overflow.DROP && pending.message().type() != MessageType.FATAL;
+                if (drop || !writer.isAlive()) {
+                    dropped.incrementAndGet();
+                    return true;
+                }
+                LockSupport.unpark(writer);
+                if (attempt < FULL_SPINS) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(this, park);
+                    park = Math.min(park * 2, FULL_PARK_MAX);
+                }
+            }
+        } finally {
+            senders.decrementAndGet();
+        }
+        if (idle)
+            LockSupport.unpark(writer);
+        return true;
+    }
+
+    /**
+     * Waits until every message queued before the call is printed.
+     */
+    void flush() {
+        if (Thread.currentThread() == writer)
+            return;
+        final long target = queue.offered();
+        while (written < target && writer.isAlive()) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+    }
+
+    /**
+     * Prints everything queued and stops the writer, messages offered afterwards are refused.
+     */
+    void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        final StringBuilder batch = new StringBuilder(BATCH_SIZE + 1024);
+        PrintStream batchStream = null;
+        long taken = 0;
+
+        while (true) {
+            final Pending pending = queue.poll();
+            if (pending == null) {
+                write(batchStream, batch);
+                written = taken;
+                reportDropped();
+                // messages still being written by their producers are waited for before closing
+                if (closed && senders.get() == 0 && queue.offered() == taken)
+                    return;
+
+                idle = true;
+                if (queue.offered() == taken)
+                    LockSupport.parkNanos(this, closed ? FULL_PARK_MAX : IDLE_PARK);
+                idle = false;
+                continue;
+            }
+            taken++;
+
+            final PrintStream stream = Output.stream(pending.message().type());
+            if (stream != batchStream) {
+                write(batchStream, batch);
+                batchStream = stream;
+            }
+            batch.append(Output.render(pending.message(), pending.time(), pending.eraseLine())).append(System.lineSeparator());
+            if (batch.length() >= BATCH_SIZE) {
+                write(batchStream, batch);
+                written = taken;
+            }
+        }
+    }
+
+    private void reportDropped() {
+        final long lost = dropped.getAndSet(0);
+        if (lost > 0)
+            System.err.println(Output.render(
+                    new Message(MessageType.WARNING, lost + " log messages were dropped, the queue was full"),
+                    null,
+                    false
+            ));
+    }
+
+    private static void write(PrintStream stream, StringBuilder batch) {
+        if (batch.isEmpty())
+            return;
+        stream.append(batch);
+        stream.flush();
+        batch.setLength(0);
+    }
+}
@@ -0,0 +1,77 @@
+package mainau.compiler.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded lock-free queue for many producers and a single consumer. Each slot carries a sequence number
+ * telling whether it is free for the producer holding a ticket or filled for the consumer, so producers
+ * only compete on one compare-and-set and never wait for each other.
+ */
+final class BoundedMpscQueue<E> {
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    // the next ticket handed to a producer
+    private final AtomicLong tail = new AtomicLong();
+    // the next ticket the consumer takes, only touched by the consumer
+    private long head = 0;
+
+    BoundedMpscQueue(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity " + capacity);
+        // rounded up to a power of two, so a ticket maps to its slot with a mask
+        final int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        elements = new Object[size];
+        sequences = new AtomicLongArray(size);
+        mask = size - 1;
+        for (int i = 0; i < size; i++)
+            sequences.set(i, i);
+    }
+
+    /**
+     * @return false, if the queue is full
+     */
+    boolean offer(E element) {
+        long ticket = tail.get();
+        while (true) {
+            final int index = (int) ticket & mask;
+            final long difference = sequences.get(index) - ticket;
+            if (difference == 0) {
+                if (tail.compareAndSet(ticket, ticket + 1)) {
+                    elements[index] = element;
+                    // publishes the element to the consumer
+                    sequences.set(index, ticket + 1);
+                    return true;
+                }
+                ticket = tail.get();
+            }
+            else if (difference < 0)
+                return false;
+            else ticket = tail.get();
+        }
+    }
+
+    /**
+     * Only called by the consumer.
+     * @return the oldest element or {@code null}, if there is none or its producer is still writing it
+     */
+    @SuppressWarnings("unchecked")
+    E poll() {
+        final int index = (int) head & mask;
+        if (sequences.get(index) != head + 1)
+            return null;
+        final E element = (E) elements[index];
+        elements[index] = null;
+        sequences.set(index, head + elements.length);
+        head++;
+        return element;
+    }
+
+    /**
+     * @return the number of elements ever accepted or being written
+     */
+    long offered() {
+        return tail.get();
+    }
+}
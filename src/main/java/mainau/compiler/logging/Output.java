@@ -2,14 +2,126 @@ package mainau.compiler.logging;
 
 import java.io.PrintStream;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
 import static org.fusesource.jansi.Ansi.*;
 
 public class Output {
+    // messages below this level are dropped before they are built, set with -Dmainau.log.level=<type>
+    private static volatile int minimumLevel = MessageType.valueOf(
+            System.getProperty("mainau.log.level", MessageType.DEV.name()).toUpperCase()).ordinal();
+    // ANSI markup is only rendered on terminals, set with -Dmainau.log.ansi=<true|false>
+    private static final boolean ANSI = Boolean.parseBoolean(
+            System.getProperty("mainau.log.ansi", String.valueOf(System.console() != null)));
+
+    private static final Output SIMPLE = new Output();
+
+    // set while messages are written by a background thread, see startAsync
+    private static volatile AsyncSink sink;
+    // closes the sink when the VM exits, removed again by stopAsync
+    private static Thread flushOnExit;
+
+    static {
+        // -Dmainau.log.async=<block|drop> writes in the background from the start
+        final String async = System.getProperty("mainau.log.async");
+        if (async != null)
+            startAsync(AsyncSink.DEFAULT_CAPACITY, AsyncSink.Overflow.valueOf(async.toUpperCase()));
+    }
+
     public static Output output() {
         return new Output();
     }
+
+    public static boolean isEnabled(MessageType type) {
+        return type.ordinal() >= minimumLevel;
+    }
+
+    public static MessageType getMinimumLevel() {
+        return MessageType.values()[minimumLevel];
+    }
+
+    public static void setMinimumLevel(MessageType type) {
+        minimumLevel = type.ordinal();
+    }
+
+    /**
+     * Hands messages to a writer thread from now on, which prints them in batches. Messages of one thread
+     * keep their order, {@code FATAL} ones and the exit of the VM wait until everything sent is printed.
+     * Messages sent while the VM exits, after the writer is stopped, are printed on the sending thread.
+     * Does nothing if messages are already written in the background.
+     * @param overflow what a thread sending a message does while the queue is full
+     */
+    public static synchronized void startAsync(int capacity, AsyncSink.Overflow overflow) {
+        if (sink != null)
+            return;
+        final AsyncSink started = new AsyncSink(capacity, overflow);
+        flushOnExit = new Thread(started::close, "mainau-log-flush");
+        Runtime.getRuntime().addShutdownHook(flushOnExit);
+        sink = started;
+    }
+
+    /**
+     * Prints messages on the sending thread again, after everything sent before was printed.
+     */
+    public static synchronized void stopAsync() {
+        final AsyncSink stopped = sink;
+        sink = null;
+        if (stopped == null)
+            return;
+        try {
+            Runtime.getRuntime().removeShutdownHook(flushOnExit);
+        } catch (IllegalStateException e) {
+            // the VM is already exiting, the hook closes the sink as well
+        }
+        flushOnExit = null;
+        stopped.close();
+    }
+
+    /**
+     * Waits until every message sent so far is printed, which is immediately the case without {@link #startAsync}.
+     */
+    public static void flush() {
+        final AsyncSink async = sink;
+        if (async != null)
+            async.flush();
+    }
+
     public static void simplyLog(MessageType type, String message) {
-        output().send(new Message(type, message));
+        if (isEnabled(type))
+            SIMPLE.send(new Message(type, message));
+    }
+
+    /**
+     * Like {@link #simplyLog(MessageType, String)}, but the message is only built if its type is enabled.
+     */
+    public static void simplyLog(MessageType type, Supplier<String> message) {
+        if (isEnabled(type))
+            SIMPLE.send(new Message(type, message.get()));
+    }
+
+    private record Capture(MessageType minimum, List<Message> messages) {}
+
+    private static final ThreadLocal<Capture> CAPTURE = new ThreadLocal<>();
+
+    /**
+     * Runs the action with all messages sent by the current thread collected instead of printed,
+     * messages below {@code minimum} are dropped. Tasks running in parallel keep their output
+     * apart this way and can still print it in a fixed order afterwards.
+     * @return the collected messages
+     */
+    public static List<Message> capture(MessageType minimum, Runnable action) {
+        final Capture enclosing = CAPTURE.get();
+        final Capture capture = new Capture(minimum, new ArrayList<>());
+        CAPTURE.set(capture);
+        try {
+            action.run();
+        } finally {
+            if (enclosing != null) CAPTURE.set(enclosing);
+            else CAPTURE.remove();
+        }
+        return capture.messages();
     }
 
     private boolean enableTimeDisplay = false, eraseLine = false;
@@ -24,39 +136,80 @@ public class Output {
     }
 
     public void send(MessageType type, String message) {
-        send(new Message(type, message));
+        if (isEnabled(type))
+            send(new Message(type, message));
+    }
+
+    public void send(MessageType type, Supplier<String> message) {
+        if (isEnabled(type))
+            send(new Message(type, message.get()));
     }
 
     public void send(Message message) {
-        boolean isFatal = message.type() == MessageType.FATAL;
-        String color, prefix;
-        PrintStream printStream = !isFatal ? System.out : System.err;
-
-        switch (message.type()) {
-            case DEV -> color = "fg_cyan";
-            case DEBUG, SUGGEST -> color = "fg_green";
-            case WARNING -> color = "fg_yellow";
-            case ERROR -> color = "fg_red";
-            case FATAL -> color = "fg_white,bg_red";
-            case null, default -> {
-                send(new Message(MessageType.FATAL, "Could not determine the message type: " + message.type()));
-                return;
-            }
+        if (message.type() != null && !isEnabled(message.type()))
+            return;
+
+        final Capture capture = CAPTURE.get();
+        if (capture != null) {
+            if (message.type() != null && message.type().compareTo(capture.minimum()) >= 0)
+                capture.messages().add(message);
+            return;
         }
 
+        if (message.type() == null) {
+            send(new Message(MessageType.FATAL, "Could not determine the message type: " + message.type()));
+            return;
+        }
+
+        final String time = enableTimeDisplay ? LocalDateTime.now().toString().replace("T", " T") : null;
+        final AsyncSink async = sink;
+        if (async != null && async.offer(new AsyncSink.Pending(message, time, eraseLine))) {
+            if (message.type() == MessageType.FATAL)
+                async.flush();
+            return;
+        }
+        stream(message.type()).println(render(message, time, eraseLine));
+    }
+
+    static PrintStream stream(MessageType type) {
+        return type != MessageType.FATAL ? System.out : System.err;
+    }
+
+    /**
+     * @param time the time to display or {@code null}
+     * @return the message prefixed with its type on every line, without the line break
+     */
+    static String render(Message message, String time, boolean eraseLine) {
+        final boolean isFatal = message.type() == MessageType.FATAL;
+        final String color = switch (message.type()) {
+            case DEV -> "fg_cyan";
+            case DEBUG, SUGGEST -> "fg_green";
+            case WARNING -> "fg_yellow";
+            case ERROR -> "fg_red";
+            case FATAL -> "fg_white,bg_red";
+        };
+
         final int frontSpace, backSpace, rest;
         rest = 7 - message.type().name().length();
         frontSpace = rest / 2;
         backSpace = frontSpace;
 
-        prefix = !isFatal
+        if (!ANSI) {
+            final StringBuilder prefix = new StringBuilder(32)
+                    .append('[').repeat(' ', frontSpace).append(message.type().name()).repeat(' ', backSpace).append("] ");
+            if (time != null)
+                prefix.append(time).append(" - ");
+            return prefix + message.message().replace("\n", "\n" + prefix);
+        }
+
+        String prefix = !isFatal
                 ? "@|bold,fg_white [|@@|" + color + " " + " ".repeat(frontSpace) + message.type().name() + " ".repeat(backSpace) + "|@@|bold,fg_white ]|@ "
                 : "@|bold,fg_white,bg_red [" + " ".repeat(frontSpace) + message.type().name() + " ".repeat(backSpace) + "]|@ ";
 
-        if (enableTimeDisplay)
-            prefix = prefix + LocalDateTime.now().toString().replace("T", " T") + " - ";
+        if (time != null)
+            prefix = prefix + time + " - ";
 
         final String prefixedMessage = prefix + message.message().replace("\n", "\n" + prefix);
-        printStream.println(eraseLine ? ansi().eraseLine().render(prefixedMessage) : ansi().render(prefixedMessage));
+        return eraseLine ? ansi().eraseLine().render(prefixedMessage).toString() : ansi().render(prefixedMessage).toString();
     }
 }
@@ -0,0 +1,110 @@
+package mainau.compiler.visitor;
+
+import mainau.compiler.ast.AST;
+import mainau.compiler.ast.ASTImpl;
+
+import static mainau.compiler.ast.AST.*;
+
+/**
+ * Counts the nodes of a tree, the node itself included. Function bodies that were not parsed yet
+ * are not counted and stay unparsed.
+ */
+public class NodeCounter implements ASTVisitor<Integer, Void> {
+    private static final NodeCounter INSTANCE = new NodeCounter();
+
+    public static int count(AST.Statement statement) {
+        return statement == null ? 0 : statement.accept(INSTANCE, null);
+    }
+
+    private static int count(AST.Statement[] statements) {
+        int count = 0;
+        for (AST.Statement statement : statements)
+            count += count(statement);
+        return count;
+    }
+
+    @Override
+    public Integer visitStatement(Statement statement, Void unused) {
+        return 1;
+    }
+
+    @Override
+    public Integer visitProgram(Program program, Void unused) {
+        return 1 + count(program.body());
+    }
+
+    @Override
+    public Integer visitObtainStatement(ObtainStatement statement, Void unused) {
+        return 1 + count(statement.targets()) + count(statement.path());
+    }
+
+    @Override
+    public Integer visitVariableDeclarationStatement(VariableDeclarationStatement statement, Void unused) {
+        return 1 + count(statement.variableType()) + count(statement.value());
+    }
+
+    @Override
+    public Integer visitFunctionDeclarationStatement(FunctionDeclarationStatement statement, Void unused) {
+        int count = 1 + count(statement.returnType());
+        if (!(statement instanceof ASTImpl.LazyFunctionDeclarationStatement lazy) || lazy.isParsed())
+            count += count(statement.body());
+        for (FunctionDeclarationStatement.ParameterExpression parameter : statement.arguments())
+            count += 1 + count(parameter.variableType());
+        return count;
+    }
+
+    @Override
+    public Integer visitExpression(Expression expression, Void unused) {
+        return 1;
+    }
+
+    @Override
+    public Integer visitAssignmentExpression(AssignmentExpression expression, Void unused) {
+        return 1 + count(expression.variable()) + count(expression.value());
+    }
+
+    @Override
+    public Integer visitMemberExpression(MemberExpression expression, Void unused) {
+        return 1 + count(expression.parent()) + count(expression.child());
+    }
+
+    @Override
+    public Integer visitFunctionInvocationExpression(FunctionInvocationExpression expression, Void unused) {
+        return 1 + count(expression.identifier()) + count(expression.arguments());
+    }
+
+    @Override
+    public Integer visitBinaryExpression(BinaryExpression expression, Void unused) {
+        return 1 + count(expression.left()) + count(expression.right());
+    }
+
+    @Override
+    public Integer visitLiteralExpression(LiteralExpression expression, Void unused) {
+        return 1;
+    }
+
+    @Override
+    public Integer visitIdentifierLiteralExpression(IdentifierLiteralExpression expression, Void unused) {
+        return 1;
+    }
+
+    @Override
+    public Integer visitNumericLiteralExpression(NumericLiteralExpression expression, Void unused) {
+        return 1;
+    }
+
+    @Override
+    public Integer visitStringLiteralExpression(StringLiteralExpression expression, Void unused) {
+        return 1;
+    }
+
+    @Override
+    public Integer visitCharacterLiteralExpression(CharacterLiteralExpression expression, Void unused) {
+        return 1;
+    }
+
+    @Override
+    public Integer visitNullLiteralExpression(NullLiteralExpression expression, Void unused) {
+        return 1;
+    }
+}
@@ -0,0 +1,53 @@
+package mainau.jit;
+
+import mainau.compiler.interpretation.Frame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Compiles hot functions on one daemon thread while the interpreter keeps running them. Nobody waits for
+ * the bounded queue, a function finding it full is simply not compiled this time.
+ */
+final class BackgroundCompiler {
+    private record Request(Profile profile, Frame globals) {}
+
+    private final BlockingQueue<Request> queue;
+    private final Thread thread;
+
+    BackgroundCompiler(int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.thread = Thread.ofPlatform().daemon().name("mainau-jit-compiler").start(this::run);
+    }
+
+    /**
+     * @return false, if the queue is full
+     */
+    boolean submit(Profile profile, Frame globals) {
+        return queue.offer(new Request(profile, globals));
+    }
+
+    /**
+     * Stops the thread after the function it is compiling.
+     * @return the profiles that were still queued
+     */
+    List<Profile> close() {
+        thread.interrupt();
+        final List<Request> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        return pending.stream().map(Request::profile).toList();
+    }
+
+    private void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                final Request request = queue.take();
+                Jit.compile(request.profile(), request.globals());
+            }
+        } catch (InterruptedException ignored) {
+            // closed
+        }
+    }
+}
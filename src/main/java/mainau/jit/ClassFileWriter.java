@@ -0,0 +1,214 @@
+package mainau.jit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a class file with static fields and static methods, just what the {@link Jit} needs. The classes
+ * have version 49, whose verifier infers the types of the stack itself, so no stack map frames are written.
+ */
+final class ClassFileWriter {
+    static final int ACC_PUBLIC = 0x0001, ACC_STATIC = 0x0008, ACC_FINAL = 0x0010, ACC_SUPER = 0x0020;
+
+    private static final int VERSION = 49;
+    private static final int UTF8 = 1, INTEGER = 3, FLOAT = 4, CLASS = 7, FIELD = 9, METHOD = 10, NAME_AND_TYPE = 12;
+
+    private final String name;
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final DataOutputStream poolOut = new DataOutputStream(pool);
+    private final Map<String, Integer> entries = new HashMap<>();
+    private int poolSize = 1;
+    private final List<byte[]> fields = new ArrayList<>(), methods = new ArrayList<>();
+
+    /**
+     * @param name the internal name of the class, like {@code mainau/jit/Compiled}
+     */
+    ClassFileWriter(String name) {
+        this.name = name;
+    }
+
+    String name() {
+        return name;
+    }
+
+    private int entry(String key, int tag, IOAction content) {
+        final Integer known = entries.get(key);
+        if (known != null)
+            return known;
+        try {
+            poolOut.writeByte(tag);
+            content.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        entries.put(key, poolSize);
+        return poolSize++;
+    }
+
+    private interface IOAction {
+        void run() throws IOException;
+    }
+
+    int utf8(String value) {
+        return entry("U" + value, UTF8, () -> poolOut.writeUTF(value));
+    }
+
+    int classRef(String internalName) {
+        final int nameIndex = utf8(internalName);
+        return entry("C" + internalName, CLASS, () -> poolOut.writeShort(nameIndex));
+    }
+
+    private int nameAndType(String name, String descriptor) {
+        final int nameIndex = utf8(name), descriptorIndex = utf8(descriptor);
+        return entry("N" + name + ' ' + descriptor, NAME_AND_TYPE, () -> {
+            poolOut.writeShort(nameIndex);
+            poolOut.writeShort(descriptorIndex);
+        });
+    }
+
+    int fieldRef(String owner, String name, String descriptor) {
+        final int ownerIndex = classRef(owner), nameAndType = nameAndType(name, descriptor);
+        return entry("F" + owner + '.' + name + ' ' + descriptor, FIELD, () -> {
+            poolOut.writeShort(ownerIndex);
+            poolOut.writeShort(nameAndType);
+        });
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        final int ownerIndex = classRef(owner), nameAndType = nameAndType(name, descriptor);
+        return entry("M" + owner + '.' + name + ' ' + descriptor, METHOD, () -> {
+            poolOut.writeShort(ownerIndex);
+            poolOut.writeShort(nameAndType);
+        });
+    }
+
+    int floatConstant(float value) {
+        return entry("f" + Float.floatToRawIntBits(value), FLOAT, () -> poolOut.writeFloat(value));
+    }
+
+    int integerConstant(int value) {
+        return entry("i" + value, INTEGER, () -> poolOut.writeInt(value));
+    }
+
+    void field(int access, String name, String descriptor) {
+        final ByteArrayOutputStream field = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(field);
+        try {
+            out.writeShort(access);
+            out.writeShort(utf8(name));
+            out.writeShort(utf8(descriptor));
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        fields.add(field.toByteArray());
+    }
+
+    void method(int access, String name, String descriptor, Code code) {
+        final ByteArrayOutputStream method = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(method);
+        final byte[] instructions = code.toByteArray();
+        try {
+            out.writeShort(access);
+            out.writeShort(utf8(name));
+            out.writeShort(utf8(descriptor));
+            out.writeShort(1);
+            out.writeShort(utf8("Code"));
+            out.writeInt(12 + instructions.length);
+            out.writeShort(code.maxStack());
+            out.writeShort(code.maxLocals());
+            out.writeInt(instructions.length);
+            out.write(instructions);
+            // no exception table and no attributes
+            out.writeShort(0);
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        methods.add(method.toByteArray());
+    }
+
+    byte[] toByteArray() {
+        final int thisClass = classRef(name), superClass = classRef("java/lang/Object");
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+            out.writeShort(poolSize);
+            pool.writeTo(out);
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0);
+            out.writeShort(fields.size());
+            for (byte[] field : fields)
+                out.write(field);
+            out.writeShort(methods.size());
+            for (byte[] method : methods)
+                out.write(method);
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * The instructions of a method, it keeps track of the stack depth with the effect the caller gives.
+     */
+    static final class Code {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private int depth = 0, maxStack = 0, maxLocals;
+
+        Code(int maxLocals) {
+            this.maxLocals = maxLocals;
+        }
+
+        private void adjust(int stackEffect) {
+            depth += stackEffect;
+            maxStack = Math.max(maxStack, depth);
+        }
+
+        void op(int opcode, int stackEffect) {
+            bytes.write(opcode);
+            adjust(stackEffect);
+        }
+
+        void op1(int opcode, int operand, int stackEffect) {
+            bytes.write(opcode);
+            bytes.write(operand);
+            adjust(stackEffect);
+        }
+
+        void op2(int opcode, int operand, int stackEffect) {
+            bytes.write(opcode);
+            bytes.write(operand >> 8);
+            bytes.write(operand);
+            adjust(stackEffect);
+        }
+
+        void useLocal(int slot) {
+            maxLocals = Math.max(maxLocals, slot + 1);
+        }
+
+        int maxStack() {
+            return maxStack;
+        }
+
+        int maxLocals() {
+            return maxLocals;
+        }
+
+        byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package mainau.jit;
+
+import java.lang.invoke.MethodHandle;
+
+/**
+ * A function compiled to a hidden class, it takes and returns numbers.
+ */
+public final class CompiledFunction {
+    private final String name;
+    private final int parameters;
+    // (float[]) float, it spreads the array over the parameters
+    private final MethodHandle entry;
+
+    CompiledFunction(String name, int parameters, MethodHandle entry) {
+        this.name = name;
+        this.parameters = parameters;
+        this.entry = entry;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int parameters() {
+        return parameters;
+    }
+
+    /**
+     * @throws Deoptimization if the code is no longer valid, the call has to be interpreted
+     */
+    public float invoke(float[] arguments) {
+        try {
+            return (float) entry.invokeExact(arguments);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Compiled function '" + name + "' failed", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledFunction(name=" + name + ",parameters=" + parameters + ")";
+    }
+}
@@ -0,0 +1,14 @@
+package mainau.jit;
+
+/**
+ * Thrown by compiled code when an assumption it was compiled under no longer holds, like a called
+ * function that was redeclared. Compiled code has no side effects, so the call is simply run again
+ * by the interpreter.
+ */
+public final class Deoptimization extends RuntimeException {
+    static final Deoptimization INSTANCE = new Deoptimization();
+
+    private Deoptimization() {
+        super(null, null, false, false);
+    }
+}
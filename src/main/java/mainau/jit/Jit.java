@@ -0,0 +1,153 @@
+package mainau.jit;
+
+import mainau.compiler.ast.ASTImpl;
+import mainau.compiler.interpretation.Frame;
+import mainau.compiler.interpretation.Globals;
+import mainau.compiler.logging.MessageType;
+import mainau.compiler.logging.Output;
+import mainau.repl.runtime.ValuesImpl;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Compiles global functions of the tree-walking interpreter to JVM bytecode, see {@link Lowering}, and
+ * loads each as a hidden class, so HotSpot compiles hot Mainau code like any Java method. Every function
+ * starts out interpreted, the interpreter counts its calls and once it is hot, as the {@link TierPolicy}
+ * defines, it is compiled in the background and later calls run the compiled code. Functions that cannot
+ * be lowered stay interpreted, the same goes for calls with arguments other than numbers. Profiles and code
+ * belong to the session whose globals they were compiled against, see {@link Profiles}.
+ */
+public final class Jit {
+    // set with -Dmainau.jit=<true|false>
+    private static volatile boolean enabled = Boolean.getBoolean("mainau.jit");
+    private static volatile TierPolicy policy = TierPolicy.fromProperties();
+    // after that many deoptimizations a function stays interpreted
+    private static final int MAX_DEOPTIMIZATIONS = 3;
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType ENTRY_TYPE = MethodType.methodType(float.class, float[].class);
+
+    // started with the first hot function
+    private static BackgroundCompiler compiler;
+
+    private Jit() {}
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        Jit.enabled = enabled;
+    }
+
+    public static TierPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Functions waiting for the compiler go back to the interpreter, they are queued again once they are hot
+     * under the new policy.
+     */
+    public static synchronized void setPolicy(TierPolicy policy) {
+        Jit.policy = policy;
+        if (compiler == null)
+            return;
+        for (Profile profile : compiler.close())
+            profile.transition(Tier.QUEUED, Tier.INTERPRETED, "the policy changed", policy);
+        compiler = null;
+    }
+
+    /**
+     * @return the tier of the function in the session, {@link Tier#INTERPRETED} if it was never called there
+     */
+    public static Tier tier(Globals globals, ASTImpl.FunctionDeclarationStatement function) {
+        final Profile profile = globals.profiles().get(function);
+        return profile != null ? profile.tier() : Tier.INTERPRETED;
+    }
+
+    /**
+     * Counts the call and runs it with compiled code, if there is some for the function.
+     * @param globals the globals of the session the callee was declared in
+     * @param call the frame of the call, its first slots hold the arguments
+     * @param recursive whether the function calls itself, which is counted as a back edge
+     * @return the result or {@code null}, if the call has to be interpreted
+     */
+    public static ValuesImpl.RuntimeValue invoke(Globals globals, ValuesImpl.FunctionValue callee, ASTImpl.FunctionDeclarationStatement function,
+                                                 Frame call, int arguments, boolean recursive) {
+        if (!callee.closure().isGlobal())
+            return null;
+        final Profiles profiles = globals.profiles();
+        final Profile profile = profiles.of(function);
+
+        final CompiledFunction code = profile.code;
+        if (code != null)
+            return invoke(code, profile, call, arguments);
+
+        final TierPolicy policy = Jit.policy;
+        final Tier tier = profile.tier();
+        if ((tier == Tier.INTERPRETED || tier == Tier.COMPILED) && profile.count(recursive, policy))
+            promote(profile, tier, profiles.globals, policy);
+        return null;
+    }
+
+    private static ValuesImpl.RuntimeValue invoke(CompiledFunction code, Profile profile, Frame call, int arguments) {
+        final float[] numbers = new float[arguments];
+        for (int i = 0; i < arguments; i++) {
+            if (!(call.get(i) instanceof ValuesImpl.NumberValue number))
+                return null;
+            numbers[i] = number.value();
+        }
+        try {
+            return new ValuesImpl.NumberValue(code.invoke(numbers));
+        } catch (Deoptimization e) {
+            profile.deoptimize(MAX_DEOPTIMIZATIONS, policy);
+            return null;
+        }
+    }
+
+    private static void promote(Profile profile, Tier tier, Frame globals, TierPolicy policy) {
+        final String reason = profile.backEdges >= policy.backEdges()
+                ? profile.backEdges + " back edges"
+                : profile.invocations + " invocations";
+        if (!profile.transition(tier, Tier.QUEUED, reason, policy))
+            return;
+        if (!policy.background())
+            compile(profile, globals);
+        else if (!compiler().submit(profile, globals))
+            profile.transition(Tier.QUEUED, tier, "the compile queue is full", policy);
+    }
+
+    private static synchronized BackgroundCompiler compiler() {
+        if (compiler == null)
+            compiler = new BackgroundCompiler(policy.queueSize());
+        return compiler;
+    }
+
+    // called on the compiler thread unless the policy compiles in the foreground
+    static void compile(Profile profile, Frame globals) {
+        final ASTImpl.FunctionDeclarationStatement function = profile.function;
+        final long start = System.nanoTime();
+        try {
+            final Lowering.Result lowered = Lowering.lower(function, globals);
+            final MethodHandles.Lookup lookup = LOOKUP.defineHiddenClass(lowered.classFile(), true);
+            lookup.findStaticVarHandle(lookup.lookupClass(), Lowering.DATA, Object[].class).set(lowered.data());
+            final MethodHandle entry = lookup.findStatic(lookup.lookupClass(), Lowering.ENTRY, ENTRY_TYPE);
+            profile.code = new CompiledFunction(function.identifierSymbol(), function.arguments().size(), entry);
+            profile.transition(Tier.QUEUED, Tier.COMPILED,
+                    String.format("compiled to JVM bytecode in %.1f ms", (System.nanoTime() - start) / 1e6), policy);
+        } catch (Lowering.Unsupported e) {
+            profile.transition(Tier.QUEUED, Tier.NOT_COMPILABLE, e.getMessage(), policy);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            Output.simplyLog(MessageType.WARNING, () -> "Compiling '" + function.identifierSymbol() + "' failed: " + e);
+            profile.transition(Tier.QUEUED, Tier.NOT_COMPILABLE, "compiling failed", policy);
+        }
+    }
+
+    // called by compiled code
+    static void guard(Object actual, Object expected) {
+        if (actual != expected)
+            throw Deoptimization.INSTANCE;
+    }
+}
@@ -0,0 +1,273 @@
+package mainau.jit;
+
+import mainau.compiler.analysis.lexical.Operator;
+import mainau.compiler.ast.AST;
+import mainau.compiler.ast.ASTImpl;
+import mainau.compiler.interpretation.Frame;
+import mainau.repl.runtime.ValuesImpl;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lowers a global function and the global functions it calls to static methods of one class. Numbers are
+ * JVM floats, as in the interpreter, so {@code a + b} becomes an {@code fadd}. Only code that works on
+ * numbers and the function's own variables is lowered, which leaves it without side effects: a call is
+ * guarded by a check that the global still holds the function it was compiled against, and if it does not,
+ * the compiled code gives up with a {@link Deoptimization}. Anything else is {@link Unsupported}.
+ */
+final class Lowering {
+    static final String NAME = "mainau/jit/Compiled", DATA = "DATA", DATA_DESCRIPTOR = "[Ljava/lang/Object;";
+    static final String ENTRY = "enter", ENTRY_DESCRIPTOR = "([F)F";
+    private static final String FRAME = "mainau/compiler/interpretation/Frame";
+    private static final String FRAME_GET = "(I)Lmainau/repl/runtime/ValuesImpl$RuntimeValue;";
+    private static final String GUARD = "(Ljava/lang/Object;Ljava/lang/Object;)V";
+
+    // the JVM instructions used
+    private static final int ICONST_0 = 0x03, FCONST_0 = 0x0b, BIPUSH = 0x10, SIPUSH = 0x11, LDC = 0x12, LDC_W = 0x13,
+            FLOAD = 0x17, FLOAD_0 = 0x22, ALOAD_0 = 0x2a, FALOAD = 0x30, AALOAD = 0x32, FSTORE = 0x38, FSTORE_0 = 0x43,
+            POP = 0x57, DUP = 0x59, FADD = 0x62, FSUB = 0x66, FMUL = 0x6a, FDIV = 0x6e, FREM = 0x72,
+            ISHL = 0x78, ISHR = 0x7a, IAND = 0x7e, IOR = 0x80, I2F = 0x86, F2I = 0x8b, F2D = 0x8d, D2F = 0x90,
+            FRETURN = 0xae, GETSTATIC = 0xb2, INVOKEVIRTUAL = 0xb6, INVOKESTATIC = 0xb8, CHECKCAST = 0xc0;
+
+    /**
+     * Thrown when a function cannot be lowered yet, it stays interpreted.
+     */
+    static final class Unsupported extends Exception {
+        Unsupported(String reason) {
+            super(reason, null, false, false);
+        }
+    }
+
+    /**
+     * @param data the values of the class's {@code DATA} field, the global frame first
+     */
+    record Result(byte[] classFile, Object[] data) {}
+
+    private final Frame globals;
+    private final ClassFileWriter writer = new ClassFileWriter(NAME);
+    // the functions of the class, method m<i> is the i-th, the root is m0
+    private final List<ASTImpl.FunctionDeclarationStatement> functions = new ArrayList<>();
+    private final Map<ASTImpl.FunctionDeclarationStatement, Integer> methods = new IdentityHashMap<>();
+    private final List<Object> data = new ArrayList<>();
+
+    private Lowering(Frame globals) {
+        this.globals = globals;
+        data.add(globals);
+    }
+
+    /**
+     * @param root a function declared at the top level of the session whose frame is given
+     */
+    static Result lower(ASTImpl.FunctionDeclarationStatement root, Frame globals) throws Unsupported {
+        final Lowering lowering = new Lowering(globals);
+        lowering.method(root);
+        // the list grows while the functions are lowered
+        for (int i = 0; i < lowering.functions.size(); i++)
+            lowering.lowerFunction(i);
+        lowering.entry(root.arguments().size());
+        lowering.writer.field(ClassFileWriter.ACC_STATIC, DATA, DATA_DESCRIPTOR);
+        return new Result(lowering.writer.toByteArray(), lowering.data.toArray());
+    }
+
+    private int method(ASTImpl.FunctionDeclarationStatement function) {
+        final Integer known = methods.get(function);
+        if (known != null)
+            return known;
+        functions.add(function);
+        methods.put(function, functions.size() - 1);
+        return functions.size() - 1;
+    }
+
+    private static String descriptor(int parameters) {
+        return "(" + "F".repeat(parameters) + ")F";
+    }
+
+    private void entry(int parameters) {
+        final ClassFileWriter.Code code = new ClassFileWriter.Code(1);
+        for (int i = 0; i < parameters; i++) {
+            code.op(ALOAD_0, 1);
+            pushInt(code, i);
+            code.op(FALOAD, -1);
+        }
+        code.op2(INVOKESTATIC, writer.methodRef(NAME, "m0", descriptor(parameters)), 1 - parameters);
+        code.op(FRETURN, -1);
+        writer.method(ClassFileWriter.ACC_PUBLIC | ClassFileWriter.ACC_STATIC, ENTRY, ENTRY_DESCRIPTOR, code);
+    }
+
+    private void lowerFunction(int index) throws Unsupported {
+        final ASTImpl.FunctionDeclarationStatement function = functions.get(index);
+        final int parameters = function.arguments().size();
+        if (function.frameSize() > 255)
+            throw new Unsupported("'" + function.identifierSymbol() + "' has too many variables");
+        final AST.Statement[] body = function.body();
+        if (body.length == 0)
+            throw new Unsupported("'" + function.identifierSymbol() + "' returns null");
+
+        final ClassFileWriter.Code code = new ClassFileWriter.Code(Math.max(parameters, function.frameSize()));
+        for (int i = 0; i < body.length; i++) {
+            if (i > 0)
+                code.op(POP, -1);
+            statement(code, body[i]);
+        }
+        code.op(FRETURN, -1);
+        writer.method(ClassFileWriter.ACC_STATIC, "m" + index, descriptor(parameters), code);
+    }
+
+    private void statement(ClassFileWriter.Code code, AST.Statement statement) throws Unsupported {
+        if (statement instanceof ASTImpl.VariableDeclarationStatement declaration) {
+            if (declaration.value() == null)
+                throw new Unsupported("'" + declaration.identifierSymbol() + "' is declared without a value");
+            expression(code, declaration.value());
+            store(code, declaration.slot());
+        }
+        else if (statement instanceof AST.FunctionDeclarationStatement nested)
+            throw new Unsupported("nested function '" + nested.identifierSymbol() + "'");
+        else if (statement instanceof AST.Expression expression)
+            expression(code, expression);
+        else throw new Unsupported("statement " + statement.getClass().getSimpleName());
+    }
+
+    private void expression(ClassFileWriter.Code code, AST.Expression expression) throws Unsupported {
+        switch (expression) {
+            case AST.NumericLiteralExpression number -> pushFloat(code, number.value());
+            case ASTImpl.IdentifierLiteralExpression identifier -> {
+                if (identifier.depth() != 0)
+                    throw new Unsupported("'" + identifier.symbol() + "' is not a variable of the function");
+                load(code, identifier.slot());
+            }
+            case AST.AssignmentExpression assignment -> {
+                if (!(assignment.variable() instanceof ASTImpl.IdentifierLiteralExpression identifier) || identifier.depth() != 0)
+                    throw new Unsupported("assignment to " + assignment.variable() + " has side effects");
+                final Operator compounded = assignment.operator().compounded();
+                if (compounded == null)
+                    expression(code, assignment.value());
+                else binary(code, compounded, identifier, assignment.value());
+                store(code, identifier.slot());
+            }
+            case AST.BinaryExpression binary -> binary(code, binary.operator(), binary.left(), binary.right());
+            case AST.FunctionInvocationExpression invocation -> invocation(code, invocation);
+            default -> throw new Unsupported("expression " + expression.getClass().getSimpleName());
+        }
+    }
+
+    private void binary(ClassFileWriter.Code code, Operator operator, AST.Expression left, AST.Expression right) throws Unsupported {
+        switch (operator) {
+            case ADD, SUBTRACT, MULTIPLY, DIVIDE, MODULO -> {
+                expression(code, left);
+                expression(code, right);
+                code.op(switch (operator) {
+                    case ADD -> FADD;
+                    case SUBTRACT -> FSUB;
+                    case MULTIPLY -> FMUL;
+                    case DIVIDE -> FDIV;
+                    default -> FREM;
+                }, -1);
+            }
+            case POWER -> {
+                expression(code, left);
+                code.op(F2D, 1);
+                expression(code, right);
+                code.op(F2D, 1);
+                code.op2(INVOKESTATIC, writer.methodRef("java/lang/Math", "pow", "(DD)D"), -2);
+                code.op(D2F, -1);
+            }
+            case BIT_AND, BIT_OR, SHIFT_LEFT, SHIFT_RIGHT -> {
+                expression(code, left);
+                code.op(F2I, 0);
+                expression(code, right);
+                code.op(F2I, 0);
+                code.op(switch (operator) {
+                    case BIT_AND -> IAND;
+                    case BIT_OR -> IOR;
+                    case SHIFT_LEFT -> ISHL;
+                    default -> ISHR;
+                }, -1);
+                code.op(I2F, 0);
+            }
+            default -> throw new Unsupported("operator " + operator.text() + " does not return a number");
+        }
+    }
+
+    private void invocation(ClassFileWriter.Code code, AST.FunctionInvocationExpression invocation) throws Unsupported {
+        final AST.Expression[] arguments = invocation.arguments();
+        // the functions are global, so the globals are one scope up
+        if (!(invocation.identifier() instanceof ASTImpl.IdentifierLiteralExpression identifier) || identifier.depth() != 1)
+            throw new Unsupported("call of " + invocation.identifier() + ", which is not a global function");
+        if (!(globals.get(identifier.slot()) instanceof ValuesImpl.FunctionValue callee) || !callee.closure().isGlobal())
+            throw new Unsupported("'" + identifier.symbol() + "' is not a global function");
+        final ASTImpl.FunctionDeclarationStatement target = callee.overload(arguments.length);
+        if (target == null)
+            throw new Unsupported("'" + identifier.symbol() + "' takes no " + arguments.length + " arguments");
+        // a lazy body is parsed and resolved by its first call, not on the compiler thread
+        if (target.frameSize() < 0)
+            throw new Unsupported("'" + identifier.symbol() + "' was not called yet");
+
+        guard(code, identifier.slot(), callee);
+        for (AST.Expression argument : arguments)
+            expression(code, argument);
+        code.op2(INVOKESTATIC, writer.methodRef(NAME, "m" + method(target), descriptor(arguments.length)), 1 - arguments.length);
+    }
+
+    /**
+     * Deoptimizes, unless the global slot still holds the value.
+     */
+    private void guard(ClassFileWriter.Code code, int slot, Object expected) {
+        int index = 0;
+        while (index < data.size() && data.get(index) != expected)
+            index++;
+        if (index == data.size())
+            data.add(expected);
+
+        final int field = writer.fieldRef(NAME, DATA, DATA_DESCRIPTOR);
+        code.op2(GETSTATIC, field, 1);
+        code.op(ICONST_0, 1);
+        code.op(AALOAD, -1);
+        code.op2(CHECKCAST, writer.classRef(FRAME), 0);
+        pushInt(code, slot);
+        code.op2(INVOKEVIRTUAL, writer.methodRef(FRAME, "get", FRAME_GET), -1);
+        code.op2(GETSTATIC, field, 1);
+        pushInt(code, index);
+        code.op(AALOAD, -1);
+        code.op2(INVOKESTATIC, writer.methodRef("mainau/jit/Jit", "guard", GUARD), -2);
+    }
+
+    private static void load(ClassFileWriter.Code code, int slot) {
+        if (slot <= 3)
+            code.op(FLOAD_0 + slot, 1);
+        else code.op1(FLOAD, slot, 1);
+    }
+
+    // keeps the value, the statement evaluates to it
+    private static void store(ClassFileWriter.Code code, int slot) {
+        code.op(DUP, 1);
+        code.useLocal(slot);
+        if (slot <= 3)
+            code.op(FSTORE_0 + slot, -1);
+        else code.op1(FSTORE, slot, -1);
+    }
+
+    private void pushFloat(ClassFileWriter.Code code, float value) {
+        if (Float.floatToRawIntBits(value) == 0 || value == 1 || value == 2)
+            code.op(FCONST_0 + (int) value, 1);
+        else constant(code, writer.floatConstant(value));
+    }
+
+    private void pushInt(ClassFileWriter.Code code, int value) {
+        if (value >= -1 && value <= 5)
+            code.op(ICONST_0 + value, 1);
+        else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE)
+            code.op1(BIPUSH, value, 1);
+        else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE)
+            code.op2(SIPUSH, value, 1);
+        else constant(code, writer.integerConstant(value));
+    }
+
+    private static void constant(ClassFileWriter.Code code, int index) {
+        if (index <= 255)
+            code.op1(LDC, index, 1);
+        else code.op2(LDC_W, index, 1);
+    }
+}
@@ -0,0 +1,58 @@
+package mainau.jit;
+
+import mainau.compiler.ast.ASTImpl;
+import mainau.compiler.logging.Output;
+
+/**
+ * What the {@link Jit} knows about one function in one session, see {@link Profiles}: how often it was called,
+ * its tier and its code compiled against the globals of the session.
+ */
+final class Profile {
+    final ASTImpl.FunctionDeclarationStatement function;
+    // counted without synchronization, a lost count only delays the promotion
+    int invocations = 0, backEdges = 0;
+    volatile CompiledFunction code;
+    private volatile Tier tier = Tier.INTERPRETED;
+    private int deoptimizations = 0;
+
+    Profile(ASTImpl.FunctionDeclarationStatement function) {
+        this.function = function;
+    }
+
+    Tier tier() {
+        return tier;
+    }
+
+    /**
+     * @return whether the function became hot with this call
+     */
+    boolean count(boolean recursive, TierPolicy policy) {
+        return recursive ? ++backEdges >= policy.backEdges() : ++invocations >= policy.invocations();
+    }
+
+    /**
+     * Moves the function to another tier, if it still is in the expected one.
+     * @return whether it moved
+     */
+    synchronized boolean transition(Tier from, Tier to, String reason, TierPolicy policy) {
+        if (tier != from)
+            return false;
+        tier = to;
+        if (to == Tier.QUEUED)
+            invocations = backEdges = 0;
+        Output.simplyLog(policy.transitions(), () -> "'" + function.identifierSymbol() + "' " + from.name().toLowerCase()
+                + " -> " + to.name().toLowerCase() + ": " + reason);
+        return true;
+    }
+
+    /**
+     * Drops the compiled code, the function is interpreted until it gets hot again, unless it was
+     * deoptimized too often.
+     */
+    synchronized void deoptimize(int limit, TierPolicy policy) {
+        code = null;
+        deoptimizations++;
+        transition(Tier.COMPILED, deoptimizations < limit ? Tier.INTERPRETED : Tier.NOT_COMPILABLE,
+                "deoptimized " + deoptimizations + " times", policy);
+    }
+}
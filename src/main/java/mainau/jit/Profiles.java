@@ -0,0 +1,34 @@
+package mainau.jit;
+
+import mainau.compiler.ast.ASTImpl;
+import mainau.compiler.interpretation.Frame;
+import mainau.compiler.interpretation.Globals;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@link Profile}s of the functions of one session, kept by its {@link Globals}. The code of a function is
+ * compiled against the global frame of the session, so the profiles and the code go away with the session and
+ * a tree evaluated in several sessions is counted and compiled for each of them.
+ */
+public final class Profiles {
+    private final Map<ASTImpl.FunctionDeclarationStatement, Profile> profiles = new ConcurrentHashMap<>();
+    final Frame globals;
+
+    public Profiles(Frame globals) {
+        this.globals = globals;
+    }
+
+    /**
+     * @return the profile of the function or {@code null}, if it was never called
+     */
+    Profile get(ASTImpl.FunctionDeclarationStatement function) {
+        return profiles.get(function);
+    }
+
+    Profile of(ASTImpl.FunctionDeclarationStatement function) {
+        final Profile profile = profiles.get(function);
+        return profile != null ? profile : profiles.computeIfAbsent(function, Profile::new);
+    }
+}
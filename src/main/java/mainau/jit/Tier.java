@@ -0,0 +1,15 @@
+package mainau.jit;
+
+/**
+ * Where the calls of a function run, see {@link TierPolicy} for when a function moves up.
+ */
+public enum Tier {
+    /** calls are interpreted and counted */
+    INTERPRETED,
+    /** the function is hot and waits for the compiler, its calls are still interpreted */
+    QUEUED,
+    /** calls run compiled code */
+    COMPILED,
+    /** the function cannot be compiled or was deoptimized too often, its calls are interpreted and no longer counted */
+    NOT_COMPILABLE
+}
@@ -0,0 +1,37 @@
+package mainau.jit;
+
+import mainau.compiler.logging.MessageType;
+
+/**
+ * When the {@link Jit} moves a function from the interpreter to compiled code. A function is queued for
+ * compilation once other functions called it {@code invocations} times or it called itself {@code backEdges}
+ * times, so code that runs only a few times never pays for compiling it. At most {@code queueSize} functions
+ * wait for the compiler, a hot function finding the queue full stays interpreted and is counted again.
+ * @param background whether functions are compiled on a compiler thread, otherwise the thread calling them compiles them
+ * @param transitions the type tier transitions are logged with
+ */
+public record TierPolicy(int invocations, int backEdges, int queueSize, boolean background, MessageType transitions) {
+    public static final TierPolicy DEFAULT = new TierPolicy(1000, 10_000, 64, true, MessageType.DEV);
+
+    public TierPolicy {
+        if (invocations < 0 || backEdges < 0)
+            throw new IllegalArgumentException("thresholds " + invocations + ", " + backEdges);
+        if (queueSize < 1)
+            throw new IllegalArgumentException("queue size " + queueSize);
+    }
+
+    /**
+     * The default policy with every value overridden by its property: {@code -Dmainau.jit.invocations=<n>},
+     * {@code -Dmainau.jit.backEdges=<n>}, {@code -Dmainau.jit.queue=<n>}, {@code -Dmainau.jit.background=<true|false>}
+     * and {@code -Dmainau.jit.log=<type>}.
+     */
+    public static TierPolicy fromProperties() {
+        return new TierPolicy(
+                Integer.getInteger("mainau.jit.invocations", DEFAULT.invocations),
+                Integer.getInteger("mainau.jit.backEdges", DEFAULT.backEdges),
+                Integer.getInteger("mainau.jit.queue", DEFAULT.queueSize),
+                Boolean.parseBoolean(System.getProperty("mainau.jit.background", String.valueOf(DEFAULT.background))),
+                MessageType.valueOf(System.getProperty("mainau.jit.log", DEFAULT.transitions.name()).toUpperCase())
+        );
+    }
+}
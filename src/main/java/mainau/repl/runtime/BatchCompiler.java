@@ -0,0 +1,233 @@
+package mainau.repl.runtime;
+
+import mainau.compiler.analysis.lexical.SourceFile;
+import mainau.compiler.ast.AST;
+import mainau.compiler.ast.ASTImpl;
+import mainau.compiler.cache.ASTCache;
+import mainau.compiler.instrumentation.Instrumentation;
+import mainau.compiler.logging.Message;
+import mainau.compiler.logging.MessageType;
+import mainau.compiler.logging.Output;
+import mainau.compiler.visitor.NodeCounter;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+
+/**
+ * Compiles many files at once, one {@link ProcessTask} per file on a work stealing {@link ForkJoinPool}.
+ * <p>
+ * Everything a file's pipeline touches is created for that file alone: its {@link SourceFile},
+ * lexer, parser, {@link mainau.compiler.error.ErrorStorage} and {@link Session}. The messages it
+ * logs are captured on its thread through {@link Output#capture(MessageType, Runnable)} and printed
+ * once all files are done, in the order of the paths, so the output does not depend on scheduling.
+ */
+public final class BatchCompiler {
+    public static final String EXTENSION = ".mainau";
+
+    // larger files are mapped instead of read, so their size does not matter
+    private static final long MAPPING_THRESHOLD = 64 << 20;
+
+    // the lowest message type replayed for a file
+    private static final MessageType MESSAGE_LEVEL = MessageType.WARNING;
+
+    /**
+     * The outcome of compiling one file, {@code program} is {@code null} if the file could not be read.
+     * Cached programs were not lexed, their token count is 0.
+     */
+    public record Result(Path path, AST.Program program, List<mainau.compiler.error.Error> errors,
+                         List<Message> messages, int tokens, int nodes, boolean cached) {
+        public boolean failed() {
+            return program == null || !errors.isEmpty();
+        }
+    }
+
+    private BatchCompiler() {}
+
+    /**
+     * Compiles the files named by the arguments and prints their diagnostics and the throughput.
+     * {@code --cache <directory>} reuses and stores the trees of unchanged files in an {@link ASTCache},
+     * {@code --stats} prints the time and allocations of every phase at the end, see {@link Instrumentation}.
+     * @return the number of files that failed to compile
+     */
+    public static int run(List<String> arguments) throws IOException {
+        ASTCache cache = null;
+        final int cacheOption = arguments.indexOf("--cache");
+        if (cacheOption >= 0 && cacheOption + 1 < arguments.size()) {
+            cache = new ASTCache(Path.of(arguments.get(cacheOption + 1)));
+            arguments = new ArrayList<>(arguments);
+            arguments.subList(cacheOption, cacheOption + 2).clear();
+        }
+        final boolean printStatistics = arguments.contains("--stats");
+        if (printStatistics) {
+            arguments = new ArrayList<>(arguments);
+            arguments.remove("--stats");
+        }
+
+        final List<Path> paths = collectSources(arguments);
+        if (paths.isEmpty()) {
+            Output.simplyLog(MessageType.WARNING, "No " + EXTENSION + " files found in " + arguments);
+            return 0;
+        }
+
+        final int parallelism = Runtime.getRuntime().availableProcessors();
+        final long start = System.nanoTime();
+        final List<Result> results;
+        // the files only keep their warnings and errors, lower messages need not be built at all
+        final MessageType level = Output.getMinimumLevel();
+        if (level.compareTo(MESSAGE_LEVEL) < 0)
+            Output.setMinimumLevel(MESSAGE_LEVEL);
+        try (ForkJoinPool pool = new ForkJoinPool(parallelism)) {
+            results = compile(paths, cache, pool);
+        } finally {
+            Output.setMinimumLevel(level);
+        }
+        final double seconds = (System.nanoTime() - start) / 1e9;
+
+        long tokens = 0, nodes = 0;
+        int failed = 0, cached = 0;
+        for (Result result : results) {
+            result.messages().forEach(Output.output()::send);
+            tokens += result.tokens();
+            nodes += result.nodes();
+            if (result.failed()) failed++;
+            if (result.cached()) cached++;
+        }
+
+        Output.flush();
+        System.out.printf("Compiled %d files (%d failed, %d cached) on %d threads in %.3f s: %.1f files/s, %.0f tokens/s, %.0f AST nodes/s%n",
+                results.size(), failed, cached, parallelism, seconds,
+                results.size() / seconds, tokens / seconds, nodes / seconds);
+        if (printStatistics)
+            System.out.print(Instrumentation.report());
+        return failed;
+    }
+
+    /**
+     * @param cache where unchanged files are looked up and parsed ones stored, may be {@code null}
+     * @return the results in the order of the given paths
+     */
+    public static List<Result> compile(List<Path> paths, ASTCache cache, ForkJoinPool pool) {
+        final List<FileTask> tasks = new ArrayList<>(paths.size());
+        for (Path path : paths)
+            tasks.add(new FileTask(path, cache));
+
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                ForkJoinTask.invokeAll(tasks);
+            }
+        });
+
+        final List<Result> results = new ArrayList<>(tasks.size());
+        for (FileTask task : tasks)
+            results.add(task.result);
+        return results;
+    }
+
+    /**
+     * Resolves files, directories, which are searched recursively, and glob patterns like
+     * {@code src/**}{@code /*.mainau} to a sorted list of distinct source files.
+     */
+    public static List<Path> collectSources(List<String> arguments) throws IOException {
+        final TreeSet<Path> paths = new TreeSet<>();
+        for (String argument : arguments) {
+            final int wildcard = indexOfWildcard(argument);
+            if (wildcard < 0) {
+                final Path path = Path.of(argument);
+                if (Files.isDirectory(path)) walk(path, file -> file.toString().endsWith(EXTENSION), paths);
+                else paths.add(path.normalize());
+                continue;
+            }
+
+            // everything in front of the segment holding the first wildcard is a plain directory
+            final int separator = argument.lastIndexOf('/', wildcard);
+            final Path base = Path.of(separator < 0 ? "" : argument.substring(0, separator));
+            final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + argument);
+            walk(base, matcher::matches, paths);
+        }
+        return new ArrayList<>(paths);
+    }
+
+    private static int indexOfWildcard(String argument) {
+        for (int index = 0; index < argument.length(); index++)
+            switch (argument.charAt(index)) {
+                case '*', '?', '[', '{' -> {
+                    return index;
+                }
+            }
+        return -1;
+    }
+
+    private static void walk(Path base, PathMatcher matcher, TreeSet<Path> paths) throws IOException {
+        if (!Files.isDirectory(base.toString().isEmpty() ? Path.of(".") : base))
+            return;
+        try (Stream<Path> files = Files.walk(base)) {
+            files.filter(Files::isRegularFile).filter(matcher::matches).map(Path::normalize).forEach(paths::add);
+        }
+    }
+
+    static SourceFile openSourceFile(Path path) throws IOException {
+        return Files.size(path) > MAPPING_THRESHOLD ? SourceFile.map(path) : SourceFile.read(path);
+    }
+
+    private static final class FileTask extends RecursiveAction {
+        private final Path path;
+        private final ASTCache cache;
+        private Result result;
+
+        private FileTask(Path path, ASTCache cache) {
+            this.path = path;
+            this.cache = cache;
+        }
+
+        @Override
+        protected void compute() {
+            final List<Message> messages = Output.capture(MESSAGE_LEVEL, () -> result = compileFile());
+            result = result == null
+                    ? new Result(path, null, List.of(), messages, 0, 0, false)
+                    : new Result(path, result.program(), result.errors(), messages, result.tokens(), result.nodes(), result.cached());
+        }
+
+        /**
+         * @return the result without messages, {@code null} if the file could not be compiled
+         */
+        private Result compileFile() {
+            try {
+                final byte[] hash = cache != null ? ASTCache.hash(path) : null;
+                if (hash != null) {
+                    final AST.Program program = cache.load(hash);
+                    if (program != null)
+                        return new Result(path, program, List.of(), List.of(), 0, NodeCounter.count(program), true);
+                }
+
+                final ProcessTask task = new ProcessTask(openSourceFile(path), new Session());
+                task.start();
+                final ASTImpl.Program program = task.getProgram();
+                final List<mainau.compiler.error.Error> errors = task.getErrorStorage().getErrors();
+
+                // only clean trees are cached, so the errors of a file show up on every run
+                if (hash != null && errors.isEmpty()) {
+                    try {
+                        cache.store(hash, program);
+                    } catch (IOException e) {
+                        Output.simplyLog(MessageType.WARNING, "Could not cache " + path + ": " + e);
+                    }
+                }
+                return new Result(path, program, errors, List.of(), task.getTokenCount(), task.getNodeCount(), false);
+            } catch (IOException | RuntimeException e) {
+                Output.simplyLog(MessageType.FATAL, "Could not compile " + path + ": " + e);
+                return null;
+            }
+        }
+    }
+}
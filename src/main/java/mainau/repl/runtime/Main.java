@@ -1,9 +1,32 @@
 package mainau.repl.runtime;
 
+import mainau.compiler.analysis.lexical.SourceFile;
+import mainau.compiler.instrumentation.Instrumentation;
+import mainau.compiler.logging.AsyncSink;
+import mainau.compiler.logging.Output;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Scanner;
 
 public class Main {
-    public static void main(String[] args) {
+    // -Dmainau.parse.lazy=true parses the bodies of block functions on their first call
+    private static final boolean LAZY_FUNCTION_BODIES = Boolean.getBoolean("mainau.parse.lazy");
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 2 && args[0].equals("--run")) {
+            if (!run(Path.of(args[1])))
+                System.exit(1);
+            return;
+        }
+        if (args.length > 0) {
+            // files are compiled concurrently, their messages should not contend for the streams
+            Output.startAsync(AsyncSink.DEFAULT_CAPACITY, AsyncSink.Overflow.BLOCK);
+            if (BatchCompiler.run(List.of(args)) > 0)
+                System.exit(1);
+            return;
+        }
         System.out.println("Mainau Repl! v0.1");
         Scanner scanner = new Scanner(System.in);
         String input;
@@ -14,16 +37,27 @@ public class Main {
             switch (input) {
                 case "\n" -> {}
                 case null -> {}
+                case ":stats" -> System.out.print(Instrumentation.report());
                 case "", "exit" -> {
                     System.out.println("Goodbye!");
                     System.exit(0);
                 }
                 default -> {
-                    task = new ProcessTask(input, "Repl-Session", true, true, session);
+                    task = new ProcessTask(new SourceFile(input, "Repl-Session"), true, true, LAZY_FUNCTION_BODIES, session);
                     task.start();
                 }
             }
         }
         scanner.close();
     }
+
+    /**
+     * Evaluates a script in a session of its own, in lazy mode only the functions it calls are parsed.
+     * @return whether it ran without errors
+     */
+    static boolean run(Path script) throws IOException {
+        final ProcessTask task = new ProcessTask(SourceFile.read(script), true, false, LAZY_FUNCTION_BODIES, new Session());
+        task.start();
+        return task.getErrorStorage().getErrorAmount() == 0;
+    }
 }
\ No newline at end of file
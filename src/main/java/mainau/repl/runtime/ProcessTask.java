@@ -3,58 +3,158 @@ package mainau.repl.runtime;
 import mainau.compiler.error.Error;
 import mainau.compiler.error.ErrorStorage;
 import mainau.compiler.analysis.lexical.Lexer;
+import mainau.compiler.analysis.lexical.SourceFile;
+import mainau.compiler.analysis.lexical.TokenBuffer;
 import mainau.compiler.logging.MessageType;
 import mainau.compiler.logging.Output;
 import mainau.compiler.ast.ASTImpl;
 import mainau.compiler.analysis.syntactic.Parser;
+import mainau.compiler.instrumentation.Instrumentation;
+import mainau.compiler.instrumentation.Phase;
+import mainau.compiler.visitor.NodeCounter;
+
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
 
 public class ProcessTask {
     private final ErrorStorage errorStorage;
+    private final IntSupplier tokenCount;
     private final Parser parser;
     private final boolean replMode, verbose;
     private final Session session;
+    private final SourceFile sourceFile;
+    private ASTImpl.Program program;
+    private int nodeCount;
+    // the errors printed so far, -1 until start() printed the errors of the module
+    private int printedErrors = -1;
 
-    public ProcessTask(String sourceCode, String filePath, boolean replMode, boolean verbose, Session session) {
-        this.errorStorage = new ErrorStorage(sourceCode, filePath);
-        this.parser = new Parser(new Lexer(sourceCode), this);
+    public ProcessTask(SourceFile sourceFile, boolean replMode, boolean verbose, Session session) {
+        this(sourceFile, replMode, verbose, false, session);
+    }
+    /**
+     * @param lazyFunctionBodies whether block function bodies are parsed on their first call, their syntax errors
+     *                           are only reported then or by {@link #checkFunctionBodies()}
+     */
+    public ProcessTask(SourceFile sourceFile, boolean replMode, boolean verbose, boolean lazyFunctionBodies, Session session) {
+        this.sourceFile = sourceFile;
+        this.errorStorage = new ErrorStorage(sourceFile);
+        if (lazyFunctionBodies) {
+            final Instrumentation.Measurement lexing = Instrumentation.begin(Phase.LEX, sourceFile);
+            final TokenBuffer buffer = Lexer.tokenize(sourceFile);
+            lexing.end(buffer.size() - 1, 0);
+            this.parser = new Parser(buffer, this, true);
+            // without the EOF token, like the lexer's position
+            this.tokenCount = () -> buffer.size() - 1;
+        } else {
+            final Lexer lexer = new Lexer(sourceFile);
+            this.parser = new Parser(lexer, this);
+            this.tokenCount = lexer::position;
+        }
         this.replMode = replMode;
         this.verbose = verbose;
         this.session = session;
         this.session.setTask(this);
     }
+    public ProcessTask(String sourceCode, String filePath, boolean replMode, boolean verbose, Session session) {
+        this(new SourceFile(sourceCode, filePath), replMode, verbose, session);
+    }
     public ProcessTask(String sourceCode, String filePath, Session session) {
         this(sourceCode, filePath, false, false, session);
     }
+    public ProcessTask(SourceFile sourceFile, Session session) {
+        this(sourceFile, false, false, session);
+    }
 
     public void start() {
-        ASTImpl.Program program = parser.parseModule();
-        executeSendVerboseMessage(program.toString());
-/*
-        final ValuesImpl.RuntimeValue runtimeValue;
-        if (replMode && !checkErrorStorage()) {
-            runtimeValue = Interpreter.evaluate(program, session);
-            if (runtimeValue != null)
-                Output.simplyLog(MessageType.DEBUG, runtimeValue.toString());
+        final Instrumentation.Measurement parsing = Instrumentation.begin(Phase.PARSE, sourceFile);
+        program = parser.parseModule();
+        nodeCount = NodeCounter.count(program);
+        parsing.end(getTokenCount(), nodeCount);
+
+        // the tree is only printed when verbose, lazy function bodies are printed as unparsed
+        if (verbose) {
+            final Instrumentation.Measurement printing = Instrumentation.begin(Phase.PRINT, sourceFile);
+            executeSendVerboseMessage(program.toString());
+            printing.end(0, nodeCount);
         }
- */
+        if (checkErrorStorage() || !replMode)
+            return;
+
+        final Instrumentation.Measurement evaluation = Instrumentation.begin(Phase.EVALUATE, sourceFile);
+        final ValuesImpl.RuntimeValue runtimeValue = Interpreter.evaluate(program, session);
+        evaluation.end(0, nodeCount);
+        if (runtimeValue != null)
+            Output.simplyLog(MessageType.DEBUG, runtimeValue::toString);
+        else checkErrorStorage();
     }
 
     private void executeSendVerboseMessage(String string) {
         if (!verbose) return;
-        Output.simplyLog(MessageType.DEV, Util.createTreeString(string));
+        Output.simplyLog(MessageType.DEV, () -> Util.createTreeString(string));
+    }
+
+    /**
+     * Parses the function bodies {@link #start()} left for later and prints the errors found in them.
+     * @return whether there are errors in the module
+     */
+    public boolean checkFunctionBodies() {
+        Parser.parseFunctionBodies(program.body());
+        return errorStorage.getErrorAmount() > 0;
+    }
+
+    /**
+     * Runs work on the module that may find errors after {@link #start()}, like parsing and resolving a
+     * function body on its first call. The errors are printed right away, unless start() still prints them.
+     * @return the result of the work or {@code null}, if it found errors
+     */
+    public <T> T reportLate(Supplier<T> work) {
+        final int known = errorStorage.getErrorAmount();
+        final T result = work.get();
+        if (printedErrors >= 0)
+            printNewErrors();
+        return errorStorage.getErrorAmount() == known ? result : null;
     }
 
     private boolean checkErrorStorage() {
         if (errorStorage.getErrorAmount() > 0) {
-            errorStorage.printAll();
+            printNewErrors();
             return true;
         }
+        printedErrors = 0;
         return false;
     }
 
+    private void printNewErrors() {
+        errorStorage.printSince(Math.max(printedErrors, 0));
+        printedErrors = errorStorage.getErrorAmount();
+    }
+
     public void insertError(Error error) {
-        if (replMode)
-            errorStorage.addError(error);
         errorStorage.addError(error);
     }
+
+    /**
+     * @return the program parsed by {@link #start()}, statements with syntax errors are left out
+     */
+    public ASTImpl.Program getProgram() {
+        return program;
+    }
+
+    /**
+     * @return the number of tokens consumed so far, all of them once {@link #start()} returned
+     */
+    public int getTokenCount() {
+        return tokenCount.getAsInt();
+    }
+
+    /**
+     * @return the number of nodes {@link #start()} parsed, lazy function bodies not included
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public ErrorStorage getErrorStorage() {
+        return errorStorage;
+    }
 }
@@ -4,5 +4,8 @@ public enum ValueType {
     GENERIC,
     NUMBER,
     BOOLEAN,
+    STRING,
+    CHARACTER,
+    FUNCTION,
     NULL
 }
@@ -13,6 +13,18 @@ public interface Values {
         @Override default ValueType type() { return ValueType.BOOLEAN; }
         boolean value();
     }
+    interface StringValue extends RuntimeValue {
+        @Override default ValueType type() { return ValueType.STRING; }
+        String value();
+    }
+    interface CharacterValue extends RuntimeValue {
+        @Override default ValueType type() { return ValueType.CHARACTER; }
+        char value();
+    }
+    interface FunctionValue extends RuntimeValue {
+        @Override default ValueType type() { return ValueType.FUNCTION; }
+        String name();
+    }
     interface NullValue extends RuntimeValue {
         @Override default ValueType type() { return ValueType.NULL; }
     }
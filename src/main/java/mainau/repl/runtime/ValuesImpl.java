@@ -1,5 +1,11 @@
 package mainau.repl.runtime;
 
+import mainau.compiler.ast.ASTImpl;
+import mainau.compiler.interpretation.Frame;
+
+import java.util.ArrayList;
+import java.util.List;
+
 public class ValuesImpl {
     public static class RuntimeValue implements Values.RuntimeValue {
         @Override public ValueType type() { return ValueType.GENERIC; }
@@ -23,6 +29,66 @@ public class ValuesImpl {
 
         @Override public ValueType type() { return ValueType.BOOLEAN; }
         @Override public boolean value() { return value; }
+        @Override public String toString() { return "BooleanValue(type=" + type() + ",value=" + value + ")"; }
+    }
+    public static class StringValue extends RuntimeValue implements Values.StringValue {
+        private final String value;
+        public StringValue(String value) {
+            this.value = value;
+        }
+
+        @Override public ValueType type() { return ValueType.STRING; }
+        @Override public String value() { return value; }
+        @Override public String toString() { return "StringValue(type=" + type() + ",value=" + value + ")"; }
+    }
+    public static class CharacterValue extends RuntimeValue implements Values.CharacterValue {
+        private final char value;
+        public CharacterValue(char value) {
+            this.value = value;
+        }
+
+        @Override public ValueType type() { return ValueType.CHARACTER; }
+        @Override public char value() { return value; }
+        @Override public String toString() { return "CharacterValue(type=" + type() + ",value=" + value + ")"; }
+    }
+    /**
+     * The overloads of a function, told apart by their number of parameters, and the frame they were declared in.
+     */
+    public static class FunctionValue extends RuntimeValue implements Values.FunctionValue {
+        private final ASTImpl.FunctionDeclarationStatement[] overloads;
+        private final Frame closure;
+        public FunctionValue(ASTImpl.FunctionDeclarationStatement[] overloads, Frame closure) {
+            this.overloads = overloads;
+            this.closure = closure;
+        }
+
+        @Override public ValueType type() { return ValueType.FUNCTION; }
+        @Override public String name() { return overloads[0].identifierSymbol(); }
+        public Frame closure() { return closure; }
+
+        /**
+         * @return the overload taking that many arguments or {@code null}
+         */
+        public ASTImpl.FunctionDeclarationStatement overload(int arguments) {
+            for (ASTImpl.FunctionDeclarationStatement overload : overloads)
+                if (overload.arguments().size() == arguments)
+                    return overload;
+            return null;
+        }
+
+        /**
+         * @return these overloads with the given one added, it replaces one with as many parameters
+         */
+        public FunctionValue with(ASTImpl.FunctionDeclarationStatement function) {
+            final List<ASTImpl.FunctionDeclarationStatement> combined = new ArrayList<>(overloads.length + 1);
+            for (ASTImpl.FunctionDeclarationStatement overload : overloads)
+                if (overload.arguments().size() != function.arguments().size())
+                    combined.add(overload);
+            combined.add(function);
+            return new FunctionValue(combined.toArray(new ASTImpl.FunctionDeclarationStatement[0]), closure);
+        }
+
+        @Override public String toString() { return "FunctionValue(type=" + type() + ",name=" + name() + ",overloads=" + overloads.length + ")"; }
     }
     public static class NullValue extends RuntimeValue implements Values.NullValue {
         @Override public ValueType type() { return ValueType.NULL; }
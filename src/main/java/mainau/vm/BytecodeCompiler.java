@@ -0,0 +1,532 @@
+package mainau.vm;
+
+import mainau.compiler.analysis.lexical.Operator;
+import mainau.compiler.ast.AST;
+import mainau.compiler.ast.ASTImpl;
+import mainau.compiler.interpretation.Resolver;
+import mainau.compiler.visitor.ASTVisitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static mainau.compiler.ast.AST.*;
+
+/**
+ * Compiles a {@link Resolver resolved} program to {@link FunctionCode}, every statement leaves its value on the
+ * stack like the tree-walking interpreter returns it. Top-level variables are the globals of the session, the
+ * variables of a function stay in its frame on the stack unless a nested function captures them, those go to
+ * the environment of the call. Which ones are captured is found by a first pass over the tree. A lazy function
+ * whose body was not resolved yet is compiled on its first call, it may use any variable of the functions
+ * around it, so those keep all their variables in their environment.
+ */
+public final class BytecodeCompiler implements ASTVisitor<Void, Void> {
+    private final Map<AST.FunctionDeclarationStatement, BitSet> captures;
+    private Context context;
+
+    /**
+     * The function being compiled, the program for the top level.
+     */
+    private static final class Context {
+        private final Context enclosing;
+        private final String name;
+        // the slots nested functions use, null for the top level, whose variables are globals
+        private final BitSet captured;
+        private final List<Object> constants = new ArrayList<>();
+        private int[] code = new int[64];
+        private String[] names = new String[64];
+        private int length = 0, depth = 0, maxDepth = 0;
+        // the position of the last instruction and the last one a jump lands on, they keep peephole rewrites from crossing jumps
+        private int last = -1, jumpTarget = -1;
+
+        private Context(Context enclosing, String name, BitSet captured) {
+            this.enclosing = enclosing;
+            this.name = name;
+            this.captured = captured;
+        }
+
+        private boolean global() {
+            return captured == null;
+        }
+
+        private boolean ownEnvironment() {
+            return captured != null && !captured.isEmpty();
+        }
+    }
+
+    private BytecodeCompiler(Map<AST.FunctionDeclarationStatement, BitSet> captures) {
+        this.captures = captures;
+    }
+
+    /**
+     * @param program a program the {@link Resolver} succeeded on
+     * @return the code of the top level, which returns the value of the last statement
+     */
+    public static FunctionCode compile(ASTImpl.Program program) {
+        final BytecodeCompiler compiler = new BytecodeCompiler(Captures.find(program));
+        compiler.context = new Context(null, "<program>", null);
+        compiler.compileBody(program.body());
+        return compiler.finish(0, 0, new int[0]);
+    }
+
+    private FunctionCode finish(int parameters, int frameSize, int[] capturedParameters) {
+        final Context done = context;
+        return new FunctionCode(
+                done.name,
+                parameters,
+                frameSize,
+                done.maxDepth,
+                Arrays.copyOf(done.code, done.length),
+                done.constants.toArray(),
+                done.ownEnvironment(),
+                capturedParameters,
+                Arrays.copyOf(done.names, done.length)
+        );
+    }
+
+    private void compileBody(AST.Statement[] statements) {
+        if (statements.length == 0)
+            emit(Opcode.PUSH_NULL);
+        for (int i = 0; i < statements.length; i++) {
+            if (i > 0)
+                pop();
+            compile(statements[i]);
+        }
+        emit(Opcode.RETURN);
+    }
+
+    private void compile(AST.Statement statement) {
+        statement.accept(this, null);
+    }
+
+    private int emit(int opcode, int... operands) {
+        final Context c = context;
+        if (c.length + operands.length + 1 > c.code.length) {
+            c.code = Arrays.copyOf(c.code, c.code.length * 2 + operands.length);
+            c.names = Arrays.copyOf(c.names, c.code.length);
+        }
+        final int position = c.length;
+        c.last = position;
+        c.code[c.length++] = opcode;
+        for (int operand : operands)
+            c.code[c.length++] = operand;
+
+        c.depth += Opcode.stackEffect(opcode) - (opcode == Opcode.CALL ? operands[0] : 0);
+        c.maxDepth = Math.max(c.maxDepth, c.depth);
+        return position;
+    }
+
+    private void name(int position, String name) {
+        context.names[position] = name;
+    }
+
+    private int constant(Object value) {
+        final int index = context.constants.indexOf(value);
+        if (index >= 0)
+            return index;
+        context.constants.add(value);
+        return context.constants.size() - 1;
+    }
+
+    private void fail(String message) {
+        emit(Opcode.FAIL, constant(message));
+    }
+
+    /**
+     * Points the jump whose instruction starts at the position to the next instruction emitted.
+     */
+    private void patch(int jump) {
+        context.code[jump + 1] = context.length - (jump + 2);
+        context.jumpTarget = context.length;
+    }
+
+    /**
+     * Drops the value on top of the stack, a store right before becomes one that does not keep it.
+     */
+    private void pop() {
+        final Context c = context;
+        if (c.last >= 0 && c.code[c.last] == Opcode.STORE_LOCAL && c.jumpTarget != c.length) {
+            c.code[c.last] = Opcode.SET_LOCAL;
+            c.depth--;
+            return;
+        }
+        emit(Opcode.POP);
+    }
+
+    /**
+     * @return the slot of a variable of the current function on the stack, -1 for any other expression
+     */
+    private int localSlot(AST.Expression expression) {
+        if (expression instanceof ASTImpl.IdentifierLiteralExpression identifier && identifier.depth() == 0
+                && !context.global() && !context.captured.get(identifier.slot()))
+            return identifier.slot();
+        return -1;
+    }
+
+    private void load(ASTImpl.IdentifierLiteralExpression identifier) {
+        access(identifier.depth(), identifier.slot(), Opcode.LOAD_LOCAL, Opcode.LOAD_GLOBAL, Opcode.LOAD_CAPTURED, identifier.symbol());
+    }
+
+    private void store(int depth, int slot, String name) {
+        access(depth, slot, Opcode.STORE_LOCAL, Opcode.STORE_GLOBAL, Opcode.STORE_CAPTURED, name);
+    }
+
+    private void access(int depth, int slot, int local, int global, int captured, String name) {
+        // every function on the way with an environment is one step up the chain of environments
+        Context target = context;
+        int hops = 0;
+        for (int i = 0; i < depth; i++) {
+            if (target.ownEnvironment())
+                hops++;
+            target = target.enclosing;
+        }
+
+        final int position;
+        if (target.global())
+            position = emit(global, slot);
+        else if (target.captured.get(slot))
+            position = emit(captured, hops, slot);
+        else position = emit(local, slot);
+        name(position, name);
+    }
+
+    @Override
+    public Void visitStatement(Statement statement, Void unused) {
+        fail("Cannot evaluate " + statement);
+        return null;
+    }
+
+    @Override
+    public Void visitProgram(Program program, Void unused) {
+        fail("Cannot evaluate a nested program");
+        return null;
+    }
+
+    @Override
+    public Void visitObtainStatement(ObtainStatement statement, Void unused) {
+        fail("obtain statements are not supported yet");
+        return null;
+    }
+
+    @Override
+    public Void visitVariableDeclarationStatement(VariableDeclarationStatement statement, Void unused) {
+        // a declaration without a value leaves its slot unassigned, which it still is
+        if (statement.value() == null) {
+            emit(Opcode.PUSH_NULL);
+            return null;
+        }
+        compile(statement.value());
+        store(0, ((ASTImpl.VariableDeclarationStatement) statement).slot(), statement.identifierSymbol());
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionDeclarationStatement(FunctionDeclarationStatement statement, Void unused) {
+        final ASTImpl.FunctionDeclarationStatement function = (ASTImpl.FunctionDeclarationStatement) statement;
+        final Context declaration = context;
+        final FunctionCode code = function.frameSize() < 0
+                ? new FunctionCode(function.identifierSymbol(), function.arguments().size(), () -> compileLazily(function, declaration))
+                : compileFunction(function);
+
+        final int location;
+        if (context.global())
+            location = Opcode.IN_GLOBAL;
+        else if (context.captured.get(function.slot()))
+            location = Opcode.IN_ENVIRONMENT;
+        else location = Opcode.IN_LOCAL;
+        name(emit(Opcode.CLOSURE, constant(code), location, function.slot()), function.identifierSymbol());
+        return null;
+    }
+
+    private FunctionCode compileFunction(ASTImpl.FunctionDeclarationStatement function) {
+        final BitSet captured = captures.getOrDefault(function, new BitSet());
+        final int parameters = function.arguments().size();
+
+        final Context enclosing = context;
+        context = new Context(enclosing, function.identifierSymbol(), captured);
+        compileBody(function.body());
+        final FunctionCode code = finish(parameters, function.frameSize(), captured.get(0, parameters).stream().toArray());
+        context = enclosing;
+        return code;
+    }
+
+    /**
+     * Resolves and compiles the body of a lazy function on its first call, in the context it was declared in.
+     * @return the code or {@code null}, if the body has errors
+     */
+    private static FunctionCode compileLazily(ASTImpl.FunctionDeclarationStatement function, Context declaration) {
+        if (!Resolver.resolveBody(function))
+            return null;
+        int levels = 0;
+        for (Context context = declaration; context != null; context = context.enclosing)
+            levels++;
+        final BytecodeCompiler compiler = new BytecodeCompiler(Captures.find(function, levels));
+        compiler.context = declaration;
+        return compiler.compileFunction(function);
+    }
+
+    @Override
+    public Void visitExpression(Expression expression, Void unused) {
+        fail("Cannot evaluate " + expression);
+        return null;
+    }
+
+    @Override
+    public Void visitAssignmentExpression(AssignmentExpression expression, Void unused) {
+        if (!(expression.variable() instanceof ASTImpl.IdentifierLiteralExpression identifier)) {
+            compile(expression.value());
+            emit(Opcode.POP);
+            fail("Only variables can be assigned to yet");
+            return null;
+        }
+        final Operator compounded = expression.operator().compounded();
+        if (compounded == null)
+            compile(expression.value());
+        else binary(compounded, identifier, expression.value());
+        store(identifier.depth(), identifier.slot(), identifier.symbol());
+        return null;
+    }
+
+    @Override
+    public Void visitMemberExpression(MemberExpression expression, Void unused) {
+        fail("Member access is not supported yet");
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionInvocationExpression(FunctionInvocationExpression expression, Void unused) {
+        compile(expression.identifier());
+        final AST.Expression[] arguments = expression.arguments();
+        for (AST.Expression argument : arguments)
+            compile(argument);
+        // calls of a variable are named after it, other callees stay unnamed
+        name(emit(Opcode.CALL, arguments.length),
+                expression.identifier() instanceof IdentifierLiteralExpression identifier ? identifier.symbol() : null);
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpression(BinaryExpression expression, Void unused) {
+        final Operator operator = expression.operator();
+        if (operator == Operator.AND || operator == Operator.OR) {
+            compile(expression.left());
+            final int jump = emit(operator == Operator.AND ? Opcode.JUMP_IF_FALSE_OR_POP : Opcode.JUMP_IF_TRUE_OR_POP, 0);
+            name(jump, operator.text());
+            compile(expression.right());
+            name(emit(Opcode.CHECK_BOOLEAN), operator.text());
+            patch(jump);
+            return null;
+        }
+        binary(operator, expression.left(), expression.right());
+        return null;
+    }
+
+    /**
+     * Applies an operator other than {@code &&} and {@code ||}, also for compound assignments.
+     */
+    private void binary(Operator operator, AST.Expression left, AST.Expression right) {
+        compile(left);
+        // a constant or local right operand is folded into the instruction
+        if (right instanceof NumericLiteralExpression number) {
+            final int folded = switch (operator) {
+                case ADD -> Opcode.ADD_NUMBER;
+                case SUBTRACT -> Opcode.SUBTRACT_NUMBER;
+                case MULTIPLY -> Opcode.MULTIPLY_NUMBER;
+                case DIVIDE -> Opcode.DIVIDE_NUMBER;
+                default -> -1;
+            };
+            if (folded >= 0) {
+                emit(folded, Float.floatToRawIntBits(number.value()));
+                return;
+            }
+        }
+        final int local = localSlot(right);
+        if (local >= 0) {
+            final int folded = switch (operator) {
+                case ADD -> Opcode.ADD_LOCAL;
+                case SUBTRACT -> Opcode.SUBTRACT_LOCAL;
+                case MULTIPLY -> Opcode.MULTIPLY_LOCAL;
+                case DIVIDE -> Opcode.DIVIDE_LOCAL;
+                default -> -1;
+            };
+            if (folded >= 0) {
+                name(emit(folded, local), ((IdentifierLiteralExpression) right).symbol());
+                return;
+            }
+        }
+        compile(right);
+
+        final int opcode = switch (operator) {
+            case ADD -> Opcode.ADD;
+            case SUBTRACT -> Opcode.SUBTRACT;
+            case MULTIPLY -> Opcode.MULTIPLY;
+            case DIVIDE -> Opcode.DIVIDE;
+            case MODULO -> Opcode.MODULO;
+            case POWER -> Opcode.POWER;
+            case LESS -> Opcode.LESS;
+            case LESS_EQUAL -> Opcode.LESS_EQUAL;
+            case GREATER -> Opcode.GREATER;
+            case GREATER_EQUAL -> Opcode.GREATER_EQUAL;
+            case EQUAL -> Opcode.EQUAL;
+            case NOT_EQUAL -> Opcode.NOT_EQUAL;
+            case BIT_AND -> Opcode.BIT_AND;
+            case BIT_OR -> Opcode.BIT_OR;
+            case SHIFT_LEFT -> Opcode.SHIFT_LEFT;
+            case SHIFT_RIGHT -> Opcode.SHIFT_RIGHT;
+            default -> -1;
+        };
+        if (opcode < 0) {
+            emit(Opcode.POP);
+            emit(Opcode.POP);
+            fail("Unexpected operator " + operator.text());
+        }
+        else emit(opcode);
+    }
+
+    @Override
+    public Void visitLiteralExpression(LiteralExpression expression, Void unused) {
+        fail("Cannot evaluate " + expression);
+        return null;
+    }
+
+    @Override
+    public Void visitIdentifierLiteralExpression(IdentifierLiteralExpression expression, Void unused) {
+        load((ASTImpl.IdentifierLiteralExpression) expression);
+        return null;
+    }
+
+    @Override
+    public Void visitNumericLiteralExpression(NumericLiteralExpression expression, Void unused) {
+        emit(Opcode.PUSH_NUMBER, Float.floatToRawIntBits(expression.value()));
+        return null;
+    }
+
+    @Override
+    public Void visitStringLiteralExpression(StringLiteralExpression expression, Void unused) {
+        emit(Opcode.PUSH_CONSTANT, constant(expression.value()));
+        return null;
+    }
+
+    @Override
+    public Void visitCharacterLiteralExpression(CharacterLiteralExpression expression, Void unused) {
+        emit(Opcode.PUSH_CONSTANT, constant(expression.value()));
+        return null;
+    }
+
+    @Override
+    public Void visitNullLiteralExpression(NullLiteralExpression expression, Void unused) {
+        emit(Opcode.PUSH_NULL);
+        return null;
+    }
+
+    /**
+     * Finds the slots of every function that functions nested in it use.
+     */
+    private static final class Captures implements ASTVisitor<Void, Void> {
+        private final Map<AST.FunctionDeclarationStatement, BitSet> captures = new IdentityHashMap<>();
+        // the functions around the current node, null for the top level
+        private final List<AST.FunctionDeclarationStatement> functions = new ArrayList<>();
+
+        static Map<AST.FunctionDeclarationStatement, BitSet> find(AST.Program program) {
+            final Captures pass = new Captures();
+            pass.functions.add(null);
+            pass.visitAll(program.body());
+            return pass.captures;
+        }
+
+        /**
+         * @param levels how many functions and programs are around the function, their variables are all captured already
+         */
+        static Map<AST.FunctionDeclarationStatement, BitSet> find(AST.FunctionDeclarationStatement function, int levels) {
+            final Captures pass = new Captures();
+            for (int level = 0; level < levels; level++)
+                pass.functions.add(null);
+            pass.visitFunctionDeclarationStatement(function, null);
+            return pass.captures;
+        }
+
+        private void visit(AST.Statement statement) {
+            if (statement != null)
+                statement.accept(this, null);
+        }
+
+        private void visitAll(AST.Statement[] statements) {
+            for (AST.Statement statement : statements)
+                visit(statement);
+        }
+
+        @Override
+        public Void visitIdentifierLiteralExpression(IdentifierLiteralExpression expression, Void unused) {
+            final ASTImpl.IdentifierLiteralExpression identifier = (ASTImpl.IdentifierLiteralExpression) expression;
+            if (identifier.depth() == 0)
+                return null;
+            final AST.FunctionDeclarationStatement owner = functions.get(functions.size() - 1 - identifier.depth());
+            if (owner != null)
+                captures.computeIfAbsent(owner, key -> new BitSet()).set(identifier.slot());
+            return null;
+        }
+
+        @Override
+        public Void visitFunctionDeclarationStatement(FunctionDeclarationStatement statement, Void unused) {
+            if (((ASTImpl.FunctionDeclarationStatement) statement).frameSize() < 0) {
+                // a lazy body, which is not resolved yet, may use any of their variables
+                for (AST.FunctionDeclarationStatement owner : functions)
+                    if (owner != null)
+                        captures.computeIfAbsent(owner, key -> new BitSet()).set(0, ((ASTImpl.FunctionDeclarationStatement) owner).frameSize());
+                return null;
+            }
+            functions.add(statement);
+            visitAll(statement.body());
+            functions.remove(functions.size() - 1);
+            return null;
+        }
+
+        @Override
+        public Void visitVariableDeclarationStatement(VariableDeclarationStatement statement, Void unused) {
+            visit(statement.value());
+            return null;
+        }
+
+        @Override
+        public Void visitAssignmentExpression(AssignmentExpression expression, Void unused) {
+            visit(expression.value());
+            visit(expression.variable());
+            return null;
+        }
+
+        @Override
+        public Void visitMemberExpression(MemberExpression expression, Void unused) {
+            visit(expression.parent());
+            if (expression.computed())
+                visit(expression.child());
+            return null;
+        }
+
+        @Override
+        public Void visitFunctionInvocationExpression(FunctionInvocationExpression expression, Void unused) {
+            visit(expression.identifier());
+            visitAll(expression.arguments());
+            return null;
+        }
+
+        @Override
+        public Void visitBinaryExpression(BinaryExpression expression, Void unused) {
+            visit(expression.left());
+            visit(expression.right());
+            return null;
+        }
+
+        @Override public Void visitStatement(Statement statement, Void unused) { return null; }
+        @Override public Void visitProgram(Program program, Void unused) { return null; }
+        @Override public Void visitObtainStatement(ObtainStatement statement, Void unused) { return null; }
+        @Override public Void visitExpression(Expression expression, Void unused) { return null; }
+        @Override public Void visitLiteralExpression(LiteralExpression expression, Void unused) { return null; }
+        @Override public Void visitNumericLiteralExpression(NumericLiteralExpression expression, Void unused) { return null; }
+        @Override public Void visitStringLiteralExpression(StringLiteralExpression expression, Void unused) { return null; }
+        @Override public Void visitCharacterLiteralExpression(CharacterLiteralExpression expression, Void unused) { return null; }
+        @Override public Void visitNullLiteralExpression(NullLiteralExpression expression, Void unused) { return null; }
+    }
+}
@@ -0,0 +1,51 @@
+package mainau.vm;
+
+import mainau.repl.runtime.ValueType;
+import mainau.repl.runtime.Values;
+import mainau.repl.runtime.ValuesImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A function value of the {@link VirtualMachine}: the overloads of a function, told apart by their
+ * number of parameters, and the environment they were declared in.
+ */
+public final class Closure extends ValuesImpl.RuntimeValue implements Values.FunctionValue {
+    final FunctionCode[] overloads;
+    final Object[] environment;
+
+    Closure(FunctionCode[] overloads, Object[] environment) {
+        this.overloads = overloads;
+        this.environment = environment;
+    }
+
+    @Override public ValueType type() { return ValueType.FUNCTION; }
+    @Override public String name() { return overloads[0].name; }
+
+    /**
+     * @return the overload taking that many arguments or {@code null}
+     */
+    FunctionCode overload(int arguments) {
+        if (overloads[0].parameters == arguments)
+            return overloads[0];
+        for (FunctionCode overload : overloads)
+            if (overload.parameters == arguments)
+                return overload;
+        return null;
+    }
+
+    /**
+     * @return these overloads with the given one added, it replaces one with as many parameters
+     */
+    Closure with(FunctionCode function) {
+        final List<FunctionCode> combined = new ArrayList<>(overloads.length + 1);
+        for (FunctionCode overload : overloads)
+            if (overload.parameters != function.parameters)
+                combined.add(overload);
+        combined.add(function);
+        return new Closure(combined.toArray(new FunctionCode[0]), environment);
+    }
+
+    @Override public String toString() { return "Closure(type=" + type() + ",name=" + name() + ",overloads=" + overloads.length + ")"; }
+}
@@ -0,0 +1,72 @@
+package mainau.vm;
+
+/**
+ * Prints {@link FunctionCode} as a listing, one instruction per line with its position, operands and,
+ * where it has one, the variable, function or operator it refers to. Functions in the constant pool
+ * are listed after the code that declares them.
+ */
+public final class Disassembler {
+    private Disassembler() {}
+
+    public static String disassemble(FunctionCode function) {
+        final StringBuilder builder = new StringBuilder();
+        disassemble(function, builder);
+        return builder.toString();
+    }
+
+    private static void disassemble(FunctionCode function, StringBuilder builder) {
+        builder.append("function ").append(function.name)
+                .append(" (parameters: ").append(function.parameters);
+        if (!function.isCompiled()) {
+            builder.append(", not compiled yet)\n");
+            return;
+        }
+        builder.append(", slots: ").append(function.frameSize)
+                .append(", stack: ").append(function.maxStack);
+        if (function.ownEnvironment)
+            builder.append(", environment");
+        builder.append(")\n");
+
+        final int[] code = function.code;
+        for (int position = 0; position < code.length; ) {
+            final int opcode = code[position];
+            final StringBuilder line = new StringBuilder(String.format("%6d  %-22s", position, Opcode.name(opcode)));
+            for (int i = 1; i <= Opcode.operands(opcode); i++)
+                line.append(' ').append(code[position + i]);
+            final String comment = comment(function, position);
+            if (comment != null)
+                line.append("    // ").append(comment);
+            builder.append(line.toString().stripTrailing()).append('\n');
+            position += Opcode.operands(opcode) + 1;
+        }
+
+        for (int i = 0; i < function.constants.length; i++)
+            builder.append(String.format("  #%-4d %s%n", i, constant(function.constants[i])));
+        for (Object constant : function.constants)
+            if (constant instanceof FunctionCode nested) {
+                builder.append('\n');
+                disassemble(nested, builder);
+            }
+    }
+
+    private static String comment(FunctionCode function, int position) {
+        final int[] code = function.code;
+        return switch (code[position]) {
+            case Opcode.PUSH_NUMBER, Opcode.ADD_NUMBER, Opcode.SUBTRACT_NUMBER, Opcode.MULTIPLY_NUMBER, Opcode.DIVIDE_NUMBER ->
+                    String.valueOf(Float.intBitsToFloat(code[position + 1]));
+            case Opcode.PUSH_CONSTANT, Opcode.FAIL -> constant(function.constants[code[position + 1]]);
+            case Opcode.JUMP_IF_FALSE_OR_POP, Opcode.JUMP_IF_TRUE_OR_POP ->
+                    function.names[position] + " to " + (position + 2 + code[position + 1]);
+            default -> function.names[position];
+        };
+    }
+
+    private static String constant(Object constant) {
+        return switch (constant) {
+            case String string -> '"' + string + '"';
+            case Character character -> "'" + character + "'";
+            case FunctionCode function -> "function " + function.name + "/" + function.parameters;
+            default -> String.valueOf(constant);
+        };
+    }
+}
@@ -0,0 +1,87 @@
+package mainau.vm;
+
+import java.util.function.Supplier;
+
+/**
+ * The bytecode of one function or of a whole program, see {@link Opcode}. A call keeps the parameters and
+ * locals in {@code frameSize} slots of the {@link VirtualMachine}'s stack, followed by at most
+ * {@code maxStack} operands. Locals that nested functions capture live in an environment array instead,
+ * which the call allocates: slot {@code s} is element {@code s + 1}, element 0 is the environment the
+ * function was declared in. The code of a lazy function is only compiled on its first call.
+ */
+public final class FunctionCode {
+    final String name;
+    final int parameters;
+    // the rest is only set once a lazy function was compiled, see compile()
+    int frameSize;
+    int maxStack;
+    int[] code;
+    Object[] constants;
+    // whether a call allocates an environment, and which parameters it copies there
+    boolean ownEnvironment;
+    int[] capturedParameters;
+    // the variable, function or operator of an instruction, by its position, for errors and the disassembler
+    String[] names;
+    // set until the body of a lazy function is compiled, it returns null if the body has errors
+    private Supplier<FunctionCode> compiler;
+
+    FunctionCode(String name, int parameters, int frameSize, int maxStack, int[] code, Object[] constants,
+                 boolean ownEnvironment, int[] capturedParameters, String[] names) {
+        this.name = name;
+        this.parameters = parameters;
+        this.frameSize = frameSize;
+        this.maxStack = maxStack;
+        this.code = code;
+        this.constants = constants;
+        this.ownEnvironment = ownEnvironment;
+        this.capturedParameters = capturedParameters;
+        this.names = names;
+    }
+
+    /**
+     * A lazy function, which is compiled on its first call.
+     */
+    FunctionCode(String name, int parameters, Supplier<FunctionCode> compiler) {
+        this.name = name;
+        this.parameters = parameters;
+        this.compiler = compiler;
+    }
+
+    boolean isCompiled() {
+        return code != null;
+    }
+
+    /**
+     * Compiles a lazy function and takes over the compiled code.
+     * @return whether it could be compiled, it must not be called otherwise
+     */
+    boolean compile() {
+        if (code != null)
+            return true;
+        final FunctionCode compiled = compiler.get();
+        if (compiled == null)
+            return false;
+        frameSize = compiled.frameSize;
+        maxStack = compiled.maxStack;
+        constants = compiled.constants;
+        ownEnvironment = compiled.ownEnvironment;
+        capturedParameters = compiled.capturedParameters;
+        names = compiled.names;
+        code = compiled.code;
+        compiler = null;
+        return true;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int parameters() {
+        return parameters;
+    }
+
+    @Override
+    public String toString() {
+        return "FunctionCode(name=" + name + ",parameters=" + parameters + ",length=" + (code != null ? code.length : "<uncompiled>") + ")";
+    }
+}
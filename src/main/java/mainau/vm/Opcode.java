@@ -0,0 +1,132 @@
+package mainau.vm;
+
+/**
+ * The instructions of {@link FunctionCode}, each one is an int followed by its operands.
+ * Stack effects are written as {@code before -> after}, the top of the stack on the right.
+ */
+final class Opcode {
+    /** {@code -> number}, operand: the float's bits */
+    static final int PUSH_NUMBER = 0;
+    /** {@code -> constant}, operand: index into the constant pool */
+    static final int PUSH_CONSTANT = 1;
+    /** {@code -> null} */
+    static final int PUSH_NULL = 2;
+    /** {@code value ->} */
+    static final int POP = 3;
+
+    /** {@code -> value}, operand: slot in the frame on the stack */
+    static final int LOAD_LOCAL = 4;
+    /** {@code value -> value}, operand: slot in the frame on the stack */
+    static final int STORE_LOCAL = 5;
+    /** {@code -> value}, operand: global slot */
+    static final int LOAD_GLOBAL = 6;
+    /** {@code value -> value}, operand: global slot */
+    static final int STORE_GLOBAL = 7;
+    /** {@code -> value}, operands: environments to go up, slot */
+    static final int LOAD_CAPTURED = 8;
+    /** {@code value -> value}, operands: environments to go up, slot */
+    static final int STORE_CAPTURED = 9;
+
+    static final int ADD = 10;
+    static final int SUBTRACT = 11;
+    static final int MULTIPLY = 12;
+    static final int DIVIDE = 13;
+    static final int MODULO = 14;
+    static final int POWER = 15;
+    static final int LESS = 16;
+    static final int LESS_EQUAL = 17;
+    static final int GREATER = 18;
+    static final int GREATER_EQUAL = 19;
+    static final int EQUAL = 20;
+    static final int NOT_EQUAL = 21;
+    static final int BIT_AND = 22;
+    static final int BIT_OR = 23;
+    static final int SHIFT_LEFT = 24;
+    static final int SHIFT_RIGHT = 25;
+
+    /** {@code boolean -> boolean}, fails on anything else */
+    static final int CHECK_BOOLEAN = 26;
+    /** {@code boolean -> boolean} and jump if false, {@code boolean ->} otherwise, operand: offset from the next instruction */
+    static final int JUMP_IF_FALSE_OR_POP = 27;
+    /** {@code boolean -> boolean} and jump if true, {@code boolean ->} otherwise, operand: offset from the next instruction */
+    static final int JUMP_IF_TRUE_OR_POP = 28;
+
+    /**
+     * {@code -> function}, declares a function, merging it with the overloads already in its slot.
+     * Operands: index of its {@link FunctionCode} in the constant pool, one of the {@code IN_} locations, slot
+     */
+    static final int CLOSURE = 29;
+    /** {@code function arguments... -> result}, operand: number of arguments */
+    static final int CALL = 30;
+    /** {@code result ->}, back to the caller */
+    static final int RETURN = 31;
+    /** {@code -> }, fails with the message in the constant pool at the operand, counted as pushing a value in its place */
+    static final int FAIL = 32;
+
+    /** {@code number -> number}, the operation with a constant right operand, operand: the float's bits */
+    static final int ADD_NUMBER = 33;
+    static final int SUBTRACT_NUMBER = 34;
+    static final int MULTIPLY_NUMBER = 35;
+    static final int DIVIDE_NUMBER = 36;
+    /** {@code value ->}, STORE_LOCAL and POP, operand: slot in the frame on the stack */
+    static final int SET_LOCAL = 37;
+    /** {@code number -> number}, the operation with a local right operand, operand: slot in the frame on the stack */
+    static final int ADD_LOCAL = 38;
+    static final int SUBTRACT_LOCAL = 39;
+    static final int MULTIPLY_LOCAL = 40;
+    static final int DIVIDE_LOCAL = 41;
+
+    // where CLOSURE stores the function
+    static final int IN_LOCAL = 0, IN_GLOBAL = 1, IN_ENVIRONMENT = 2;
+
+    private static final String[] NAMES = {
+            "PUSH_NUMBER", "PUSH_CONSTANT", "PUSH_NULL", "POP",
+            "LOAD_LOCAL", "STORE_LOCAL", "LOAD_GLOBAL", "STORE_GLOBAL", "LOAD_CAPTURED", "STORE_CAPTURED",
+            "ADD", "SUBTRACT", "MULTIPLY", "DIVIDE", "MODULO", "POWER",
+            "LESS", "LESS_EQUAL", "GREATER", "GREATER_EQUAL", "EQUAL", "NOT_EQUAL",
+            "BIT_AND", "BIT_OR", "SHIFT_LEFT", "SHIFT_RIGHT",
+            "CHECK_BOOLEAN", "JUMP_IF_FALSE_OR_POP", "JUMP_IF_TRUE_OR_POP",
+            "CLOSURE", "CALL", "RETURN", "FAIL",
+            "ADD_NUMBER", "SUBTRACT_NUMBER", "MULTIPLY_NUMBER", "DIVIDE_NUMBER",
+            "SET_LOCAL", "ADD_LOCAL", "SUBTRACT_LOCAL", "MULTIPLY_LOCAL", "DIVIDE_LOCAL"
+    };
+
+    private static final int[] OPERANDS = {
+            1, 1, 0, 0,
+            1, 1, 1, 1, 2, 2,
+            0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0,
+            0, 1, 1,
+            3, 1, 0, 1,
+            1, 1, 1, 1,
+            1, 1, 1, 1, 1
+    };
+
+    // how much an instruction grows the stack, CALL shrinks it by its operand on top
+    private static final int[] STACK_EFFECT = {
+            1, 1, 1, -1,
+            1, 0, 1, 0, 1, 0,
+            -1, -1, -1, -1, -1, -1,
+            -1, -1, -1, -1, -1, -1,
+            -1, -1, -1, -1,
+            0, -1, -1,
+            1, 0, -1, 1,
+            0, 0, 0, 0,
+            -1, 0, 0, 0, 0
+    };
+
+    private Opcode() {}
+
+    static String name(int opcode) {
+        return NAMES[opcode];
+    }
+
+    static int operands(int opcode) {
+        return OPERANDS[opcode];
+    }
+
+    static int stackEffect(int opcode) {
+        return STACK_EFFECT[opcode];
+    }
+}
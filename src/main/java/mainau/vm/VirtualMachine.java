@@ -0,0 +1,551 @@
+package mainau.vm;
+
+import mainau.compiler.ast.ASTImpl;
+import mainau.compiler.error.ErrorType;
+import mainau.compiler.interpretation.Frame;
+import mainau.compiler.interpretation.Globals;
+import mainau.compiler.interpretation.Resolver;
+import mainau.compiler.logging.MessageType;
+import mainau.compiler.logging.Output;
+import mainau.repl.runtime.ProcessTask;
+import mainau.repl.runtime.RuntimeError;
+import mainau.repl.runtime.ValuesImpl;
+
+import java.util.Arrays;
+
+/**
+ * Runs {@link FunctionCode} with a switch over its instructions in a single loop. Operands, parameters and
+ * locals of every active call share one stack of three parallel arrays: a tag per entry, numbers and booleans
+ * in {@code numbers} and everything else, strings, characters, functions and null, in {@code objects}, so
+ * arithmetic never allocates. A call only saves its caller's registers to the arrays of saved frames, neither
+ * the Java stack grows nor is anything allocated, except the environment of functions whose variables are
+ * captured. Captured variables and globals hold boxed values.
+ */
+public final class VirtualMachine {
+    // the tags, an unassigned variable is EMPTY, a boolean is a number that is either 0 or 1
+    private static final byte EMPTY = 0, NUMBER = 1, BOOLEAN = 2, OBJECT = 3;
+    private static final ValuesImpl.NullValue NULL = new ValuesImpl.NullValue();
+    private static final int MAX_CALL_DEPTH = 1 << 16;
+    private static final boolean DISASSEMBLE = Boolean.getBoolean("mainau.vm.disassemble");
+
+    private final Frame globals;
+    private byte[] tags = new byte[256];
+    private float[] numbers = new float[256];
+    private Object[] objects = new Object[256];
+
+    // the registers of the callers
+    // pc and base of each caller next to each other, the references are left behind on return, a machine only runs once
+    private int[] savedRegisters = new int[128];
+    private FunctionCode[] savedFunction = new FunctionCode[64];
+    private Object[][] savedEnvironment = new Object[64][];
+
+    /**
+     * Thrown on a runtime error, the program stops at the first one.
+     */
+    private static final class Failure extends RuntimeException {
+        private final RuntimeError error;
+
+        private Failure(ErrorType type, String message) {
+            super(null, null, false, false);
+            this.error = new RuntimeError(type, message);
+        }
+    }
+
+    private VirtualMachine(Frame globals) {
+        this.globals = globals;
+    }
+
+    /**
+     * Resolves the program, compiles it and runs it in the global frame of the session.
+     * @return the value of the last statement or {@code null}, if there was an error, which is reported to the task
+     */
+    public static ValuesImpl.RuntimeValue evaluate(ASTImpl.Program program, Globals globals, ProcessTask task) {
+        if (!Resolver.resolve(program, globals, task))
+            return null;
+        final FunctionCode code = BytecodeCompiler.compile(program);
+        if (DISASSEMBLE)
+            Output.simplyLog(MessageType.DEV, () -> Disassembler.disassemble(code));
+        return run(code, globals, task);
+    }
+
+    /**
+     * Runs code compiled from a program resolved against these globals.
+     * @return the value of the last statement or {@code null}, if there was an error, which is reported to the task
+     */
+    public static ValuesImpl.RuntimeValue run(FunctionCode program, Globals globals, ProcessTask task) {
+        try {
+            return new VirtualMachine(globals.frame()).execute(program);
+        } catch (Failure failure) {
+            task.insertError(failure.error);
+        }
+        return null;
+    }
+
+    private ValuesImpl.RuntimeValue execute(FunctionCode program) {
+        FunctionCode function = program;
+        int[] code = function.code;
+        Object[] environment = null;
+        int pc = 0, base = 0, sp = 0, calls = 0;
+        ensureCapacity(program.maxStack);
+        byte[] tags = this.tags;
+        float[] numbers = this.numbers;
+        Object[] objects = this.objects;
+
+        while (true) {
+            switch (code[pc++]) {
+                case Opcode.PUSH_NUMBER -> {
+                    tags[sp] = NUMBER;
+                    numbers[sp++] = Float.intBitsToFloat(code[pc++]);
+                }
+                case Opcode.PUSH_CONSTANT -> {
+                    tags[sp] = OBJECT;
+                    objects[sp++] = function.constants[code[pc++]];
+                }
+                case Opcode.PUSH_NULL -> {
+                    tags[sp] = OBJECT;
+                    objects[sp++] = NULL;
+                }
+                case Opcode.POP -> sp--;
+
+                case Opcode.LOAD_LOCAL -> {
+                    final int slot = base + code[pc++];
+                    final byte tag = tags[slot];
+                    if (tag == EMPTY)
+                        throw unassigned(function, pc - 2);
+                    tags[sp] = tag;
+                    if (tag == OBJECT)
+                        objects[sp++] = objects[slot];
+                    else numbers[sp++] = numbers[slot];
+                }
+                case Opcode.STORE_LOCAL -> {
+                    final int slot = base + code[pc++];
+                    final byte tag = tags[sp - 1];
+                    tags[slot] = tag;
+                    if (tag == OBJECT)
+                        objects[slot] = objects[sp - 1];
+                    else numbers[slot] = numbers[sp - 1];
+                }
+                case Opcode.SET_LOCAL -> {
+                    final int slot = base + code[pc++];
+                    final byte tag = tags[--sp];
+                    tags[slot] = tag;
+                    if (tag == OBJECT)
+                        objects[slot] = objects[sp];
+                    else numbers[slot] = numbers[sp];
+                }
+                case Opcode.LOAD_GLOBAL -> {
+                    final ValuesImpl.RuntimeValue value = globals.get(code[pc++]);
+                    if (value == null)
+                        throw unassigned(function, pc - 2);
+                    if (value instanceof Closure) {
+                        tags[sp] = OBJECT;
+                        objects[sp++] = value;
+                    }
+                    else push(sp++, value);
+                }
+                case Opcode.STORE_GLOBAL -> globals.set(code[pc++], wrap(sp - 1));
+                case Opcode.LOAD_CAPTURED -> {
+                    final Object value = environment(environment, code[pc++])[code[pc++] + 1];
+                    if (value == null)
+                        throw unassigned(function, pc - 3);
+                    unbox(sp++, value);
+                }
+                case Opcode.STORE_CAPTURED -> environment(environment, code[pc++])[code[pc++] + 1] = box(sp - 1);
+
+                case Opcode.ADD -> {
+                    if (tags[sp - 2] == NUMBER && tags[sp - 1] == NUMBER)
+                        numbers[sp - 2] += numbers[sp - 1];
+                    else binary(Opcode.ADD, sp - 2);
+                    sp--;
+                }
+                case Opcode.SUBTRACT -> {
+                    if (tags[sp - 2] == NUMBER && tags[sp - 1] == NUMBER)
+                        numbers[sp - 2] -= numbers[sp - 1];
+                    else binary(Opcode.SUBTRACT, sp - 2);
+                    sp--;
+                }
+                case Opcode.MULTIPLY -> {
+                    if (tags[sp - 2] == NUMBER && tags[sp - 1] == NUMBER)
+                        numbers[sp - 2] *= numbers[sp - 1];
+                    else binary(Opcode.MULTIPLY, sp - 2);
+                    sp--;
+                }
+                case Opcode.DIVIDE -> {
+                    if (tags[sp - 2] == NUMBER && tags[sp - 1] == NUMBER)
+                        numbers[sp - 2] /= numbers[sp - 1];
+                    else binary(Opcode.DIVIDE, sp - 2);
+                    sp--;
+                }
+                case Opcode.LESS -> {
+                    if (tags[sp - 2] == NUMBER && tags[sp - 1] == NUMBER) {
+                        tags[sp - 2] = BOOLEAN;
+                        numbers[sp - 2] = numbers[sp - 2] < numbers[sp - 1] ? 1 : 0;
+                    }
+                    else binary(Opcode.LESS, sp - 2);
+                    sp--;
+                }
+                case Opcode.MODULO, Opcode.POWER, Opcode.LESS_EQUAL, Opcode.GREATER, Opcode.GREATER_EQUAL,
+                     Opcode.EQUAL, Opcode.NOT_EQUAL, Opcode.BIT_AND, Opcode.BIT_OR, Opcode.SHIFT_LEFT, Opcode.SHIFT_RIGHT -> {
+                    binary(code[pc - 1], sp - 2);
+                    sp--;
+                }
+                case Opcode.ADD_NUMBER -> {
+                    if (tags[sp - 1] == NUMBER)
+                        numbers[sp - 1] += Float.intBitsToFloat(code[pc++]);
+                    else binaryNumber(Opcode.ADD, sp - 1, code[pc++]);
+                }
+                case Opcode.SUBTRACT_NUMBER -> {
+                    if (tags[sp - 1] == NUMBER)
+                        numbers[sp - 1] -= Float.intBitsToFloat(code[pc++]);
+                    else binaryNumber(Opcode.SUBTRACT, sp - 1, code[pc++]);
+                }
+                case Opcode.MULTIPLY_NUMBER -> {
+                    if (tags[sp - 1] == NUMBER)
+                        numbers[sp - 1] *= Float.intBitsToFloat(code[pc++]);
+                    else binaryNumber(Opcode.MULTIPLY, sp - 1, code[pc++]);
+                }
+                case Opcode.DIVIDE_NUMBER -> {
+                    if (tags[sp - 1] == NUMBER)
+                        numbers[sp - 1] /= Float.intBitsToFloat(code[pc++]);
+                    else binaryNumber(Opcode.DIVIDE, sp - 1, code[pc++]);
+                }
+                case Opcode.ADD_LOCAL -> {
+                    final int slot = base + code[pc++];
+                    if (tags[sp - 1] == NUMBER && tags[slot] == NUMBER)
+                        numbers[sp - 1] += numbers[slot];
+                    else binaryLocal(Opcode.ADD, sp - 1, slot, function, pc - 2);
+                }
+                case Opcode.SUBTRACT_LOCAL -> {
+                    final int slot = base + code[pc++];
+                    if (tags[sp - 1] == NUMBER && tags[slot] == NUMBER)
+                        numbers[sp - 1] -= numbers[slot];
+                    else binaryLocal(Opcode.SUBTRACT, sp - 1, slot, function, pc - 2);
+                }
+                case Opcode.MULTIPLY_LOCAL -> {
+                    final int slot = base + code[pc++];
+                    if (tags[sp - 1] == NUMBER && tags[slot] == NUMBER)
+                        numbers[sp - 1] *= numbers[slot];
+                    else binaryLocal(Opcode.MULTIPLY, sp - 1, slot, function, pc - 2);
+                }
+                case Opcode.DIVIDE_LOCAL -> {
+                    final int slot = base + code[pc++];
+                    if (tags[sp - 1] == NUMBER && tags[slot] == NUMBER)
+                        numbers[sp - 1] /= numbers[slot];
+                    else binaryLocal(Opcode.DIVIDE, sp - 1, slot, function, pc - 2);
+                }
+
+                case Opcode.CHECK_BOOLEAN -> bool(sp - 1, function, pc - 1);
+                case Opcode.JUMP_IF_FALSE_OR_POP -> {
+                    final int offset = code[pc++];
+                    if (!bool(sp - 1, function, pc - 2))
+                        pc += offset;
+                    else sp--;
+                }
+                case Opcode.JUMP_IF_TRUE_OR_POP -> {
+                    final int offset = code[pc++];
+                    if (bool(sp - 1, function, pc - 2))
+                        pc += offset;
+                    else sp--;
+                }
+
+                case Opcode.CLOSURE -> {
+                    declare((FunctionCode) function.constants[code[pc]], code[pc + 1], base, code[pc + 2], environment, sp++);
+                    pc += 3;
+                }
+                case Opcode.CALL -> {
+                    final int arguments = code[pc++];
+                    final int callee = sp - arguments - 1;
+                    if (tags[callee] != OBJECT || !(objects[callee] instanceof Closure closure))
+                        throw new Failure(ErrorType.INVALID_ACTION, (function.names[pc - 2] != null
+                                ? "'" + function.names[pc - 2] + "'" : "The called value") + " is not a function");
+                    final FunctionCode target = closure.overload(arguments);
+                    if (target == null)
+                        throw new Failure(ErrorType.NOT_FOUND, "Function '" + closure.name() + "' takes no " + arguments + " arguments");
+                    if (!target.isCompiled() && !target.compile())
+                        throw new Failure(ErrorType.INVALID_ACTION, "Function '" + target.name + "' cannot be called, its body has errors");
+
+                    if (calls == savedFunction.length)
+                        growCalls(calls);
+                    savedRegisters[2 * calls] = pc;
+                    savedRegisters[2 * calls + 1] = base;
+                    savedFunction[calls] = function;
+                    savedEnvironment[calls++] = environment;
+
+                    // the arguments become the first slots of the frame
+                    base = callee + 1;
+                    if (base + target.frameSize + target.maxStack > tags.length) {
+                        ensureCapacity(base + target.frameSize + target.maxStack);
+                        tags = this.tags;
+                        numbers = this.numbers;
+                        objects = this.objects;
+                    }
+                    sp = base + target.frameSize;
+                    for (int slot = base + arguments; slot < sp; slot++)
+                        tags[slot] = EMPTY;
+
+                    environment = target.ownEnvironment ? environment(target, base, closure.environment) : closure.environment;
+                    function = target;
+                    code = target.code;
+                    pc = 0;
+                }
+                case Opcode.RETURN -> {
+                    if (calls == 0)
+                        return wrap(sp - 1);
+
+                    // the result takes the place of the callee
+                    final byte tag = tags[sp - 1];
+                    tags[base - 1] = tag;
+                    if (tag == OBJECT)
+                        objects[base - 1] = objects[sp - 1];
+                    else numbers[base - 1] = numbers[sp - 1];
+                    sp = base;
+                    calls--;
+                    pc = savedRegisters[2 * calls];
+                    base = savedRegisters[2 * calls + 1];
+                    function = savedFunction[calls];
+                    environment = savedEnvironment[calls];
+                    code = function.code;
+                }
+                case Opcode.FAIL -> throw new Failure(ErrorType.INVALID_ACTION, (String) function.constants[code[pc]]);
+                default -> throw new IllegalStateException("Unknown opcode " + code[pc - 1] + " in " + function.name);
+            }
+        }
+    }
+
+    /**
+     * Puts a new function into its slot and on the stack at {@code at}, merged with the overloads already
+     * declared in the same scope.
+     */
+    private void declare(FunctionCode declared, int location, int base, int slot, Object[] environment, int at) {
+        final Object existing = switch (location) {
+            case Opcode.IN_LOCAL -> tags[base + slot] == OBJECT ? objects[base + slot] : null;
+            case Opcode.IN_GLOBAL -> globals.get(slot);
+            default -> environment[slot + 1];
+        };
+        final Closure closure = existing instanceof Closure overloads && overloads.environment == environment
+                ? overloads.with(declared)
+                : new Closure(new FunctionCode[]{declared}, environment);
+        switch (location) {
+            case Opcode.IN_LOCAL -> setObject(base + slot, closure);
+            case Opcode.IN_GLOBAL -> globals.set(slot, closure);
+            default -> environment[slot + 1] = closure;
+        }
+        setObject(at, closure);
+    }
+
+    /**
+     * @return a new environment for a call of the function, with its captured parameters copied from the frame at {@code base}
+     */
+    private Object[] environment(FunctionCode function, int base, Object[] enclosing) {
+        final Object[] environment = new Object[function.frameSize + 1];
+        environment[0] = enclosing;
+        for (int parameter : function.capturedParameters)
+            environment[parameter + 1] = box(base + parameter);
+        return environment;
+    }
+
+    private static Object[] environment(Object[] environment, int hops) {
+        for (; hops > 0; hops--)
+            environment = (Object[]) environment[0];
+        return environment;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= tags.length)
+            return;
+        final int capacity = Math.max(size, tags.length * 2);
+        tags = Arrays.copyOf(tags, capacity);
+        numbers = Arrays.copyOf(numbers, capacity);
+        objects = Arrays.copyOf(objects, capacity);
+    }
+
+    private void growCalls(int calls) {
+        if (calls >= MAX_CALL_DEPTH)
+            throw new Failure(ErrorType.FATAL, "Stack overflow, the recursion is too deep");
+        final int capacity = calls * 2;
+        savedRegisters = Arrays.copyOf(savedRegisters, 2 * capacity);
+        savedFunction = Arrays.copyOf(savedFunction, capacity);
+        savedEnvironment = Arrays.copyOf(savedEnvironment, capacity);
+    }
+
+    private static Failure unassigned(FunctionCode function, int position) {
+        return new Failure(ErrorType.UNASSIGNED_VARIABLE_QUERIED, "Variable '" + function.names[position] + "' has not been assigned yet");
+    }
+
+    private static final String[] OPERATORS = {"+", "-", "*", "/", "%", "**", "<", "<=", ">", ">=", "==", "!=", "&", "|", "<<", ">>"};
+
+    /**
+     * Every operator but the fast paths of the loop, the result replaces the left operand at {@code at}.
+     */
+    private void binary(int opcode, int at) {
+        final int right = at + 1;
+        final String operator = OPERATORS[opcode - Opcode.ADD];
+
+        switch (opcode) {
+            case Opcode.ADD -> {
+                if (objects[at] instanceof String && tags[at] == OBJECT || objects[right] instanceof String && tags[right] == OBJECT)
+                    setObject(at, display(at) + display(right));
+                else setNumber(at, number(at, operator) + number(right, operator));
+            }
+            case Opcode.SUBTRACT -> setNumber(at, number(at, operator) - number(right, operator));
+            case Opcode.MULTIPLY -> setNumber(at, number(at, operator) * number(right, operator));
+            case Opcode.DIVIDE -> setNumber(at, number(at, operator) / number(right, operator));
+            case Opcode.MODULO -> setNumber(at, number(at, operator) % number(right, operator));
+            case Opcode.POWER -> setNumber(at, (float) Math.pow(number(at, operator), number(right, operator)));
+            case Opcode.LESS -> setBoolean(at, number(at, operator) < number(right, operator));
+            case Opcode.LESS_EQUAL -> setBoolean(at, number(at, operator) <= number(right, operator));
+            case Opcode.GREATER -> setBoolean(at, number(at, operator) > number(right, operator));
+            case Opcode.GREATER_EQUAL -> setBoolean(at, number(at, operator) >= number(right, operator));
+            case Opcode.EQUAL -> setBoolean(at, equal(at, right));
+            case Opcode.NOT_EQUAL -> setBoolean(at, !equal(at, right));
+            case Opcode.BIT_AND, Opcode.BIT_OR -> {
+                if (tags[at] == BOOLEAN) {
+                    final boolean a = bool(at, operator), b = bool(right, operator);
+                    setBoolean(at, opcode == Opcode.BIT_AND ? a & b : a | b);
+                } else {
+                    final int a = (int) number(at, operator), b = (int) number(right, operator);
+                    setNumber(at, opcode == Opcode.BIT_AND ? a & b : a | b);
+                }
+            }
+            case Opcode.SHIFT_LEFT -> setNumber(at, (int) number(at, operator) << (int) number(right, operator));
+            case Opcode.SHIFT_RIGHT -> setNumber(at, (int) number(at, operator) >> (int) number(right, operator));
+            default -> throw new IllegalStateException("Not an operator: " + Opcode.name(opcode));
+        }
+    }
+
+    // the slow paths of the instructions with a constant or a local right operand, which is pushed for binary
+    private void binaryNumber(int opcode, int at, int bits) {
+        setNumber(at + 1, Float.intBitsToFloat(bits));
+        binary(opcode, at);
+    }
+
+    private void binaryLocal(int opcode, int at, int slot, FunctionCode function, int position) {
+        if (tags[slot] == EMPTY)
+            throw unassigned(function, position);
+        tags[at + 1] = tags[slot];
+        numbers[at + 1] = numbers[slot];
+        objects[at + 1] = objects[slot];
+        binary(opcode, at);
+    }
+
+    private void setNumber(int at, float value) {
+        tags[at] = NUMBER;
+        numbers[at] = value;
+    }
+
+    private void setBoolean(int at, boolean value) {
+        tags[at] = BOOLEAN;
+        numbers[at] = value ? 1 : 0;
+    }
+
+    private void setObject(int at, Object value) {
+        tags[at] = OBJECT;
+        objects[at] = value;
+    }
+
+    private float number(int at, String operator) {
+        if (tags[at] == NUMBER)
+            return numbers[at];
+        if (tags[at] == OBJECT && objects[at] instanceof Character character)
+            return character;
+        throw new Failure(ErrorType.INVALID_ACTION, "'" + operator + "' expects numbers, not " + display(at));
+    }
+
+    private boolean bool(int at, String operator) {
+        if (tags[at] == BOOLEAN)
+            return numbers[at] != 0;
+        throw new Failure(ErrorType.INVALID_ACTION, "'" + operator + "' expects booleans, not " + display(at));
+    }
+
+    // for && and ||, the instruction's name is its operator
+    private boolean bool(int at, FunctionCode function, int position) {
+        return bool(at, function.names[position]);
+    }
+
+    private boolean equal(int left, int right) {
+        if (tags[left] != tags[right])
+            return false;
+        if (tags[left] != OBJECT)
+            return numbers[left] == numbers[right];
+        return switch (objects[left]) {
+            case String string -> string.equals(objects[right]);
+            case Character character -> character.equals(objects[right]);
+            case ValuesImpl.NullValue ignored -> objects[right] instanceof ValuesImpl.NullValue;
+            default -> objects[left] == objects[right];
+        };
+    }
+
+    /**
+     * @return the value as it is written in a string concatenation
+     */
+    private String display(int at) {
+        return switch (tags[at]) {
+            case NUMBER -> numbers[at] == (long) numbers[at] ? Long.toString((long) numbers[at]) : Float.toString(numbers[at]);
+            case BOOLEAN -> String.valueOf(numbers[at] != 0);
+            default -> switch (objects[at]) {
+                case String string -> string;
+                case Character character -> String.valueOf(character);
+                case ValuesImpl.FunctionValue function -> "<function " + function.name() + ">";
+                case Closure closure -> "<function " + closure.name() + ">";
+                case null, default -> "null";
+            };
+        };
+    }
+
+    /**
+     * @return the value at the position as the rest of the runtime sees it
+     */
+    private ValuesImpl.RuntimeValue wrap(int at) {
+        return switch (tags[at]) {
+            case NUMBER -> new ValuesImpl.NumberValue(numbers[at]);
+            case BOOLEAN -> new ValuesImpl.BooleanValue(numbers[at] != 0);
+            default -> {
+                // instanceof chains, a type switch is too slow for every global written
+                final Object value = objects[at];
+                if (value instanceof ValuesImpl.RuntimeValue runtimeValue)
+                    yield runtimeValue;
+                if (value instanceof String string)
+                    yield new ValuesImpl.StringValue(string);
+                if (value instanceof Character character)
+                    yield new ValuesImpl.CharacterValue(character);
+                yield NULL;
+            }
+        };
+    }
+
+    /**
+     * Pushes a value of the rest of the runtime to the position.
+     */
+    private void push(int at, ValuesImpl.RuntimeValue value) {
+        if (value instanceof Closure)
+            setObject(at, value);
+        else if (value instanceof ValuesImpl.NumberValue number)
+            setNumber(at, number.value());
+        else if (value instanceof ValuesImpl.BooleanValue bool)
+            setBoolean(at, bool.value());
+        else if (value instanceof ValuesImpl.StringValue string)
+            setObject(at, string.value());
+        else if (value instanceof ValuesImpl.CharacterValue character)
+            setObject(at, character.value());
+        else setObject(at, value);
+    }
+
+    /**
+     * @return the value at the position as an environment stores it
+     */
+    private Object box(int at) {
+        return switch (tags[at]) {
+            case NUMBER -> numbers[at];
+            case BOOLEAN -> numbers[at] != 0;
+            default -> objects[at];
+        };
+    }
+
+    private void unbox(int at, Object value) {
+        if (value instanceof Float number)
+            setNumber(at, number);
+        else if (value instanceof Boolean bool)
+            setBoolean(at, bool);
+        else setObject(at, value);
+    }
+}
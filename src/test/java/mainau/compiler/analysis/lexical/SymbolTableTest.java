@@ -0,0 +1,57 @@
+package mainau.compiler.analysis.lexical;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SymbolTableTest {
+    @Test
+    void equalNamesShareTheirId() {
+        final String source = "alpha beta alpha";
+        final int alpha = SymbolTable.intern(source, 0, 5);
+        assertEquals(alpha, SymbolTable.intern(source, 11, 5));
+        assertEquals(alpha, SymbolTable.intern("alpha"));
+        assertEquals("alpha", SymbolTable.name(alpha));
+        assertEquals("beta", SymbolTable.name(SymbolTable.intern(source, 6, 4)));
+    }
+
+    @Test
+    void unknownIdsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> SymbolTable.name(-1));
+        assertThrows(IllegalArgumentException.class, () -> SymbolTable.name(SymbolTable.size()));
+    }
+
+    @Test
+    void concurrentThreadsGetTheSameIds() throws Exception {
+        final int threads = 8, names = 5000;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<int[]>> results = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                final int first = thread;
+                results.add(executor.submit(() -> {
+                    final int[] ids = new int[names];
+                    // each thread starts at another name, so they add and look up names at the same time
+                    for (int i = 0; i < names; i++) {
+                        final int name = (first * names / threads + i) % names;
+                        ids[name] = SymbolTable.intern("concurrent" + name);
+                    }
+                    return ids;
+                }));
+            }
+            final int[] expected = results.getFirst().get();
+            for (Future<int[]> result : results)
+                assertArrayEquals(expected, result.get());
+            for (int name = 0; name < names; name++)
+                assertEquals("concurrent" + name, SymbolTable.name(expected[name]));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
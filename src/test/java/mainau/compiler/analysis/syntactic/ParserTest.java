@@ -0,0 +1,89 @@
+package mainau.compiler.analysis.syntactic;
+
+import mainau.compiler.analysis.lexical.Operator;
+import mainau.compiler.analysis.lexical.SourceFile;
+import mainau.compiler.ast.AST;
+import mainau.compiler.error.Error;
+import mainau.compiler.error.ErrorType;
+import mainau.repl.runtime.ProcessTask;
+import mainau.repl.runtime.Session;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParserTest {
+    private static ProcessTask parse(String source) {
+        final ProcessTask task = new ProcessTask(new SourceFile(source, "test"), new Session());
+        task.start();
+        return task;
+    }
+
+    private static List<Error> errors(ProcessTask task) {
+        return task.getErrorStorage().getErrors();
+    }
+
+    @Test
+    void malformedNumberIsASyntaxError() {
+        final ProcessTask task = parse("var x = 12abc;");
+        assertEquals(1, errors(task).size());
+        assertEquals(ErrorType.SYNTAX, errors(task).getFirst().type());
+        assertTrue(errors(task).getFirst().message().contains("12abc"));
+    }
+
+    @Test
+    void numberWithTwoDotsIsASyntaxError() {
+        final ProcessTask task = parse("1.2.3;");
+        assertEquals(1, errors(task).size());
+        assertEquals(ErrorType.SYNTAX, errors(task).getFirst().type());
+    }
+
+    @Test
+    void parsingRecoversBehindAMalformedNumber() {
+        final ProcessTask task = parse("var x = 12abc; var y = 4; y + 1;");
+        assertEquals(1, errors(task).size());
+        assertEquals(2, task.getProgram().body().length);
+        assertInstanceOf(AST.VariableDeclarationStatement.class, task.getProgram().body()[0]);
+    }
+
+    @Test
+    void wellFormedNumbersParse() {
+        final ProcessTask task = parse("1.5; 42;");
+        assertTrue(errors(task).isEmpty());
+        assertEquals(1.5f, ((AST.NumericLiteralExpression) task.getProgram().body()[0]).value());
+    }
+
+    @Test
+    void tooLongQualifiedNameIsASyntaxError() {
+        final ProcessTask task = parse("a" + ".a".repeat(40) + " name; var y = 4;");
+        assertEquals(1, errors(task).size());
+        assertEquals(ErrorType.SYNTAX, errors(task).getFirst().type());
+        assertInstanceOf(AST.VariableDeclarationStatement.class, task.getProgram().body()[task.getProgram().body().length - 1]);
+    }
+
+    @Test
+    void qualifiedTypeNamesParse() {
+        final ProcessTask task = parse("java.lang.String name;");
+        assertTrue(errors(task).isEmpty());
+        assertInstanceOf(AST.VariableDeclarationStatement.class, task.getProgram().body()[0]);
+    }
+
+    @Test
+    void compoundAssignmentKeepsItsOperator() {
+        final ProcessTask task = parse("var x = 1; x += 2;");
+        assertTrue(errors(task).isEmpty());
+        final AST.AssignmentExpression assignment = assertInstanceOf(AST.AssignmentExpression.class, task.getProgram().body()[1]);
+        assertEquals(Operator.ADD_ASSIGN, assignment.operator());
+        // the target is not repeated as the left operand of a binary expression
+        assertInstanceOf(AST.NumericLiteralExpression.class, assignment.value());
+    }
+
+    @Test
+    void shiftAssignmentsParse() {
+        final ProcessTask task = parse("var s = 1; s <<= 2; s >>= 1;");
+        assertTrue(errors(task).isEmpty());
+        assertEquals(Operator.SHIFT_LEFT_ASSIGN, ((AST.AssignmentExpression) task.getProgram().body()[1]).operator());
+        assertEquals(Operator.SHIFT_RIGHT_ASSIGN, ((AST.AssignmentExpression) task.getProgram().body()[2]).operator());
+    }
+}
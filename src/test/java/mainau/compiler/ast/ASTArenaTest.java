@@ -0,0 +1,98 @@
+package mainau.compiler.ast;
+
+import mainau.compiler.analysis.lexical.Operator;
+import mainau.compiler.analysis.lexical.SourceFile;
+import mainau.repl.runtime.ProcessTask;
+import mainau.repl.runtime.Session;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ASTArenaTest {
+    private static final int HAS_CHILDREN = 1 << 7;
+
+    private static byte[] written(String source) throws IOException {
+        final ProcessTask task = new ProcessTask(new SourceFile(source, "test"), new Session());
+        task.start();
+        assertTrue(task.getErrorStorage().getErrors().isEmpty());
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            ASTArena.of(task.getProgram()).write(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ByteBuffer header(byte[] bytes, int node) {
+        return ByteBuffer.wrap(bytes).position(4 + 4 * node);
+    }
+
+    private static ByteBuffer sibling(byte[] bytes, int node) {
+        return ByteBuffer.wrap(bytes).position(4 + 4 * ByteBuffer.wrap(bytes).getInt() + 4 * node);
+    }
+
+    private static void setKind(byte[] bytes, int node, ASTArena.Kind kind) {
+        final int header = header(bytes, node).getInt();
+        header(bytes, node).putInt(header & ~(HAS_CHILDREN - 1) | kind.ordinal());
+    }
+
+    @Test
+    void writtenTreesReadBack() throws IOException {
+        final ASTArena arena = ASTArena.read(ByteBuffer.wrap(written("var x = 1; fun f = int (int a) -> a + x; f(2);")));
+        final AST.Statement[] body = arena.root().body();
+        assertEquals(3, body.length);
+        assertInstanceOf(AST.VariableDeclarationStatement.class, body[0]);
+        assertEquals(1, ((AST.FunctionDeclarationStatement) body[1]).arguments().size());
+        assertInstanceOf(AST.FunctionInvocationExpression.class, body[2]);
+    }
+
+    @Test
+    void compoundAssignmentsKeepTheirOperator() throws IOException {
+        final ASTArena arena = ASTArena.read(ByteBuffer.wrap(written("var x = 1; x <<= 2; x = 3;")));
+        final AST.Statement[] body = arena.root().body();
+        assertEquals(Operator.SHIFT_LEFT_ASSIGN, ((AST.AssignmentExpression) body[1]).operator());
+        assertEquals(Operator.ASSIGN, ((AST.AssignmentExpression) body[2]).operator());
+    }
+
+    @Test
+    void truncatedTreeIsRejected() throws IOException {
+        final byte[] bytes = written("var x = 1;");
+        assertThrows(IllegalArgumentException.class, () -> ASTArena.read(ByteBuffer.wrap(bytes, 0, bytes.length - 8)));
+    }
+
+    @Test
+    void declarationWithoutValueSlotIsRejected() throws IOException {
+        // program, declaration, type, value: the type loses its sibling
+        final byte[] bytes = written("var x = 1;");
+        sibling(bytes, 2).putInt(-1);
+        assertThrows(IllegalArgumentException.class, () -> ASTArena.read(ByteBuffer.wrap(bytes)));
+    }
+
+    @Test
+    void nonExpressionInExpressionSlotIsRejected() throws IOException {
+        final byte[] bytes = written("var x = 1;");
+        setKind(bytes, 3, ASTArena.Kind.PROGRAM);
+        assertThrows(IllegalArgumentException.class, () -> ASTArena.read(ByteBuffer.wrap(bytes)));
+    }
+
+    @Test
+    void wrongParameterCountIsRejected() throws IOException {
+        // program, function, return type, parameter, parameter type, body
+        final byte[] bytes = written("fun f = int (int a) -> a;");
+        final int header = header(bytes, 1).getInt();
+        header(bytes, 1).putInt(header + (1 << 16));
+        assertThrows(IllegalArgumentException.class, () -> ASTArena.read(ByteBuffer.wrap(bytes)));
+    }
+
+    @Test
+    void sharedChildIsRejected() throws IOException {
+        // the type of the first declaration points to the second declaration as well
+        final byte[] bytes = written("var x; var y;");
+        sibling(bytes, 2).putInt(4);
+        assertThrows(IllegalArgumentException.class, () -> ASTArena.read(ByteBuffer.wrap(bytes)));
+    }
+}
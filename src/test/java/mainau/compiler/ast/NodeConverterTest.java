@@ -0,0 +1,72 @@
+package mainau.compiler.ast;
+
+import mainau.compiler.analysis.lexical.SourceFile;
+import mainau.repl.runtime.ProcessTask;
+import mainau.repl.runtime.Session;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NodeConverterTest {
+    private static final String SOURCE = """
+            final int limit = 10;
+            fun sum = int (int a, final int b) -> {
+                int c = a;
+                c += b * 2;
+                c <<= 1;
+                c
+            }
+            fun noop = void () -> {}
+            sum(limit, 3) + 'x' - "y";
+            """;
+
+    private static AST.Program parsed(String source) {
+        final ProcessTask task = new ProcessTask(new SourceFile(source, "test"), new Session());
+        task.start();
+        assertTrue(task.getErrorStorage().getErrors().isEmpty());
+        return task.getProgram();
+    }
+
+    private static Node.FunctionDeclaration function(Node.Program program, String name) {
+        for (Node statement : program.body())
+            if (statement instanceof Node.FunctionDeclaration function && function.identifierSymbol().equals(name))
+                return function;
+        return fail("no function " + name);
+    }
+
+    @Test
+    void convertedTreesAreTakenAsTheyAre() {
+        final Node.Program program = Node.of(parsed(SOURCE));
+        assertSame(program, Node.of(program));
+        assertSame(program.body()[0], Node.of((AST.Statement) program.body()[0]));
+    }
+
+    @Test
+    void parsedAndArenaTreesConvertAlike() {
+        final AST.Program parsed = parsed(SOURCE);
+        final Node.Program direct = Node.of(parsed);
+        final Node.Program throughArena = Node.of(ASTArena.of(parsed).root());
+        assertEquals(direct.toString(), throughArena.toString());
+        // the records also read back through the arena unchanged
+        assertEquals(direct.toString(), Node.of(ASTArena.of(direct).root()).toString());
+    }
+
+    @Test
+    void parametersKeepTheirOrder() {
+        final Node.FunctionDeclaration sum = function(Node.of(parsed(SOURCE)), "sum");
+        assertEquals(List.of("a", "b"), sum.arguments().stream()
+                .map(AST.FunctionDeclarationStatement.ParameterExpression::identifierSymbol).toList());
+        assertEquals(List.of(false, true), sum.parameters().stream().map(Node.Parameter::isFinal).toList());
+        assertTrue(function(Node.of(parsed(SOURCE)), "noop").arguments().isEmpty());
+    }
+
+    @Test
+    void argumentsAreACachedUnmodifiableView() {
+        final Node.FunctionDeclaration sum = function(Node.of(parsed(SOURCE)), "sum");
+        assertSame(sum.arguments(), sum.arguments());
+        assertThrows(UnsupportedOperationException.class, () -> sum.arguments().clear());
+        assertThrows(UnsupportedOperationException.class, () -> sum.parameters().remove(sum.parameters().iterator().next()));
+    }
+}
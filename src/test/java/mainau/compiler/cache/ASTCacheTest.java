@@ -0,0 +1,54 @@
+package mainau.compiler.cache;
+
+import mainau.compiler.analysis.lexical.SourceFile;
+import mainau.compiler.ast.AST;
+import mainau.repl.runtime.ProcessTask;
+import mainau.repl.runtime.Session;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ASTCacheTest {
+    private static final byte[] HASH = new byte[32];
+
+    private static AST.Program parse(String source) {
+        final ProcessTask task = new ProcessTask(new SourceFile(source, "test"), new Session());
+        task.start();
+        return task.getProgram();
+    }
+
+    private static Path entry(Path directory) {
+        return directory.resolve(HexFormat.of().formatHex(HASH) + ".ast");
+    }
+
+    @Test
+    void storedProgramLoads() throws IOException {
+        final Path directory = Files.createTempDirectory("cache");
+        final ASTCache cache = new ASTCache(directory);
+        cache.store(HASH, parse("var x = 1; x + 2;"));
+        final AST.Program program = cache.load(HASH);
+        assertNotNull(program);
+        assertEquals(2, program.body().length);
+    }
+
+    @Test
+    void corruptedEntryIsDropped() throws IOException {
+        final Path directory = Files.createTempDirectory("cache");
+        final ASTCache cache = new ASTCache(directory);
+        cache.store(HASH, parse("var x = 1; x + 2;"));
+        // changes the value of the number 1, the tree stays well-formed
+        final byte[] bytes = Files.readAllBytes(entry(directory));
+        final int arena = 12 + 32, size = ByteBuffer.wrap(bytes, arena, 4).getInt();
+        bytes[arena + 4 + 4 * 2 * size + 4 * 3 + 3] ^= 1;
+        Files.write(entry(directory), bytes);
+
+        assertNull(cache.load(HASH));
+        assertFalse(Files.exists(entry(directory)));
+    }
+}
@@ -0,0 +1,101 @@
+package mainau.compiler.interpretation;
+
+import mainau.compiler.analysis.lexical.SourceFile;
+import mainau.compiler.ast.ASTArena;
+import mainau.compiler.ast.ASTImpl;
+import mainau.compiler.ast.Node;
+import mainau.compiler.error.Error;
+import mainau.compiler.error.ErrorType;
+import mainau.repl.runtime.ProcessTask;
+import mainau.repl.runtime.Session;
+import mainau.repl.runtime.ValuesImpl;
+import mainau.vm.VirtualMachine;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResolverTest {
+    private interface Engine {
+        ValuesImpl.RuntimeValue evaluate(ASTImpl.Program program, Globals globals, ProcessTask task);
+    }
+
+    private static final Map<String, Engine> ENGINES = Map.of(
+            "ast", Interpreter::evaluate,
+            "specializing", SpecializingInterpreter::evaluate,
+            "bytecode", VirtualMachine::evaluate
+    );
+
+    private static ProcessTask parse(String source, Session session) {
+        final ProcessTask task = new ProcessTask(new SourceFile(source, "test"), session);
+        task.start();
+        assertEquals(List.of(), task.getErrorStorage().getErrors());
+        return task;
+    }
+
+    private static List<String> messages(ProcessTask task, ErrorType type) {
+        return task.getErrorStorage().getErrors().stream().filter(error -> error.type() == type).map(Error::message).toList();
+    }
+
+    @Test
+    void recordTreesAreReportedInsteadOfThrown() {
+        final Session session = new Session();
+        final ProcessTask task = parse("var x = 1; x + 1;", session);
+
+        assertNull(mainau.repl.runtime.Interpreter.evaluate(Node.of(task.getProgram()), session));
+        assertNull(mainau.repl.runtime.Interpreter.evaluate(ASTArena.of(task.getProgram()).root(), session));
+        assertEquals(2, messages(task, ErrorType.INVALID_ACTION).size());
+    }
+
+    @Test
+    void foreignNodesInAParsedProgramAreReported() {
+        ENGINES.forEach((name, engine) -> {
+            final Session session = new Session();
+            final ProcessTask task = parse("var x = 1; x + 1;", session);
+            final ASTImpl.Program mixed = new ASTImpl.Program(Node.of(task.getProgram()).body());
+
+            assertNull(engine.evaluate(mixed, session.getGlobals(), task), name);
+            assertFalse(messages(task, ErrorType.INVALID_ACTION).isEmpty(), name);
+            // the globals the program declared are dropped with it
+            final ProcessTask again = parse("var x = 2; x;", session);
+            assertEquals(2f, ((ValuesImpl.NumberValue) engine.evaluate(again.getProgram(), session.getGlobals(), again)).value(), name);
+        });
+    }
+
+    @Test
+    void calleesAreNamedByTheirVariable() {
+        ENGINES.forEach((name, engine) -> {
+            final Session session = new Session();
+            final ProcessTask task = parse("var g = 1; g(2);", session);
+
+            assertNull(engine.evaluate(task.getProgram(), session.getGlobals(), task), name);
+            assertEquals(List.of("'g' is not a function"), messages(task, ErrorType.INVALID_ACTION), name);
+        });
+    }
+
+    @Test
+    void parametersShadowGlobalsOfTheSameName() {
+        ENGINES.forEach((name, engine) -> {
+            final Session session = new Session();
+            final ProcessTask task = parse("var x = 1; fun twice = int (int x) -> { x * 2; } twice(5) + x;", session);
+
+            final ValuesImpl.RuntimeValue result = engine.evaluate(task.getProgram(), session.getGlobals(), task);
+            assertEquals(List.of(), task.getErrorStorage().getErrors(), name);
+            assertEquals(11f, ((ValuesImpl.NumberValue) result).value(), name);
+        });
+    }
+
+    @Test
+    void redeclarationsAreReportedByName() {
+        final Session session = new Session();
+        final ProcessTask variable = parse("var x = 1; var x = 2;", session);
+        assertNull(Interpreter.evaluate(variable.getProgram(), session.getGlobals(), variable));
+        assertEquals(List.of("Already existing variable 'x' cannot be redefined"), messages(variable, ErrorType.INVALID_ACTION));
+
+        final ProcessTask parameter = parse("fun f = int (int a, int a) -> { a; }", session);
+        assertNull(Interpreter.evaluate(parameter.getProgram(), session.getGlobals(), parameter));
+        assertEquals(List.of("Parameter 'a' of 'f' is declared twice"), messages(parameter, ErrorType.INVALID_ACTION));
+    }
+}
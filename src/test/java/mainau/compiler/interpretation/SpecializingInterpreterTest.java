@@ -0,0 +1,63 @@
+package mainau.compiler.interpretation;
+
+import mainau.compiler.analysis.lexical.SourceFile;
+import mainau.compiler.ast.ASTImpl;
+import mainau.repl.runtime.ProcessTask;
+import mainau.repl.runtime.Session;
+import mainau.repl.runtime.ValuesImpl;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpecializingInterpreterTest {
+    private static final String PROGRAM = """
+            fun twice = int (int x) -> x * 2;
+            fun outer = int (int x) -> { fun inner = int () -> twice(x); inner(); }
+            outer(1) + outer(2);
+            """;
+
+    private static ProcessTask parse(String source) {
+        final ProcessTask task = new ProcessTask(new SourceFile(source, "test"), new Session());
+        task.start();
+        assertEquals(List.of(), task.getErrorStorage().getErrors());
+        return task;
+    }
+
+    private static float evaluate(ASTImpl.Program program, Globals globals, ProcessTask task) {
+        final ValuesImpl.RuntimeValue value = SpecializingInterpreter.evaluate(program, globals, task);
+        assertEquals(List.of(), task.getErrorStorage().getErrors());
+        return assertInstanceOf(ValuesImpl.NumberValue.class, value).value();
+    }
+
+    @Test
+    void everySessionSpecializesOnItsOwn() {
+        final ProcessTask task = parse(PROGRAM);
+        final Globals first = new Globals(), second = new Globals();
+        assertEquals(6f, evaluate(task.getProgram(), first, task));
+        assertEquals(6f, evaluate(task.getProgram(), second, task));
+        assertEquals(6f, evaluate(task.getProgram(), first, task));
+
+        assertSame(first.specializing(), first.specializing());
+        assertNotSame(first.specializing(), second.specializing());
+    }
+
+    @Test
+    void theTreeDoesNotKeepASessionAlive() throws InterruptedException {
+        final ProcessTask task = parse(PROGRAM);
+        Globals globals = new Globals();
+        assertEquals(6f, evaluate(task.getProgram(), globals, task));
+        final WeakReference<Frame> frame = new WeakReference<>(globals.frame());
+        globals = null;
+
+        for (int i = 0; i < 50 && frame.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(frame.get());
+        // the tree itself is still usable in a new session
+        assertEquals(6f, evaluate(task.getProgram(), new Globals(), task));
+    }
+}
@@ -0,0 +1,85 @@
+package mainau.compiler.logging;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncSinkTest {
+    private static final int THREADS = 4, MESSAGES = 500;
+
+    /**
+     * Runs the action with every message enabled and returns the lines it printed to the standard output.
+     */
+    private static List<String> printed(Runnable action) {
+        final PrintStream out = System.out;
+        final MessageType level = Output.getMinimumLevel();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(bytes, true));
+        Output.setMinimumLevel(MessageType.DEV);
+        try {
+            action.run();
+        } finally {
+            Output.setMinimumLevel(level);
+            System.setOut(out);
+        }
+        return bytes.toString().lines().toList();
+    }
+
+    @Test
+    void blockingSendersLoseNothingOnAFullQueue() {
+        final List<String> lines = printed(() -> {
+            Output.startAsync(2, AsyncSink.Overflow.BLOCK);
+            final List<Thread> threads = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                final int id = thread;
+                threads.add(Thread.ofPlatform().start(() -> {
+                    for (int message = 0; message < MESSAGES; message++)
+                        Output.simplyLog(MessageType.DEBUG, id + ":" + message);
+                }));
+            }
+            for (Thread thread : threads) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            Output.stopAsync();
+        });
+        assertEquals(THREADS * MESSAGES, lines.size());
+        // the messages of one thread keep their order
+        for (int thread = 0; thread < THREADS; thread++) {
+            final String prefix = " " + thread + ":";
+            final List<String> own = lines.stream().filter(line -> line.contains(prefix)).toList();
+            assertEquals(MESSAGES, own.size());
+            for (int message = 0; message < MESSAGES; message++)
+                assertTrue(own.get(message).endsWith(prefix + message));
+        }
+    }
+
+    @Test
+    void closedSinkRefusesMessages() {
+        final AsyncSink sink = new AsyncSink(4, AsyncSink.Overflow.BLOCK);
+        sink.close();
+        assertFalse(sink.offer(new AsyncSink.Pending(new Message(MessageType.ERROR, "late"), null, false)));
+    }
+
+    @Test
+    void messagesArePrintedAgainAfterStopping() {
+        final List<String> lines = printed(() -> {
+            Output.startAsync(4, AsyncSink.Overflow.DROP);
+            Output.stopAsync();
+            // a second start and stop registers and removes its own shutdown hook again
+            Output.startAsync(4, AsyncSink.Overflow.DROP);
+            Output.stopAsync();
+            Output.simplyLog(MessageType.DEBUG, "synchronous");
+        });
+        assertEquals(1, lines.size());
+        assertTrue(lines.getFirst().endsWith("synchronous"));
+    }
+}
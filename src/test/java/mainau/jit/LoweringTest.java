@@ -0,0 +1,263 @@
+package mainau.jit;
+
+import mainau.compiler.analysis.lexical.SourceFile;
+import mainau.compiler.ast.ASTImpl;
+import mainau.compiler.interpretation.Frame;
+import mainau.compiler.interpretation.Interpreter;
+import mainau.compiler.logging.MessageType;
+import mainau.repl.runtime.ProcessTask;
+import mainau.repl.runtime.Session;
+import mainau.repl.runtime.ValuesImpl;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Lowers functions and compares what their compiled code returns with what the interpreter returns.
+ * A lowering bug the JVM rejects, like a {@link VerifyError}, leaves a function not compilable instead
+ * of compiled, so every supported construct is checked for its tier as well.
+ */
+class LoweringTest {
+    private static final TierPolicy FOREGROUND = new TierPolicy(2, 2, 4, false, MessageType.DEV);
+
+    private static ValuesImpl.RuntimeValue evaluate(Session session, String source) {
+        final ProcessTask task = new ProcessTask(new SourceFile(source, "test"), session);
+        task.start();
+        final ValuesImpl.RuntimeValue value = Interpreter.evaluate(task.getProgram(), session.getGlobals(), task);
+        assertEquals(List.of(), task.getErrorStorage().getErrors(), source);
+        return value;
+    }
+
+    private static float number(ValuesImpl.RuntimeValue value) {
+        return assertInstanceOf(ValuesImpl.NumberValue.class, value).value();
+    }
+
+    private static ASTImpl.FunctionDeclarationStatement declaration(Session session, String name, int parameters) {
+        final ValuesImpl.RuntimeValue value = evaluate(session, name + ";");
+        return assertInstanceOf(ValuesImpl.FunctionValue.class, value).overload(parameters);
+    }
+
+    /**
+     * Compiles the function the way the background compiler does.
+     */
+    private static Profile compile(Session session, String name, int parameters) {
+        final Profile profile = new Profile(declaration(session, name, parameters));
+        assertTrue(profile.transition(Tier.INTERPRETED, Tier.QUEUED, "test", FOREGROUND));
+        Jit.compile(profile, session.getGlobals().frame());
+        return profile;
+    }
+
+    /**
+     * Declares the functions, lowers {@code name} and checks that its compiled code agrees with the interpreter.
+     */
+    private static void assertLowered(String declarations, String name, float... arguments) {
+        final Session session = new Session();
+        evaluate(session, declarations);
+        final Profile profile = compile(session, name, arguments.length);
+        assertEquals(Tier.COMPILED, profile.tier(), declarations);
+
+        final StringBuilder call = new StringBuilder(name).append('(');
+        for (int i = 0; i < arguments.length; i++)
+            call.append(i > 0 ? ", " : "").append(arguments[i]);
+        final float interpreted = number(evaluate(session, call.append(");").toString()));
+        assertEquals(interpreted, profile.code.invoke(arguments), declarations);
+    }
+
+    private static void assertNotCompilable(String declarations, String name, int parameters) {
+        final Session session = new Session();
+        evaluate(session, declarations);
+        assertEquals(Tier.NOT_COMPILABLE, compile(session, name, parameters).tier(), declarations);
+    }
+
+    /**
+     * Runs the action with the JIT on and functions compiled on the calling thread once they are hot.
+     */
+    private static <T> T withJit(Supplier<T> action) {
+        final boolean enabled = Jit.isEnabled();
+        final TierPolicy policy = Jit.getPolicy();
+        Jit.setEnabled(true);
+        Jit.setPolicy(FOREGROUND);
+        try {
+            return action.get();
+        } finally {
+            Jit.setPolicy(policy);
+            Jit.setEnabled(enabled);
+        }
+    }
+
+    @Test
+    void literals() {
+        assertLowered("fun f = int () -> 0;", "f");
+        assertLowered("fun f = int () -> 1 + 2;", "f");
+        assertLowered("fun f = int () -> 0.5 + 1000000;", "f");
+        assertLowered("fun f = int () -> 3.25 * 70000;", "f");
+    }
+
+    @Test
+    void arithmetic() {
+        assertLowered("fun f = int (int a, int b) -> a + b * 2 - a / b;", "f", 7, 3);
+        assertLowered("fun f = int (int a, int b) -> a % b;", "f", 7.5f, 2);
+        assertLowered("fun f = int (int a, int b) -> a / b;", "f", 1, 0);
+        assertLowered("fun f = int (int a, int b) -> a ^ b;", "f", 2, 10);
+    }
+
+    @Test
+    void bitsAndShifts() {
+        assertLowered("fun f = int (int a, int b) -> a & b | 8;", "f", 7, 3);
+        assertLowered("fun f = int (int a, int b) -> a << b >> 1;", "f", 5.75f, 3);
+    }
+
+    @Test
+    void variablesAndAssignments() {
+        assertLowered("fun f = int (int x) -> { int a = x * 2; int b = a + 1; a = b * b; a - x; }", "f", 3);
+        // beyond the four slots with their own instructions
+        assertLowered("fun f = int (int x) -> { int a = x; int b = a + 1; int c = b + 1; int d = c + 1; int e = d + 1; e * a; }", "f", 2);
+    }
+
+    @Test
+    void compoundAssignments() {
+        assertLowered("fun f = int (int x) -> { int a = x; a += 2; a *= 3; a -= 1; a /= 2; a %= 5; a; }", "f", 4);
+        assertLowered("fun f = int (int x) -> { int a = x; a <<= 3; a >>= 1; a &= 12; a |= 1; a ^= 2; a; }", "f", 5);
+    }
+
+    @Test
+    void callsOfGlobalFunctions() {
+        assertLowered("fun square = int (int x) -> x * x; fun f = int (int a, int b) -> square(a) + square(b);", "f", 3, 4);
+        assertLowered("fun g = int () -> 1; fun g = int (int x) -> x + 1; fun f = int (int x) -> g() + g(x);", "f", 5);
+        assertLowered("fun g = int (int x) -> x + 1; fun h = int (int x) -> g(g(x)); fun f = int (int x) -> h(x) * h(x);", "f", 1);
+    }
+
+    @Test
+    void unsupportedFunctionsStayInterpreted() {
+        assertNotCompilable("fun f = int () -> \"text\";", "f", 0);
+        assertNotCompilable("fun f = int (int x) -> x < 1;", "f", 1);
+        assertNotCompilable("var g = 1; fun f = int (int x) -> x + g;", "f", 1);
+        assertNotCompilable("fun f = int (int x) -> { fun g = int () -> x; g(); }", "f", 1);
+        assertNotCompilable("var g = 1; fun f = int (int x) -> g(x);", "f", 1);
+    }
+
+    @Test
+    void hotFunctionsRunCompiledCode() {
+        withJit(() -> {
+            final Session session = new Session();
+            evaluate(session, "fun f = int (int x) -> x + 1;");
+            for (int i = 0; i < 3; i++)
+                assertEquals(4f, number(evaluate(session, "f(3);")));
+            assertEquals(Tier.COMPILED, Jit.tier(session.getGlobals(), declaration(session, "f", 1)));
+            assertEquals(5f, number(evaluate(session, "f(4);")));
+            // arguments other than numbers are interpreted
+            assertEquals("a1", assertInstanceOf(ValuesImpl.StringValue.class, evaluate(session, "f(\"a\");")).value());
+            return null;
+        });
+    }
+
+    @Test
+    void redeclaringACalleeDeoptimizes() {
+        withJit(() -> {
+            final Session session = new Session();
+            evaluate(session, "fun g = int (int x) -> x + 1; fun f = int (int x) -> g(x) * 2;");
+            for (int i = 0; i < 3; i++)
+                assertEquals(4f, number(evaluate(session, "f(1);")));
+            final ASTImpl.FunctionDeclarationStatement f = declaration(session, "f", 1);
+            assertEquals(Tier.COMPILED, Jit.tier(session.getGlobals(), f));
+
+            // the compiled code guards the global it was compiled against
+            evaluate(session, "fun g = int (int x) -> x + 100;");
+            assertEquals(202f, number(evaluate(session, "f(1);")));
+            assertEquals(Tier.INTERPRETED, Jit.tier(session.getGlobals(), f));
+            // and it is compiled against the new callee once it is hot again
+            for (int i = 0; i < 3; i++)
+                assertEquals(204f, number(evaluate(session, "f(2);")));
+            assertEquals(Tier.COMPILED, Jit.tier(session.getGlobals(), f));
+            assertEquals(206f, number(evaluate(session, "f(3);")));
+            return null;
+        });
+    }
+
+    /**
+     * Evaluates the tree of the task in the session, the way two sessions may share the tree of a cached file.
+     */
+    private static ValuesImpl.RuntimeValue evaluate(Session session, ProcessTask task) {
+        final ValuesImpl.RuntimeValue value = Interpreter.evaluate(task.getProgram(), session.getGlobals(), task);
+        assertEquals(List.of(), task.getErrorStorage().getErrors());
+        return value;
+    }
+
+    @Test
+    void sessionsSharingATreeCompileOnTheirOwn() {
+        withJit(() -> {
+            final ProcessTask declarations = new ProcessTask(new SourceFile("fun g = int (int x) -> x + 1; fun f = int (int x) -> g(x) * 2;", "test"), new Session());
+            declarations.start();
+            final ProcessTask call = new ProcessTask(new SourceFile("f(1);", "test"), new Session());
+            call.start();
+
+            final Session first = new Session(), second = new Session();
+            evaluate(first, declarations);
+            evaluate(second, declarations);
+            final ASTImpl.FunctionDeclarationStatement f = declaration(first, "f", 1);
+            assertSame(f, declaration(second, "f", 1));
+
+            for (int i = 0; i < 3; i++)
+                assertEquals(4f, number(evaluate(first, call)));
+            assertEquals(Tier.COMPILED, Jit.tier(first.getGlobals(), f));
+            assertEquals(Tier.INTERPRETED, Jit.tier(second.getGlobals(), f));
+
+            // the other session neither runs nor drops the code compiled against the first one
+            evaluate(second, "fun g = int (int x) -> x + 100;");
+            for (int i = 0; i < 3; i++)
+                assertEquals(202f, number(evaluate(second, call)));
+            assertEquals(Tier.COMPILED, Jit.tier(second.getGlobals(), f));
+            assertEquals(Tier.COMPILED, Jit.tier(first.getGlobals(), f));
+            assertEquals(4f, number(evaluate(first, call)));
+            assertEquals(202f, number(evaluate(second, call)));
+            return null;
+        });
+    }
+
+    @Test
+    void compiledCodeDoesNotKeepASessionAlive() {
+        withJit(() -> {
+            final ProcessTask declarations = new ProcessTask(new SourceFile("fun g = int (int x) -> x + 1; fun f = int (int x) -> g(x) * 2;", "test"), new Session());
+            declarations.start();
+            Session session = new Session();
+            evaluate(session, declarations);
+            for (int i = 0; i < 3; i++)
+                evaluate(session, "f(1);");
+            assertEquals(Tier.COMPILED, Jit.tier(session.getGlobals(), declaration(session, "f", 1)));
+            final WeakReference<Frame> frame = new WeakReference<>(session.getGlobals().frame());
+            session = null;
+
+            for (int i = 0; i < 50 && frame.get() != null; i++) {
+                System.gc();
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            }
+            assertNull(frame.get());
+            return null;
+        });
+    }
+
+    @Test
+    void deoptimizingTooOftenStopsCompiling() {
+        withJit(() -> {
+            final Session session = new Session();
+            evaluate(session, "fun g = int (int x) -> x; fun f = int (int x) -> g(x);");
+            final ASTImpl.FunctionDeclarationStatement f = declaration(session, "f", 1);
+            for (int round = 1; Jit.tier(session.getGlobals(), f) != Tier.NOT_COMPILABLE; round++) {
+                assertTrue(round <= 3, "deoptimized more than 3 times");
+                for (int i = 0; i < 3; i++)
+                    evaluate(session, "f(1);");
+                evaluate(session, "fun g = int (int x) -> x + " + round + ";");
+                assertEquals(1f + round, number(evaluate(session, "f(1);")));
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,133 @@
+package mainau.repl.runtime;
+
+import mainau.compiler.analysis.lexical.SourceFile;
+import mainau.compiler.ast.AST;
+import mainau.compiler.ast.ASTImpl;
+import mainau.compiler.error.Error;
+import mainau.compiler.error.ErrorType;
+import mainau.compiler.interpretation.Globals;
+import mainau.compiler.interpretation.SpecializingInterpreter;
+import mainau.compiler.logging.Message;
+import mainau.compiler.logging.MessageType;
+import mainau.compiler.logging.Output;
+import mainau.vm.VirtualMachine;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LazyFunctionBodiesTest {
+    private interface Engine {
+        ValuesImpl.RuntimeValue evaluate(ASTImpl.Program program, Globals globals, ProcessTask task);
+    }
+
+    private static final Map<String, Engine> ENGINES = Map.of(
+            "ast", mainau.compiler.interpretation.Interpreter::evaluate,
+            "specializing", SpecializingInterpreter::evaluate,
+            "bytecode", VirtualMachine::evaluate
+    );
+
+    private static ProcessTask parse(String source, Session session) {
+        final ProcessTask task = new ProcessTask(new SourceFile(source, "test"), false, false, true, session);
+        task.start();
+        return task;
+    }
+
+    private static ValuesImpl.RuntimeValue run(Engine engine, ProcessTask task, Session session) {
+        return engine.evaluate(task.getProgram(), session.getGlobals(), task);
+    }
+
+    private static boolean hasError(ProcessTask task, ErrorType type) {
+        return task.getErrorStorage().getErrors().stream().map(Error::type).anyMatch(type::equals);
+    }
+
+    @Test
+    void uncalledBodiesStayUnparsed() {
+        ENGINES.forEach((name, engine) -> {
+            final Session session = new Session();
+            final ProcessTask task = parse("fun used = int (int x) -> { x + 1; } fun unused = int (int x) -> { x + ; } used(1);", session);
+            assertTrue(task.getErrorStorage().getErrors().isEmpty(), name);
+
+            final ValuesImpl.RuntimeValue result = run(engine, task, session);
+            assertEquals(2f, ((ValuesImpl.NumberValue) result).value(), name);
+            assertTrue(task.getErrorStorage().getErrors().isEmpty(), name);
+            final AST.Statement[] body = task.getProgram().body();
+            assertTrue(((ASTImpl.LazyFunctionDeclarationStatement) body[0]).isParsed(), name);
+            assertFalse(((ASTImpl.LazyFunctionDeclarationStatement) body[1]).isParsed(), name);
+        });
+    }
+
+    @Test
+    void syntaxErrorsOfABodyAreReportedOnItsFirstCall() {
+        ENGINES.forEach((name, engine) -> {
+            final Session session = new Session();
+            final ProcessTask task = parse("fun broken = int () -> { 1 + ; } broken();", session);
+            assertTrue(task.getErrorStorage().getErrors().isEmpty(), name);
+
+            assertNull(run(engine, task, session), name);
+            assertTrue(hasError(task, ErrorType.SYNTAX), name);
+            assertTrue(hasError(task, ErrorType.INVALID_ACTION), name);
+            // nothing is kept for a body that failed
+            assertNull(((ASTImpl.LazyFunctionDeclarationStatement) task.getProgram().body()[0]).deferral(), name);
+        });
+    }
+
+    @Test
+    void bodiesOnlySeeTheNamesDeclaredBeforeTheirFunction() {
+        ENGINES.forEach((name, engine) -> {
+            final Session session = new Session();
+            final ProcessTask task = parse("fun f = int () -> { y; } var y = 1; f();", session);
+
+            assertNull(run(engine, task, session), name);
+            assertTrue(hasError(task, ErrorType.NOT_FOUND), name);
+        });
+    }
+
+    @Test
+    void nestedBodiesUseTheVariablesOfTheirFunction() {
+        ENGINES.forEach((name, engine) -> {
+            final Session session = new Session();
+            final ProcessTask task = parse("fun outer = int (int x) -> { fun inner = int () -> { x * 2; } inner(); } outer(5);", session);
+
+            final ValuesImpl.RuntimeValue result = run(engine, task, session);
+            assertEquals(List.of(), task.getErrorStorage().getErrors(), name);
+            assertEquals(10f, ((ValuesImpl.NumberValue) result).value(), name);
+        });
+    }
+
+    @Test
+    void functionsDeclaredInAnEarlierInputAreParsedOnTheirFirstCall() {
+        ENGINES.forEach((name, engine) -> {
+            final Session session = new Session();
+            final ProcessTask declaration = parse("fun twice = int (int x) -> { x * 2; }", session);
+            run(engine, declaration, session);
+            final ASTImpl.LazyFunctionDeclarationStatement twice =
+                    (ASTImpl.LazyFunctionDeclarationStatement) declaration.getProgram().body()[0];
+            assertFalse(twice.isParsed(), name);
+            assertNotNull(twice.deferral(), name);
+
+            final ProcessTask call = parse("twice(4);", session);
+            final ValuesImpl.RuntimeValue result = run(engine, call, session);
+            assertEquals(8f, ((ValuesImpl.NumberValue) result).value(), name);
+            assertTrue(twice.isParsed(), name);
+            // the scopes and the task of the declaration are released once the body is resolved
+            assertNull(twice.deferral(), name);
+        });
+    }
+
+    @Test
+    void errorsFoundOnAFirstCallArePrintedOnce() {
+        final MessageType level = Output.getMinimumLevel();
+        Output.setMinimumLevel(MessageType.ERROR);
+        try {
+            final List<Message> messages = Output.capture(MessageType.ERROR, () ->
+                    new ProcessTask(new SourceFile("fun broken = int () -> { 1 + ; } broken();", "test"), true, false, true, new Session()).start());
+            // the syntax error in the body and the failed call
+            assertEquals(2, messages.size());
+        } finally {
+            Output.setMinimumLevel(level);
+        }
+    }
+}
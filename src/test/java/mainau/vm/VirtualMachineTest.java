@@ -0,0 +1,141 @@
+package mainau.vm;
+
+import mainau.compiler.analysis.lexical.SourceFile;
+import mainau.compiler.interpretation.Interpreter;
+import mainau.repl.runtime.ProcessTask;
+import mainau.repl.runtime.Session;
+import mainau.repl.runtime.Values;
+import mainau.repl.runtime.ValuesImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs programs with the {@link Interpreter} and the {@link VirtualMachine}, which must agree on the
+ * value and on the errors of every one of them.
+ */
+class VirtualMachineTest {
+    private record Outcome(String value, List<String> errors) {}
+
+    private static Outcome run(String source, boolean bytecode) {
+        final Session session = new Session();
+        Outcome outcome = null;
+        // every input but the last is evaluated first, like the lines of a session
+        for (String input : source.split("\n---\n")) {
+            final ProcessTask task = new ProcessTask(new SourceFile(input, "test"), session);
+            task.start();
+            assertEquals(List.of(), task.getErrorStorage().getErrors(), input);
+            final ValuesImpl.RuntimeValue value = bytecode
+                    ? VirtualMachine.evaluate(task.getProgram(), session.getGlobals(), task)
+                    : Interpreter.evaluate(task.getProgram(), session.getGlobals(), task);
+            outcome = new Outcome(describe(value), task.getErrorStorage().getErrors().stream()
+                    .map(error -> error.type() + ": " + error.message()).toList());
+        }
+        return outcome;
+    }
+
+    /**
+     * @return the value as both engines describe it, they have their own classes of function values
+     */
+    private static String describe(ValuesImpl.RuntimeValue value) {
+        return value instanceof Values.FunctionValue function
+                ? value.type() + " " + function.name()
+                : String.valueOf(value);
+    }
+
+    private static void assertSameErrors(String source) {
+        final Outcome interpreted = run(source, false);
+        assertFalse(interpreted.errors().isEmpty(), source);
+        assertEquals(interpreted, run(source, true), source);
+    }
+
+    private static void assertSameValue(String source) {
+        final Outcome interpreted = run(source, false);
+        assertEquals(List.of(), interpreted.errors(), source);
+        assertEquals(interpreted, run(source, true), source);
+    }
+
+    @Test
+    void arithmetic() {
+        assertSameValue("1 + 2 * 3 - 4 / 8;");
+        assertSameValue("2 ^ 10 % 7;");
+        assertSameValue("(1 + 2) * (3 - 4.5) / 0.25;");
+        assertSameValue("1 / 0;");
+        assertSameValue("7 & 3 | 8;");
+        assertSameValue("1 << 4 >> 2;");
+        assertSameValue("'a' + 1;");
+    }
+
+    @Test
+    void comparisonsAndLogic() {
+        assertSameValue("1 < 2;");
+        assertSameValue("2 <= 1;");
+        assertSameValue("'a' == 'a';");
+        assertSameValue("\"a\" != \"b\";");
+        assertSameValue("1 < 2 && 2 < 1;");
+        assertSameValue("1 < 2 || 2 < 1;");
+        assertSameValue("null == null;");
+    }
+
+    @Test
+    void strings() {
+        assertSameValue("\"x = \" + 1.5;");
+        assertSameValue("1 + \"a\" + 'b';");
+    }
+
+    @Test
+    void variablesAndAssignments() {
+        assertSameValue("var x = 1; x = x + 2; x;");
+        assertSameValue("var x = 1; x += 2; x *= 3; x -= 1; x /= 2; x;");
+        assertSameValue("var x = 5; x %= 3; x <<= 4; x >>= 1; x;");
+        assertSameValue("var x = 6; x &= 3; x |= 8; x;");
+        assertSameValue("var s = \"a\"; s += 1; s;");
+        assertSameValue("var x = 1; var y = x = 4; x + y;");
+    }
+
+    @Test
+    void functions() {
+        assertSameValue("fun add = int (int a, int b) -> a + b; add(1, 2);");
+        assertSameValue("fun f = int (int x) -> { var y = x * 2; y += 1; y; } f(3);");
+        assertSameValue("fun f = int () -> 1; fun f = int (int x) -> x; f() + f(5);");
+        assertSameValue("fun f = int (int x) -> x; f;");
+        assertSameValue("fun twice = int (int x) -> x * 2; fun apply = int (int x) -> twice(twice(x)); apply(3);");
+    }
+
+    @Test
+    void closures() {
+        assertSameValue("fun outer = int (int x) -> { fun inner = int (int y) -> x + y; inner(2); } outer(1);");
+        assertSameValue("fun make = int (int x) -> { fun add = int (int y) -> x + y; add; } var add = make(10); add(5);");
+        assertSameValue("fun counter = int () -> { var n = 0; fun next = int () -> n += 1; next(); next(); n; } counter();");
+        assertSameValue("var g = 2; fun scale = int (int x) -> x * g; g = 3; scale(4);");
+    }
+
+    @Test
+    void recursionIsAStackOverflowInBoth() {
+        assertSameErrors("fun down = int (int x) -> down(x - 1); down(0);");
+    }
+
+    @Test
+    void sessionsKeepTheirGlobals() {
+        assertSameValue("var x = 2; fun f = int (int y) -> x * y;\n---\nx = 5;\n---\nf(3);");
+        assertSameValue("fun f = int (int x) -> x;\n---\nfun f = int (int x, int y) -> x + y;\n---\nf(1) + f(1, 2);");
+        // an input that failed declares nothing
+        assertSameValue("var x = 1;\n---\nvar x = 2; var y = 3;\n---\nvar y = x; y;");
+    }
+
+    @Test
+    void errors() {
+        assertSameErrors("var g = 1; g(2);");
+        assertSameErrors("fun f = int (int x) -> x; f(1, 2);");
+        assertSameErrors("var x; x + 1;");
+        assertSameErrors("1 - \"a\";");
+        assertSameErrors("1 && 2;");
+        assertSameErrors("y;");
+        assertSameErrors("var x = 1; var x = 2;");
+        assertSameErrors("fun f = int (int a, int a) -> a; f(1, 2);");
+        assertSameErrors("1 = 2;");
+        assertSameErrors("var x = 1;\n---\nvar x = 2;");
+    }
+}